@@ -0,0 +1,91 @@
+package com.lonkoski.minhasFinancas.api.resource;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.lonkoski.minhasFinancas.api.dto.LancamentoDTO;
+import com.lonkoski.minhasFinancas.model.entity.Lancamento;
+import com.lonkoski.minhasFinancas.model.entity.Usuario;
+import com.lonkoski.minhasFinancas.service.UsuarioService;
+
+/**
+ * Conversão do DTO recebido pela API em lançamento. O usuário vem de um serviço
+ * fixo, como se estivesse no cache, para medir só a conversão.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Fork( 1 )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+public class ConversaoLancamentoBenchmark {
+	
+	LacamentoResource resource;
+	LancamentoDTO dto;
+	
+	@Setup
+	public void setUp() {
+		resource = new LacamentoResource(null, new UsuarioFixo(), null, null);
+		dto = LancamentoDTO.builder()
+				.descricao("Aluguel")
+				.mes(1)
+				.ano(2021)
+				.valor(BigDecimal.valueOf(1500))
+				.usuario(1l)
+				.tipo("DESPESA")
+				.status("PENDENTE")
+				.build();
+	}
+	
+	@Benchmark
+	public Lancamento converter() {
+		return resource.converter(dto);
+	}
+	
+	static class UsuarioFixo implements UsuarioService {
+		
+		private final Optional<Usuario> usuario = Optional.of( Usuario.builder().id(1l).nome("usuario").build() );
+
+		@Override
+		public Usuario autenticar(String email, String senha) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Usuario salvarUsuario(Usuario usuario) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public void validarEmail(String email) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Optional<Usuario> obtePorId(Long id) {
+			return usuario;
+		}
+
+		@Override
+		public List<Usuario> obterPorIds(Collection<Long> ids) {
+			return Collections.singletonList(usuario.get());
+		}
+		
+	}
+
+}
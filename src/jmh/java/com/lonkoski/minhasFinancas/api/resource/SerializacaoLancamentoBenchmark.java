@@ -0,0 +1,75 @@
+package com.lonkoski.minhasFinancas.api.resource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lonkoski.minhasFinancas.model.entity.Lancamento;
+import com.lonkoski.minhasFinancas.model.entity.Usuario;
+import com.lonkoski.minhasFinancas.model.projecao.LancamentoResumo;
+import com.lonkoski.minhasFinancas.model.repository.LancamentoRepositoryTest;
+import com.lonkoski.minhasFinancas.model.repository.UsuarioRepositoryTest;
+
+/**
+ * Serialização em JSON de listas de lançamentos, com o {@link ObjectMapper} configurado
+ * como o do Spring. A entidade completa é comparada com a projeção que a API devolve.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Fork( 1 )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+public class SerializacaoLancamentoBenchmark {
+	
+	@Param({ "10", "1000" })
+	int tamanho;
+	
+	ObjectMapper mapper;
+	List<Lancamento> lancamentos;
+	List<LancamentoResumo> resumos;
+	
+	@Setup
+	public void setUp() {
+		mapper = Jackson2ObjectMapperBuilder.json().build();
+		
+		Usuario usuario = UsuarioRepositoryTest.criarUsuario();
+		usuario.setId(1l);
+		lancamentos = new ArrayList<>();
+		for ( int i = 0; i < tamanho; i++ ) {
+			Lancamento lancamento = LancamentoRepositoryTest.criarLancamento();
+			lancamento.setId((long) i);
+			lancamento.setVersao(0l);
+			lancamento.setUsuario(usuario);
+			lancamentos.add(lancamento);
+		}
+		resumos = lancamentos.stream().map(LancamentoResumo::de).collect(Collectors.toList());
+	}
+	
+	@Benchmark
+	public byte[] serializarLancamentos() throws JsonProcessingException {
+		return mapper.writeValueAsBytes(lancamentos);
+	}
+	
+	@Benchmark
+	public byte[] serializarResumos() throws JsonProcessingException {
+		return mapper.writeValueAsBytes(resumos);
+	}
+
+}
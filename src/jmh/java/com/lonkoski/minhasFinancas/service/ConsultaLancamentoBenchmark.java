@@ -0,0 +1,105 @@
+package com.lonkoski.minhasFinancas.service;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.lonkoski.minhasFinancas.MinhasFinancasApplication;
+import com.lonkoski.minhasFinancas.model.filtro.FiltroLancamento;
+import com.lonkoski.minhasFinancas.model.filtro.OrdenacaoLancamento;
+import com.lonkoski.minhasFinancas.model.geracao.ParametrosGeracao;
+import com.lonkoski.minhasFinancas.model.geracao.ResultadoGeracao;
+import com.lonkoski.minhasFinancas.model.projecao.LancamentoResumo;
+
+/**
+ * Busca e saldo pelo serviço, com a aplicação no perfil "test" (H2 em memória) e a base
+ * preenchida pela massa sintética com cerca de {@code linhas} lançamentos, mil por usuário
+ * em média. O tamanho de cada resultado não muda com a base, então a diferença entre os
+ * parâmetros é o custo de localizar os lançamentos do usuário.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Fork( value = 1, jvmArgsAppend = "-Xmx2g" )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+public class ConsultaLancamentoBenchmark {
+	
+	private static final int LANCAMENTOS_POR_USUARIO = 1000;
+	
+	@Param({ "1000", "100000", "1000000" })
+	int linhas;
+	
+	ConfigurableApplicationContext contexto;
+	LancamentoService service;
+	Long idUsuario;
+	FiltroLancamento filtroUsuario;
+	FiltroLancamento filtroMes;
+	
+	@Setup( Level.Trial )
+	public void setUp() {
+		// O devtools está no classpath de teste e reiniciaria o contexto.
+		System.setProperty("spring.devtools.restart.enabled", "false");
+		contexto = new SpringApplicationBuilder(MinhasFinancasApplication.class)
+				.profiles("test")
+				.web(WebApplicationType.NONE)
+				.properties("spring.main.banner-mode=off", "logging.level.root=WARN")
+				.run();
+		service = contexto.getBean(LancamentoService.class);
+		
+		ResultadoGeracao massa = contexto.getBean(GeracaoDadosService.class).gerar( ParametrosGeracao.builder()
+				.usuarios( Math.max(1, linhas / LANCAMENTOS_POR_USUARIO) )
+				.mediaLancamentosPorUsuario(LANCAMENTOS_POR_USUARIO)
+				.build() );
+		
+		idUsuario = massa.getIdsUsuarios().get( massa.getIdsUsuarios().size() / 2 );
+		filtroUsuario = FiltroLancamento.builder()
+				.idUsuario(idUsuario)
+				.ordenacao(OrdenacaoLancamento.DATA_CRESCENTE)
+				.build();
+		filtroMes = FiltroLancamento.builder()
+				.idUsuario(idUsuario)
+				.ano(2022)
+				.mes(6)
+				.ordenacao(OrdenacaoLancamento.DATA_CRESCENTE)
+				.build();
+	}
+	
+	@TearDown( Level.Trial )
+	public void tearDown() {
+		contexto.close();
+	}
+	
+	@Benchmark
+	public List<LancamentoResumo> buscarDoUsuario() {
+		return service.buscar(filtroUsuario);
+	}
+	
+	@Benchmark
+	public List<LancamentoResumo> buscarDoMes() {
+		return service.buscar(filtroMes);
+	}
+	
+	@Benchmark
+	public BigDecimal obterSaldoPorUsuario() {
+		return service.obterSaldoPorUsuario(idUsuario);
+	}
+
+}
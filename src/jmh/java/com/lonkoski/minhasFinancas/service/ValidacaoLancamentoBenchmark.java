@@ -0,0 +1,54 @@
+package com.lonkoski.minhasFinancas.service;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.lonkoski.minhasFinancas.model.entity.Lancamento;
+import com.lonkoski.minhasFinancas.model.entity.Usuario;
+import com.lonkoski.minhasFinancas.model.repository.ArquivoUsuarioRepository;
+import com.lonkoski.minhasFinancas.model.repository.LancamentoRepositoryTest;
+import com.lonkoski.minhasFinancas.service.arquivo.ArquivoLancamentos;
+import com.lonkoski.minhasFinancas.service.impl.LancamentoServiceImpl;
+
+/**
+ * Custo da validação feita a cada inclusão e alteração, inclusive o
+ * {@code toString().length()} do ano.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Fork( 1 )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+public class ValidacaoLancamentoBenchmark {
+	
+	LancamentoServiceImpl service;
+	Lancamento lancamento;
+	
+	@Setup
+	public void setUp() {
+		service = new LancamentoServiceImpl(null, null, null, new ArquivoLancamentos(
+				Mockito.mock(ArquivoUsuarioRepository.class), true, "arquivo", Duration.ofMinutes(1) ));
+		lancamento = LancamentoRepositoryTest.criarLancamento();
+		lancamento.setUsuario( Usuario.builder().id(1l).build() );
+	}
+	
+	@Benchmark
+	public Lancamento validar() {
+		service.validar(lancamento);
+		return lancamento;
+	}
+
+}
@@ -0,0 +1,19 @@
+package com.lonkoski.minhasFinancas.api.dto;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AtualizacaoStatusLoteDTO {
+	
+	/** Novo status dos lançamentos. */
+	private String status;
+	
+	/** Restringe a alteração a estes lançamentos; quando nulo valem só os filtros. */
+	private List<Long> ids;
+}
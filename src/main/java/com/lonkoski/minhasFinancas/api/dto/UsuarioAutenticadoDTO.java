@@ -0,0 +1,23 @@
+package com.lonkoski.minhasFinancas.api.dto;
+
+import java.time.Instant;
+
+import lombok.Builder;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Resposta do login: os dados públicos do usuário e o token a enviar nas próximas chamadas.
+ */
+@Getter
+@Setter
+@Builder
+public class UsuarioAutenticadoDTO {
+	
+	private Long id;
+	private String nome;
+	private String email;
+	private String token;
+	private Instant expiraEm;
+
+}
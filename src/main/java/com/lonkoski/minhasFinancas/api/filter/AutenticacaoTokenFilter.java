@@ -0,0 +1,123 @@
+package com.lonkoski.minhasFinancas.api.filter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.lonkoski.minhasFinancas.exception.ErroAutenticacao;
+import com.lonkoski.minhasFinancas.service.TokenAcesso;
+import com.lonkoski.minhasFinancas.service.TokenService;
+import com.lonkoski.minhasFinancas.service.metricas.MetricasAspect;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Autentica as chamadas à API pelo cabeçalho {@code Authorization: Bearer <token>},
+ * validando a assinatura localmente. Um token válido só permite operar sobre o
+ * próprio usuário: o parâmetro {@code usuario} e o id de {@code /api/usuarios/{id}/**}
+ * precisam ser o do token. O dono dos lançamentos acessados por id e o usuário do corpo
+ * das requisições são conferidos pelos recursos com o atributo {@link #ATRIBUTO_USUARIO}.
+ * 
+ * Enquanto {@code financas.token.obrigatorio} for falso, chamadas sem token
+ * continuam aceitas para os clientes que ainda não fazem login por token.
+ * 
+ * Cada recusa é contada em {@code financas.autenticacao.falhas} com o motivo.
+ */
+@Component
+@Order( AutenticacaoTokenFilter.ORDEM )
+public class AutenticacaoTokenFilter extends OncePerRequestFilter {
+	
+	public static final int ORDEM = Ordered.LOWEST_PRECEDENCE - 10;
+	
+	/** Atributo da requisição com o id do usuário do token. */
+	public static final String ATRIBUTO_USUARIO = "financas.token.usuario";
+	
+	private static final String PREFIXO = "Bearer ";
+	private static final Pattern USUARIO = Pattern.compile("/api/usuarios/(\\d+)(/.*)?");
+	
+	private final TokenService tokenService;
+	private final boolean obrigatorio;
+	private final MeterRegistry registro;
+	
+	public AutenticacaoTokenFilter(TokenService tokenService,
+			@Value("${financas.token.obrigatorio:false}") boolean obrigatorio,
+			MeterRegistry registro) {
+		this.tokenService = tokenService;
+		this.obrigatorio = obrigatorio;
+		this.registro = registro;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		String cabecalho = request.getHeader(HttpHeaders.AUTHORIZATION);
+		if ( cabecalho == null || !cabecalho.startsWith(PREFIXO) ) {
+			if ( obrigatorio ) {
+				negar(response, ErroAutenticacao.Motivo.TOKEN_AUSENTE, HttpStatus.UNAUTHORIZED, "Informe o token de acesso.");
+				return;
+			}
+			filterChain.doFilter(request, response);
+			return;
+		}
+		
+		Optional<TokenAcesso> token = tokenService.decodificar( cabecalho.substring(PREFIXO.length()).trim() );
+		if ( !token.isPresent() || token.get().expirado() ) {
+			negar(response, ErroAutenticacao.Motivo.TOKEN_INVALIDO, HttpStatus.UNAUTHORIZED, "Token de acesso inválido ou expirado.");
+			return;
+		}
+		
+		String idUsuario = token.get().getIdUsuario().toString();
+		String usuarioInformado = request.getParameter("usuario");
+		Matcher usuario = USUARIO.matcher( caminho(request) );
+		if ( ( usuarioInformado != null && !usuarioInformado.equals(idUsuario) )
+				|| ( usuario.matches() && !usuario.group(1).equals(idUsuario) ) ) {
+			negar(response, ErroAutenticacao.Motivo.USUARIO_DIVERGENTE, HttpStatus.FORBIDDEN, "O token de acesso não pertence ao usuário informado.");
+			return;
+		}
+		
+		request.setAttribute(ATRIBUTO_USUARIO, token.get().getIdUsuario());
+		filterChain.doFilter(request, response);
+	}
+	
+	/**
+	 * Login e cadastro são as únicas chamadas da API feitas antes de existir um token.
+	 */
+	@Override
+	protected boolean shouldNotFilter(HttpServletRequest request) {
+		String caminho = caminho(request);
+		return !caminho.startsWith("/api/")
+				|| caminho.equals("/api/usuarios/autenticar")
+				|| ( caminho.equals("/api/usuarios") && HttpMethod.POST.matches(request.getMethod()) );
+	}
+	
+	private static String caminho(HttpServletRequest request) {
+		return request.getRequestURI().substring( request.getContextPath().length() );
+	}
+	
+	private void negar(HttpServletResponse response, ErroAutenticacao.Motivo motivo, HttpStatus status, String mensagem)
+			throws IOException {
+		registro.counter(MetricasAspect.FALHAS_AUTENTICACAO, "motivo", motivo.tag()).increment();
+		response.setStatus(status.value());
+		response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+		response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+		response.getWriter().write(mensagem);
+	}
+
+}
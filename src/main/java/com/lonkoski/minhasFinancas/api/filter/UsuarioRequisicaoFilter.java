@@ -0,0 +1,102 @@
+package com.lonkoski.minhasFinancas.api.filter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.lonkoski.minhasFinancas.config.fragmento.Fragmentos;
+import com.lonkoski.minhasFinancas.config.replica.AfinidadePrimaria;
+import com.lonkoski.minhasFinancas.service.coalescimento.InicioRequisicao;
+
+/**
+ * Informa ao roteamento de leituras e aos fragmentos o usuário da requisição: o do token,
+ * o parâmetro {@code usuario} ou o id de {@code /api/usuarios/{id}/...}. Uma escrita
+ * bem-sucedida dá ao usuário afinidade com a primária, cobrindo as alterações que não
+ * passam pelo saldo. Enquanto o usuário é movido entre fragmentos, suas escritas
+ * recebem 503. O início da requisição fica disponível para as consultas compartilhadas.
+ * 
+ * Roda depois de {@link AutenticacaoTokenFilter}, que recusa antes um usuário divergente do token.
+ */
+@Component
+@Order( AutenticacaoTokenFilter.ORDEM + 1 )
+public class UsuarioRequisicaoFilter extends OncePerRequestFilter {
+	
+	private static final Pattern USUARIO = Pattern.compile("/api/usuarios/(\\d+)/.*");
+	
+	private final AfinidadePrimaria afinidade;
+	private final Fragmentos fragmentos;
+	private final InicioRequisicao inicioRequisicao;
+	
+	public UsuarioRequisicaoFilter(AfinidadePrimaria afinidade, Fragmentos fragmentos, InicioRequisicao inicioRequisicao) {
+		this.afinidade = afinidade;
+		this.fragmentos = fragmentos;
+		this.inicioRequisicao = inicioRequisicao;
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		long inicio = System.nanoTime();
+		Long idUsuario = usuario(request);
+		boolean escrita = !HttpMethod.GET.matches(request.getMethod());
+		if ( escrita && fragmentos.emMovimentacao(idUsuario) ) {
+			response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+			response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+			response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+			response.getWriter().write("Os dados do usuário estão sendo movidos; tente novamente em instantes.");
+			return;
+		}
+		
+		afinidade.definirUsuario(idUsuario);
+		fragmentos.definirUsuario(idUsuario);
+		inicioRequisicao.definir(inicio);
+		try {
+			filterChain.doFilter(request, response);
+		} finally {
+			afinidade.limparUsuario();
+			fragmentos.limparUsuario();
+			inicioRequisicao.limpar();
+		}
+		
+		if ( idUsuario != null && escrita && response.getStatus() < 400 ) {
+			afinidade.registrarEscrita(idUsuario);
+		}
+	}
+	
+	@Override
+	protected boolean shouldNotFilter(HttpServletRequest request) {
+		return !request.getRequestURI().substring( request.getContextPath().length() ).startsWith("/api/");
+	}
+	
+	private static Long usuario(HttpServletRequest request) {
+		Object doToken = request.getAttribute(AutenticacaoTokenFilter.ATRIBUTO_USUARIO);
+		if ( doToken instanceof Long ) {
+			return (Long) doToken;
+		}
+		
+		String informado = request.getParameter("usuario");
+		if ( informado == null ) {
+			Matcher caminho = USUARIO.matcher( request.getRequestURI().substring( request.getContextPath().length() ) );
+			informado = caminho.matches() ? caminho.group(1) : null;
+		}
+		try {
+			return informado == null ? null : Long.valueOf(informado);
+		} catch (NumberFormatException e) {
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,16 @@
+package com.lonkoski.minhasFinancas.api.resource;
+
+/**
+ * ETag das consultas de um usuário, derivada da versão dos seus dados. Como a versão
+ * muda a cada escrita, a resposta de uma mesma URL só muda junto com a ETag.
+ */
+final class EtagUsuario {
+	
+	private EtagUsuario() {
+	}
+	
+	static String de(Long idUsuario, long versao) {
+		return "\"" + idUsuario + "-" + versao + "\"";
+	}
+
+}
@@ -1,26 +1,64 @@
 package com.lonkoski.minhasFinancas.api.resource;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PatchMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestAttribute;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.multipart.MultipartFile;
 
+import com.lonkoski.minhasFinancas.api.dto.AtualizacaoStatusLoteDTO;
 import com.lonkoski.minhasFinancas.api.dto.LancamentoDTO;
+import com.lonkoski.minhasFinancas.api.dto.OperacaoLoteDTO;
+import com.lonkoski.minhasFinancas.api.filter.AutenticacaoTokenFilter;
+import com.lonkoski.minhasFinancas.exception.ConflitoVersaoException;
+import com.lonkoski.minhasFinancas.exception.ErroAutenticacao;
 import com.lonkoski.minhasFinancas.exception.RegraNegocioException;
+import com.lonkoski.minhasFinancas.model.alteracao.AlteracaoLancamento;
 import com.lonkoski.minhasFinancas.model.entity.Lancamento;
 import com.lonkoski.minhasFinancas.model.entity.Usuario;
+import com.lonkoski.minhasFinancas.model.enums.FormatoExportacao;
+import com.lonkoski.minhasFinancas.model.enums.FormatoExtrato;
 import com.lonkoski.minhasFinancas.model.enums.StatusLancamento;
 import com.lonkoski.minhasFinancas.model.enums.TipoLancamento;
+import com.lonkoski.minhasFinancas.model.enums.TipoOperacaoLote;
+import com.lonkoski.minhasFinancas.model.filtro.FiltroLancamento;
+import com.lonkoski.minhasFinancas.model.filtro.OrdenacaoLancamento;
+import com.lonkoski.minhasFinancas.model.lote.OperacaoLote;
+import com.lonkoski.minhasFinancas.model.lote.ResultadoOperacaoLote;
+import com.lonkoski.minhasFinancas.model.pagina.Pagina;
+import com.lonkoski.minhasFinancas.model.projecao.LancamentoResumo;
+import com.lonkoski.minhasFinancas.service.ExportacaoLancamentoService;
+import com.lonkoski.minhasFinancas.service.ImportacaoExtratoService;
 import com.lonkoski.minhasFinancas.service.LancamentoService;
 import com.lonkoski.minhasFinancas.service.UsuarioService;
 
@@ -33,59 +71,241 @@ public class LacamentoResource {
 	
 	private final LancamentoService service;
 	private final UsuarioService usuarioService;
+	private final ImportacaoExtratoService importacaoService;
+	private final ExportacaoLancamentoService exportacaoService;
+	
+	private static final String MENSAGEM_CONFLITO = "O lançamento foi alterado por outra operação, recarregue-o e tente novamente.";
+	
+	@Value("${financas.lancamentos.pagina.tamanho-padrao:50}")
+	private int tamanhoPaginaPadrao;
+	
+	@Value("${financas.lancamentos.pagina.tamanho-maximo:500}")
+	private int tamanhoPaginaMaximo;
 	
 	@GetMapping
 	public ResponseEntity buscar(
 			@RequestParam(value = "descricao", required = false) String descricao,
 			@RequestParam(value = "mes", required = false) Integer mes,
 			@RequestParam(value = "ano", required = false) Integer ano,
-			@RequestParam(value = "usuario") Long idUsuario
+			@RequestParam(value = "usuario") Long idUsuario,
+			@RequestParam(value = "tipo", required = false) TipoLancamento tipo,
+			@RequestParam(value = "status", required = false) StatusLancamento status,
+			@RequestParam(value = "anoInicial", required = false) Integer anoInicial,
+			@RequestParam(value = "mesInicial", required = false) Integer mesInicial,
+			@RequestParam(value = "anoFinal", required = false) Integer anoFinal,
+			@RequestParam(value = "mesFinal", required = false) Integer mesFinal,
+			@RequestParam(value = "valorMinimo", required = false) BigDecimal valorMinimo,
+			@RequestParam(value = "valorMaximo", required = false) BigDecimal valorMaximo,
+			@RequestParam(value = "ordenacao", defaultValue = "DATA_CRESCENTE") OrdenacaoLancamento ordenacao,
+			@RequestParam(value = "busca", required = false) String busca,
+			@RequestParam(value = "cursor", required = false) String cursor,
+			@RequestParam(value = "tamanho", required = false) Integer tamanho,
+			@RequestParam(value = "total", defaultValue = "false") boolean contarTotal,
+			WebRequest requisicao
 			) {
-		Lancamento	lancamentoFiltro = new Lancamento();
-		lancamentoFiltro.setDescricao(descricao);
-		lancamentoFiltro.setMes(mes);
-		lancamentoFiltro.setAno(ano);
+		FiltroLancamento filtro = criarFiltro(descricao, mes, ano, tipo, status, anoInicial, mesInicial, anoFinal, mesFinal,
+				valorMinimo, valorMaximo, ordenacao);
 		
 		Optional<Usuario> usuario = usuarioService.obtePorId(idUsuario);
 		if ( ! usuario.isPresent() ) {
 			return ResponseEntity.badRequest().body("Não foi possivel realizar a consulta. Usuário não encontrado.");
 		}else {
-			lancamentoFiltro.setUsuario(usuario.get());
+			filtro.setIdUsuario(usuario.get().getId());
+		}
+		
+		// Responde 304 pela versão dos dados do usuário, sem consultar os lançamentos.
+		if ( requisicao.checkNotModified( EtagUsuario.de(idUsuario, service.obterVersaoDados(idUsuario)) ) ) {
+			return null;
+		}
+		
+		int tamanhoPagina = tamanho == null ? tamanhoPaginaPadrao : Math.min( Math.max(tamanho, 1), tamanhoPaginaMaximo );
+		
+		if ( busca != null ) {
+			// Modo de pesquisa: resultados por semelhança da descrição, sem os demais filtros nem cursor.
+			List<LancamentoResumo> encontrados = service.pesquisar(filtro.getIdUsuario(), busca, tamanhoPagina);
+			return ResponseEntity.ok( new Pagina<>(encontrados, null, null, false) );
+		}
+		
+		try {
+			Pagina<LancamentoResumo> pagina = service.buscarPagina(filtro, cursor, tamanhoPagina, contarTotal);
+			return ResponseEntity.ok(pagina);
+		} catch( RegraNegocioException e ) {
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+	}
+	
+	/**
+	 * Exporta todos os lançamentos do filtro, escrevendo direto na resposta à medida
+	 * que são lidos do banco.
+	 */
+	@GetMapping( "/export" )
+	public ResponseEntity exportar(
+			@RequestParam(value = "descricao", required = false) String descricao,
+			@RequestParam(value = "mes", required = false) Integer mes,
+			@RequestParam(value = "ano", required = false) Integer ano,
+			@RequestParam(value = "usuario") Long idUsuario,
+			@RequestParam(value = "tipo", required = false) TipoLancamento tipo,
+			@RequestParam(value = "status", required = false) StatusLancamento status,
+			@RequestParam(value = "anoInicial", required = false) Integer anoInicial,
+			@RequestParam(value = "mesInicial", required = false) Integer mesInicial,
+			@RequestParam(value = "anoFinal", required = false) Integer anoFinal,
+			@RequestParam(value = "mesFinal", required = false) Integer mesFinal,
+			@RequestParam(value = "valorMinimo", required = false) BigDecimal valorMinimo,
+			@RequestParam(value = "valorMaximo", required = false) BigDecimal valorMaximo,
+			@RequestParam(value = "ordenacao", defaultValue = "DATA_CRESCENTE") OrdenacaoLancamento ordenacao,
+			@RequestParam(value = "format", defaultValue = "csv") String format,
+			HttpServletResponse response
+			) throws IOException {
+		FormatoExportacao formato = FormatoExportacao.doNome(format);
+		if ( formato == null ) {
+			return ResponseEntity.badRequest().body("Formato de exportação inválido, informe csv ou ndjson.");
+		}
+		
+		Optional<Usuario> usuario = usuarioService.obtePorId(idUsuario);
+		if ( ! usuario.isPresent() ) {
+			return ResponseEntity.badRequest().body("Não foi possivel realizar a exportação. Usuário não encontrado.");
 		}
 		
-		List<Lancamento> lancamentos = service.buscar(lancamentoFiltro);
-		return ResponseEntity.ok(lancamentos);
+		FiltroLancamento filtro = criarFiltro(descricao, mes, ano, tipo, status, anoInicial, mesInicial, anoFinal, mesFinal,
+				valorMinimo, valorMaximo, ordenacao);
+		filtro.setIdUsuario(usuario.get().getId());
+		
+		response.setContentType(formato.getTipoConteudo());
+		response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+		response.setHeader(HttpHeaders.CONTENT_DISPOSITION,
+				"attachment; filename=\"lancamentos." + formato.getExtensao() + "\"");
+		exportacaoService.exportar(filtro, formato, response.getOutputStream());
+		
+		// O corpo já foi escrito na resposta.
+		return null;
+	}
+	
+	@GetMapping( "{id}" )
+	public ResponseEntity obterLancamento( @PathVariable("id") Long id, @RequestAttribute( value = AutenticacaoTokenFilter.ATRIBUTO_USUARIO, required = false ) Long idAutenticado ) {
+		return service.obterResumoPorId(id)
+				.map( lancamento -> {
+					service.verificarUsuario(lancamento.getUsuario(), idAutenticado);
+					return new ResponseEntity(lancamento, HttpStatus.OK);
+				})
+				.orElseGet( () -> new ResponseEntity(HttpStatus.NOT_FOUND) );
 	}
 	
 	@PostMapping
-	public ResponseEntity salvar( @RequestBody LancamentoDTO dto ) {
+	public ResponseEntity salvar( @RequestBody LancamentoDTO dto, @RequestAttribute( value = AutenticacaoTokenFilter.ATRIBUTO_USUARIO, required = false ) Long idAutenticado ) {
+		service.verificarUsuario(dto.getUsuario(), idAutenticado);
 		try {
 			Lancamento entidade = converter(dto);
 			entidade = service.salvar(entidade);
-			return ResponseEntity.ok(entidade);
+			return ResponseEntity.ok( LancamentoResumo.de(entidade) );
 		} catch( RegraNegocioException e ) {
 			return ResponseEntity.badRequest().body(e.getMessage());
 		}
 	}
 	
+	@PostMapping( "/batch" )
+	public ResponseEntity processarLote( @RequestBody List<OperacaoLoteDTO> dtos, @RequestAttribute( value = AutenticacaoTokenFilter.ATRIBUTO_USUARIO, required = false ) Long idAutenticado ) {
+		// Usuários do lote inteiro resolvidos em uma única consulta.
+		Collection<Long> idsUsuarios = dtos.stream()
+				.map(OperacaoLoteDTO::getUsuario)
+				.filter(Objects::nonNull)
+				.collect(Collectors.toSet());
+		idsUsuarios.forEach( idUsuario -> service.verificarUsuario(idUsuario, idAutenticado) );
+		Map<Long, Usuario> usuarios = usuarioService.obterPorIds(idsUsuarios).stream()
+				.collect(Collectors.toMap(Usuario::getId, Function.identity()));
+		
+		List<OperacaoLote> operacoes = dtos.stream()
+				.map( dto -> converter(dto, usuarios) )
+				.collect(Collectors.toList());
+		
+		List<ResultadoOperacaoLote> resultados = service.processarLote(operacoes, idAutenticado);
+		if ( resultados.stream().allMatch(ResultadoOperacaoLote::isSucesso) ) {
+			return ResponseEntity.ok(resultados);
+		}
+		return ResponseEntity.badRequest().body(resultados);
+	}
+	
+	@PostMapping( "/importacao" )
+	public ResponseEntity importar(
+			@RequestParam("arquivo") MultipartFile arquivo,
+			@RequestParam("usuario") Long idUsuario,
+			@RequestParam(value = "formato", required = false) FormatoExtrato formato
+			) {
+		Optional<Usuario> usuario = usuarioService.obtePorId(idUsuario);
+		if ( ! usuario.isPresent() ) {
+			return ResponseEntity.badRequest().body("Não foi possivel importar o extrato. Usuário não encontrado.");
+		}
+		
+		FormatoExtrato formatoArquivo = formato != null ? formato : FormatoExtrato.doArquivo(arquivo.getOriginalFilename());
+		if ( formatoArquivo == null ) {
+			return ResponseEntity.badRequest().body("Formato do extrato não reconhecido, informe CSV ou OFX.");
+		}
+		
+		try ( InputStream conteudo = arquivo.getInputStream() ) {
+			return ResponseEntity.ok( importacaoService.importar(conteudo, formatoArquivo, usuario.get()) );
+		} catch( RegraNegocioException e ) {
+			return ResponseEntity.badRequest().body(e.getMessage());
+		} catch( IOException e ) {
+			return ResponseEntity.badRequest().body("Não foi possível ler o arquivo do extrato.");
+		}
+	}
+	
 	@PutMapping( "{id}" )
-	public ResponseEntity atualizar( @PathVariable("id") Long  id, @RequestBody LancamentoDTO dto ) {
+	public ResponseEntity atualizar( @PathVariable("id") Long  id, @RequestBody LancamentoDTO dto, @RequestAttribute( value = AutenticacaoTokenFilter.ATRIBUTO_USUARIO, required = false ) Long idAutenticado ) {
 		return service.obterPorId(id).map( entity -> {
+			service.verificarUsuario(entity.getUsuario().getId(), idAutenticado);
+			service.verificarUsuario(dto.getUsuario(), idAutenticado);
 			try {
 				Lancamento lancamento = converter(dto);
 				lancamento.setId(entity.getId() );
-				service.atualizar(lancamento);
-				return ResponseEntity.ok(lancamento);
+				lancamento.setVersao(dto.getVersao());
+				return ResponseEntity.ok( LancamentoResumo.de( service.atualizar(lancamento) ) );
 			} catch( RegraNegocioException e ) {
 				return ResponseEntity.badRequest().body(e.getMessage());
+			} catch( ObjectOptimisticLockingFailureException e ) {
+				return new ResponseEntity<>(MENSAGEM_CONFLITO, HttpStatus.CONFLICT);
 			}
 		}).orElseGet( () ->
 			new ResponseEntity<>("Lancaento não encontrado na base de dados.", HttpStatus.BAD_REQUEST ) );
 	}
 	
+	/**
+	 * Altera só os campos enviados, com um único update quando não mexem no saldo.
+	 * A versão lida pelo cliente é obrigatória; se o lançamento já mudou, responde 409.
+	 */
+	@PatchMapping( "{id}" )
+	public ResponseEntity atualizarParcialmente( @PathVariable("id") Long id, @RequestBody LancamentoDTO dto, @RequestAttribute( value = AutenticacaoTokenFilter.ATRIBUTO_USUARIO, required = false ) Long idAutenticado ) {
+		AlteracaoLancamento alteracao;
+		try {
+			alteracao = AlteracaoLancamento.builder()
+					.descricao(dto.getDescricao())
+					.mes(dto.getMes())
+					.ano(dto.getAno())
+					.valor(dto.getValor())
+					.tipo( dto.getTipo() == null ? null : TipoLancamento.valueOf(dto.getTipo()) )
+					.status( dto.getStatus() == null ? null : StatusLancamento.valueOf(dto.getStatus()) )
+					.versao(dto.getVersao())
+					.idUsuario(idAutenticado)
+					.build();
+		} catch ( IllegalArgumentException e ) {
+			return ResponseEntity.badRequest().body("Tipo ou status inválido.");
+		}
+		
+		try {
+			Map<String, Long> resposta = new LinkedHashMap<>();
+			resposta.put("id", id);
+			resposta.put("versao", service.atualizarParcialmente(id, alteracao));
+			return ResponseEntity.ok(resposta);
+		} catch ( ConflitoVersaoException e ) {
+			return new ResponseEntity<>(e.getMessage(), HttpStatus.CONFLICT);
+		} catch ( RegraNegocioException e ) {
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+	}
+	
 	@PutMapping( "{id}/atualiza-status" )
-	public ResponseEntity atualizarStatus( @PathVariable("id") Long id, @RequestBody LancamentoDTO dto ) {
+	public ResponseEntity atualizarStatus( @PathVariable("id") Long id, @RequestBody LancamentoDTO dto, @RequestAttribute( value = AutenticacaoTokenFilter.ATRIBUTO_USUARIO, required = false ) Long idAutenticado ) {
 		return service.obterPorId(id).map( entity -> {
+			service.verificarUsuario(entity.getUsuario().getId(), idAutenticado);
 			StatusLancamento statusSelecionado = StatusLancamento.valueOf(dto.getStatus());
 			
 			if ( statusSelecionado == null ) {
@@ -95,7 +315,7 @@ public class LacamentoResource {
 			try {
 				entity.setStatus(statusSelecionado);
 				service.atualizar(entity);
-				return ResponseEntity.ok(entity);
+				return ResponseEntity.ok( LancamentoResumo.de(entity) );
 			}catch (RegraNegocioException e ) {
 				return ResponseEntity.badRequest().body(e.getMessage());
 			}
@@ -104,16 +324,84 @@ public class LacamentoResource {
 		new ResponseEntity<>("Lancaento não encontrado na base de dados.", HttpStatus.BAD_REQUEST ) ); 
 	}
 	
+	/**
+	 * Muda o status de vários lançamentos do usuário de uma vez, por ids e/ou pelos
+	 * filtros de período, tipo e status atual.
+	 */
+	@PutMapping( "/atualiza-status" )
+	public ResponseEntity atualizarStatusEmLote(
+			@RequestParam(value = "usuario") Long idUsuario,
+			@RequestParam(value = "ano", required = false) Integer ano,
+			@RequestParam(value = "mes", required = false) Integer mes,
+			@RequestParam(value = "tipo", required = false) TipoLancamento tipo,
+			@RequestParam(value = "statusAtual", required = false) StatusLancamento statusAtual,
+			@RequestBody AtualizacaoStatusLoteDTO dto
+			) {
+		if ( dto.getStatus() == null ) {
+			return ResponseEntity.badRequest().body("Não foi possivel atualizar o status do lancamento, envie um status valido.");
+		}
+		
+		StatusLancamento status;
+		try {
+			status = StatusLancamento.valueOf(dto.getStatus());
+		} catch ( IllegalArgumentException e ) {
+			return ResponseEntity.badRequest().body("Não foi possivel atualizar o status do lancamento, envie um status valido.");
+		}
+		
+		FiltroLancamento filtro = FiltroLancamento.builder()
+				.idUsuario(idUsuario)
+				.ano(ano)
+				.mes(mes)
+				.tipo(tipo)
+				.status(statusAtual)
+				.build();
+		
+		try {
+			int atualizados = service.atualizarStatusEmLote(filtro, dto.getIds(), status);
+			return ResponseEntity.ok( Collections.singletonMap("atualizados", atualizados) );
+		} catch ( RegraNegocioException e ) {
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+	}
+	
 	@DeleteMapping( "{id}" )
-	public ResponseEntity deletar( @PathVariable("id") Long  id ) {
+	public ResponseEntity deletar( @PathVariable("id") Long  id, @RequestAttribute( value = AutenticacaoTokenFilter.ATRIBUTO_USUARIO, required = false ) Long idAutenticado ) {
 		return service.obterPorId(id).map( entidade -> {
+			service.verificarUsuario(entidade.getUsuario().getId(), idAutenticado);
 			service.deletar(entidade);
 			return new ResponseEntity(HttpStatus.NO_CONTENT);
 		}).orElseGet( () ->
 			new ResponseEntity<>("Lancaento não encontrado na base de dados.", HttpStatus.BAD_REQUEST ) );
 	}
 	
-	private Lancamento converter( LancamentoDTO dto ) {
+	/**
+	 * Lançamento ou usuário do corpo de outro usuário que não o do token.
+	 */
+	@ExceptionHandler( ErroAutenticacao.class )
+	public ResponseEntity<String> recusar( ErroAutenticacao e ) {
+		return new ResponseEntity<>(e.getMessage(), HttpStatus.FORBIDDEN);
+	}
+	
+	private FiltroLancamento criarFiltro( String descricao, Integer mes, Integer ano, TipoLancamento tipo,
+			StatusLancamento status, Integer anoInicial, Integer mesInicial, Integer anoFinal, Integer mesFinal,
+			BigDecimal valorMinimo, BigDecimal valorMaximo, OrdenacaoLancamento ordenacao ) {
+		return FiltroLancamento.builder()
+				.descricao(descricao)
+				.mes(mes)
+				.ano(ano)
+				.tipo(tipo)
+				.status(status)
+				.anoInicial(anoInicial)
+				.mesInicial(mesInicial)
+				.anoFinal(anoFinal)
+				.mesFinal(mesFinal)
+				.valorMinimo(valorMinimo)
+				.valorMaximo(valorMaximo)
+				.ordenacao(ordenacao)
+				.build();
+	}
+	
+	Lancamento converter( LancamentoDTO dto ) {
 		Lancamento lancamento = new Lancamento();
 		lancamento.setId(dto.getId());
 		lancamento.setDescricao(dto.getDescricao());
@@ -132,6 +420,39 @@ public class LacamentoResource {
 		return lancamento;
 	}
 	
+	private OperacaoLote converter( OperacaoLoteDTO dto, Map<Long, Usuario> usuarios ) {
+		OperacaoLote operacao = new OperacaoLote();
+		Lancamento lancamento = new Lancamento();
+		lancamento.setId(dto.getId());
+		operacao.setLancamento(lancamento);
+		
+		try {
+			operacao.setTipo( dto.getOperacao() == null ? null : TipoOperacaoLote.valueOf(dto.getOperacao()) );
+			
+			if ( operacao.getTipo() == TipoOperacaoLote.STATUS ) {
+				operacao.setStatus( dto.getStatus() == null ? null : StatusLancamento.valueOf(dto.getStatus()) );
+			}
+			
+			if ( operacao.getTipo() == TipoOperacaoLote.CRIAR || operacao.getTipo() == TipoOperacaoLote.ATUALIZAR ) {
+				lancamento.setDescricao(dto.getDescricao());
+				lancamento.setAno(dto.getAno());
+				lancamento.setMes(dto.getMes());
+				lancamento.setValor(dto.getValor());
+				lancamento.setTipo( dto.getTipo() == null ? null : TipoLancamento.valueOf(dto.getTipo()) );
+				lancamento.setStatus( dto.getStatus() == null ? null : StatusLancamento.valueOf(dto.getStatus()) );
+				lancamento.setUsuario( usuarios.get(dto.getUsuario()) );
+				
+				if ( lancamento.getUsuario() == null ) {
+					operacao.setErro("Usuário não encontrado para o Id informado");
+				}
+			}
+		} catch (IllegalArgumentException e) {
+			operacao.setErro("Operação, tipo ou status inválido.");
+		}
+		
+		return operacao;
+	}
+	
 
 	
 	
@@ -10,13 +10,20 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
 
+import com.lonkoski.minhasFinancas.api.dto.UsuarioAutenticadoDTO;
 import com.lonkoski.minhasFinancas.api.dto.UsuarioDTO;
 import com.lonkoski.minhasFinancas.exception.ErroAutenticacao;
 import com.lonkoski.minhasFinancas.exception.RegraNegocioException;
+import com.lonkoski.minhasFinancas.model.arquivo.SituacaoFechamento;
 import com.lonkoski.minhasFinancas.model.entity.Usuario;
+import com.lonkoski.minhasFinancas.service.FechamentoAnoService;
 import com.lonkoski.minhasFinancas.service.LancamentoService;
+import com.lonkoski.minhasFinancas.service.TokenAcesso;
+import com.lonkoski.minhasFinancas.service.TokenService;
 import com.lonkoski.minhasFinancas.service.UsuarioService;
 
 import ch.qos.logback.core.status.Status;
@@ -29,12 +36,21 @@ public class UsuarioResource {
 	
 	private final UsuarioService service;
 	private final LancamentoService lancamentoService;
+	private final TokenService tokenService;
+	private final FechamentoAnoService fechamentoService;
 	
 	@PostMapping( "/autenticar" )
 	public ResponseEntity autenticar( @RequestBody UsuarioDTO dto ) {
 		try {
 			Usuario usuarioAutenticado = service.autenticar(dto.getEmail(), dto.getSenha());
-			return ResponseEntity.ok(usuarioAutenticado);
+			TokenAcesso token = tokenService.emitir(usuarioAutenticado);
+			return ResponseEntity.ok( UsuarioAutenticadoDTO.builder()
+					.id(usuarioAutenticado.getId())
+					.nome(usuarioAutenticado.getNome())
+					.email(usuarioAutenticado.getEmail())
+					.token(token.getToken())
+					.expiraEm(token.getExpiraEm())
+					.build() );
 		}catch(ErroAutenticacao e) {
 			return ResponseEntity.badRequest().body(e.getMessage());
 		}
@@ -59,16 +75,37 @@ public class UsuarioResource {
 	}
 	
 	@GetMapping("{id}/saldo")
-	public ResponseEntity obterSaldo( @PathVariable("id") Long id ) {
+	public ResponseEntity obterSaldo( @PathVariable("id") Long id, WebRequest requisicao ) {
 		Optional<Usuario> usuario = service.obtePorId(id);
 		
 		if(!usuario.isPresent()) {
 			return new ResponseEntity(HttpStatus.NOT_FOUND);
 		}
 		
+		if ( requisicao.checkNotModified( EtagUsuario.de(id, lancamentoService.obterVersaoDados(id)) ) ) {
+			return null;
+		}
+		
 		BigDecimal saldo = lancamentoService.obterSaldoPorUsuario(id);
 		return ResponseEntity.ok(saldo);
 	}
 	
+	@PostMapping("{id}/fechamento")
+	public ResponseEntity fecharAnos( @PathVariable("id") Long id, @RequestParam("ano") Integer ano ) {
+		try {
+			SituacaoFechamento situacao = fechamentoService.agendar(id, ano);
+			return new ResponseEntity(situacao, HttpStatus.ACCEPTED);
+		} catch (RegraNegocioException e) {
+			return ResponseEntity.badRequest().body(e.getMessage());
+		}
+	}
+	
+	@GetMapping("{id}/fechamento")
+	public ResponseEntity obterFechamento( @PathVariable("id") Long id ) {
+		return fechamentoService.obterSituacao(id)
+				.map( situacao -> ResponseEntity.ok(situacao) )
+				.orElseGet( () -> new ResponseEntity(HttpStatus.NOT_FOUND) );
+	}
+	
 }
 
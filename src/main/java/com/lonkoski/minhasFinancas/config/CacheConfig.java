@@ -0,0 +1,24 @@
+package com.lonkoski.minhasFinancas.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Caches em memória do processo. Tamanho, expiração e estatísticas de cada cache
+ * ficam em {@code spring.cache.caffeine.spec}; as estatísticas aparecem nas
+ * métricas {@code cache.gets}, {@code cache.puts} e {@code cache.evictions} do Actuator.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+	
+	/** Usuário por id, consultado por quase toda requisição de lançamentos. */
+	public static final String USUARIOS = "usuarios";
+	
+	/** Usuário por email, consultado na autenticação. */
+	public static final String USUARIOS_POR_EMAIL = "usuariosPorEmail";
+	
+	/** Tokens de acesso com assinatura já conferida. */
+	public static final String TOKENS = "tokens";
+
+}
@@ -0,0 +1,172 @@
+package com.lonkoski.minhasFinancas.config.fragmento;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import javax.sql.DataSource;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.lonkoski.minhasFinancas.exception.RegraNegocioException;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Em que fragmento está cada usuário, pelo id ou pelo email, na tabela
+ * {@code financas.diretorio_usuario} do fragmento 0. As localizações encontradas
+ * ficam em memória por {@code financas.fragmentos.validade-diretorio}; as ausentes
+ * não, para que um cadastro feito em outra instância seja visto na hora.
+ *
+ * Um usuário novo vai para o fragmento indicado pelo hash do email. A distribuição
+ * inicial não precisa ser a definitiva: o diretório é a única fonte da localização,
+ * e o rebalanceamento pode mover o usuário depois.
+ */
+public class DiretorioFragmentos {
+	
+	private static final String LOCALIZACAO = "select fragmento, em_movimentacao from financas.diretorio_usuario";
+	
+	private static final RowMapper<Localizacao> LEITOR = (resultado, linha) ->
+			new Localizacao( resultado.getInt("fragmento"), resultado.getBoolean("em_movimentacao") );
+	
+	private final FragmentosDataSource fontes;
+	private final JdbcTemplate jdbc;
+	private final Duration validade;
+	private final Cache<Long, Localizacao> porUsuario;
+	private final Cache<String, Localizacao> porEmail;
+	
+	public DiretorioFragmentos(FragmentosDataSource fontes, Duration validade) {
+		this.fontes = fontes;
+		this.jdbc = new JdbcTemplate( fontes.getFonte(0) );
+		this.validade = validade;
+		this.porUsuario = Caffeine.newBuilder().maximumSize(100_000).expireAfterWrite(validade).build();
+		this.porEmail = Caffeine.newBuilder().maximumSize(100_000).expireAfterWrite(validade).build();
+	}
+	
+	public Optional<Localizacao> localizarUsuario(Long idUsuario) {
+		Localizacao localizacao = porUsuario.getIfPresent(idUsuario);
+		if ( localizacao == null ) {
+			localizacao = primeira( jdbc.query(LOCALIZACAO + " where id_usuario = ?", LEITOR, idUsuario) );
+			if ( localizacao != null ) {
+				porUsuario.put(idUsuario, localizacao);
+			}
+		}
+		return Optional.ofNullable(localizacao);
+	}
+	
+	public Optional<Localizacao> localizarEmail(String email) {
+		Localizacao localizacao = porEmail.getIfPresent(email);
+		if ( localizacao == null ) {
+			localizacao = primeira( jdbc.query(LOCALIZACAO + " where email = ?", LEITOR, email) );
+			if ( localizacao != null ) {
+				porEmail.put(email, localizacao);
+			}
+		}
+		return Optional.ofNullable(localizacao);
+	}
+	
+	/**
+	 * Reserva o email para um cadastro e escolhe o fragmento do novo usuário.
+	 *
+	 * @throws RegraNegocioException se o email já estiver em uso em qualquer fragmento.
+	 */
+	public int reservar(String email) {
+		if ( email == null ) {
+			throw new RegraNegocioException("Informe o email do usuário.");
+		}
+		
+		int fragmento = Math.floorMod(email.hashCode(), fontes.getQuantidade());
+		try {
+			jdbc.update("insert into financas.diretorio_usuario (email, fragmento) values (?, ?)", email, fragmento);
+		} catch ( DuplicateKeyException e ) {
+			throw new RegraNegocioException("Já existe um usuário cadastrado com este email.");
+		}
+		return fragmento;
+	}
+	
+	public void vincular(String email, Long idUsuario) {
+		jdbc.update("update financas.diretorio_usuario set id_usuario = ? where email = ?", idUsuario, email);
+	}
+	
+	public void cancelarReserva(String email) {
+		jdbc.update("delete from financas.diretorio_usuario where email = ?", email);
+		porEmail.invalidate(email);
+	}
+	
+	/**
+	 * Marca o usuário como em movimentação; até a conclusão, as escritas dele são recusadas.
+	 *
+	 * @throws RegraNegocioException se o usuário não estiver no diretório ou já estiver sendo movido.
+	 */
+	public void iniciarMovimentacao(Long idUsuario) {
+		int marcados = jdbc.update("update financas.diretorio_usuario set em_movimentacao = true"
+				+ " where id_usuario = ? and em_movimentacao = false", idUsuario);
+		if ( marcados == 0 ) {
+			throw new RegraNegocioException("Usuário " + idUsuario + " não encontrado no diretório ou já em movimentação.");
+		}
+		invalidar(idUsuario);
+	}
+	
+	public void concluirMovimentacao(Long idUsuario, int destino) {
+		jdbc.update("update financas.diretorio_usuario set fragmento = ?, em_movimentacao = false where id_usuario = ?",
+				destino, idUsuario);
+		invalidar(idUsuario);
+	}
+	
+	public void cancelarMovimentacao(Long idUsuario) {
+		jdbc.update("update financas.diretorio_usuario set em_movimentacao = false where id_usuario = ?", idUsuario);
+		invalidar(idUsuario);
+	}
+	
+	/**
+	 * Inclui no diretório os usuários do fragmento 0 que ainda não estão nele: os
+	 * cadastrados antes de habilitar os fragmentos e os da geração de massa sintética.
+	 *
+	 * @return quantidade de usuários incluídos.
+	 */
+	public int sincronizar() {
+		return jdbc.update("insert into financas.diretorio_usuario (email, id_usuario, fragmento)"
+				+ " select u.email, u.id, 0 from financas.usuario u"
+				+ " where u.email is not null"
+				+ " and not exists ( select 1 from financas.diretorio_usuario d where d.id_usuario = u.id )");
+	}
+	
+	public int getQuantidade() {
+		return fontes.getQuantidade();
+	}
+	
+	public DataSource getFonte(int fragmento) {
+		return fontes.getFonte(fragmento);
+	}
+	
+	/**
+	 * Tempo até todas as instâncias enxergarem uma mudança no diretório.
+	 */
+	public Duration getValidade() {
+		return validade;
+	}
+	
+	private void invalidar(Long idUsuario) {
+		porUsuario.invalidate(idUsuario);
+		porEmail.invalidateAll();
+	}
+	
+	private static Localizacao primeira(List<Localizacao> localizacoes) {
+		return localizacoes.isEmpty() ? null : localizacoes.get(0);
+	}
+	
+	@Data
+	@AllArgsConstructor
+	public static class Localizacao {
+		
+		private final int fragmento;
+		private final boolean emMovimentacao;
+	
+	}
+	
+}
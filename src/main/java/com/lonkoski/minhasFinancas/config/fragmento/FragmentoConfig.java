@@ -0,0 +1,154 @@
+package com.lonkoski.minhasFinancas.config.fragmento;
+
+import java.io.Closeable;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.flyway.FlywayMigrationStrategy;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Com {@code financas.fragmentos.habilitado=true}, distribui os usuários e seus dados
+ * entre o banco de {@code spring.datasource} (fragmento 0) e os de
+ * {@code financas.fragmentos.fontes}. Todos os fragmentos recebem as migrações do
+ * Flyway na subida.
+ *
+ * Cada fragmento gera ids numa faixa própria de {@link #FAIXA_DE_IDS}, então um usuário
+ * movido leva seus ids sem colidir com os do destino. O id do usuário indica o fragmento
+ * em que ele foi cadastrado; o de um lançamento não indica nada, porque o Hibernate
+ * guarda o bloco de ids reservado e pode usá-lo em qualquer fragmento, o que não
+ * causa colisão, já que as faixas não se sobrepõem. Os fragmentos não são combinados
+ * com réplicas, e o token passa a ser obrigatório: é dele que sai o usuário, e com ele
+ * o fragmento, das requisições que só informam o id de um lançamento.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty( name = "financas.fragmentos.habilitado", havingValue = "true" )
+@EnableConfigurationProperties( PropriedadesFragmentos.class )
+public class FragmentoConfig {
+	
+	/**
+	 * 2^40 ids por fragmento. Mesmo com milhares de fragmentos os ids ficam abaixo de
+	 * 2^53, o maior inteiro exato num número do JavaScript.
+	 */
+	public static final long FAIXA_DE_IDS = 1L << 40;
+	
+	/** Mesmo incremento da financas.seq_lancamento, criada na migração V4. */
+	private static final int INCREMENTO_SEQUENCIA = 50;
+	
+	@Bean
+	@Primary
+	public DataSource dataSource(DataSourceProperties propriedades, PropriedadesFragmentos fragmentos,
+			Fragmentos contexto,
+			@Value("${financas.token.obrigatorio:false}") boolean tokenObrigatorio,
+			@Value("${financas.replicas.habilitado:false}") boolean replicasHabilitadas) {
+		if ( !tokenObrigatorio || replicasHabilitadas ) {
+			throw new IllegalStateException("Com financas.fragmentos.habilitado, financas.token.obrigatorio deve ser"
+					+ " verdadeiro e financas.replicas.habilitado, falso.");
+		}
+		
+		List<DataSource> fontes = new ArrayList<>();
+		HikariDataSource padrao = propriedades.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+		padrao.setPoolName("fragmento-0");
+		fontes.add(padrao);
+		for ( PropriedadesFragmentos.Fonte fonte : fragmentos.getFontes() ) {
+			HikariDataSource pool = DataSourceBuilder.create()
+					.type(HikariDataSource.class)
+					.driverClassName( propriedades.determineDriverClassName() )
+					.url( fonte.getUrl() )
+					.username( fonte.getUsername() != null ? fonte.getUsername() : propriedades.determineUsername() )
+					.password( fonte.getPassword() != null ? fonte.getPassword() : propriedades.determinePassword() )
+					.build();
+			pool.setPoolName("fragmento-" + fontes.size());
+			fontes.add(pool);
+		}
+		
+		return new DataSourceFragmentado( new FragmentosDataSource(fontes, contexto) );
+	}
+	
+	@Bean
+	public DiretorioFragmentos diretorioFragmentos(DataSource dataSource, PropriedadesFragmentos fragmentos)
+			throws SQLException {
+		return new DiretorioFragmentos( dataSource.unwrap(FragmentosDataSource.class), fragmentos.getValidadeDiretorio() );
+	}
+	
+	/**
+	 * Aplica as migrações configuradas em {@code spring.flyway} a cada fragmento e depois
+	 * inclui no diretório os usuários do fragmento 0 que ainda não estão nele.
+	 */
+	@Bean
+	public FlywayMigrationStrategy migracaoDosFragmentos(DiretorioFragmentos diretorio) {
+		return flyway -> {
+			for ( int fragmento = 0; fragmento < diretorio.getQuantidade(); fragmento++ ) {
+				DataSource fonte = diretorio.getFonte(fragmento);
+				Flyway.configure().configuration( flyway.getConfiguration() ).dataSource(fonte).load().migrate();
+				registrarFragmento(fonte, fragmento);
+			}
+			
+			int incluidos = diretorio.sincronizar();
+			if ( incluidos > 0 ) {
+				log.info("{} usuários do fragmento 0 incluídos no diretório", incluidos);
+			}
+		};
+	}
+	
+	/**
+	 * Na primeira subida com fragmentos, grava o número do fragmento no banco e leva as
+	 * sequências de id para o início da faixa dele. Nas seguintes, só confere o número.
+	 * O fragmento 0 mantém as sequências onde estão, já abaixo do início da faixa 1.
+	 */
+	private static void registrarFragmento(DataSource fonte, int fragmento) {
+		JdbcTemplate jdbc = new JdbcTemplate(fonte);
+		List<Integer> registrado = jdbc.queryForList("select numero from financas.fragmento", Integer.class);
+		if ( !registrado.isEmpty() ) {
+			if ( registrado.get(0) != fragmento ) {
+				throw new IllegalStateException("O banco configurado como fragmento " + fragmento + " é o fragmento "
+						+ registrado.get(0) + "; confira a ordem de financas.fragmentos.fontes.");
+			}
+			return;
+		}
+		
+		if ( fragmento > 0 ) {
+			long inicio = fragmento * FAIXA_DE_IDS;
+			jdbc.execute("alter table financas.usuario alter column id restart with " + (inicio + 1));
+			// O otimizador pooled do Hibernate trata o valor lido como o fim do bloco.
+			jdbc.execute("alter sequence financas.seq_lancamento restart with " + (inicio + INCREMENTO_SEQUENCIA));
+		}
+		jdbc.update("insert into financas.fragmento (numero) values (?)", fragmento);
+		log.info("Banco registrado como fragmento {}", fragmento);
+	}
+	
+	/**
+	 * Com {@code close}, o Spring fecha os pools de todos os fragmentos junto com o contexto.
+	 */
+	static final class DataSourceFragmentado extends LazyConnectionDataSourceProxy implements Closeable {
+		
+		DataSourceFragmentado(FragmentosDataSource fragmentos) {
+			super(fragmentos);
+		}
+		
+		@Override
+		public void close() {
+			((FragmentosDataSource) obtainTargetDataSource()).close();
+		}
+	
+	}
+	
+}
@@ -0,0 +1,161 @@
+package com.lonkoski.minhasFinancas.config.fragmento;
+
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.lonkoski.minhasFinancas.model.entity.Usuario;
+
+/**
+ * Fragmento em que a thread atual lê e grava. Nas requisições da API é o do usuário
+ * da requisição, definido pelo filtro; login e cadastro, que só conhecem o email,
+ * escolhem o fragmento pelo diretório. Sem usuário conhecido vale o fragmento 0.
+ *
+ * O fragmento precisa estar definido antes do primeiro comando da transação: depois
+ * disso a conexão já está presa a um banco. Sem {@code financas.fragmentos.habilitado}
+ * todos os métodos apenas executam a ação.
+ */
+@Component
+public class Fragmentos {
+	
+	private final ObjectProvider<DiretorioFragmentos> provedorDiretorio;
+	private final ThreadLocal<Integer> fragmentoAtual = new ThreadLocal<>();
+	private volatile Optional<DiretorioFragmentos> diretorio;
+	
+	public Fragmentos(ObjectProvider<DiretorioFragmentos> provedorDiretorio) {
+		this.provedorDiretorio = provedorDiretorio;
+	}
+	
+	public boolean isHabilitado() {
+		return diretorio().isPresent();
+	}
+	
+	public int getFragmentoAtual() {
+		Integer fragmento = fragmentoAtual.get();
+		return fragmento == null ? 0 : fragmento;
+	}
+	
+	public void definirUsuario(Long idUsuario) {
+		if ( idUsuario != null && isHabilitado() ) {
+			fragmentoAtual.set( fragmentoDoUsuario(idUsuario) );
+		}
+	}
+	
+	public void limparUsuario() {
+		fragmentoAtual.remove();
+	}
+	
+	/**
+	 * Indica se o usuário está sendo movido entre fragmentos e, por isso, não pode gravar.
+	 */
+	public boolean emMovimentacao(Long idUsuario) {
+		return idUsuario != null && diretorio()
+				.flatMap( diretorio -> diretorio.localizarUsuario(idUsuario) )
+				.map( DiretorioFragmentos.Localizacao::isEmMovimentacao )
+				.orElse(false);
+	}
+	
+	public <T> T noFragmento(int fragmento, Supplier<T> acao) {
+		Integer anterior = fragmentoAtual.get();
+		fragmentoAtual.set(fragmento);
+		try {
+			return acao.get();
+		} finally {
+			if ( anterior == null ) {
+				fragmentoAtual.remove();
+			} else {
+				fragmentoAtual.set(anterior);
+			}
+		}
+	}
+	
+	public <T> T noFragmentoDoUsuario(Long idUsuario, Supplier<T> acao) {
+		return isHabilitado() && idUsuario != null ? noFragmento(fragmentoDoUsuario(idUsuario), acao) : acao.get();
+	}
+	
+	/**
+	 * Executa a ação no fragmento do dono do email. Um email fora do diretório não está
+	 * cadastrado em fragmento algum, e a ação roda no fragmento 0 sem encontrá-lo.
+	 */
+	public <T> T noFragmentoDoEmail(String email, Supplier<T> acao) {
+		if ( !isHabilitado() || email == null ) {
+			return acao.get();
+		}
+		int fragmento = diretorio().get().localizarEmail(email).map( DiretorioFragmentos.Localizacao::getFragmento ).orElse(0);
+		return noFragmento(fragmento, acao);
+	}
+	
+	/**
+	 * Executa a ação uma vez em cada fragmento. Cada execução precisa abrir a própria
+	 * transação, já que uma transação não atravessa bancos.
+	 */
+	public void emCadaFragmento(Runnable acao) {
+		if ( !isHabilitado() ) {
+			acao.run();
+			return;
+		}
+		for ( int fragmento = 0; fragmento < diretorio().get().getQuantidade(); fragmento++ ) {
+			noFragmento( fragmento, () -> {
+				acao.run();
+				return null;
+			});
+		}
+	}
+	
+	/**
+	 * Reserva o email no diretório, grava o usuário no fragmento escolhido e registra o
+	 * id gerado. A reserva é desfeita se a gravação falhar ou se a transação em
+	 * andamento não for confirmada.
+	 */
+	public Usuario cadastrar(String email, Supplier<Usuario> acao) {
+		if ( !isHabilitado() ) {
+			return acao.get();
+		}
+		
+		DiretorioFragmentos diretorio = diretorio().get();
+		int fragmento = diretorio.reservar(email);
+		boolean emTransacao = TransactionSynchronizationManager.isSynchronizationActive();
+		if ( emTransacao ) {
+			TransactionSynchronizationManager.registerSynchronization( new TransactionSynchronization() {
+				@Override
+				public void afterCompletion(int status) {
+					if ( status != STATUS_COMMITTED ) {
+						diretorio.cancelarReserva(email);
+					}
+				}
+			});
+		}
+		
+		try {
+			Usuario salvo = noFragmento(fragmento, acao);
+			diretorio.vincular(email, salvo.getId());
+			return salvo;
+		} catch ( RuntimeException e ) {
+			if ( !emTransacao ) {
+				diretorio.cancelarReserva(email);
+			}
+			throw e;
+		}
+	}
+	
+	private int fragmentoDoUsuario(Long idUsuario) {
+		return diretorio().get().localizarUsuario(idUsuario).map( DiretorioFragmentos.Localizacao::getFragmento ).orElse(0);
+	}
+	
+	/**
+	 * Resolvido no primeiro uso: o diretório depende do DataSource, que depende desta classe.
+	 */
+	private Optional<DiretorioFragmentos> diretorio() {
+		Optional<DiretorioFragmentos> resolvido = diretorio;
+		if ( resolvido == null ) {
+			resolvido = Optional.ofNullable( provedorDiretorio.getIfAvailable() );
+			diretorio = resolvido;
+		}
+		return resolvido;
+	}
+	
+}
@@ -0,0 +1,80 @@
+package com.lonkoski.minhasFinancas.config.fragmento;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Entrega a conexão do fragmento em que a thread está, definido em {@link Fragmentos};
+ * sem fragmento definido, a do fragmento 0. Como o roteamento de réplicas, precisa
+ * estar atrás de um {@code LazyConnectionDataSourceProxy}, para que o fragmento
+ * escolhido dentro de um método transacional ainda valha para a transação.
+ */
+@Slf4j
+public class FragmentosDataSource extends AbstractDataSource implements Closeable {
+	
+	private final List<DataSource> fontes;
+	private final Fragmentos fragmentos;
+	
+	public FragmentosDataSource(List<DataSource> fontes, Fragmentos fragmentos) {
+		this.fontes = new ArrayList<>(fontes);
+		this.fragmentos = fragmentos;
+	}
+	
+	@Override
+	public Connection getConnection() throws SQLException {
+		return getFonte( fragmentos.getFragmentoAtual() ).getConnection();
+	}
+	
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		throw new SQLFeatureNotSupportedException("As credenciais são as de cada pool.");
+	}
+	
+	public DataSource getFonte(int fragmento) {
+		if ( fragmento < 0 || fragmento >= fontes.size() ) {
+			throw new IllegalStateException("Fragmento " + fragmento + " não configurado em financas.fragmentos.fontes.");
+		}
+		return fontes.get(fragmento);
+	}
+	
+	public int getQuantidade() {
+		return fontes.size();
+	}
+	
+	/**
+	 * O pool exposto para métricas e para o Actuator é o do fragmento 0.
+	 */
+	@Override
+	public <T> T unwrap(Class<T> tipo) throws SQLException {
+		return tipo.isInstance(this) ? tipo.cast(this) : fontes.get(0).unwrap(tipo);
+	}
+	
+	@Override
+	public boolean isWrapperFor(Class<?> tipo) throws SQLException {
+		return tipo.isInstance(this) || fontes.get(0).isWrapperFor(tipo);
+	}
+	
+	@Override
+	public void close() {
+		for ( DataSource fonte : fontes ) {
+			if ( fonte instanceof AutoCloseable ) {
+				try {
+					((AutoCloseable) fonte).close();
+				} catch (Exception e) {
+					log.warn("Falha ao fechar o pool de conexões.", e);
+				}
+			}
+		}
+	}
+	
+}
@@ -0,0 +1,37 @@
+package com.lonkoski.minhasFinancas.config.fragmento;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Propriedades {@code financas.fragmentos.*}. O fragmento 0 é o banco de
+ * {@code spring.datasource}, que também guarda o diretório; {@code fontes} são os
+ * fragmentos 1 em diante, nesta ordem. Usuário e senha de uma fonte, quando omitidos,
+ * são os de {@code spring.datasource}.
+ */
+@Data
+@ConfigurationProperties( prefix = "financas.fragmentos" )
+public class PropriedadesFragmentos {
+	
+	private boolean habilitado;
+	
+	private List<Fonte> fontes = new ArrayList<>();
+	
+	/** Por quanto tempo cada instância guarda a localização de um usuário lida do diretório. */
+	private Duration validadeDiretorio = Duration.ofSeconds(5);
+	
+	@Data
+	public static class Fonte {
+		
+		private String url;
+		private String username;
+		private String password;
+	
+	}
+	
+}
@@ -0,0 +1,71 @@
+package com.lonkoski.minhasFinancas.config.replica;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Leitura das próprias escritas com réplicas: depois que um usuário altera seus dados,
+ * as leituras dele vão para a primária durante {@code financas.replicas.afinidade-apos-escrita},
+ * tempo que deve cobrir o atraso da replicação. Os demais usuários continuam nas réplicas.
+ * 
+ * O usuário da leitura é o da requisição em andamento, informado pelo filtro da API.
+ * Sem réplicas habilitadas nada é registrado.
+ */
+@Component
+public class AfinidadePrimaria {
+	
+	private static final int LIMITE_ANTES_DA_LIMPEZA = 10_000;
+	
+	private final long janelaNanos;
+	private final ConcurrentMap<Long, Long> escritas = new ConcurrentHashMap<>();
+	private final ThreadLocal<Long> usuarioAtual = new ThreadLocal<>();
+	
+	public AfinidadePrimaria(
+			@Value("${financas.replicas.habilitado:false}") boolean replicasHabilitadas,
+			@Value("${financas.replicas.afinidade-apos-escrita:5s}") Duration janela) {
+		this.janelaNanos = replicasHabilitadas ? janela.toNanos() : 0;
+	}
+	
+	public void registrarEscrita(Long idUsuario) {
+		if ( janelaNanos <= 0 || idUsuario == null ) {
+			return;
+		}
+		escritas.put(idUsuario, System.nanoTime() + janelaNanos);
+		if ( escritas.size() > LIMITE_ANTES_DA_LIMPEZA ) {
+			long agora = System.nanoTime();
+			escritas.values().removeIf( limite -> limite - agora < 0 );
+		}
+	}
+	
+	/**
+	 * Indica se o usuário da requisição atual escreveu há pouco e deve ler da primária.
+	 */
+	public boolean deveLerDaPrimaria() {
+		Long idUsuario = usuarioAtual.get();
+		if ( idUsuario == null ) {
+			return false;
+		}
+		Long limite = escritas.get(idUsuario);
+		if ( limite == null ) {
+			return false;
+		}
+		if ( limite - System.nanoTime() > 0 ) {
+			return true;
+		}
+		escritas.remove(idUsuario, limite);
+		return false;
+	}
+	
+	public void definirUsuario(Long idUsuario) {
+		usuarioAtual.set(idUsuario);
+	}
+	
+	public void limparUsuario() {
+		usuarioAtual.remove();
+	}
+
+}
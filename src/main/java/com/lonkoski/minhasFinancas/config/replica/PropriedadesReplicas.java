@@ -0,0 +1,38 @@
+package com.lonkoski.minhasFinancas.config.replica;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import lombok.Data;
+
+/**
+ * Propriedades {@code financas.replicas.*}. Usuário e senha de uma réplica, quando
+ * omitidos, são os de {@code spring.datasource}.
+ */
+@Data
+@ConfigurationProperties( prefix = "financas.replicas" )
+public class PropriedadesReplicas {
+	
+	private boolean habilitado;
+	
+	private List<Fonte> fontes = new ArrayList<>();
+	
+	/** Intervalo entre as verificações de saúde das réplicas. */
+	private Duration intervaloVerificacao = Duration.ofSeconds(10);
+	
+	/** Espera máxima por uma conexão da réplica, na verificação e nas leituras. */
+	private Duration tempoLimiteVerificacao = Duration.ofSeconds(2);
+	
+	@Data
+	public static class Fonte {
+		
+		private String url;
+		private String username;
+		private String password;
+		
+	}
+
+}
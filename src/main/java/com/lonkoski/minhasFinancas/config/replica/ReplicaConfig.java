@@ -0,0 +1,97 @@
+package com.lonkoski.minhasFinancas.config.replica;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.resource.jdbc.spi.PhysicalConnectionHandlingMode;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Com {@code financas.replicas.habilitado=true}, substitui o DataSource da aplicação
+ * pelo roteamento entre a primária ({@code spring.datasource}) e as réplicas de
+ * {@code financas.replicas.fontes}. JPA, Flyway e JdbcTemplate continuam usando o
+ * DataSource principal; fora de transações somente leitura tudo vai para a primária.
+ * O Hibernate devolve a conexão ao fim de cada transação, para que a sessão aberta
+ * pela requisição não reaproveite a de uma leitura numa escrita.
+ * Com fragmentos habilitados esta configuração não se aplica, e a dos fragmentos recusa subir.
+ */
+@Configuration
+@ConditionalOnExpression( "${financas.replicas.habilitado:false} and !${financas.fragmentos.habilitado:false}" )
+@EnableConfigurationProperties( PropriedadesReplicas.class )
+public class ReplicaConfig {
+	
+	/**
+	 * O roteamento não é um bean à parte: todo DataSource registrado dispara a
+	 * inicialização do DataSource principal, o que fecharia um ciclo.
+	 */
+	@Bean
+	@Primary
+	public DataSource dataSource(DataSourceProperties propriedades, PropriedadesReplicas replicas,
+			AfinidadePrimaria afinidade) {
+		HikariDataSource primaria = propriedades.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+		primaria.setPoolName("primaria");
+		
+		List<DataSource> fontes = new ArrayList<>();
+		for ( PropriedadesReplicas.Fonte fonte : replicas.getFontes() ) {
+			HikariDataSource replica = DataSourceBuilder.create()
+					.type(HikariDataSource.class)
+					.driverClassName( propriedades.determineDriverClassName() )
+					.url( fonte.getUrl() )
+					.username( fonte.getUsername() != null ? fonte.getUsername() : propriedades.determineUsername() )
+					.password( fonte.getPassword() != null ? fonte.getPassword() : propriedades.determinePassword() )
+					.build();
+			replica.setPoolName("replica-" + fontes.size());
+			replica.setReadOnly(true);
+			// Uma réplica fora do ar não pode segurar a leitura pelos 30s padrão do pool.
+			replica.setConnectionTimeout( Math.max(250, replicas.getTempoLimiteVerificacao().toMillis()) );
+			fontes.add(replica);
+		}
+		
+		RoteamentoDataSource roteamento = new RoteamentoDataSource(primaria, fontes, afinidade,
+				replicas.getTempoLimiteVerificacao());
+		roteamento.iniciarVerificacao( replicas.getIntervaloVerificacao() );
+		return new DataSourceRoteado(roteamento);
+	}
+	
+	/**
+	 * Sem isto a sessão do open-in-view segura a primeira conexão da requisição até o fim,
+	 * e o roteamento só é decidido uma vez: uma escrita depois do {@code findById} iria
+	 * para a réplica.
+	 */
+	@Bean
+	public HibernatePropertiesCustomizer liberarConexaoAposTransacao() {
+		return propriedades -> propriedades.put( AvailableSettings.CONNECTION_HANDLING,
+				PhysicalConnectionHandlingMode.DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION );
+	}
+	
+	/**
+	 * Com {@code close}, o Spring encerra a verificação e os pools junto com o contexto.
+	 */
+	static final class DataSourceRoteado extends LazyConnectionDataSourceProxy implements Closeable {
+		
+		DataSourceRoteado(RoteamentoDataSource roteamento) {
+			super(roteamento);
+		}
+		
+		@Override
+		public void close() {
+			((RoteamentoDataSource) obtainTargetDataSource()).close();
+		}
+		
+	}
+
+}
@@ -0,0 +1,162 @@
+package com.lonkoski.minhasFinancas.config.replica;
+
+import java.io.Closeable;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Entrega conexões das réplicas, em rodízio, às transações {@code readOnly} e da primária
+ * a todo o resto. Precisa estar atrás de um {@code LazyConnectionDataSourceProxy}: o
+ * gerenciador de transações pede a conexão antes de marcar a transação como somente
+ * leitura, e o proxy só a obtém daqui no primeiro comando.
+ * 
+ * Uma réplica que falha ao entregar conexão sai do rodízio na hora, e a leitura segue
+ * na próxima ou, sem nenhuma disponível, na primária. A verificação periódica testa
+ * todas as réplicas e devolve ao rodízio as que voltaram.
+ */
+@Slf4j
+public class RoteamentoDataSource extends AbstractDataSource implements Closeable {
+	
+	private final DataSource primaria;
+	private final List<Replica> replicas = new ArrayList<>();
+	private final AfinidadePrimaria afinidade;
+	private final int tempoLimiteVerificacao;
+	private final AtomicInteger proxima = new AtomicInteger();
+	private ScheduledExecutorService verificacao;
+	
+	public RoteamentoDataSource(DataSource primaria, List<DataSource> replicas, AfinidadePrimaria afinidade,
+			Duration tempoLimiteVerificacao) {
+		this.primaria = primaria;
+		this.afinidade = afinidade;
+		this.tempoLimiteVerificacao = (int) Math.max(1, tempoLimiteVerificacao.getSeconds());
+		for ( int i = 0; i < replicas.size(); i++ ) {
+			this.replicas.add( new Replica("replica-" + i, replicas.get(i)) );
+		}
+	}
+	
+	public void iniciarVerificacao(Duration intervalo) {
+		verificacao = Executors.newSingleThreadScheduledExecutor( tarefa -> {
+			Thread thread = new Thread(tarefa, "verificacao-replicas");
+			thread.setDaemon(true);
+			return thread;
+		});
+		verificacao.scheduleWithFixedDelay( this::verificarReplicas,
+				intervalo.toMillis(), intervalo.toMillis(), TimeUnit.MILLISECONDS );
+	}
+	
+	@Override
+	public Connection getConnection() throws SQLException {
+		if ( lerDaReplica() ) {
+			for ( int tentativa = 0; tentativa < replicas.size(); tentativa++ ) {
+				Replica replica = replicas.get( Math.floorMod(proxima.getAndIncrement(), replicas.size()) );
+				if ( !replica.disponivel ) {
+					continue;
+				}
+				try {
+					return replica.dataSource.getConnection();
+				} catch (SQLException e) {
+					replica.atualizar(false, e);
+				}
+			}
+		}
+		return primaria.getConnection();
+	}
+	
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		throw new SQLFeatureNotSupportedException("As credenciais são as de cada pool.");
+	}
+	
+	private boolean lerDaReplica() {
+		return !replicas.isEmpty()
+				&& TransactionSynchronizationManager.isCurrentTransactionReadOnly()
+				&& !afinidade.deveLerDaPrimaria();
+	}
+	
+	/**
+	 * Testa uma conexão de cada réplica e atualiza quais estão no rodízio.
+	 */
+	public void verificarReplicas() {
+		for ( Replica replica : replicas ) {
+			try ( Connection conexao = replica.dataSource.getConnection() ) {
+				replica.atualizar( conexao.isValid(tempoLimiteVerificacao), null );
+			} catch (SQLException e) {
+				replica.atualizar(false, e);
+			}
+		}
+	}
+	
+	public long getReplicasDisponiveis() {
+		return replicas.stream().filter( replica -> replica.disponivel ).count();
+	}
+	
+	/**
+	 * O pool exposto para métricas e para o Actuator é o da primária.
+	 */
+	@Override
+	public <T> T unwrap(Class<T> tipo) throws SQLException {
+		return tipo.isInstance(this) ? tipo.cast(this) : primaria.unwrap(tipo);
+	}
+	
+	@Override
+	public boolean isWrapperFor(Class<?> tipo) throws SQLException {
+		return tipo.isInstance(this) || primaria.isWrapperFor(tipo);
+	}
+	
+	@Override
+	public void close() {
+		if ( verificacao != null ) {
+			verificacao.shutdownNow();
+		}
+		fechar(primaria);
+		replicas.forEach( replica -> fechar(replica.dataSource) );
+	}
+	
+	private static void fechar(DataSource dataSource) {
+		if ( dataSource instanceof AutoCloseable ) {
+			try {
+				((AutoCloseable) dataSource).close();
+			} catch (Exception e) {
+				log.warn("Falha ao fechar o pool de conexões.", e);
+			}
+		}
+	}
+	
+	private static final class Replica {
+		
+		private final String nome;
+		private final DataSource dataSource;
+		private volatile boolean disponivel = true;
+		
+		Replica(String nome, DataSource dataSource) {
+			this.nome = nome;
+			this.dataSource = dataSource;
+		}
+		
+		void atualizar(boolean disponivel, SQLException erro) {
+			if ( this.disponivel && !disponivel ) {
+				log.warn("Réplica {} fora do rodízio de leituras: {}", nome, erro == null ? "conexão inválida" : erro.getMessage());
+			} else if ( !this.disponivel && disponivel ) {
+				log.info("Réplica {} de volta ao rodízio de leituras.", nome);
+			}
+			this.disponivel = disponivel;
+		}
+		
+	}
+
+}
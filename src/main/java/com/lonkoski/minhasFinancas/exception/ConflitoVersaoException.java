@@ -0,0 +1,9 @@
+package com.lonkoski.minhasFinancas.exception;
+
+public class ConflitoVersaoException extends RuntimeException {
+	
+	public ConflitoVersaoException(String mensagem) {
+		super(mensagem);
+	}
+
+}
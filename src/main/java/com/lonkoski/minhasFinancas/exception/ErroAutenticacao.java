@@ -2,8 +2,32 @@ package com.lonkoski.minhasFinancas.exception;
 
 public class ErroAutenticacao extends RuntimeException {
 	
-	public ErroAutenticacao(String mensagem) {
+	private final Motivo motivo;
+	
+	public ErroAutenticacao(Motivo motivo, String mensagem) {
 		super(mensagem);
+		this.motivo = motivo;
+	}
+	
+	public Motivo getMotivo() {
+		return motivo;
+	}
+	
+	/**
+	 * Motivo da recusa, usado como tag da métrica de falhas de autenticação.
+	 */
+	public enum Motivo {
+		
+		USUARIO_NAO_ENCONTRADO,
+		SENHA_INVALIDA,
+		TOKEN_AUSENTE,
+		TOKEN_INVALIDO,
+		USUARIO_DIVERGENTE;
+		
+		public String tag() {
+			return name().toLowerCase();
+		}
+		
 	}
 
 }
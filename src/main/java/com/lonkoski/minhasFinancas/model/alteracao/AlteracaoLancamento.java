@@ -0,0 +1,64 @@
+package com.lonkoski.minhasFinancas.model.alteracao;
+
+import java.math.BigDecimal;
+
+import com.lonkoski.minhasFinancas.model.entity.Lancamento;
+import com.lonkoski.minhasFinancas.model.enums.StatusLancamento;
+import com.lonkoski.minhasFinancas.model.enums.TipoLancamento;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Alteração parcial de um lançamento: campos nulos ficam como estão. A versão é a
+ * que o cliente leu; a alteração só é aplicada se o lançamento ainda estiver nela.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlteracaoLancamento {
+	
+	private String descricao;
+	private Integer mes;
+	private Integer ano;
+	private BigDecimal valor;
+	private TipoLancamento tipo;
+	private StatusLancamento status;
+	private Long versao;
+	
+	/** Dono esperado do lançamento; quando informado, a alteração só vale para os lançamentos dele. */
+	private Long idUsuario;
+	
+	public boolean vazia() {
+		return descricao == null && mes == null && ano == null && valor == null && tipo == null && status == null;
+	}
+	
+	/**
+	 * Valor e tipo entram no saldo consolidado, que precisa do estado anterior para o delta.
+	 */
+	public boolean alteraSaldo() {
+		return valor != null || tipo != null;
+	}
+	
+	/**
+	 * Cópia do lançamento com os campos desta alteração aplicados.
+	 */
+	public Lancamento aplicarEm(Lancamento lancamento) {
+		return Lancamento.builder()
+				.id(lancamento.getId())
+				.descricao( descricao != null ? descricao : lancamento.getDescricao() )
+				.mes( mes != null ? mes : lancamento.getMes() )
+				.ano( ano != null ? ano : lancamento.getAno() )
+				.valor( valor != null ? valor : lancamento.getValor() )
+				.tipo( tipo != null ? tipo : lancamento.getTipo() )
+				.status( status != null ? status : lancamento.getStatus() )
+				.usuario(lancamento.getUsuario())
+				.dataCadastro(lancamento.getDataCadastro())
+				.versao( versao == null ? null : versao + 1 )
+				.build();
+	}
+
+}
@@ -0,0 +1,25 @@
+package com.lonkoski.minhasFinancas.model.arquivo;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class ResultadoFechamento {
+	
+	private Long idUsuario;
+	
+	/** Os lançamentos anteriores a este ano estão no arquivo. */
+	private int anoLimite;
+	
+	/** Lançamentos tirados da tabela neste fechamento. */
+	private long arquivados;
+	
+	/** Lançamentos no arquivo, contando os de fechamentos anteriores. */
+	private long total;
+	
+	private String arquivo;
+	
+	private long milissegundos;
+	
+}
@@ -0,0 +1,28 @@
+package com.lonkoski.minhasFinancas.model.arquivo;
+
+import com.lonkoski.minhasFinancas.model.enums.EstadoFechamento;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Andamento do último fechamento agendado para o usuário. O resultado só existe depois
+ * de concluído e a mensagem, depois de uma falha.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SituacaoFechamento {
+	
+	private Long idUsuario;
+	
+	private int anoLimite;
+	
+	private EstadoFechamento estado;
+	
+	private ResultadoFechamento resultado;
+	
+	private String mensagem;
+	
+}
@@ -0,0 +1,38 @@
+package com.lonkoski.minhasFinancas.model.entity;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Anos fechados de um usuário: os lançamentos anteriores a {@code anoLimite} estão
+ * no arquivo colunar {@code arquivo}, e não mais na tabela de lançamentos.
+ */
+@Entity
+@Table( name = "arquivo_usuario", schema = "financas" )
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ArquivoUsuario {
+	
+	@Id
+	@Column( name = "id_usuario" )
+	private Long idUsuario;
+	
+	@Column( name = "ano_limite" )
+	private Integer anoLimite;
+	
+	@Column( name = "arquivo" )
+	private String arquivo;
+	
+	@Column( name = "quantidade" )
+	private Long quantidade;
+	
+}
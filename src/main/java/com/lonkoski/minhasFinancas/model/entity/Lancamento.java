@@ -8,12 +8,15 @@ import javax.persistence.Convert;
 import javax.persistence.Entity;
 import javax.persistence.EnumType;
 import javax.persistence.Enumerated;
+import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
 
 import org.springframework.data.jpa.convert.threeten.Jsr310JpaConverters;
 
@@ -34,7 +37,8 @@ import lombok.NoArgsConstructor;
 public class Lancamento {
 		
 	@Id
-	@GeneratedValue( strategy = GenerationType.IDENTITY )
+	@GeneratedValue( strategy = GenerationType.SEQUENCE, generator = "seq_lancamento" )
+	@SequenceGenerator( name = "seq_lancamento", schema = "financas", sequenceName = "seq_lancamento", allocationSize = 50 )
 	@Column ( name = "id")
 	private Long id;
 	
@@ -47,7 +51,7 @@ public class Lancamento {
 	@Column ( name = "ano")
 	private Integer ano;
 	
-	@ManyToOne
+	@ManyToOne( fetch = FetchType.LAZY )
 	@JoinColumn( name = "id_usuario" )
 	private Usuario usuario;
 	
@@ -65,4 +69,8 @@ public class Lancamento {
 	@Column ( name = "status" )
 	@Enumerated( value = EnumType.STRING )
 	private StatusLancamento status;
+	
+	@Version
+	@Column ( name = "versao" )
+	private Long versao;
 }
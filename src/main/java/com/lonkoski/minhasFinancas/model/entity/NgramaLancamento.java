@@ -0,0 +1,69 @@
+package com.lonkoski.minhasFinancas.model.entity;
+
+import java.io.Serializable;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Table;
+import javax.persistence.Transient;
+
+import org.springframework.data.domain.Persistable;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Entrada do índice invertido de trigramas da descrição dos lançamentos, particionado por usuário.
+ */
+@Entity
+@Table( name = "lancamento_ngrama", schema = "financas" )
+@IdClass( NgramaLancamento.Chave.class )
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class NgramaLancamento implements Persistable<NgramaLancamento.Chave> {
+	
+	@Id
+	@Column( name = "id_usuario" )
+	private Long idUsuario;
+	
+	@Id
+	@Column( name = "ngrama", length = 3 )
+	private String ngrama;
+	
+	@Id
+	@Column( name = "id_lancamento" )
+	private Long idLancamento;
+
+	@Override
+	@Transient
+	public Chave getId() {
+		return new Chave(idUsuario, ngrama, idLancamento);
+	}
+
+	/**
+	 * Entradas nunca são alteradas, apenas removidas e inseridas de novo; assim o
+	 * {@code save} faz persist direto, sem o select do merge.
+	 */
+	@Override
+	@Transient
+	public boolean isNew() {
+		return true;
+	}
+	
+	@Data
+	@NoArgsConstructor
+	@AllArgsConstructor
+	public static class Chave implements Serializable {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private Long idUsuario;
+		private String ngrama;
+		private Long idLancamento;
+	}
+
+}
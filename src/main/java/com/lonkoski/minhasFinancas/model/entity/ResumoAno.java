@@ -0,0 +1,58 @@
+package com.lonkoski.minhasFinancas.model.entity;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.IdClass;
+import javax.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Totais de um ano fechado de um usuário. Os lançamentos do ano estão no arquivo
+ * colunar; os totais ficam no banco para os cálculos de saldo.
+ */
+@Entity
+@Table( name = "resumo_ano", schema = "financas" )
+@IdClass( ResumoAno.Chave.class )
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResumoAno {
+	
+	@Id
+	@Column( name = "id_usuario" )
+	private Long idUsuario;
+	
+	@Id
+	@Column( name = "ano" )
+	private Integer ano;
+	
+	@Column( name = "quantidade" )
+	private Long quantidade;
+	
+	@Column( name = "receitas" )
+	private BigDecimal receitas;
+	
+	@Column( name = "despesas" )
+	private BigDecimal despesas;
+	
+	@Data
+	@NoArgsConstructor
+	@AllArgsConstructor
+	public static class Chave implements Serializable {
+		
+		private static final long serialVersionUID = 1L;
+		
+		private Long idUsuario;
+		private Integer ano;
+	}
+	
+}
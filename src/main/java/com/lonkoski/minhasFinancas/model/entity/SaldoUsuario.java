@@ -0,0 +1,50 @@
+package com.lonkoski.minhasFinancas.model.entity;
+
+import java.math.BigDecimal;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Totais de receitas e despesas de um usuário, mantidos por delta a cada
+ * alteração de lançamento para que o saldo seja lido por chave primária.
+ * A mesma linha guarda a versão dos dados do usuário, usada como ETag.
+ */
+@Entity
+@Table( name = "saldo_usuario", schema = "financas" )
+@Builder
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SaldoUsuario {
+	
+	@Id
+	@Column( name = "id_usuario" )
+	private Long idUsuario;
+	
+	@Column( name = "receitas" )
+	private BigDecimal receitas;
+	
+	@Column( name = "despesas" )
+	private BigDecimal despesas;
+	
+	@Column( name = "versao_dados" )
+	@Builder.Default
+	private Long versaoDados = 0L;
+	
+	public SaldoUsuario(Long idUsuario, BigDecimal receitas, BigDecimal despesas) {
+		this(idUsuario, receitas, despesas, 0L);
+	}
+	
+	public BigDecimal getSaldo() {
+		return receitas.subtract(despesas);
+	}
+
+}
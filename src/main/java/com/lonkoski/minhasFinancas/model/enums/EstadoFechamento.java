@@ -0,0 +1,9 @@
+package com.lonkoski.minhasFinancas.model.enums;
+
+public enum EstadoFechamento {
+	
+	EM_ANDAMENTO,
+	CONCLUIDO,
+	FALHOU
+	
+}
@@ -0,0 +1,38 @@
+package com.lonkoski.minhasFinancas.model.enums;
+
+import java.util.Locale;
+
+public enum FormatoExportacao {
+	
+	CSV( "text/csv", "csv" ),
+	NDJSON( "application/x-ndjson", "ndjson" );
+	
+	private final String tipoConteudo;
+	private final String extensao;
+	
+	FormatoExportacao(String tipoConteudo, String extensao) {
+		this.tipoConteudo = tipoConteudo;
+		this.extensao = extensao;
+	}
+	
+	public String getTipoConteudo() {
+		return tipoConteudo;
+	}
+	
+	public String getExtensao() {
+		return extensao;
+	}
+	
+	/**
+	 * Formato pelo nome, sem diferenciar maiúsculas, ou nulo quando não reconhecido.
+	 */
+	public static FormatoExportacao doNome(String nome) {
+		for ( FormatoExportacao formato : values() ) {
+			if ( formato.name().equals( nome == null ? null : nome.toUpperCase(Locale.ROOT) ) ) {
+				return formato;
+			}
+		}
+		return null;
+	}
+
+}
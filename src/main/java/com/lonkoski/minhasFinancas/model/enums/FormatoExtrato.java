@@ -0,0 +1,27 @@
+package com.lonkoski.minhasFinancas.model.enums;
+
+import java.util.Locale;
+
+public enum FormatoExtrato {
+	
+	CSV,
+	OFX;
+	
+	/**
+	 * Formato pela extensão do nome do arquivo, ou nulo quando não reconhecido.
+	 */
+	public static FormatoExtrato doArquivo(String nome) {
+		if ( nome == null ) {
+			return null;
+		}
+		
+		String minusculo = nome.toLowerCase(Locale.ROOT);
+		for ( FormatoExtrato formato : values() ) {
+			if ( minusculo.endsWith( "." + formato.name().toLowerCase(Locale.ROOT) ) ) {
+				return formato;
+			}
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,10 @@
+package com.lonkoski.minhasFinancas.model.enums;
+
+public enum TipoOperacaoLote {
+	
+	CRIAR,
+	ATUALIZAR,
+	DELETAR,
+	STATUS
+
+}
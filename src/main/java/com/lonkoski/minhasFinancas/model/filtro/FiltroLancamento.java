@@ -0,0 +1,42 @@
+package com.lonkoski.minhasFinancas.model.filtro;
+
+import java.math.BigDecimal;
+
+import com.lonkoski.minhasFinancas.model.enums.StatusLancamento;
+import com.lonkoski.minhasFinancas.model.enums.TipoLancamento;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Critérios da busca de lançamentos. Campos nulos não restringem a consulta.
+ * O período é fechado nas duas pontas e compara (ano, mes) em conjunto.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FiltroLancamento {
+	
+	private Long idUsuario;
+	private String descricao;
+	private TipoLancamento tipo;
+	private StatusLancamento status;
+	
+	private Integer ano;
+	private Integer mes;
+	
+	private Integer anoInicial;
+	private Integer mesInicial;
+	private Integer anoFinal;
+	private Integer mesFinal;
+	
+	private BigDecimal valorMinimo;
+	private BigDecimal valorMaximo;
+	
+	@Builder.Default
+	private OrdenacaoLancamento ordenacao = OrdenacaoLancamento.DATA_CRESCENTE;
+
+}
@@ -0,0 +1,74 @@
+package com.lonkoski.minhasFinancas.model.filtro;
+
+import java.util.Comparator;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Sort.Direction;
+
+import com.lonkoski.minhasFinancas.model.projecao.LancamentoResumo;
+
+/**
+ * Ordenações aceitas pela busca. Todas terminam no id para que a paginação por
+ * cursor tenha uma ordem total e estável.
+ */
+public enum OrdenacaoLancamento {
+	
+	DATA_CRESCENTE( Direction.ASC, "ano", "mes", "id" ),
+	DATA_DECRESCENTE( Direction.DESC, "ano", "mes", "id" ),
+	VALOR_CRESCENTE( Direction.ASC, "valor", "id" ),
+	VALOR_DECRESCENTE( Direction.DESC, "valor", "id" );
+	
+	private final Direction direcao;
+	private final String[] campos;
+	private final Comparator<LancamentoResumo> comparador;
+	
+	OrdenacaoLancamento(Direction direcao, String... campos) {
+		this.direcao = direcao;
+		this.campos = campos;
+		this.comparador = comparador(direcao, campos);
+	}
+	
+	public Direction getDirecao() {
+		return direcao;
+	}
+	
+	public String[] getCampos() {
+		return campos.clone();
+	}
+	
+	public Sort getSort() {
+		return Sort.by(direcao, campos);
+	}
+	
+	/**
+	 * A ordem do {@link #getSort()} em memória, para intercalar o resultado do banco com
+	 * lançamentos de outra origem. Nulos vão para o fim nas duas direções, como o {@code nulls last}
+	 * que o Hibernate escreve na ordenação do banco.
+	 */
+	public Comparator<LancamentoResumo> getComparador() {
+		return comparador;
+	}
+	
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Comparator<LancamentoResumo> comparador(Direction direcao, String[] campos) {
+		Comparator<Comparable> valores = Comparator.nullsLast( direcao.isAscending()
+				? Comparator.<Comparable>naturalOrder() : Comparator.<Comparable>reverseOrder() );
+		Comparator<LancamentoResumo> comparador = null;
+		for ( String campo : campos ) {
+			Comparator<LancamentoResumo> doCampo = Comparator.comparing( lancamento -> valorDe(lancamento, campo), valores );
+			comparador = comparador == null ? doCampo : comparador.thenComparing(doCampo);
+		}
+		return comparador;
+	}
+	
+	private static Comparable<?> valorDe(LancamentoResumo lancamento, String campo) {
+		switch (campo) {
+			case "ano": return lancamento.getAno();
+			case "mes": return lancamento.getMes();
+			case "valor": return lancamento.getValor();
+			case "id": return lancamento.getId();
+			default: throw new IllegalArgumentException(campo);
+		}
+	}
+
+}
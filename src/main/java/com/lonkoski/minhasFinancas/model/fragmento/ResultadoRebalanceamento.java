@@ -0,0 +1,22 @@
+package com.lonkoski.minhasFinancas.model.fragmento;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class ResultadoRebalanceamento {
+	
+	private Long idUsuario;
+	private int origem;
+	private int destino;
+	
+	/** Linhas copiadas de cada tabela, na ordem da cópia. */
+	private Map<String, Long> linhas = new LinkedHashMap<>();
+	
+	private long milissegundos;
+	
+}
@@ -0,0 +1,43 @@
+package com.lonkoski.minhasFinancas.model.geracao;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Parâmetros da massa de dados sintética. A mesma semente gera sempre os mesmos
+ * usuários e lançamentos, em qualquer banco.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ParametrosGeracao {
+	
+	@Builder.Default
+	private long semente = 42;
+	
+	@Builder.Default
+	private int usuarios = 100;
+	
+	/** Média de lançamentos por usuário; a quantidade de cada um varia em torno dela. */
+	@Builder.Default
+	private int mediaLancamentosPorUsuario = 500;
+	
+	@Builder.Default
+	private int anoInicial = 2019;
+	
+	/** Dezembro deste ano é o mês corrente da massa, onde ficam os lançamentos pendentes. */
+	@Builder.Default
+	private int anoFinal = 2023;
+	
+	/** Linhas por comando em batch. */
+	@Builder.Default
+	private int tamanhoLote = 1000;
+	
+	/** Também grava o índice de trigramas, necessário para a pesquisa por descrição. */
+	@Builder.Default
+	private boolean indexarPesquisa = false;
+
+}
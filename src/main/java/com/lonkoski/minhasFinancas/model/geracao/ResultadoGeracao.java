@@ -0,0 +1,21 @@
+package com.lonkoski.minhasFinancas.model.geracao;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class ResultadoGeracao {
+	
+	private List<Long> idsUsuarios = new ArrayList<>();
+	private long lancamentos;
+	private long milissegundos;
+	
+	public double getLancamentosPorSegundo() {
+		return milissegundos == 0 ? lancamentos : lancamentos * 1000.0 / milissegundos;
+	}
+
+}
@@ -0,0 +1,15 @@
+package com.lonkoski.minhasFinancas.model.importacao;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ErroImportacao {
+	
+	private long linha;
+	private String mensagem;
+
+}
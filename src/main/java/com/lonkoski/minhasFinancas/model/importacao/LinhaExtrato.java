@@ -0,0 +1,29 @@
+package com.lonkoski.minhasFinancas.model.importacao;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Movimentação lida do extrato. O valor mantém o sinal do banco: negativo para débitos.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class LinhaExtrato {
+	
+	/** Linha do arquivo em que a movimentação começa. */
+	private long numero;
+	private LocalDate data;
+	private String descricao;
+	private BigDecimal valor;
+	
+	/** Motivo pelo qual a linha não pôde ser interpretada; nulo quando foi lida. */
+	private String erro;
+
+}
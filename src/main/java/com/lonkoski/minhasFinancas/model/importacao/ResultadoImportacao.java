@@ -0,0 +1,33 @@
+package com.lonkoski.minhasFinancas.model.importacao;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+public class ResultadoImportacao {
+	
+	/** Quantidade de erros guardados com o detalhe da linha; os demais só são contados. */
+	public static final int MAXIMO_ERROS_DETALHADOS = 1_000;
+	
+	private long lidos;
+	private long importados;
+	private List<ErroImportacao> erros = new ArrayList<>();
+	private long errosOmitidos;
+	
+	public void registrarErro(long linha, String mensagem) {
+		if ( erros.size() < MAXIMO_ERROS_DETALHADOS ) {
+			erros.add( new ErroImportacao(linha, mensagem) );
+		} else {
+			errosOmitidos++;
+		}
+	}
+	
+	public long getTotalErros() {
+		return erros.size() + errosOmitidos;
+	}
+
+}
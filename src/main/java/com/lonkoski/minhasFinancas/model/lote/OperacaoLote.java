@@ -0,0 +1,29 @@
+package com.lonkoski.minhasFinancas.model.lote;
+
+import com.lonkoski.minhasFinancas.model.entity.Lancamento;
+import com.lonkoski.minhasFinancas.model.enums.StatusLancamento;
+import com.lonkoski.minhasFinancas.model.enums.TipoOperacaoLote;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Uma operação de um lote. Em exclusões e mudanças de status o lançamento
+ * carrega apenas o id.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class OperacaoLote {
+	
+	private TipoOperacaoLote tipo;
+	private Lancamento lancamento;
+	private StatusLancamento status;
+	
+	/** Erro encontrado ao montar a operação, antes de chegar ao serviço. */
+	private String erro;
+
+}
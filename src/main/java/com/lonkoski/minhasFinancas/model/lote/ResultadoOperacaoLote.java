@@ -0,0 +1,20 @@
+package com.lonkoski.minhasFinancas.model.lote;
+
+import com.lonkoski.minhasFinancas.model.enums.TipoOperacaoLote;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ResultadoOperacaoLote {
+	
+	private int indice;
+	private TipoOperacaoLote operacao;
+	private Long id;
+	private boolean sucesso;
+	private String mensagem;
+
+}
@@ -0,0 +1,85 @@
+package com.lonkoski.minhasFinancas.model.pagina;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+import com.lonkoski.minhasFinancas.exception.RegraNegocioException;
+import com.lonkoski.minhasFinancas.model.filtro.OrdenacaoLancamento;
+import com.lonkoski.minhasFinancas.model.projecao.LancamentoResumo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Posição do último lançamento entregue na ordenação da busca. O cliente recebe
+ * apenas o token codificado e o devolve sem interpretar.
+ */
+@Data
+@AllArgsConstructor
+public class CursorLancamento {
+	
+	private static final String SEPARADOR = ":";
+	
+	private OrdenacaoLancamento ordenacao;
+	private Integer ano;
+	private Integer mes;
+	private BigDecimal valor;
+	private Long id;
+	
+	public static CursorLancamento depoisDe(LancamentoResumo lancamento, OrdenacaoLancamento ordenacao) {
+		return new CursorLancamento(ordenacao, lancamento.getAno(), lancamento.getMes(), lancamento.getValor(), lancamento.getId());
+	}
+	
+	/** Valor do campo de ordenação guardado no cursor. */
+	public Object valorDe(String campo) {
+		switch (campo) {
+			case "ano": return ano;
+			case "mes": return mes;
+			case "valor": return valor;
+			case "id": return id;
+			default: throw new IllegalArgumentException(campo);
+		}
+	}
+	
+	/** A posição do cursor como lançamento, para comparar com os que não vêm do banco. */
+	public LancamentoResumo comoResumo() {
+		LancamentoResumo posicao = new LancamentoResumo();
+		posicao.setAno(ano);
+		posicao.setMes(mes);
+		posicao.setValor(valor);
+		posicao.setId(id);
+		return posicao;
+	}
+	
+	/** Campos nulos viram texto vazio, porque lançamentos sem valor ou período também são paginados. */
+	public String codificar() {
+		String valor = ordenacao.name() + SEPARADOR + texto(ano) + SEPARADOR + texto(mes) + SEPARADOR
+				+ ( this.valor == null ? "" : this.valor.toPlainString() ) + SEPARADOR + id;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(valor.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	public static CursorLancamento decodificar(String token, OrdenacaoLancamento ordenacaoEsperada) {
+		try {
+			String valor = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+			String[] partes = valor.split(SEPARADOR);
+			CursorLancamento cursor = new CursorLancamento( OrdenacaoLancamento.valueOf(partes[0]),
+					partes[1].isEmpty() ? null : Integer.valueOf(partes[1]),
+					partes[2].isEmpty() ? null : Integer.valueOf(partes[2]),
+					partes[3].isEmpty() ? null : new BigDecimal(partes[3]),
+					Long.valueOf(partes[4]) );
+			
+			if ( cursor.getOrdenacao() != ordenacaoEsperada ) {
+				throw new RegraNegocioException("Cursor de paginação inválido para a ordenação informada.");
+			}
+			return cursor;
+		} catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+			throw new RegraNegocioException("Cursor de paginação inválido.");
+		}
+	}
+	
+	private static String texto(Integer numero) {
+		return numero == null ? "" : numero.toString();
+	}
+
+}
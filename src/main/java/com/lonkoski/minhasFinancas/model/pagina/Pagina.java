@@ -0,0 +1,25 @@
+package com.lonkoski.minhasFinancas.model.pagina;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Pagina<T> {
+	
+	private List<T> itens;
+	
+	/** Token para a próxima página; nulo quando não há mais itens. */
+	private String proximoCursor;
+	
+	/** Total de itens do filtro, presente somente quando solicitado. */
+	private Long totalAproximado;
+	
+	/** Indica que a contagem parou no limite e o total real é maior. */
+	private boolean totalLimitado;
+
+}
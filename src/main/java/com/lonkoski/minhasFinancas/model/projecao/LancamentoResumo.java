@@ -0,0 +1,50 @@
+package com.lonkoski.minhasFinancas.model.projecao;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import com.lonkoski.minhasFinancas.model.entity.Lancamento;
+import com.lonkoski.minhasFinancas.model.enums.StatusLancamento;
+import com.lonkoski.minhasFinancas.model.enums.TipoLancamento;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Colunas de um lançamento devolvidas pela API. O usuário vem apenas pelo id,
+ * lido da chave estrangeira, sem carregar a entidade {@code Usuario}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LancamentoResumo {
+	
+	private Long id;
+	private String descricao;
+	private Integer mes;
+	private Integer ano;
+	private BigDecimal valor;
+	private Long usuario;
+	private TipoLancamento tipo;
+	private StatusLancamento status;
+	private LocalDate dataCadastro;
+	
+	/** Versão a enviar nas alterações parciais para detectar escritas concorrentes. */
+	private Long versao;
+	
+	public static LancamentoResumo de(Lancamento lancamento) {
+		return new LancamentoResumo(
+				lancamento.getId(),
+				lancamento.getDescricao(),
+				lancamento.getMes(),
+				lancamento.getAno(),
+				lancamento.getValor(),
+				lancamento.getUsuario() == null ? null : lancamento.getUsuario().getId(),
+				lancamento.getTipo(),
+				lancamento.getStatus(),
+				lancamento.getDataCadastro(),
+				lancamento.getVersao() );
+	}
+
+}
@@ -0,0 +1,43 @@
+package com.lonkoski.minhasFinancas.model.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.lonkoski.minhasFinancas.model.entity.ArquivoUsuario;
+
+public interface ArquivoUsuarioRepository extends JpaRepository<ArquivoUsuario, Long> {
+	
+	/**
+	 * Registra o primeiro fechamento do usuário. Um fechamento concorrente que registrou
+	 * antes faz a inclusão falhar pela chave primária.
+	 */
+	@Modifying
+	@Query( value =
+				" insert into financas.arquivo_usuario (id_usuario, ano_limite, arquivo, quantidade)"
+			  + " values (:idUsuario, :anoLimite, :arquivo, :quantidade)", nativeQuery = true )
+	int incluir( @Param("idUsuario") Long idUsuario, @Param("anoLimite") Integer anoLimite,
+			@Param("arquivo") String arquivo, @Param("quantidade") Long quantidade );
+	
+	/**
+	 * Troca o registro do usuário somente se ele ainda apontar para {@code arquivoAtual}.
+	 * 
+	 * @return zero quando outro fechamento já trocou o registro.
+	 */
+	@Modifying
+	@Query( value =
+				" update ArquivoUsuario a"
+			  + " set a.anoLimite = :anoLimite, a.arquivo = :arquivo, a.quantidade = :quantidade"
+			  + " where a.idUsuario = :idUsuario and a.arquivo = :arquivoAtual" )
+	int substituir( @Param("idUsuario") Long idUsuario, @Param("arquivoAtual") String arquivoAtual,
+			@Param("anoLimite") Integer anoLimite, @Param("arquivo") String arquivo, @Param("quantidade") Long quantidade );
+	
+	/**
+	 * @return zero quando o registro do usuário não aponta mais para o arquivo.
+	 */
+	@Modifying
+	@Query( value = "delete from ArquivoUsuario a where a.idUsuario = :idUsuario and a.arquivo = :arquivo" )
+	int removerSeApontarPara( @Param("idUsuario") Long idUsuario, @Param("arquivo") String arquivo );
+	
+}
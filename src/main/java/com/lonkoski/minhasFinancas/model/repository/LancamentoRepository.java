@@ -1,15 +1,21 @@
 package com.lonkoski.minhasFinancas.model.repository;
 
 import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 import com.lonkoski.minhasFinancas.model.entity.Lancamento;
 import com.lonkoski.minhasFinancas.model.enums.TipoLancamento;
+import com.lonkoski.minhasFinancas.model.projecao.LancamentoResumo;
 
-public interface LancamentoRepository extends JpaRepository<Lancamento, Long> {
+public interface LancamentoRepository extends JpaRepository<Lancamento, Long>, JpaSpecificationExecutor<Lancamento>,
+		LancamentoRepositoryCustom {
 	
 	@Query( value = 
 				" select sum(l.valor)"
@@ -18,5 +24,26 @@ public interface LancamentoRepository extends JpaRepository<Lancamento, Long> {
 			  + " where u.id = :idUsuario and l.tipo = :tipo"
 			  + " group by u" )
 	BigDecimal obterSaldoPorTipoLancamentoEUsuario( @Param("idUsuario") Long idUsuario, @Param("tipo") TipoLancamento tipo );
+	
+	@Query( value = 
+				" select u.id, l.tipo, sum(l.valor)"
+			  + " from Lancamento l"
+			  + " join l.usuario u"
+			  + " group by u.id, l.tipo" )
+	List<Object[]> obterTotaisPorUsuarioETipo();
+	
+	@Query( value =
+				" select new com.lonkoski.minhasFinancas.model.projecao.LancamentoResumo("
+			  + "   l.id, l.descricao, l.mes, l.ano, l.valor, l.usuario.id, l.tipo, l.status, l.dataCadastro, l.versao )"
+			  + " from Lancamento l"
+			  + " where l.id = :id" )
+	Optional<LancamentoResumo> obterResumoPorId( @Param("id") Long id );
+	
+	/**
+	 * Remove os lançamentos do usuário anteriores ao ano, depois de arquivados.
+	 */
+	@Modifying
+	@Query( value = "delete from Lancamento l where l.usuario.id = :idUsuario and l.ano < :ano" )
+	int removerAnterioresAoAno( @Param("idUsuario") Long idUsuario, @Param("ano") Integer ano );
 
 }
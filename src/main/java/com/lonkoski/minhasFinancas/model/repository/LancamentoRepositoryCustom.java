@@ -0,0 +1,58 @@
+package com.lonkoski.minhasFinancas.model.repository;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import com.lonkoski.minhasFinancas.model.alteracao.AlteracaoLancamento;
+import com.lonkoski.minhasFinancas.model.entity.Lancamento;
+import com.lonkoski.minhasFinancas.model.enums.StatusLancamento;
+import com.lonkoski.minhasFinancas.model.projecao.LancamentoResumo;
+
+public interface LancamentoRepositoryCustom {
+	
+	/**
+	 * Busca os resumos dos lançamentos do filtro, selecionando só as colunas da projeção.
+	 */
+	List<LancamentoResumo> buscarResumos( Specification<Lancamento> specification, Sort sort );
+	
+	/**
+	 * Busca no máximo {@code limite} resumos sem disparar a consulta de contagem
+	 * que o {@code findAll(Specification, Pageable)} executa.
+	 */
+	List<LancamentoResumo> buscarResumos( Specification<Lancamento> specification, Sort sort, int limite );
+	
+	/**
+	 * Resumos do filtro lidos sob demanda pelo cursor do banco, {@code tamanhoBusca} linhas
+	 * por ida ao banco. Deve ser consumido e fechado dentro de uma transação.
+	 */
+	Stream<LancamentoResumo> transmitirResumos( Specification<Lancamento> specification, Sort sort, int tamanhoBusca );
+	
+	/**
+	 * Conta os lançamentos do filtro parando em {@code limite}, para que o custo
+	 * não cresça com o histórico do usuário.
+	 */
+	long contarLimitado( Specification<Lancamento> specification, int limite );
+	
+	/**
+	 * Muda o status de todos os lançamentos do filtro com um único update, incrementando
+	 * a versão de cada um. O contexto
+	 * de persistência é descarregado antes e limpo depois, para não guardar estados
+	 * anteriores ao update. A especificação não pode depender da consulta, que é nula aqui.
+	 * 
+	 * @return quantidade de lançamentos alterados.
+	 */
+	int atualizarStatus( Specification<Lancamento> specification, StatusLancamento status );
+	
+	/**
+	 * Grava só as colunas informadas na alteração, com um único update condicionado à
+	 * versão da alteração, e incrementa a versão. Como o {@link #atualizarStatus}, descarrega
+	 * e limpa o contexto de persistência.
+	 * 
+	 * @return zero quando o lançamento não existe ou já está em outra versão.
+	 */
+	int aplicarAlteracao( Long id, AlteracaoLancamento alteracao );
+
+}
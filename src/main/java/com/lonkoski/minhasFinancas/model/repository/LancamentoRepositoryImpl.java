@@ -0,0 +1,142 @@
+package com.lonkoski.minhasFinancas.model.repository;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Stream;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.CriteriaUpdate;
+import javax.persistence.criteria.Root;
+
+import org.hibernate.jpa.QueryHints;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import com.lonkoski.minhasFinancas.model.alteracao.AlteracaoLancamento;
+import com.lonkoski.minhasFinancas.model.entity.Lancamento;
+import com.lonkoski.minhasFinancas.model.enums.StatusLancamento;
+import com.lonkoski.minhasFinancas.model.enums.TipoLancamento;
+import com.lonkoski.minhasFinancas.model.projecao.LancamentoResumo;
+
+public class LancamentoRepositoryImpl implements LancamentoRepositoryCustom {
+	
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Override
+	public List<LancamentoResumo> buscarResumos(Specification<Lancamento> specification, Sort sort) {
+		return consultarResumos(specification, sort).getResultList();
+	}
+
+	@Override
+	public List<LancamentoResumo> buscarResumos(Specification<Lancamento> specification, Sort sort, int limite) {
+		return consultarResumos(specification, sort)
+				.setMaxResults(limite)
+				.getResultList();
+	}
+	
+	@Override
+	public Stream<LancamentoResumo> transmitirResumos(Specification<Lancamento> specification, Sort sort, int tamanhoBusca) {
+		// Sem o fetch size o driver do Postgres traz o resultado inteiro para a memória antes da primeira linha.
+		return consultarResumos(specification, sort)
+				.setHint(QueryHints.HINT_FETCH_SIZE, tamanhoBusca)
+				.setHint(QueryHints.HINT_READONLY, true)
+				.getResultStream();
+	}
+	
+	private TypedQuery<LancamentoResumo> consultarResumos(Specification<Lancamento> specification, Sort sort) {
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaQuery<LancamentoResumo> query = cb.createQuery(LancamentoResumo.class);
+		Root<Lancamento> root = query.from(Lancamento.class);
+		
+		// usuario.id é lido da chave estrangeira, sem join com a tabela de usuários.
+		query.select( cb.construct( LancamentoResumo.class,
+					root.get("id"), root.get("descricao"), root.get("mes"), root.get("ano"), root.get("valor"),
+					root.get("usuario").get("id"), root.get("tipo"), root.get("status"), root.get("dataCadastro"),
+					root.get("versao") ) )
+			.where( specification.toPredicate(root, query, cb) )
+			.orderBy( QueryUtils.toOrders(sort, root, cb) );
+		
+		return entityManager.createQuery(query);
+	}
+
+	/**
+	 * O JPQL não aceita subconsulta no from, então os ids vêm limitados pelo próprio banco
+	 * e são contados aqui: no máximo {@code limite} números por chamada.
+	 */
+	@Override
+	public long contarLimitado(Specification<Lancamento> specification, int limite) {
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaQuery<Long> query = cb.createQuery(Long.class);
+		Root<Lancamento> root = query.from(Lancamento.class);
+		
+		query.select( root.<Long>get("id") )
+			.where( specification.toPredicate(root, query, cb) );
+		
+		return entityManager.createQuery(query)
+				.setMaxResults(limite)
+				.getResultList()
+				.size();
+	}
+
+	@Override
+	public int atualizarStatus(Specification<Lancamento> specification, StatusLancamento status) {
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaUpdate<Lancamento> update = cb.createCriteriaUpdate(Lancamento.class);
+		Root<Lancamento> root = update.from(Lancamento.class);
+		
+		update.set( root.<StatusLancamento>get("status"), status )
+			.set( root.<Long>get("versao"), cb.sum(root.<Long>get("versao"), 1L) )
+			.where( specification.toPredicate(root, null, cb) );
+		
+		return executar(update);
+	}
+
+	@Override
+	public int aplicarAlteracao(Long id, AlteracaoLancamento alteracao) {
+		CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+		CriteriaUpdate<Lancamento> update = cb.createCriteriaUpdate(Lancamento.class);
+		Root<Lancamento> root = update.from(Lancamento.class);
+		
+		if ( alteracao.getDescricao() != null ) {
+			update.set( root.<String>get("descricao"), alteracao.getDescricao() );
+		}
+		if ( alteracao.getMes() != null ) {
+			update.set( root.<Integer>get("mes"), alteracao.getMes() );
+		}
+		if ( alteracao.getAno() != null ) {
+			update.set( root.<Integer>get("ano"), alteracao.getAno() );
+		}
+		if ( alteracao.getValor() != null ) {
+			update.set( root.<BigDecimal>get("valor"), alteracao.getValor() );
+		}
+		if ( alteracao.getTipo() != null ) {
+			update.set( root.<TipoLancamento>get("tipo"), alteracao.getTipo() );
+		}
+		if ( alteracao.getStatus() != null ) {
+			update.set( root.<StatusLancamento>get("status"), alteracao.getStatus() );
+		}
+		update.set( root.<Long>get("versao"), cb.sum(root.<Long>get("versao"), 1L) );
+		if ( alteracao.getIdUsuario() == null ) {
+			update.where( cb.equal(root.get("id"), id), cb.equal(root.get("versao"), alteracao.getVersao()) );
+		} else {
+			update.where( cb.equal(root.get("id"), id), cb.equal(root.get("versao"), alteracao.getVersao()),
+					cb.equal(root.get("usuario").get("id"), alteracao.getIdUsuario()) );
+		}
+		
+		return executar(update);
+	}
+	
+	private int executar(CriteriaUpdate<Lancamento> update) {
+		entityManager.flush();
+		int atualizados = entityManager.createQuery(update).executeUpdate();
+		entityManager.clear();
+		return atualizados;
+	}
+
+}
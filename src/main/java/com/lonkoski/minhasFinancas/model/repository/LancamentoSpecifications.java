@@ -0,0 +1,155 @@
+package com.lonkoski.minhasFinancas.model.repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Expression;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import org.springframework.data.domain.Sort.Direction;
+import org.springframework.data.jpa.domain.Specification;
+
+import com.lonkoski.minhasFinancas.model.entity.Lancamento;
+import com.lonkoski.minhasFinancas.model.filtro.FiltroLancamento;
+import com.lonkoski.minhasFinancas.model.filtro.OrdenacaoLancamento;
+import com.lonkoski.minhasFinancas.model.pagina.CursorLancamento;
+
+/**
+ * Predicados da busca de lançamentos. As igualdades em usuário, tipo e status e os
+ * intervalos em (ano, mes) e valor são escritos sobre as colunas sem funções,
+ * para que possam ser atendidos por índice.
+ */
+public final class LancamentoSpecifications {
+	
+	private static final char ESCAPE = '\\';
+	
+	private LancamentoSpecifications() {
+	}
+	
+	public static Specification<Lancamento> doFiltro( FiltroLancamento filtro ) {
+		return (root, query, cb) -> {
+			List<Predicate> predicados = new ArrayList<>();
+			
+			if ( filtro.getIdUsuario() != null ) {
+				predicados.add( cb.equal(root.get("usuario").get("id"), filtro.getIdUsuario()) );
+			}
+			if ( filtro.getTipo() != null ) {
+				predicados.add( cb.equal(root.get("tipo"), filtro.getTipo()) );
+			}
+			if ( filtro.getStatus() != null ) {
+				predicados.add( cb.equal(root.get("status"), filtro.getStatus()) );
+			}
+			if ( filtro.getAno() != null ) {
+				predicados.add( cb.equal(root.get("ano"), filtro.getAno()) );
+			}
+			if ( filtro.getMes() != null ) {
+				predicados.add( cb.equal(root.get("mes"), filtro.getMes()) );
+			}
+			if ( filtro.getAnoInicial() != null ) {
+				predicados.add( limiteDoPeriodo(cb, root, filtro.getAnoInicial(), filtro.getMesInicial(), Direction.ASC) );
+			}
+			if ( filtro.getAnoFinal() != null ) {
+				predicados.add( limiteDoPeriodo(cb, root, filtro.getAnoFinal(), filtro.getMesFinal(), Direction.DESC) );
+			}
+			if ( filtro.getValorMinimo() != null ) {
+				predicados.add( cb.greaterThanOrEqualTo(root.get("valor"), filtro.getValorMinimo()) );
+			}
+			if ( filtro.getValorMaximo() != null ) {
+				predicados.add( cb.lessThanOrEqualTo(root.get("valor"), filtro.getValorMaximo()) );
+			}
+			if ( filtro.getDescricao() != null && !filtro.getDescricao().isEmpty() ) {
+				predicados.add( cb.like( cb.lower(root.get("descricao")), "%" + escaparLike(filtro.getDescricao().toLowerCase()) + "%", ESCAPE ) );
+			}
+			
+			return cb.and( predicados.toArray(new Predicate[0]) );
+		};
+	}
+	
+	public static Specification<Lancamento> comIds( Collection<Long> ids ) {
+		return (root, query, cb) -> root.get("id").in(ids);
+	}
+	
+	public static Specification<Lancamento> aPartirDoAno( Integer ano ) {
+		return (root, query, cb) -> cb.greaterThanOrEqualTo(root.get("ano"), ano);
+	}
+	
+	/**
+	 * Lançamentos posteriores ao cursor na ordenação informada. Sem cursor a busca
+	 * começa do primeiro lançamento.
+	 */
+	public static Specification<Lancamento> aposCursor( CursorLancamento cursor, OrdenacaoLancamento ordenacao ) {
+		if ( cursor == null ) {
+			return null;
+		}
+		
+		return (root, query, cb) -> posterior(cb, root, cursor, ordenacao.getCampos(), 0, ordenacao.getDirecao());
+	}
+	
+	/**
+	 * Comparação lexicográfica {@code (c1, c2, ...) > (v1, v2, ...)} escrita como
+	 * {@code c1 >= v1 and (c1 > v1 or (c1 = v1 and ...))}, o que dá ao banco um
+	 * limite de intervalo na primeira coluna do índice. Quando o cursor parou num
+	 * nulo não há limite de intervalo a oferecer.
+	 */
+	private static Predicate posterior( CriteriaBuilder cb, Root<Lancamento> root, CursorLancamento cursor,
+			String[] campos, int posicao, Direction direcao ) {
+		Predicate seguinte = posicao == campos.length - 1 ? null : posterior(cb, root, cursor, campos, posicao + 1, direcao);
+		return posterior( cb, root, cursor, campos[posicao], seguinte, direcao );
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static <Y extends Comparable<? super Y>> Predicate posterior( CriteriaBuilder cb, Root<Lancamento> root,
+			CursorLancamento cursor, String nome, Predicate seguinte, Direction direcao ) {
+		Expression<Y> campo = root.get(nome);
+		Y valor = (Y) cursor.valorDe(nome);
+		
+		Predicate estritamente = estritamentePosterior(cb, campo, valor, direcao);
+		if ( seguinte == null ) {
+			return estritamente;
+		}
+		
+		Predicate empate = cb.and( valor == null ? cb.isNull(campo) : cb.equal(campo, valor), seguinte );
+		if ( valor == null ) {
+			return empate;
+		}
+		
+		Predicate limite = direcao.isAscending() ? cb.greaterThanOrEqualTo(campo, valor) : cb.lessThanOrEqualTo(campo, valor);
+		return cb.and( cb.or( limite, cb.isNull(campo) ), cb.or( estritamente, empate ) );
+	}
+	
+	/**
+	 * Os nulos ficam depois de qualquer valor nas duas direções, como o
+	 * {@code nulls last} que o Hibernate escreve em toda ordenação.
+	 */
+	private static <Y extends Comparable<? super Y>> Predicate estritamentePosterior( CriteriaBuilder cb, Expression<Y> campo,
+			Y valor, Direction direcao ) {
+		if ( valor == null ) {
+			return cb.disjunction();
+		}
+		return cb.or( direcao.isAscending() ? cb.greaterThan(campo, valor) : cb.lessThan(campo, valor), cb.isNull(campo) );
+	}
+	
+	/** O texto do usuário entra no like sem que {@code %} e {@code _} virem curingas. */
+	private static String escaparLike( String texto ) {
+		return texto.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+	}
+	
+	private static Predicate limiteDoPeriodo( CriteriaBuilder cb, Root<Lancamento> root, Integer ano, Integer mes, Direction direcao ) {
+		Expression<Integer> campoAno = root.get("ano");
+		Expression<Integer> campoMes = root.get("mes");
+		
+		if ( direcao.isAscending() ) {
+			Predicate limiteAno = cb.greaterThanOrEqualTo(campoAno, ano);
+			return mes == null ? limiteAno
+					: cb.and( limiteAno, cb.or( cb.greaterThan(campoAno, ano), cb.greaterThanOrEqualTo(campoMes, mes) ) );
+		}
+		
+		Predicate limiteAno = cb.lessThanOrEqualTo(campoAno, ano);
+		return mes == null ? limiteAno
+				: cb.and( limiteAno, cb.or( cb.lessThan(campoAno, ano), cb.lessThanOrEqualTo(campoMes, mes) ) );
+	}
+
+}
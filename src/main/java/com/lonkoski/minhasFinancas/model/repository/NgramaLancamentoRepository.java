@@ -0,0 +1,53 @@
+package com.lonkoski.minhasFinancas.model.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.lonkoski.minhasFinancas.model.entity.NgramaLancamento;
+
+public interface NgramaLancamentoRepository extends JpaRepository<NgramaLancamento, NgramaLancamento.Chave> {
+	
+	/**
+	 * Limpa o contexto de persistência ao terminar: as entradas gravadas antes na mesma
+	 * transação continuariam gerenciadas e colidiriam com as que forem gravadas de novo.
+	 */
+	@Modifying( clearAutomatically = true, flushAutomatically = true )
+	@Query( value = "delete from NgramaLancamento n where n.idLancamento = :idLancamento" )
+	int removerPorLancamento( @Param("idLancamento") Long idLancamento );
+	
+	@Modifying
+	@Query( value = "delete from NgramaLancamento n where n.idUsuario = :idUsuario" )
+	int removerPorUsuario( @Param("idUsuario") Long idUsuario );
+	
+	/**
+	 * Remove as entradas dos lançamentos do usuário anteriores ao ano. Deve rodar antes
+	 * da remoção dos próprios lançamentos.
+	 */
+	@Modifying
+	@Query( value =
+				" delete from NgramaLancamento n"
+			  + " where n.idUsuario = :idUsuario"
+			  + "   and n.idLancamento in ( select l.id from Lancamento l where l.usuario.id = :idUsuario and l.ano < :ano )" )
+	int removerAnterioresAoAno( @Param("idUsuario") Long idUsuario, @Param("ano") Integer ano );
+	
+	/**
+	 * Ids dos lançamentos do usuário que compartilham ao menos {@code minimo} trigramas
+	 * com a busca, do mais para o menos semelhante.
+	 */
+	@Query( value = 
+				" select n.idLancamento"
+			  + " from NgramaLancamento n"
+			  + " where n.idUsuario = :idUsuario and n.ngrama in :ngramas"
+			  + " group by n.idLancamento"
+			  + " having count(n) >= :minimo"
+			  + " order by count(n) desc, n.idLancamento desc" )
+	List<Long> pesquisar( @Param("idUsuario") Long idUsuario, @Param("ngramas") Collection<String> ngramas,
+			@Param("minimo") long minimo, Pageable pageable );
+
+}
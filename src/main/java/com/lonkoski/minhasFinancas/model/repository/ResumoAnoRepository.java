@@ -0,0 +1,20 @@
+package com.lonkoski.minhasFinancas.model.repository;
+
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.lonkoski.minhasFinancas.model.entity.ResumoAno;
+
+public interface ResumoAnoRepository extends JpaRepository<ResumoAno, ResumoAno.Chave> {
+	
+	List<ResumoAno> findByIdUsuarioOrderByAno( Long idUsuario );
+	
+	@Modifying
+	@Query( value = "delete from ResumoAno r where r.idUsuario = :idUsuario" )
+	int removerPorUsuario( @Param("idUsuario") Long idUsuario );
+	
+}
@@ -0,0 +1,58 @@
+package com.lonkoski.minhasFinancas.model.repository;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import com.lonkoski.minhasFinancas.model.entity.SaldoUsuario;
+
+public interface SaldoUsuarioRepository extends JpaRepository<SaldoUsuario, Long> {
+	
+	/**
+	 * Soma os deltas diretamente na linha do usuário e incrementa a versão dos seus dados.
+	 * O update é atômico no banco, então alterações concorrentes do mesmo usuário não se sobrescrevem.
+	 * 
+	 * @return quantidade de linhas afetadas; zero quando o usuário ainda não possui saldo consolidado.
+	 */
+	@Modifying
+	@Query( value =
+				" update SaldoUsuario s"
+			  + " set s.receitas = s.receitas + :receitas,"
+			  + "     s.despesas = s.despesas + :despesas,"
+			  + "     s.versaoDados = s.versaoDados + 1"
+			  + " where s.idUsuario = :idUsuario" )
+	int somar( @Param("idUsuario") Long idUsuario, @Param("receitas") BigDecimal receitas, @Param("despesas") BigDecimal despesas );
+	
+	/**
+	 * Incrementa a versão dos dados do dono do lançamento sem precisar carregá-lo.
+	 * 
+	 * @return zero quando o usuário ainda não possui saldo consolidado.
+	 */
+	@Modifying
+	@Query( value =
+				" update SaldoUsuario s"
+			  + " set s.versaoDados = s.versaoDados + 1"
+			  + " where s.idUsuario = ( select l.usuario.id from Lancamento l where l.id = :idLancamento )" )
+	int incrementarVersaoPeloLancamento( @Param("idLancamento") Long idLancamento );
+	
+	/**
+	 * Trava a linha do usuário até o fim da transação, para que só uma das primeiras
+	 * alterações concorrentes crie a linha do saldo. Um update que não muda a chave leva
+	 * no Postgres o {@code FOR NO KEY UPDATE}, compatível com o {@code FOR KEY SHARE} que
+	 * as inclusões de lançamentos concorrentes seguram pela chave estrangeira; um
+	 * {@code FOR UPDATE} esperaria por elas e as duas primeiras alterações se travariam.
+	 * 
+	 * @return zero quando o usuário não existe.
+	 */
+	@Modifying
+	@Query( value = "update Usuario u set u.nome = u.nome where u.id = :idUsuario" )
+	int travarUsuario( @Param("idUsuario") Long idUsuario );
+	
+	@Query( " select s.versaoDados from SaldoUsuario s where s.idUsuario = :idUsuario " )
+	Optional<Long> obterVersaoDados( @Param("idUsuario") Long idUsuario );
+
+}
@@ -1,14 +1,32 @@
 package com.lonkoski.minhasFinancas.model.repository;
 
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import javax.persistence.QueryHint;
+
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import com.lonkoski.minhasFinancas.config.CacheConfig;
 import com.lonkoski.minhasFinancas.model.entity.Usuario;
 
 public interface UsuarioRepository extends JpaRepository<Usuario, Long> {
 	
 	boolean existsByEmail(String email);
 	
+	/**
+	 * Só emails encontrados ficam em cache, para que um cadastro novo seja visto na hora.
+	 */
+	@Cacheable( cacheNames = CacheConfig.USUARIOS_POR_EMAIL, unless = "#result == null" )
 	Optional<Usuario> findByEmail(String email);
+	
+	/**
+	 * Todos os emails cadastrados, lidos sob demanda. Deve ser consumido dentro de uma transação.
+	 */
+	@Query( value = "select u.email from Usuario u" )
+	@QueryHints( @QueryHint( name = org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE, value = "1000" ) )
+	Stream<String> listarEmails();
 }
@@ -0,0 +1,21 @@
+package com.lonkoski.minhasFinancas.service;
+
+import java.math.BigDecimal;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Diferença encontrada entre o saldo consolidado de um usuário e o recalculado a partir dos lançamentos.
+ */
+@Data
+@AllArgsConstructor
+public class DivergenciaSaldo {
+	
+	private Long idUsuario;
+	private BigDecimal receitasConsolidadas;
+	private BigDecimal despesasConsolidadas;
+	private BigDecimal receitasCalculadas;
+	private BigDecimal despesasCalculadas;
+
+}
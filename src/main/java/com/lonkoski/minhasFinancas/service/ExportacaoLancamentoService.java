@@ -0,0 +1,19 @@
+package com.lonkoski.minhasFinancas.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.lonkoski.minhasFinancas.model.enums.FormatoExportacao;
+import com.lonkoski.minhasFinancas.model.filtro.FiltroLancamento;
+
+public interface ExportacaoLancamentoService {
+	
+	/**
+	 * Escreve na saída todos os lançamentos do filtro, na ordenação do filtro,
+	 * com memória constante independente da quantidade de lançamentos.
+	 * 
+	 * @return quantidade de lançamentos exportados.
+	 */
+	long exportar( FiltroLancamento filtro, FormatoExportacao formato, OutputStream saida ) throws IOException;
+
+}
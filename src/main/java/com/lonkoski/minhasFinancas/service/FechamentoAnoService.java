@@ -0,0 +1,37 @@
+package com.lonkoski.minhasFinancas.service;
+
+import java.util.Optional;
+
+import com.lonkoski.minhasFinancas.exception.RegraNegocioException;
+import com.lonkoski.minhasFinancas.model.arquivo.ResultadoFechamento;
+import com.lonkoski.minhasFinancas.model.arquivo.SituacaoFechamento;
+
+public interface FechamentoAnoService {
+	
+	/**
+	 * Fecha os anos do usuário anteriores a {@code ano}: os lançamentos deles vão para um
+	 * arquivo colunar, somados aos de fechamentos anteriores, e deixam a tabela de
+	 * lançamentos, que guarda só os totais de cada ano. Buscas, pesquisa, exportação e
+	 * saldo continuam enxergando esses lançamentos, mas eles não podem mais ser alterados.
+	 * A chamada espera duas vezes a validade do registro dos arquivos.
+	 *
+	 * @throws RegraNegocioException com ano inválido, usuário inexistente, anos já fechados
+	 * ou se os lançamentos do usuário mudaram durante o fechamento.
+	 */
+	ResultadoFechamento fechar(Long idUsuario, Integer ano);
+	
+	/**
+	 * Confere o pedido e executa o {@link #fechar} em segundo plano, um fechamento por
+	 * vez nesta instância, para que a espera não prenda a thread nem a conexão da requisição.
+	 *
+	 * @throws RegraNegocioException com as mesmas validações iniciais do {@link #fechar}
+	 * ou se já houver um fechamento do usuário em andamento.
+	 */
+	SituacaoFechamento agendar(Long idUsuario, Integer ano);
+	
+	/**
+	 * Situação do último fechamento agendado para o usuário nesta instância.
+	 */
+	Optional<SituacaoFechamento> obterSituacao(Long idUsuario);
+	
+}
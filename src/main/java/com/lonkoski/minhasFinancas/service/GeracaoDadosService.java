@@ -0,0 +1,17 @@
+package com.lonkoski.minhasFinancas.service;
+
+import com.lonkoski.minhasFinancas.exception.RegraNegocioException;
+import com.lonkoski.minhasFinancas.model.geracao.ParametrosGeracao;
+import com.lonkoski.minhasFinancas.model.geracao.ResultadoGeracao;
+
+public interface GeracaoDadosService {
+	
+	/**
+	 * Grava a massa sintética dos parâmetros direto por JDBC em batch, junto com o saldo
+	 * consolidado de cada usuário e, se pedido, o índice de pesquisa.
+	 * 
+	 * @throws RegraNegocioException se a massa desta semente já estiver na base.
+	 */
+	ResultadoGeracao gerar(ParametrosGeracao parametros);
+
+}
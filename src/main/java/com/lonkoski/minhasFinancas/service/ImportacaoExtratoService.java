@@ -0,0 +1,18 @@
+package com.lonkoski.minhasFinancas.service;
+
+import java.io.InputStream;
+
+import com.lonkoski.minhasFinancas.model.entity.Usuario;
+import com.lonkoski.minhasFinancas.model.enums.FormatoExtrato;
+import com.lonkoski.minhasFinancas.model.importacao.ResultadoImportacao;
+
+public interface ImportacaoExtratoService {
+	
+	/**
+	 * Importa as movimentações do extrato como lançamentos efetivados do usuário:
+	 * débitos viram despesas e créditos, receitas. Linhas inválidas são relatadas
+	 * no resultado sem interromper o restante do arquivo.
+	 */
+	ResultadoImportacao importar( InputStream arquivo, FormatoExtrato formato, Usuario usuario );
+
+}
@@ -1,11 +1,20 @@
 package com.lonkoski.minhasFinancas.service;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
+import com.lonkoski.minhasFinancas.exception.ConflitoVersaoException;
+import com.lonkoski.minhasFinancas.exception.ErroAutenticacao;
+import com.lonkoski.minhasFinancas.model.alteracao.AlteracaoLancamento;
 import com.lonkoski.minhasFinancas.model.entity.Lancamento;
 import com.lonkoski.minhasFinancas.model.enums.StatusLancamento;
+import com.lonkoski.minhasFinancas.model.filtro.FiltroLancamento;
+import com.lonkoski.minhasFinancas.model.lote.OperacaoLote;
+import com.lonkoski.minhasFinancas.model.lote.ResultadoOperacaoLote;
+import com.lonkoski.minhasFinancas.model.pagina.Pagina;
+import com.lonkoski.minhasFinancas.model.projecao.LancamentoResumo;
 
 public interface LancamentoService {
 
@@ -13,15 +22,67 @@ public interface LancamentoService {
 	
 	Lancamento atualizar(Lancamento lancamento);
 	
+	/**
+	 * Grava só os campos informados na alteração, desde que o lançamento ainda esteja
+	 * na versão da alteração.
+	 * 
+	 * @return a nova versão do lançamento.
+	 * @throws ConflitoVersaoException se o lançamento já estiver em outra versão.
+	 * @throws ErroAutenticacao se o lançamento não for do usuário da alteração, quando informado.
+	 */
+	Long atualizarParcialmente(Long id, AlteracaoLancamento alteracao);
+	
 	void deletar(Lancamento lancamento);
 	
-	List<Lancamento> buscar(Lancamento lancamentoFiltro);
+	List<LancamentoResumo> buscar(FiltroLancamento filtro);
+	
+	/**
+	 * Busca uma página de no máximo {@code tamanho} lançamentos a partir do cursor
+	 * informado, na ordenação do filtro.
+	 */
+	Pagina<LancamentoResumo> buscarPagina(FiltroLancamento filtro, String cursor, int tamanho, boolean contarTotal);
+	
+	/**
+	 * Busca textual na descrição pelo índice de trigramas, com os resultados mais semelhantes primeiro.
+	 */
+	List<LancamentoResumo> pesquisar(Long idUsuario, String texto, int limite);
 	
 	void atualizarStatus(Lancamento lancamento, StatusLancamento status);
 	
+	/**
+	 * Muda para {@code status} todos os lançamentos do usuário do filtro que atendem ao
+	 * filtro e, se informados, estão entre os {@code ids}, com um único update.
+	 * 
+	 * @return quantidade de lançamentos alterados.
+	 */
+	int atualizarStatusEmLote(FiltroLancamento filtro, Collection<Long> ids, StatusLancamento status);
+	
+	/**
+	 * Valida todas as operações e, só se todas forem válidas, aplica o lote em uma
+	 * única transação. Cada operação recebe seu resultado na mesma posição da lista.
+	 * 
+	 * @throws ErroAutenticacao se o lote referenciar lançamentos de outro usuário que não o autenticado.
+	 */
+	List<ResultadoOperacaoLote> processarLote(List<OperacaoLote> operacoes, Long idUsuarioAutenticado);
+	
 	void validar( Lancamento lancamento );
 	
+	/**
+	 * Confere que o usuário dono do lançamento, ou informado no corpo da requisição, é o
+	 * autenticado pelo token. Sem token ({@code idUsuarioAutenticado} nulo) não há o que conferir.
+	 * 
+	 * @throws ErroAutenticacao com o motivo {@link ErroAutenticacao.Motivo#USUARIO_DIVERGENTE}.
+	 */
+	void verificarUsuario( Long idUsuario, Long idUsuarioAutenticado );
+	
 	Optional<Lancamento> obterPorId(Long id);
 	
+	Optional<LancamentoResumo> obterResumoPorId(Long id);
+	
 	BigDecimal obterSaldoPorUsuario(Long id);
+	
+	/**
+	 * Versão dos dados do usuário, incrementada por toda escrita em seus lançamentos.
+	 */
+	long obterVersaoDados(Long idUsuario);
 }
@@ -0,0 +1,30 @@
+package com.lonkoski.minhasFinancas.service;
+
+import java.util.Collection;
+import java.util.List;
+
+import com.lonkoski.minhasFinancas.model.entity.Lancamento;
+import com.lonkoski.minhasFinancas.model.projecao.LancamentoResumo;
+
+public interface PesquisaLancamentoService {
+	
+	void indexar( Lancamento lancamento );
+	
+	/**
+	 * Indexa lançamentos recém-incluídos, que ainda não têm entradas para remover.
+	 */
+	void indexarNovos( Collection<Lancamento> lancamentos );
+	
+	void remover( Long idLancamento );
+	
+	/**
+	 * Refaz o índice de todos os lançamentos do usuário, para lançamentos gravados antes do índice existir.
+	 */
+	void reindexar( Long idUsuario );
+	
+	/**
+	 * Lançamentos do usuário cuja descrição se parece com o texto, ordenados por semelhança.
+	 */
+	List<LancamentoResumo> pesquisar( Long idUsuario, String texto, int limite );
+
+}
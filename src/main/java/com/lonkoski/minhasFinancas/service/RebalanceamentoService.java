@@ -0,0 +1,18 @@
+package com.lonkoski.minhasFinancas.service;
+
+import com.lonkoski.minhasFinancas.exception.RegraNegocioException;
+import com.lonkoski.minhasFinancas.model.fragmento.ResultadoRebalanceamento;
+
+public interface RebalanceamentoService {
+	
+	/**
+	 * Move o usuário e todos os seus dados para o fragmento de destino com a aplicação
+	 * no ar. As leituras do usuário seguem na origem durante a cópia; as escritas são
+	 * recusadas até o diretório apontar para o destino.
+	 *
+	 * @throws RegraNegocioException sem fragmentos habilitados, com destino inválido ou
+	 * igual à origem, com o usuário fora do diretório ou se os dados dele mudaram durante a cópia.
+	 */
+	ResultadoRebalanceamento mover(Long idUsuario, int destino);
+	
+}
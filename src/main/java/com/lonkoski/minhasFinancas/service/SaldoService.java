@@ -0,0 +1,43 @@
+package com.lonkoski.minhasFinancas.service;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+
+import com.lonkoski.minhasFinancas.model.entity.Lancamento;
+
+public interface SaldoService {
+	
+	/**
+	 * Ajusta o saldo consolidado pela diferença entre o estado anterior e o atual de um lançamento
+	 * e incrementa a versão dos dados dos usuários envolvidos. Use {@code anterior} nulo para inclusões e {@code atual} nulo para exclusões.
+	 */
+	void registrarAlteracao( Lancamento anterior, Lancamento atual );
+	
+	/**
+	 * Soma de uma vez as inclusões de vários lançamentos, com um update por usuário.
+	 */
+	void registrarInclusoes( Collection<Lancamento> lancamentos );
+	
+	/**
+	 * Incrementa a versão dos dados do usuário por uma escrita que não muda o saldo,
+	 * como as mudanças de status.
+	 */
+	void registrarModificacao( Long idUsuario );
+	
+	/**
+	 * Como {@link #registrarModificacao(Long)}, para quem só conhece o id do lançamento.
+	 */
+	void registrarModificacaoDoLancamento( Long idLancamento );
+	
+	BigDecimal obterSaldo( Long idUsuario );
+	
+	/**
+	 * Versão dos dados do usuário: muda a cada escrita em seus lançamentos e é zero
+	 * enquanto ele não tiver saldo consolidado.
+	 */
+	long obterVersao( Long idUsuario );
+	
+	List<DivergenciaSaldo> verificarConsistencia();
+
+}
@@ -0,0 +1,23 @@
+package com.lonkoski.minhasFinancas.service;
+
+import java.time.Instant;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Token assinado que identifica o usuário autenticado até {@code expiraEm}.
+ */
+@Data
+@AllArgsConstructor
+public class TokenAcesso {
+	
+	private String token;
+	private Long idUsuario;
+	private Instant expiraEm;
+	
+	public boolean expirado() {
+		return !Instant.now().isBefore(expiraEm);
+	}
+
+}
@@ -0,0 +1,19 @@
+package com.lonkoski.minhasFinancas.service;
+
+import java.util.Optional;
+
+import com.lonkoski.minhasFinancas.model.entity.Usuario;
+
+public interface TokenService {
+	
+	TokenAcesso emitir( Usuario usuario );
+	
+	/**
+	 * Confere a assinatura e lê o token, sem consultar o banco. A expiração fica a
+	 * cargo de quem chama, por {@link TokenAcesso#expirado()}.
+	 * 
+	 * @return vazio quando o token está malformado ou a assinatura não confere.
+	 */
+	Optional<TokenAcesso> decodificar( String token );
+
+}
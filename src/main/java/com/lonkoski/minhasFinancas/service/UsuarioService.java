@@ -1,5 +1,7 @@
 package com.lonkoski.minhasFinancas.service;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 import com.lonkoski.minhasFinancas.model.entity.Usuario;
@@ -14,4 +16,6 @@ public interface UsuarioService {
 	
 	Optional<Usuario> obtePorId(Long id); 
 	
+	List<Usuario> obterPorIds(Collection<Long> ids);
+	
 }
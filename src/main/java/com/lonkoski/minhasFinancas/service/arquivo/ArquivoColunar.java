@@ -0,0 +1,351 @@
+package com.lonkoski.minhasFinancas.service.arquivo;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import com.lonkoski.minhasFinancas.model.enums.StatusLancamento;
+import com.lonkoski.minhasFinancas.model.enums.TipoLancamento;
+import com.lonkoski.minhasFinancas.model.filtro.FiltroLancamento;
+import com.lonkoski.minhasFinancas.model.filtro.OrdenacaoLancamento;
+import com.lonkoski.minhasFinancas.model.projecao.LancamentoResumo;
+
+/**
+ * Lançamentos dos anos fechados de um usuário gravados por coluna e lidos por
+ * mapeamento de memória. Um arquivo nunca é alterado depois de gravado; um novo
+ * fechamento grava outro.
+ *
+ * Cada coluna é contígua e começa alinhada ao tamanho do seu tipo:
+ * <pre>
+ * cabeçalho    assinatura, linhas, descrições e reservado (int); id do usuário (long)
+ * id           long
+ * versao       long, {@link Long#MIN_VALUE} quando nula
+ * valor        long em centavos, {@link Long#MIN_VALUE} quando nulo
+ * cadastro     int em dias desde 1970-01-01, {@link Integer#MIN_VALUE} quando nulo
+ * descricao    int com a posição no dicionário, -1 quando nula
+ * ano          short
+ * mes          byte, 0 quando nulo
+ * tipo/status  byte com o ordinal do tipo nos 4 bits altos e o do status nos baixos, 15 quando nulo
+ * dicionário   fim de cada descrição (int), seguido dos bytes UTF-8 de todas
+ * </pre>
+ * As linhas ficam na ordem (ano, mes, id) e cada descrição distinta aparece uma vez
+ * no dicionário, então os filtros por descrição são avaliados por descrição, não por linha.
+ */
+public final class ArquivoColunar {
+	
+	static final int ASSINATURA = 0x4D464331;
+	
+	private static final long LONG_NULO = Long.MIN_VALUE;
+	private static final int DATA_NULA = Integer.MIN_VALUE;
+	private static final int SEM_DESCRICAO = -1;
+	private static final int SEM_VALOR = 0xF;
+	
+	private final ByteBuffer dados;
+	private final Long idUsuario;
+	private final Colunas colunas;
+	private final String[] dicionario;
+	
+	private ArquivoColunar(ByteBuffer dados, Path caminho) {
+		if ( dados.capacity() < Colunas.CABECALHO || dados.getInt(0) != ASSINATURA ) {
+			throw new IllegalStateException(caminho + " não é um arquivo de lançamentos arquivados.");
+		}
+		this.dados = dados;
+		this.colunas = new Colunas( dados.getInt(4), dados.getInt(8) );
+		this.idUsuario = dados.getLong(16);
+		this.dicionario = new String[colunas.descricoes];
+	}
+	
+	public static ArquivoColunar abrir(Path caminho) throws IOException {
+		try ( FileChannel canal = FileChannel.open(caminho, StandardOpenOption.READ) ) {
+			// O mapeamento continua válido depois que o canal é fechado.
+			return new ArquivoColunar( canal.map(MapMode.READ_ONLY, 0, canal.size()), caminho );
+		}
+	}
+	
+	/**
+	 * Grava os lançamentos em {@code destino} pelo mapeamento de um arquivo temporário,
+	 * que só então recebe o nome final, para que nenhum leitor abra um arquivo pela metade.
+	 */
+	public static void gravar(Path destino, Long idUsuario, List<LancamentoResumo> lancamentos) throws IOException {
+		List<LancamentoResumo> ordenados = new ArrayList<>(lancamentos);
+		ordenados.sort( OrdenacaoLancamento.DATA_CRESCENTE.getComparador() );
+		
+		Map<String, Integer> posicoes = new LinkedHashMap<>();
+		List<Integer> fins = new ArrayList<>();
+		ByteArrayOutputStream textos = new ByteArrayOutputStream();
+		for ( LancamentoResumo lancamento : ordenados ) {
+			if ( lancamento.getDescricao() != null && !posicoes.containsKey(lancamento.getDescricao()) ) {
+				byte[] texto = lancamento.getDescricao().getBytes(StandardCharsets.UTF_8);
+				textos.write(texto, 0, texto.length);
+				posicoes.put(lancamento.getDescricao(), posicoes.size());
+				fins.add( textos.size() );
+			}
+		}
+		
+		Colunas colunas = new Colunas( ordenados.size(), posicoes.size() );
+		long tamanho = colunas.textos + textos.size();
+		if ( tamanho > Integer.MAX_VALUE ) {
+			throw new IllegalStateException("Lançamentos demais para um só arquivo: " + ordenados.size());
+		}
+		
+		Path temporario = destino.resolveSibling( destino.getFileName() + ".tmp" );
+		try ( FileChannel canal = FileChannel.open(temporario, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+				StandardOpenOption.READ, StandardOpenOption.WRITE) ) {
+			MappedByteBuffer dados = canal.map(MapMode.READ_WRITE, 0, tamanho);
+			dados.putInt(0, ASSINATURA);
+			dados.putInt(4, colunas.linhas);
+			dados.putInt(8, colunas.descricoes);
+			dados.putLong(16, idUsuario);
+			
+			for ( int linha = 0; linha < ordenados.size(); linha++ ) {
+				LancamentoResumo lancamento = ordenados.get(linha);
+				if ( lancamento.getAno() == null ) {
+					throw new IllegalArgumentException("Lançamento " + lancamento.getId() + " sem ano não pode ser arquivado.");
+				}
+				dados.putLong( colunas.id + 8 * linha, lancamento.getId() );
+				dados.putLong( colunas.versao + 8 * linha, lancamento.getVersao() == null ? LONG_NULO : lancamento.getVersao() );
+				dados.putLong( colunas.valor + 8 * linha, lancamento.getValor() == null ? LONG_NULO
+						: lancamento.getValor().setScale(2, RoundingMode.UNNECESSARY).unscaledValue().longValueExact() );
+				dados.putInt( colunas.cadastro + 4 * linha, lancamento.getDataCadastro() == null ? DATA_NULA
+						: (int) lancamento.getDataCadastro().toEpochDay() );
+				dados.putInt( colunas.descricao + 4 * linha, lancamento.getDescricao() == null ? SEM_DESCRICAO
+						: posicoes.get(lancamento.getDescricao()) );
+				dados.putShort( colunas.ano + 2 * linha, lancamento.getAno().shortValue() );
+				dados.put( colunas.mes + linha, (byte) ( lancamento.getMes() == null ? 0 : lancamento.getMes() ) );
+				dados.put( colunas.tipoStatus + linha, (byte) ( ordinal(lancamento.getTipo()) << 4 | ordinal(lancamento.getStatus()) ) );
+			}
+			
+			for ( int entrada = 0; entrada < fins.size(); entrada++ ) {
+				dados.putInt( colunas.fins + 4 * entrada, fins.get(entrada) );
+			}
+			dados.position(colunas.textos);
+			dados.put( textos.toByteArray() );
+			dados.force();
+		}
+		Files.move(temporario, destino, StandardCopyOption.ATOMIC_MOVE);
+	}
+	
+	public Long getIdUsuario() {
+		return idUsuario;
+	}
+	
+	public int getLinhas() {
+		return colunas.linhas;
+	}
+	
+	public int getDescricoes() {
+		return colunas.descricoes;
+	}
+	
+	/** Descrição na posição do dicionário, decodificada na primeira leitura. */
+	public String descricao(int entrada) {
+		String descricao = dicionario[entrada];
+		if ( descricao == null ) {
+			int inicio = entrada == 0 ? 0 : dados.getInt( colunas.fins + 4 * (entrada - 1) );
+			int fim = dados.getInt( colunas.fins + 4 * entrada );
+			byte[] texto = new byte[fim - inicio];
+			for ( int i = 0; i < texto.length; i++ ) {
+				texto[i] = dados.get( colunas.textos + inicio + i );
+			}
+			descricao = new String(texto, StandardCharsets.UTF_8);
+			dicionario[entrada] = descricao;
+		}
+		return descricao;
+	}
+	
+	public LancamentoResumo ler(int linha) {
+		long versao = dados.getLong( colunas.versao + 8 * linha );
+		long valor = dados.getLong( colunas.valor + 8 * linha );
+		int cadastro = dados.getInt( colunas.cadastro + 4 * linha );
+		int descricao = dados.getInt( colunas.descricao + 4 * linha );
+		int mes = dados.get( colunas.mes + linha );
+		int tipoStatus = dados.get( colunas.tipoStatus + linha ) & 0xFF;
+		
+		return new LancamentoResumo(
+				dados.getLong( colunas.id + 8 * linha ),
+				descricao == SEM_DESCRICAO ? null : descricao(descricao),
+				mes == 0 ? null : mes,
+				(int) dados.getShort( colunas.ano + 2 * linha ),
+				valor == LONG_NULO ? null : BigDecimal.valueOf(valor, 2),
+				idUsuario,
+				valorDe( TipoLancamento.values(), tipoStatus >>> 4 ),
+				valorDe( StatusLancamento.values(), tipoStatus & SEM_VALOR ),
+				cadastro == DATA_NULA ? null : LocalDate.ofEpochDay(cadastro),
+				versao == LONG_NULO ? null : versao );
+	}
+	
+	public List<LancamentoResumo> todos() {
+		List<LancamentoResumo> lancamentos = new ArrayList<>(colunas.linhas);
+		for ( int linha = 0; linha < colunas.linhas; linha++ ) {
+			lancamentos.add( ler(linha) );
+		}
+		return lancamentos;
+	}
+	
+	/**
+	 * Lançamentos que atendem ao filtro, na ordem do arquivo. O usuário e a ordenação do
+	 * filtro não são considerados. Só as linhas aceitas são decodificadas.
+	 */
+	public List<LancamentoResumo> buscar(FiltroLancamento filtro) {
+		boolean[] descricoes = null;
+		if ( filtro.getDescricao() != null && !filtro.getDescricao().isEmpty() ) {
+			String trecho = filtro.getDescricao().toLowerCase();
+			descricoes = aceitas( descricao -> descricao.toLowerCase().contains(trecho) );
+		}
+		long valorMinimo = centavos( filtro.getValorMinimo(), RoundingMode.CEILING, Long.MIN_VALUE );
+		long valorMaximo = centavos( filtro.getValorMaximo(), RoundingMode.FLOOR, Long.MAX_VALUE );
+		
+		List<LancamentoResumo> encontrados = new ArrayList<>();
+		for ( int linha = 0; linha < colunas.linhas; linha++ ) {
+			int ano = dados.getShort( colunas.ano + 2 * linha );
+			int mes = dados.get( colunas.mes + linha );
+			int tipoStatus = dados.get( colunas.tipoStatus + linha ) & 0xFF;
+			long valor = dados.getLong( colunas.valor + 8 * linha );
+			
+			boolean atende = ( filtro.getAno() == null || ano == filtro.getAno() )
+					&& ( filtro.getMes() == null || mes == filtro.getMes() )
+					&& ( filtro.getAnoInicial() == null || aPartirDe(ano, mes, filtro.getAnoInicial(), filtro.getMesInicial()) )
+					&& ( filtro.getAnoFinal() == null || ate(ano, mes, filtro.getAnoFinal(), filtro.getMesFinal()) )
+					&& ( filtro.getTipo() == null || tipoStatus >>> 4 == filtro.getTipo().ordinal() )
+					&& ( filtro.getStatus() == null || ( tipoStatus & SEM_VALOR ) == filtro.getStatus().ordinal() )
+					&& ( filtro.getValorMinimo() == null || ( valor != LONG_NULO && valor >= valorMinimo ) )
+					&& ( filtro.getValorMaximo() == null || ( valor != LONG_NULO && valor <= valorMaximo ) )
+					&& ( descricoes == null || aceita(descricoes, dados.getInt( colunas.descricao + 4 * linha )) );
+			if ( atende ) {
+				encontrados.add( ler(linha) );
+			}
+		}
+		return encontrados;
+	}
+	
+	/**
+	 * Lançamentos cuja descrição está entre as entradas aceitas do dicionário, na ordem do arquivo.
+	 */
+	public List<LancamentoResumo> comDescricoes(boolean[] descricoes) {
+		List<LancamentoResumo> encontrados = new ArrayList<>();
+		for ( int linha = 0; linha < colunas.linhas; linha++ ) {
+			if ( aceita(descricoes, dados.getInt( colunas.descricao + 4 * linha )) ) {
+				encontrados.add( ler(linha) );
+			}
+		}
+		return encontrados;
+	}
+	
+	private boolean[] aceitas(Predicate<String> criterio) {
+		boolean[] aceitas = new boolean[colunas.descricoes];
+		for ( int entrada = 0; entrada < aceitas.length; entrada++ ) {
+			aceitas[entrada] = criterio.test( descricao(entrada) );
+		}
+		return aceitas;
+	}
+	
+	private static boolean aceita(boolean[] descricoes, int entrada) {
+		return entrada != SEM_DESCRICAO && descricoes[entrada];
+	}
+	
+	/** (ano, mes) >= (anoInicial, mesInicial), com a mesma regra de nulos do banco. */
+	private static boolean aPartirDe(int ano, int mes, int anoInicial, Integer mesInicial) {
+		if ( ano < anoInicial ) {
+			return false;
+		}
+		return mesInicial == null || ano > anoInicial || ( mes != 0 && mes >= mesInicial );
+	}
+	
+	private static boolean ate(int ano, int mes, int anoFinal, Integer mesFinal) {
+		if ( ano > anoFinal ) {
+			return false;
+		}
+		return mesFinal == null || ano < anoFinal || ( mes != 0 && mes <= mesFinal );
+	}
+	
+	/**
+	 * Limite do filtro em centavos, arredondado para dentro do intervalo: um valor mínimo
+	 * de 10,005 só aceita a partir de 10,01.
+	 */
+	private static long centavos(BigDecimal valor, RoundingMode arredondamento, long semLimite) {
+		if ( valor == null ) {
+			return semLimite;
+		}
+		try {
+			return valor.movePointRight(2).setScale(0, arredondamento).longValueExact();
+		} catch ( ArithmeticException e ) {
+			return valor.signum() > 0 ? Long.MAX_VALUE : Long.MIN_VALUE;
+		}
+	}
+	
+	private static int ordinal(Enum<?> valor) {
+		return valor == null ? SEM_VALOR : valor.ordinal();
+	}
+	
+	private static <E extends Enum<E>> E valorDe(E[] valores, int ordinal) {
+		return ordinal == SEM_VALOR ? null : valores[ordinal];
+	}
+	
+	/**
+	 * Início de cada coluna para uma quantidade de linhas e de descrições.
+	 */
+	private static final class Colunas {
+		
+		static final int CABECALHO = 24;
+		
+		final int linhas;
+		final int descricoes;
+		final int id;
+		final int versao;
+		final int valor;
+		final int cadastro;
+		final int descricao;
+		final int ano;
+		final int mes;
+		final int tipoStatus;
+		final int fins;
+		final int textos;
+		
+		Colunas(int linhas, int descricoes) {
+			long id = CABECALHO;
+			long versao = id + 8 * linhas;
+			long valor = versao + 8 * linhas;
+			long cadastro = valor + 8 * linhas;
+			long descricao = cadastro + 4L * linhas;
+			long ano = descricao + 4L * linhas;
+			long mes = ano + 2L * linhas;
+			long tipoStatus = mes + linhas;
+			long fins = ( tipoStatus + linhas + 3 ) / 4 * 4;
+			long textos = fins + 4L * descricoes;
+			if ( textos > Integer.MAX_VALUE ) {
+				throw new IllegalStateException("Lançamentos demais para um só arquivo: " + linhas);
+			}
+			
+			this.linhas = linhas;
+			this.descricoes = descricoes;
+			this.id = (int) id;
+			this.versao = (int) versao;
+			this.valor = (int) valor;
+			this.cadastro = (int) cadastro;
+			this.descricao = (int) descricao;
+			this.ano = (int) ano;
+			this.mes = (int) mes;
+			this.tipoStatus = (int) tipoStatus;
+			this.fins = (int) fins;
+			this.textos = (int) textos;
+		}
+	
+	}
+	
+}
@@ -0,0 +1,204 @@
+package com.lonkoski.minhasFinancas.service.arquivo;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.UUID;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Component;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.lonkoski.minhasFinancas.exception.RegraNegocioException;
+import com.lonkoski.minhasFinancas.model.entity.ArquivoUsuario;
+import com.lonkoski.minhasFinancas.model.entity.Lancamento;
+import com.lonkoski.minhasFinancas.model.filtro.FiltroLancamento;
+import com.lonkoski.minhasFinancas.model.filtro.OrdenacaoLancamento;
+import com.lonkoski.minhasFinancas.model.projecao.LancamentoResumo;
+import com.lonkoski.minhasFinancas.model.repository.ArquivoUsuarioRepository;
+import com.lonkoski.minhasFinancas.model.repository.LancamentoSpecifications;
+
+/**
+ * Acesso aos arquivos colunares dos anos fechados, em {@code financas.arquivo.diretorio},
+ * que deve ser compartilhado entre as instâncias. Sem {@code financas.arquivo.habilitado}
+ * nenhum usuário tem anos fechados e nada é consultado. O registro de cada usuário,
+ * inclusive a ausência dele, fica em memória por {@code financas.arquivo.validade-registro};
+ * o fechamento espera essa validade antes de tirar os lançamentos da tabela. Os arquivos
+ * abertos ficam mapeados enquanto estiverem em uso recente.
+ */
+@Component
+public class ArquivoLancamentos {
+	
+	private final ArquivoUsuarioRepository repository;
+	private final boolean habilitado;
+	private final Path diretorio;
+	private final Duration validade;
+	private final Cache<Long, Optional<ArquivoUsuario>> registros;
+	private final Cache<String, ArquivoColunar> abertos;
+	
+	public ArquivoLancamentos(ArquivoUsuarioRepository repository,
+			@Value("${financas.arquivo.habilitado:false}") boolean habilitado,
+			@Value("${financas.arquivo.diretorio:arquivo}") String diretorio,
+			@Value("${financas.arquivo.validade-registro:5s}") Duration validade) {
+		this.repository = repository;
+		this.habilitado = habilitado;
+		this.diretorio = Paths.get(diretorio);
+		this.validade = validade;
+		this.registros = Caffeine.newBuilder().maximumSize(100_000).expireAfterWrite(validade).build();
+		this.abertos = Caffeine.newBuilder().maximumSize(1_000).build();
+	}
+	
+	public Optional<ArquivoUsuario> obterRegistro(Long idUsuario) {
+		if ( !habilitado || idUsuario == null ) {
+			return Optional.empty();
+		}
+		return registros.get( idUsuario, repository::findById );
+	}
+	
+	/** Descarta o registro em memória do usuário, depois de alterado nesta instância. */
+	public void esquecer(Long idUsuario) {
+		registros.invalidate(idUsuario);
+	}
+	
+	public boolean isHabilitado() {
+		return habilitado;
+	}
+	
+	public Duration getValidade() {
+		return validade;
+	}
+	
+	/**
+	 * @throws RegraNegocioException se o ano já estiver fechado para o usuário.
+	 */
+	public void verificarAberto(Long idUsuario, Integer ano) {
+		Optional<ArquivoUsuario> registro = obterRegistro(idUsuario);
+		if ( ano != null && registro.isPresent() && ano < registro.get().getAnoLimite() ) {
+			throw new RegraNegocioException("O ano " + ano + " está fechado e seus lançamentos não podem ser alterados.");
+		}
+	}
+	
+	public ArquivoColunar abrir(ArquivoUsuario registro) {
+		return abertos.get( registro.getArquivo(), nome -> {
+			try {
+				return ArquivoColunar.abrir( diretorio.resolve(nome) );
+			} catch ( IOException e ) {
+				throw new UncheckedIOException("Não foi possível abrir o arquivo " + nome, e);
+			}
+		});
+	}
+	
+	/**
+	 * Lançamentos arquivados que atendem ao filtro, na ordenação dele. O arquivo nem é lido
+	 * quando o filtro começa depois dos anos fechados.
+	 */
+	public List<LancamentoResumo> buscar(ArquivoUsuario registro, FiltroLancamento filtro) {
+		if ( ( filtro.getAno() != null && filtro.getAno() >= registro.getAnoLimite() )
+				|| ( filtro.getAnoInicial() != null && filtro.getAnoInicial() >= registro.getAnoLimite() ) ) {
+			return Collections.emptyList();
+		}
+		
+		List<LancamentoResumo> encontrados = abrir(registro).buscar(filtro);
+		if ( filtro.getOrdenacao() != OrdenacaoLancamento.DATA_CRESCENTE ) {
+			encontrados.sort( filtro.getOrdenacao().getComparador() );
+		}
+		return encontrados;
+	}
+	
+	/**
+	 * Grava um novo arquivo com os lançamentos e devolve o nome dele. O nome leva a versão
+	 * dos dados do usuário e um sufixo único, então um novo fechamento nunca sobrescreve um
+	 * arquivo em uso, nem o de outro fechamento concorrente do mesmo usuário.
+	 */
+	public String gravar(Long idUsuario, int anoLimite, long versaoDados, List<LancamentoResumo> lancamentos) {
+		String nome = "lancamentos-" + idUsuario + "-" + anoLimite + "-" + versaoDados + "-"
+				+ UUID.randomUUID().toString().substring(0, 8) + ".col";
+		try {
+			Files.createDirectories(diretorio);
+			ArquivoColunar.gravar( diretorio.resolve(nome), idUsuario, lancamentos );
+		} catch ( IOException e ) {
+			throw new UncheckedIOException("Não foi possível gravar o arquivo " + nome, e);
+		}
+		return nome;
+	}
+	
+	public void apagar(String nome) {
+		abertos.invalidate(nome);
+		try {
+			Files.deleteIfExists( diretorio.resolve(nome) );
+		} catch ( IOException e ) {
+			throw new UncheckedIOException("Não foi possível apagar o arquivo " + nome, e);
+		}
+	}
+	
+	/**
+	 * Restringe a consulta da tabela aos anos abertos. Enquanto um fechamento não termina,
+	 * os lançamentos dos anos fechados estão no arquivo e ainda na tabela, e não podem
+	 * aparecer duas vezes.
+	 */
+	public static Specification<Lancamento> anosAbertos(Specification<Lancamento> especificacao, Optional<ArquivoUsuario> registro) {
+		return registro
+				.map( arquivo -> Specification.where(especificacao).and( LancamentoSpecifications.aPartirDoAno(arquivo.getAnoLimite()) ) )
+				.orElse(especificacao);
+	}
+	
+	/**
+	 * Os primeiros {@code limite} itens de duas listas já ordenadas pelo mesmo comparador.
+	 */
+	public static <T> List<T> intercalar(List<T> primeira, List<T> segunda, Comparator<? super T> comparador, int limite) {
+		List<T> intercalados = new ArrayList<>( Math.min(limite, primeira.size() + segunda.size()) );
+		Iterator<T> itens = intercalar( primeira.iterator(), segunda.iterator(), comparador );
+		while ( intercalados.size() < limite && itens.hasNext() ) {
+			intercalados.add( itens.next() );
+		}
+		return intercalados;
+	}
+	
+	/**
+	 * Intercala, sob demanda, duas sequências já ordenadas pelo mesmo comparador. Nos
+	 * empates vem antes o item da primeira.
+	 */
+	public static <T> Iterator<T> intercalar(Iterator<T> primeira, Iterator<T> segunda, Comparator<? super T> comparador) {
+		return new Iterator<T>() {
+			
+			private T proximoDaPrimeira = primeira.hasNext() ? primeira.next() : null;
+			private T proximoDaSegunda = segunda.hasNext() ? segunda.next() : null;
+			
+			@Override
+			public boolean hasNext() {
+				return proximoDaPrimeira != null || proximoDaSegunda != null;
+			}
+			
+			@Override
+			public T next() {
+				if ( !hasNext() ) {
+					throw new NoSuchElementException();
+				}
+				T item;
+				if ( proximoDaSegunda == null
+						|| ( proximoDaPrimeira != null && comparador.compare(proximoDaPrimeira, proximoDaSegunda) <= 0 ) ) {
+					item = proximoDaPrimeira;
+					proximoDaPrimeira = primeira.hasNext() ? primeira.next() : null;
+				} else {
+					item = proximoDaSegunda;
+					proximoDaSegunda = segunda.hasNext() ? segunda.next() : null;
+				}
+				return item;
+			}
+		
+		};
+	}
+	
+}
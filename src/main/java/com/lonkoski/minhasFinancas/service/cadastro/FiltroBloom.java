@@ -0,0 +1,68 @@
+package com.lonkoski.minhasFinancas.service.cadastro;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Filtro de Bloom de textos, seguro para uso concorrente. Responde "talvez contenha"
+ * ou "certamente não contém"; com até {@code capacidade} elementos a taxa de falsos
+ * positivos fica perto da informada. Elementos não podem ser removidos.
+ */
+public class FiltroBloom {
+	
+	private final AtomicLongArray palavras;
+	private final long quantidadeBits;
+	private final int quantidadeHashes;
+	
+	public FiltroBloom(long capacidade, double taxaFalsosPositivos) {
+		double ln2 = Math.log(2);
+		long bitsNecessarios = (long) Math.ceil( -capacidade * Math.log(taxaFalsosPositivos) / (ln2 * ln2) );
+		this.palavras = new AtomicLongArray( (int) Math.max(1, (bitsNecessarios + 63) / 64) );
+		this.quantidadeBits = palavras.length() * 64L;
+		this.quantidadeHashes = Math.max( 1, (int) Math.round( (double) quantidadeBits / capacidade * ln2 ) );
+	}
+	
+	public void adicionar(String valor) {
+		long h1 = hash(valor, 0);
+		long h2 = hash(valor, 0x9E3779B97F4A7C15L) | 1;
+		for ( int i = 0; i < quantidadeHashes; i++ ) {
+			long bit = Math.floorMod(h1 + i * h2, quantidadeBits);
+			int palavra = (int) (bit >>> 6);
+			long mascara = 1L << (bit & 63);
+			
+			long atual;
+			while ( ((atual = palavras.get(palavra)) & mascara) == 0
+					&& !palavras.compareAndSet(palavra, atual, atual | mascara) ) {
+				// outra thread alterou a mesma palavra; tenta de novo
+			}
+		}
+	}
+	
+	public boolean podeConter(String valor) {
+		long h1 = hash(valor, 0);
+		long h2 = hash(valor, 0x9E3779B97F4A7C15L) | 1;
+		for ( int i = 0; i < quantidadeHashes; i++ ) {
+			long bit = Math.floorMod(h1 + i * h2, quantidadeBits);
+			if ( (palavras.get((int) (bit >>> 6)) & (1L << (bit & 63))) == 0 ) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * FNV-1a de 64 bits dos bytes em UTF-8, com a semente misturada no início e o
+	 * resultado espalhado pelo finalizador do SplitMix64.
+	 */
+	private static long hash(String valor, long semente) {
+		long h = 0xcbf29ce484222325L ^ semente;
+		for ( byte b : valor.getBytes(StandardCharsets.UTF_8) ) {
+			h ^= (b & 0xff);
+			h *= 0x100000001b3L;
+		}
+		h = (h ^ (h >>> 30)) * 0xbf58476d1ce4e5b9L;
+		h = (h ^ (h >>> 27)) * 0x94d049bb133111ebL;
+		return h ^ (h >>> 31);
+	}
+
+}
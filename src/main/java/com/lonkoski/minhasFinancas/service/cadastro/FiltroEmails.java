@@ -0,0 +1,73 @@
+package com.lonkoski.minhasFinancas.service.cadastro;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.lonkoski.minhasFinancas.config.fragmento.Fragmentos;
+import com.lonkoski.minhasFinancas.model.repository.UsuarioRepository;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Emails já cadastrados, em um filtro de Bloom carregado na subida da aplicação.
+ * Cadastros feitos em outras instâncias não entram neste filtro; nesse caso quem
+ * barra o email repetido é o índice único da tabela. Com fragmentos, a carga lê os
+ * emails de todos eles.
+ */
+@Slf4j
+@Component
+public class FiltroEmails {
+	
+	private final UsuarioRepository repository;
+	private final Fragmentos fragmentos;
+	private final TransactionTemplate transacao;
+	private final FiltroBloom filtro;
+	private volatile boolean carregado;
+	
+	public FiltroEmails(UsuarioRepository repository, Fragmentos fragmentos, PlatformTransactionManager transactionManager,
+			@Value("${financas.cadastro.filtro-emails.capacidade:1000000}") long capacidade,
+			@Value("${financas.cadastro.filtro-emails.taxa-falsos-positivos:0.01}") double taxaFalsosPositivos) {
+		this.repository = repository;
+		this.fragmentos = fragmentos;
+		this.transacao = new TransactionTemplate(transactionManager);
+		this.transacao.setReadOnly(true);
+		this.filtro = new FiltroBloom(capacidade, taxaFalsosPositivos);
+	}
+	
+	@EventListener( ApplicationReadyEvent.class )
+	public void carregar() {
+		AtomicLong quantidade = new AtomicLong();
+		fragmentos.emCadaFragmento( () -> transacao.executeWithoutResult( status -> {
+			try ( Stream<String> emails = repository.listarEmails() ) {
+				quantidade.addAndGet( emails.filter(Objects::nonNull)
+						.peek(filtro::adicionar)
+						.count() );
+			}
+		}) );
+		carregado = true;
+		log.info("Filtro de emails carregado com {} emails", quantidade.get());
+	}
+	
+	/**
+	 * Falso somente quando o email certamente não está cadastrado. Até a carga
+	 * terminar a resposta é sempre verdadeira.
+	 */
+	public boolean podeEstarCadastrado(String email) {
+		return !carregado || email == null || filtro.podeConter(email);
+	}
+	
+	public void registrar(String email) {
+		if ( email != null ) {
+			filtro.adicionar(email);
+		}
+	}
+
+}
@@ -0,0 +1,20 @@
+package com.lonkoski.minhasFinancas.service.coalescimento;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marca uma consulta cujas chamadas simultâneas com os mesmos argumentos compartilham
+ * uma única execução: quem chega enquanto ela está em andamento recebe o mesmo resultado.
+ * Os argumentos precisam implementar {@code equals} e {@code hashCode}, e o resultado
+ * não deve ser alterado por quem o recebe.
+ */
+@Documented
+@Target( ElementType.METHOD )
+@Retention( RetentionPolicy.RUNTIME )
+public @interface ConsultaCompartilhada {
+
+}
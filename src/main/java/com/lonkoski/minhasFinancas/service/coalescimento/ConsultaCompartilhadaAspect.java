@@ -0,0 +1,138 @@
+package com.lonkoski.minhasFinancas.service.coalescimento;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.EqualsAndHashCode;
+
+/**
+ * Executa uma vez as chamadas simultâneas e idênticas de métodos {@link ConsultaCompartilhada}.
+ * 
+ * Roda antes do interceptador de transação, então quem espera não abre transação nem
+ * ocupa conexão. Quem chega primeiro registra a chamada com um {@code putIfAbsent} e a
+ * executa; os demais só aguardam o mesmo resultado, sem travar o mapa na leitura. A chamada sai do mapa ao terminar,
+ * portanto nada é guardado entre execuções.
+ * 
+ * Só pega carona quem chegou numa requisição iniciada antes da execução em andamento:
+ * assim a execução começou depois de todas as escritas que o cliente já viu concluídas
+ * e ele sempre enxerga as próprias escritas. Quem chega depois inicia outra execução e a
+ * troca pela anterior com um {@code replace} condicional, repetido se outra chamada trocou
+ * antes; a nova execução passa a receber as caronas seguintes. Fora de uma requisição não há carona.
+ * 
+ * O contador {@code financas.consultas.compartilhadas} separa por método as chamadas
+ * executadas das compartilhadas; a razão entre elas é a taxa de aproveitamento.
+ */
+@Aspect
+@Component
+@Order( ConsultaCompartilhadaAspect.ORDEM )
+public class ConsultaCompartilhadaAspect {
+	
+	/**
+	 * Precede a ordem padrão de {@code @EnableTransactionManagement} e {@code @EnableCaching}.
+	 */
+	public static final int ORDEM = Ordered.LOWEST_PRECEDENCE - 100;
+	
+	private final ConcurrentMap<Chamada, Execucao> emAndamento = new ConcurrentHashMap<>();
+	private final MeterRegistry registro;
+	private final InicioRequisicao inicioRequisicao;
+	
+	public ConsultaCompartilhadaAspect(MeterRegistry registro, InicioRequisicao inicioRequisicao) {
+		this.registro = registro;
+		this.inicioRequisicao = inicioRequisicao;
+	}
+	
+	@Around( "@annotation(com.lonkoski.minhasFinancas.service.coalescimento.ConsultaCompartilhada)" )
+	public Object compartilhar(ProceedingJoinPoint chamada) throws Throwable {
+		String metodo = chamada.getSignature().toShortString();
+		Chamada chave = new Chamada(metodo, Arrays.asList(chamada.getArgs()));
+		
+		long chegada = inicioRequisicao.obter();
+		Execucao propria = new Execucao( System.nanoTime() );
+		Execucao atual = registrar(chave, propria, chegada);
+		if ( atual != propria ) {
+			contador(metodo, "compartilhada").increment();
+			return aguardar(atual.resultado);
+		}
+		
+		contador(metodo, "executada").increment();
+		try {
+			Object resultado = chamada.proceed();
+			propria.resultado.complete(resultado);
+			return resultado;
+		} catch (Throwable e) {
+			propria.resultado.completeExceptionally(e);
+			throw e;
+		} finally {
+			emAndamento.remove(chave, propria);
+		}
+	}
+	
+	/**
+	 * Devolve a execução que atende quem chegou em {@code chegada}: a que está em andamento,
+	 * se começou depois, ou {@code propria}, que toma o lugar dela no mapa.
+	 */
+	private Execucao registrar(Chamada chave, Execucao propria, long chegada) {
+		while ( true ) {
+			Execucao existente = emAndamento.putIfAbsent(chave, propria);
+			if ( existente == null ) {
+				return propria;
+			}
+			if ( existente.inicio - chegada >= 0 ) {
+				return existente;
+			}
+			if ( emAndamento.replace(chave, existente, propria) ) {
+				return propria;
+			}
+		}
+	}
+	
+	private Object aguardar(CompletableFuture<Object> execucao) throws Throwable {
+		try {
+			return execucao.join();
+		} catch (CompletionException e) {
+			throw e.getCause();
+		}
+	}
+	
+	private Counter contador(String metodo, String resultado) {
+		return registro.counter("financas.consultas.compartilhadas", "metodo", metodo, "resultado", resultado);
+	}
+	
+	private static final class Execucao {
+		
+		private final long inicio;
+		private final CompletableFuture<Object> resultado = new CompletableFuture<>();
+		
+		Execucao(long inicio) {
+			this.inicio = inicio;
+		}
+		
+	}
+	
+	@EqualsAndHashCode
+	private static final class Chamada {
+		
+		private final String metodo;
+		private final List<Object> argumentos;
+		
+		Chamada(String metodo, List<Object> argumentos) {
+			this.metodo = metodo;
+			this.argumentos = argumentos;
+		}
+		
+	}
+
+}
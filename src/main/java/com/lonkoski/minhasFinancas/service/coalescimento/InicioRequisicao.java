@@ -0,0 +1,31 @@
+package com.lonkoski.minhasFinancas.service.coalescimento;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Instante em que a requisição em andamento começou, informado pelo filtro da API.
+ * As escritas que o cliente já viu concluídas terminaram antes dele, então uma consulta
+ * iniciada depois desse instante enxerga todas elas.
+ */
+@Component
+public class InicioRequisicao {
+	
+	private final ThreadLocal<Long> inicio = new ThreadLocal<>();
+	
+	public void definir(long inicioNanos) {
+		inicio.set(inicioNanos);
+	}
+	
+	public void limpar() {
+		inicio.remove();
+	}
+	
+	/**
+	 * O início da requisição em {@link System#nanoTime()} ou, fora de uma, o instante atual.
+	 */
+	public long obter() {
+		Long valor = inicio.get();
+		return valor == null ? System.nanoTime() : valor;
+	}
+	
+}
@@ -0,0 +1,34 @@
+package com.lonkoski.minhasFinancas.service.exportacao;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lonkoski.minhasFinancas.model.enums.FormatoExportacao;
+import com.lonkoski.minhasFinancas.model.projecao.LancamentoResumo;
+
+/**
+ * Escreve os lançamentos na saída à medida que são lidos, sem acumulá-los.
+ * A saída não é fechada: quem a abriu é responsável por ela.
+ */
+public interface EscritorExportacao {
+	
+	void escrever( LancamentoResumo lancamento ) throws IOException;
+	
+	/**
+	 * Descarrega o que ainda estiver em buffer.
+	 */
+	void finalizar() throws IOException;
+	
+	static EscritorExportacao para(FormatoExportacao formato, OutputStream saida, ObjectMapper objectMapper) throws IOException {
+		switch ( formato ) {
+			case CSV:
+				return new EscritorExportacaoCsv(saida);
+			case NDJSON:
+				return new EscritorExportacaoNdjson(saida, objectMapper);
+			default:
+				throw new IllegalArgumentException("Formato de exportação não suportado: " + formato);
+		}
+	}
+
+}
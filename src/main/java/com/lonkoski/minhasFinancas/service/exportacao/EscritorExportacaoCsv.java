@@ -0,0 +1,69 @@
+package com.lonkoski.minhasFinancas.service.exportacao;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import com.lonkoski.minhasFinancas.model.projecao.LancamentoResumo;
+
+/**
+ * CSV separado por {@code ;}, o padrão das planilhas em português, com cabeçalho.
+ */
+public class EscritorExportacaoCsv implements EscritorExportacao {
+	
+	static final String CABECALHO = "id;descricao;mes;ano;valor;tipo;status;data_cadastro";
+	
+	private final Writer writer;
+	
+	public EscritorExportacaoCsv(OutputStream saida) throws IOException {
+		this.writer = new BufferedWriter( new OutputStreamWriter(saida, StandardCharsets.UTF_8) );
+		writer.write(CABECALHO);
+		writer.write('\n');
+	}
+
+	@Override
+	public void escrever(LancamentoResumo lancamento) throws IOException {
+		writer.write( String.valueOf(lancamento.getId()) );
+		writer.write(';');
+		writer.write( campo(lancamento.getDescricao()) );
+		writer.write(';');
+		writer.write( texto(lancamento.getMes()) );
+		writer.write(';');
+		writer.write( texto(lancamento.getAno()) );
+		writer.write(';');
+		writer.write( lancamento.getValor() == null ? "" : lancamento.getValor().toPlainString() );
+		writer.write(';');
+		writer.write( texto(lancamento.getTipo()) );
+		writer.write(';');
+		writer.write( texto(lancamento.getStatus()) );
+		writer.write(';');
+		writer.write( texto(lancamento.getDataCadastro()) );
+		writer.write('\n');
+	}
+
+	@Override
+	public void finalizar() throws IOException {
+		writer.flush();
+	}
+	
+	private static String texto(Object valor) {
+		return valor == null ? "" : valor.toString();
+	}
+	
+	/**
+	 * Texto livre vai entre aspas quando contém separador, aspas ou quebra de linha.
+	 */
+	static String campo(String valor) {
+		if ( valor == null ) {
+			return "";
+		}
+		if ( valor.indexOf(';') < 0 && valor.indexOf('"') < 0 && valor.indexOf('\n') < 0 && valor.indexOf('\r') < 0 ) {
+			return valor;
+		}
+		return "\"" + valor.replace("\"", "\"\"") + "\"";
+	}
+
+}
@@ -0,0 +1,34 @@
+package com.lonkoski.minhasFinancas.service.exportacao;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lonkoski.minhasFinancas.model.projecao.LancamentoResumo;
+
+/**
+ * Um objeto JSON por linha, serializado pelo mesmo {@link ObjectMapper} da API.
+ */
+public class EscritorExportacaoNdjson implements EscritorExportacao {
+	
+	private final JsonGenerator gerador;
+	
+	public EscritorExportacaoNdjson(OutputStream saida, ObjectMapper objectMapper) throws IOException {
+		this.gerador = objectMapper.getFactory().createGenerator(saida, JsonEncoding.UTF8);
+		gerador.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+	}
+
+	@Override
+	public void escrever(LancamentoResumo lancamento) throws IOException {
+		gerador.writeObject(lancamento);
+		gerador.writeRaw('\n');
+	}
+
+	@Override
+	public void finalizar() throws IOException {
+		gerador.flush();
+	}
+
+}
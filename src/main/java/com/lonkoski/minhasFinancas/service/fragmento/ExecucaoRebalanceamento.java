@@ -0,0 +1,53 @@
+package com.lonkoski.minhasFinancas.service.fragmento;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import com.lonkoski.minhasFinancas.exception.RegraNegocioException;
+import com.lonkoski.minhasFinancas.service.RebalanceamentoService;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Move usuários entre fragmentos ao subir com o perfil "rebalanceamento", sem servidor
+ * web, e encerra. Roda ao lado das instâncias no ar, com a mesma configuração de bancos.
+ * Exemplo: {@code java -jar minhasFinancas.jar --spring.profiles.active=rebalanceamento
+ * --financas.rebalanceamento.usuarios=10,11 --financas.rebalanceamento.destino=2}
+ */
+@Slf4j
+@Component
+@Profile("rebalanceamento")
+public class ExecucaoRebalanceamento implements ApplicationRunner {
+	
+	private final RebalanceamentoService service;
+	
+	@Value("${financas.rebalanceamento.usuarios:}")
+	private List<Long> usuarios;
+	
+	@Value("${financas.rebalanceamento.destino:0}")
+	private int destino;
+	
+	public ExecucaoRebalanceamento(RebalanceamentoService service) {
+		this.service = service;
+	}
+	
+	/**
+	 * Um usuário que não pôde ser movido é relatado e não impede os seguintes.
+	 */
+	@Override
+	public void run(ApplicationArguments args) {
+		for ( Long idUsuario : usuarios ) {
+			try {
+				service.mover(idUsuario, destino);
+			} catch ( RegraNegocioException e ) {
+				log.warn("Usuário {} não movido: {}", idUsuario, e.getMessage());
+			}
+		}
+	}
+	
+}
@@ -0,0 +1,69 @@
+package com.lonkoski.minhasFinancas.service.geracao;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+import com.lonkoski.minhasFinancas.model.geracao.ParametrosGeracao;
+import com.lonkoski.minhasFinancas.model.geracao.ResultadoGeracao;
+import com.lonkoski.minhasFinancas.service.GeracaoDadosService;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Gera a massa sintética ao subir com o perfil "geracao", sem servidor web, e encerra.
+ * Exemplo: {@code java -jar minhasFinancas.jar --spring.profiles.active=geracao
+ * --financas.geracao.usuarios=10000 --financas.geracao.semente=7}
+ */
+@Slf4j
+@Component
+@Profile("geracao")
+public class ExecucaoGeracaoDados implements ApplicationRunner {
+	
+	private final GeracaoDadosService service;
+	
+	@Value("${financas.geracao.semente:42}")
+	private long semente;
+	
+	@Value("${financas.geracao.usuarios:100}")
+	private int usuarios;
+	
+	@Value("${financas.geracao.media-lancamentos-por-usuario:500}")
+	private int mediaLancamentosPorUsuario;
+	
+	@Value("${financas.geracao.ano-inicial:2019}")
+	private int anoInicial;
+	
+	@Value("${financas.geracao.ano-final:2023}")
+	private int anoFinal;
+	
+	@Value("${financas.geracao.tamanho-lote:1000}")
+	private int tamanhoLote;
+	
+	@Value("${financas.geracao.indexar-pesquisa:false}")
+	private boolean indexarPesquisa;
+	
+	public ExecucaoGeracaoDados(GeracaoDadosService service) {
+		this.service = service;
+	}
+
+	@Override
+	public void run(ApplicationArguments args) {
+		ResultadoGeracao resultado = service.gerar( ParametrosGeracao.builder()
+				.semente(semente)
+				.usuarios(usuarios)
+				.mediaLancamentosPorUsuario(mediaLancamentosPorUsuario)
+				.anoInicial(anoInicial)
+				.anoFinal(anoFinal)
+				.tamanhoLote(tamanhoLote)
+				.indexarPesquisa(indexarPesquisa)
+				.build() );
+		
+		log.info("Massa sintética gerada: {} usuários, {} lançamentos em {} ms ({} lançamentos/s)",
+				resultado.getIdsUsuarios().size(), resultado.getLancamentos(), resultado.getMilissegundos(),
+				Math.round(resultado.getLancamentosPorSegundo()));
+	}
+
+}
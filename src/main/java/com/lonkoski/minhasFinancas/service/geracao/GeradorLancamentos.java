@@ -0,0 +1,182 @@
+package com.lonkoski.minhasFinancas.service.geracao;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import com.lonkoski.minhasFinancas.model.entity.Lancamento;
+import com.lonkoski.minhasFinancas.model.entity.Usuario;
+import com.lonkoski.minhasFinancas.model.enums.StatusLancamento;
+import com.lonkoski.minhasFinancas.model.enums.TipoLancamento;
+import com.lonkoski.minhasFinancas.model.geracao.ParametrosGeracao;
+
+/**
+ * Gera usuários e lançamentos sintéticos com distribuições próximas das reais:
+ * <ul>
+ * <li>quantidade por usuário log-normal em torno da média, com alguns usuários bem maiores;</li>
+ * <li>anos recentes com mais lançamentos e dezembro e janeiro acima dos demais meses;</li>
+ * <li>um quarto de receitas, com valores log-normais por categoria de descrição;</li>
+ * <li>pendentes concentrados nos últimos meses e uma pequena parte cancelada.</li>
+ * </ul>
+ * Cada usuário tem seu próprio gerador derivado da semente e do índice, então o
+ * resultado não depende da ordem nem de quantos usuários são gerados.
+ */
+public class GeradorLancamentos {
+	
+	private static final Categoria[] RECEITAS = {
+		new Categoria("Salario", 6, 4000, 0.4),
+		new Categoria("Freelance", 2, 800, 0.8),
+		new Categoria("Rendimentos", 2, 150, 1.0),
+	};
+	
+	private static final Categoria[] DESPESAS = {
+		new Categoria("Aluguel", 1, 1500, 0.3),
+		new Categoria("Mercado", 5, 250, 0.6),
+		new Categoria("Restaurante", 5, 60, 0.7),
+		new Categoria("Transporte", 4, 40, 0.8),
+		new Categoria("Conta de energia", 1, 180, 0.3),
+		new Categoria("Internet", 1, 100, 0.1),
+		new Categoria("Lazer", 2, 120, 1.0),
+		new Categoria("Farmacia", 2, 70, 0.9),
+		new Categoria("Saude", 1, 300, 1.0),
+	};
+	
+	private static final double[] PESOS_RECEITAS = pesos(RECEITAS);
+	private static final double[] PESOS_DESPESAS = pesos(DESPESAS);
+	
+	private static final double[] PESOS_MESES = { 1.2, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1.1, 1.4 };
+	
+	private final ParametrosGeracao parametros;
+	private final double[] pesosAnos;
+	
+	public GeradorLancamentos(ParametrosGeracao parametros) {
+		if ( parametros.getAnoFinal() < parametros.getAnoInicial() ) {
+			throw new IllegalArgumentException("O ano final deve ser maior ou igual ao inicial.");
+		}
+		this.parametros = parametros;
+		this.pesosAnos = new double[ parametros.getAnoFinal() - parametros.getAnoInicial() + 1 ];
+		for ( int i = 0; i < pesosAnos.length; i++ ) {
+			pesosAnos[i] = i + 1;
+		}
+	}
+	
+	public Usuario usuario(int indice) {
+		return Usuario.builder()
+				.nome("Usuario sintetico " + indice)
+				.email( email(indice) )
+				.senha("senha")
+				.build();
+	}
+	
+	public String email(int indice) {
+		return "sintetico." + parametros.getSemente() + "." + indice + "@financas.test";
+	}
+	
+	/**
+	 * Lançamentos do usuário de índice informado, sem id e sem usuário preenchidos.
+	 */
+	public List<Lancamento> lancamentos(int indice) {
+		SplittableRandom aleatorio = new SplittableRandom( parametros.getSemente() * 0x9E3779B97F4A7C15L + indice );
+		
+		// Com dispersão 0,5, a mediana exp(-0,125) dá média 1 ao fator log-normal.
+		int quantidade = (int) Math.max(1, Math.round( parametros.getMediaLancamentosPorUsuario() * logNormal(aleatorio, Math.exp(-0.125), 0.5) ));
+		List<Lancamento> lancamentos = new ArrayList<>(quantidade);
+		for ( int i = 0; i < quantidade; i++ ) {
+			lancamentos.add( lancamento(aleatorio) );
+		}
+		return lancamentos;
+	}
+	
+	private Lancamento lancamento(SplittableRandom aleatorio) {
+		int ano = parametros.getAnoInicial() + sortear(aleatorio, pesosAnos);
+		int mes = sortear(aleatorio, PESOS_MESES) + 1;
+		TipoLancamento tipo = aleatorio.nextDouble() < 0.25 ? TipoLancamento.RECEITA : TipoLancamento.DESPESA;
+		Categoria categoria = tipo == TipoLancamento.RECEITA
+				? RECEITAS[ sortear(aleatorio, PESOS_RECEITAS) ]
+				: DESPESAS[ sortear(aleatorio, PESOS_DESPESAS) ];
+		
+		BigDecimal valor = BigDecimal.valueOf( logNormal(aleatorio, categoria.mediana, categoria.dispersao) )
+				.setScale(2, RoundingMode.HALF_UP)
+				.max( new BigDecimal("0.01") );
+		
+		return Lancamento.builder()
+				.descricao(categoria.descricao)
+				.ano(ano)
+				.mes(mes)
+				.tipo(tipo)
+				.valor(valor)
+				.status( status(aleatorio, ano, mes) )
+				.dataCadastro( LocalDate.of(ano, mes, 1 + aleatorio.nextInt(28)) )
+				.versao(0l)
+				.build();
+	}
+	
+	private StatusLancamento status(SplittableRandom aleatorio, int ano, int mes) {
+		int mesesAtras = (parametros.getAnoFinal() * 12 + 12) - (ano * 12 + mes);
+		double pendente = mesesAtras == 0 ? 0.7 : mesesAtras <= 2 ? 0.2 : 0.01;
+		
+		double sorteio = aleatorio.nextDouble();
+		if ( sorteio < 0.03 ) {
+			return StatusLancamento.CANCELADO;
+		}
+		return sorteio < 0.03 + pendente ? StatusLancamento.PENDENTE : StatusLancamento.EFETIVADO;
+	}
+	
+	/**
+	 * Log-normal com a mediana informada; {@code dispersao} é o desvio do logaritmo.
+	 */
+	private static double logNormal(SplittableRandom aleatorio, double mediana, double dispersao) {
+		return mediana * Math.exp( dispersao * normal(aleatorio) );
+	}
+	
+	/**
+	 * Normal padrão por Box-Muller; o {@link SplittableRandom} do Java 8 não tem {@code nextGaussian}.
+	 */
+	private static double normal(SplittableRandom aleatorio) {
+		double u = 1.0 - aleatorio.nextDouble();
+		return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * aleatorio.nextDouble());
+	}
+	
+	private static int sortear(SplittableRandom aleatorio, double[] pesos) {
+		double total = 0;
+		for ( double peso : pesos ) {
+			total += peso;
+		}
+		double sorteio = aleatorio.nextDouble() * total;
+		for ( int i = 0; i < pesos.length; i++ ) {
+			sorteio -= pesos[i];
+			if ( sorteio < 0 ) {
+				return i;
+			}
+		}
+		return pesos.length - 1;
+	}
+	
+	private static double[] pesos(Categoria[] categorias) {
+		double[] pesos = new double[categorias.length];
+		for ( int i = 0; i < categorias.length; i++ ) {
+			pesos[i] = categorias[i].peso;
+		}
+		return pesos;
+	}
+	
+	private static final class Categoria {
+		
+		final String descricao;
+		final double peso;
+		final double mediana;
+		final double dispersao;
+		
+		Categoria(String descricao, double peso, double mediana, double dispersao) {
+			this.descricao = descricao;
+			this.peso = peso;
+			this.mediana = mediana;
+			this.dispersao = dispersao;
+		}
+		
+	}
+
+}
@@ -0,0 +1,68 @@
+package com.lonkoski.minhasFinancas.service.impl;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.lonkoski.minhasFinancas.model.entity.ArquivoUsuario;
+import com.lonkoski.minhasFinancas.model.enums.FormatoExportacao;
+import com.lonkoski.minhasFinancas.model.filtro.FiltroLancamento;
+import com.lonkoski.minhasFinancas.model.projecao.LancamentoResumo;
+import com.lonkoski.minhasFinancas.model.repository.LancamentoRepository;
+import com.lonkoski.minhasFinancas.model.repository.LancamentoSpecifications;
+import com.lonkoski.minhasFinancas.service.ExportacaoLancamentoService;
+import com.lonkoski.minhasFinancas.service.arquivo.ArquivoLancamentos;
+import com.lonkoski.minhasFinancas.service.exportacao.EscritorExportacao;
+
+@Service
+public class ExportacaoLancamentoServiceImpl implements ExportacaoLancamentoService {
+	
+	private LancamentoRepository repository;
+	private ObjectMapper objectMapper;
+	private int tamanhoBusca;
+	private ArquivoLancamentos arquivos;
+	
+	public ExportacaoLancamentoServiceImpl(LancamentoRepository repository, ObjectMapper objectMapper,
+			@Value("${financas.exportacao.tamanho-busca:500}") int tamanhoBusca, ArquivoLancamentos arquivos) {
+		this.repository = repository;
+		this.objectMapper = objectMapper;
+		this.tamanhoBusca = tamanhoBusca;
+		this.arquivos = arquivos;
+	}
+
+	@Override
+	@Transactional( readOnly = true )
+	public long exportar(FiltroLancamento filtro, FormatoExportacao formato, OutputStream saida) throws IOException {
+		EscritorExportacao escritor = EscritorExportacao.para(formato, saida, objectMapper);
+		long exportados = 0;
+		
+		// A transação mantém o cursor do banco aberto enquanto as linhas são escritas; os
+		// anos fechados vêm do arquivo, intercalados na mesma ordem.
+		Optional<ArquivoUsuario> arquivo = arquivos.obterRegistro(filtro.getIdUsuario());
+		List<LancamentoResumo> arquivados = arquivo.map( registro -> arquivos.buscar(registro, filtro) )
+				.orElse( Collections.emptyList() );
+		try ( Stream<LancamentoResumo> lancamentos = repository.transmitirResumos(
+				ArquivoLancamentos.anosAbertos( LancamentoSpecifications.doFiltro(filtro), arquivo ),
+				filtro.getOrdenacao().getSort(), tamanhoBusca ) ) {
+			Iterator<LancamentoResumo> iterador = ArquivoLancamentos.intercalar( lancamentos.iterator(),
+					arquivados.iterator(), filtro.getOrdenacao().getComparador() );
+			while ( iterador.hasNext() ) {
+				escritor.escrever( iterador.next() );
+				exportados++;
+			}
+		}
+		
+		escritor.finalizar();
+		return exportados;
+	}
+
+}
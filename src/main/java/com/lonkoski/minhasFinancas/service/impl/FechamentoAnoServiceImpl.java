@@ -0,0 +1,296 @@
+package com.lonkoski.minhasFinancas.service.impl;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.lonkoski.minhasFinancas.config.fragmento.Fragmentos;
+import com.lonkoski.minhasFinancas.exception.RegraNegocioException;
+import com.lonkoski.minhasFinancas.model.arquivo.ResultadoFechamento;
+import com.lonkoski.minhasFinancas.model.arquivo.SituacaoFechamento;
+import com.lonkoski.minhasFinancas.model.entity.ArquivoUsuario;
+import com.lonkoski.minhasFinancas.model.entity.Lancamento;
+import com.lonkoski.minhasFinancas.model.entity.ResumoAno;
+import com.lonkoski.minhasFinancas.model.enums.EstadoFechamento;
+import com.lonkoski.minhasFinancas.model.enums.TipoLancamento;
+import com.lonkoski.minhasFinancas.model.filtro.FiltroLancamento;
+import com.lonkoski.minhasFinancas.model.filtro.OrdenacaoLancamento;
+import com.lonkoski.minhasFinancas.model.projecao.LancamentoResumo;
+import com.lonkoski.minhasFinancas.model.repository.ArquivoUsuarioRepository;
+import com.lonkoski.minhasFinancas.model.repository.LancamentoRepository;
+import com.lonkoski.minhasFinancas.model.repository.LancamentoSpecifications;
+import com.lonkoski.minhasFinancas.model.repository.NgramaLancamentoRepository;
+import com.lonkoski.minhasFinancas.model.repository.ResumoAnoRepository;
+import com.lonkoski.minhasFinancas.model.repository.UsuarioRepository;
+import com.lonkoski.minhasFinancas.service.FechamentoAnoService;
+import com.lonkoski.minhasFinancas.service.SaldoService;
+import com.lonkoski.minhasFinancas.service.arquivo.ArquivoLancamentos;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Fecha os anos de um usuário em três passos:
+ * <ol>
+ * <li>grava o arquivo com os lançamentos dos anos fechados, os da tabela e os do arquivo
+ * anterior, e registra o arquivo no lugar do registro lido no início; a partir daí as
+ * leituras pegam esses anos do arquivo e a validação recusa escritas neles;</li>
+ * <li>espera a validade do registro, para que todas as instâncias o enxerguem;</li>
+ * <li>numa transação que trava o saldo do usuário, confere que a versão dos dados não
+ * mudou desde a leitura, por uma escrita de uma instância que ainda não via o registro,
+ * grava os totais de cada ano e tira os lançamentos da tabela e do índice de pesquisa.</li>
+ * </ol>
+ * Se a versão mudou, o registro anterior volta e o arquivo novo é apagado. O saldo
+ * consolidado não muda: os totais dos anos fechados continuam somados nele.
+ * 
+ * O registro é trocado no banco só se ainda for o lido no início, então entre fechamentos
+ * concorrentes do mesmo usuário, em qualquer instância, só um registra; os demais apagam
+ * o próprio arquivo e falham. Pelo mesmo motivo, a volta do registro anterior só acontece
+ * enquanto ele ainda aponta para o arquivo desta tentativa.
+ * 
+ * Os fechamentos pedidos pela API rodam numa thread própria, um por vez; a situação
+ * de cada usuário fica em memória nesta instância. Todo o fechamento roda no fragmento
+ * do usuário.
+ */
+@Slf4j
+@Service
+public class FechamentoAnoServiceImpl implements FechamentoAnoService {
+	
+	private UsuarioRepository usuarioRepository;
+	private LancamentoRepository lancamentoRepository;
+	private NgramaLancamentoRepository ngramaRepository;
+	private ArquivoUsuarioRepository arquivoRepository;
+	private ResumoAnoRepository resumoRepository;
+	private SaldoService saldoService;
+	private ArquivoLancamentos arquivos;
+	private Fragmentos fragmentos;
+	private TransactionTemplate transacao;
+	private TransactionTemplate transacaoLeitura;
+	private final ConcurrentMap<Long, SituacaoFechamento> situacoes = new ConcurrentHashMap<>();
+	private final ExecutorService execucao = Executors.newSingleThreadExecutor( tarefa -> {
+		Thread thread = new Thread(tarefa, "fechamento-anos");
+		thread.setDaemon(true);
+		return thread;
+	});
+	
+	public FechamentoAnoServiceImpl(UsuarioRepository usuarioRepository, LancamentoRepository lancamentoRepository,
+			NgramaLancamentoRepository ngramaRepository, ArquivoUsuarioRepository arquivoRepository,
+			ResumoAnoRepository resumoRepository, SaldoService saldoService, ArquivoLancamentos arquivos,
+			Fragmentos fragmentos, PlatformTransactionManager transactionManager) {
+		this.usuarioRepository = usuarioRepository;
+		this.lancamentoRepository = lancamentoRepository;
+		this.ngramaRepository = ngramaRepository;
+		this.arquivoRepository = arquivoRepository;
+		this.resumoRepository = resumoRepository;
+		this.saldoService = saldoService;
+		this.arquivos = arquivos;
+		this.fragmentos = fragmentos;
+		this.transacao = new TransactionTemplate(transactionManager);
+		this.transacaoLeitura = new TransactionTemplate(transactionManager);
+		this.transacaoLeitura.setReadOnly(true);
+	}
+	
+	@Override
+	public SituacaoFechamento agendar(Long idUsuario, Integer ano) {
+		fragmentos.noFragmentoDoUsuario( idUsuario, () -> validar(idUsuario, ano) );
+		
+		SituacaoFechamento situacao = new SituacaoFechamento(idUsuario, ano, EstadoFechamento.EM_ANDAMENTO, null, null);
+		SituacaoFechamento atual = situacoes.merge( idUsuario, situacao,
+				(anterior, nova) -> anterior.getEstado() == EstadoFechamento.EM_ANDAMENTO ? anterior : nova );
+		if ( atual != situacao ) {
+			throw new RegraNegocioException("Já existe um fechamento em andamento para o usuário.");
+		}
+		
+		execucao.execute( () -> {
+			try {
+				ResultadoFechamento resultado = fechar(idUsuario, ano);
+				situacoes.put( idUsuario, new SituacaoFechamento(idUsuario, ano, EstadoFechamento.CONCLUIDO, resultado, null) );
+			} catch ( RuntimeException e ) {
+				log.warn("Falha no fechamento dos anos do usuário {} anteriores a {}", idUsuario, ano, e);
+				situacoes.put( idUsuario, new SituacaoFechamento(idUsuario, ano, EstadoFechamento.FALHOU, null, e.getMessage()) );
+			}
+		});
+		return situacao;
+	}
+	
+	@Override
+	public Optional<SituacaoFechamento> obterSituacao(Long idUsuario) {
+		return Optional.ofNullable( situacoes.get(idUsuario) );
+	}
+	
+	@PreDestroy
+	public void encerrar() {
+		execucao.shutdownNow();
+	}
+	
+	@Override
+	public ResultadoFechamento fechar(Long idUsuario, Integer ano) {
+		return fragmentos.noFragmentoDoUsuario( idUsuario, () -> fecharNoFragmento(idUsuario, ano) );
+	}
+	
+	private ResultadoFechamento fecharNoFragmento(Long idUsuario, Integer ano) {
+		Optional<ArquivoUsuario> anterior = validar(idUsuario, ano);
+		long inicio = System.currentTimeMillis();
+		
+		long versao = saldoService.obterVersao(idUsuario);
+		List<LancamentoResumo> daTabela = transacaoLeitura.execute( status -> lancamentoRepository.buscarResumos(
+				anosFechados(idUsuario, ano, anterior), OrdenacaoLancamento.DATA_CRESCENTE.getSort() ) );
+		List<LancamentoResumo> lancamentos = anterior
+				.map( registro -> ArquivoLancamentos.intercalar( arquivos.abrir(registro).todos(), daTabela,
+						OrdenacaoLancamento.DATA_CRESCENTE.getComparador(), Integer.MAX_VALUE ) )
+				.orElse(daTabela);
+		
+		String arquivo = arquivos.gravar(idUsuario, ano, versao, lancamentos);
+		try {
+			registrar( idUsuario, anterior, new ArquivoUsuario(idUsuario, ano, arquivo, (long) lancamentos.size()) );
+		} catch ( RuntimeException e ) {
+			arquivos.apagar(arquivo);
+			throw e;
+		}
+		try {
+			arquivos.esquecer(idUsuario);
+			aguardar( arquivos.getValidade() );
+			transacao.executeWithoutResult( status -> retirarDaTabela(idUsuario, ano, versao, arquivo, lancamentos) );
+		} catch ( RuntimeException e ) {
+			transacao.executeWithoutResult( status -> {
+				if ( anterior.isPresent() ) {
+					ArquivoUsuario registro = anterior.get();
+					arquivoRepository.substituir( idUsuario, arquivo, registro.getAnoLimite(), registro.getArquivo(), registro.getQuantidade() );
+				} else {
+					arquivoRepository.removerSeApontarPara(idUsuario, arquivo);
+				}
+			});
+			arquivos.esquecer(idUsuario);
+			arquivos.apagar(arquivo);
+			throw e;
+		}
+		arquivos.esquecer(idUsuario);
+		
+		if ( anterior.isPresent() ) {
+			// Leituras ainda guiadas pelo registro anterior terminam antes do arquivo sumir.
+			aguardar( arquivos.getValidade() );
+			arquivos.apagar( anterior.get().getArquivo() );
+		}
+		
+		ResultadoFechamento resultado = new ResultadoFechamento();
+		resultado.setIdUsuario(idUsuario);
+		resultado.setAnoLimite(ano);
+		resultado.setArquivados( daTabela.size() );
+		resultado.setTotal( lancamentos.size() );
+		resultado.setArquivo(arquivo);
+		resultado.setMilissegundos( System.currentTimeMillis() - inicio );
+		log.info("Anos do usuário {} anteriores a {} fechados em {} ms: {} lançamentos arquivados, {} no arquivo {}",
+				idUsuario, ano, resultado.getMilissegundos(), resultado.getArquivados(), resultado.getTotal(), arquivo);
+		return resultado;
+	}
+	
+	/**
+	 * @return o registro do fechamento anterior do usuário, se houver.
+	 */
+	private Optional<ArquivoUsuario> validar(Long idUsuario, Integer ano) {
+		if ( !arquivos.isHabilitado() ) {
+			throw new RegraNegocioException("O fechamento de anos não está habilitado.");
+		}
+		if ( ano == null || ano.toString().length() != 4 ) {
+			throw new RegraNegocioException("Informe um ano válido.");
+		}
+		if ( idUsuario == null || !usuarioRepository.existsById(idUsuario) ) {
+			throw new RegraNegocioException("Usuário não encontrado.");
+		}
+		
+		Optional<ArquivoUsuario> anterior = arquivoRepository.findById(idUsuario);
+		if ( anterior.isPresent() && anterior.get().getAnoLimite() >= ano ) {
+			throw new RegraNegocioException("Os anos anteriores a " + anterior.get().getAnoLimite() + " já estão fechados.");
+		}
+		return anterior;
+	}
+	
+	/**
+	 * Troca, numa única instrução, o registro lido no início pelo novo.
+	 * 
+	 * @throws RegraNegocioException se outro fechamento do usuário registrou antes.
+	 */
+	private void registrar(Long idUsuario, Optional<ArquivoUsuario> anterior, ArquivoUsuario registro) {
+		int registrados;
+		try {
+			registrados = transacao.execute( status -> anterior.isPresent()
+					? arquivoRepository.substituir( idUsuario, anterior.get().getArquivo(),
+							registro.getAnoLimite(), registro.getArquivo(), registro.getQuantidade() )
+					: arquivoRepository.incluir( idUsuario, registro.getAnoLimite(), registro.getArquivo(), registro.getQuantidade() ) );
+		} catch ( DataIntegrityViolationException e ) {
+			registrados = 0;
+		}
+		if ( registrados == 0 ) {
+			throw new RegraNegocioException("Outro fechamento dos anos do usuário terminou antes; tente novamente.");
+		}
+	}
+	
+	/**
+	 * O incremento da versão trava a linha do saldo até o fim da transação, então nenhuma
+	 * escrita do usuário entra entre a conferência e a remoção. O registro ainda precisa
+	 * apontar para o arquivo desta tentativa.
+	 */
+	private void retirarDaTabela(Long idUsuario, Integer ano, long versao, String arquivo, List<LancamentoResumo> lancamentos) {
+		saldoService.registrarModificacao(idUsuario);
+		if ( saldoService.obterVersao(idUsuario) != versao + 1 ) {
+			throw new RegraNegocioException("Os lançamentos do usuário mudaram durante o fechamento; tente novamente.");
+		}
+		if ( !arquivoRepository.findById(idUsuario).map( ArquivoUsuario::getArquivo ).filter(arquivo::equals).isPresent() ) {
+			throw new RegraNegocioException("Outro fechamento dos anos do usuário terminou antes; tente novamente.");
+		}
+		
+		resumoRepository.removerPorUsuario(idUsuario);
+		resumoRepository.saveAll( resumos(idUsuario, lancamentos) );
+		ngramaRepository.removerAnterioresAoAno(idUsuario, ano);
+		lancamentoRepository.removerAnterioresAoAno(idUsuario, ano);
+	}
+	
+	private static Specification<Lancamento> anosFechados(Long idUsuario, Integer ano, Optional<ArquivoUsuario> anterior) {
+		Specification<Lancamento> especificacao = LancamentoSpecifications.doFiltro(
+				FiltroLancamento.builder().idUsuario(idUsuario).anoFinal(ano - 1).build() );
+		return ArquivoLancamentos.anosAbertos(especificacao, anterior);
+	}
+	
+	private static List<ResumoAno> resumos(Long idUsuario, List<LancamentoResumo> lancamentos) {
+		Map<Integer, ResumoAno> porAno = new TreeMap<>();
+		for ( LancamentoResumo lancamento : lancamentos ) {
+			ResumoAno resumo = porAno.computeIfAbsent( lancamento.getAno(),
+					ano -> new ResumoAno(idUsuario, ano, 0L, BigDecimal.ZERO, BigDecimal.ZERO) );
+			resumo.setQuantidade( resumo.getQuantidade() + 1 );
+			if ( lancamento.getValor() == null || lancamento.getTipo() == null ) {
+				continue;
+			}
+			if ( lancamento.getTipo() == TipoLancamento.RECEITA ) {
+				resumo.setReceitas( resumo.getReceitas().add(lancamento.getValor()) );
+			} else {
+				resumo.setDespesas( resumo.getDespesas().add(lancamento.getValor()) );
+			}
+		}
+		return new ArrayList<>( porAno.values() );
+	}
+	
+	private static void aguardar(Duration tempo) {
+		try {
+			Thread.sleep( tempo.toMillis() );
+		} catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Fechamento interrompido.", e);
+		}
+	}
+	
+}
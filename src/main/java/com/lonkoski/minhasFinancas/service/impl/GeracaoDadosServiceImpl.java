@@ -0,0 +1,173 @@
+package com.lonkoski.minhasFinancas.service.impl;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.lonkoski.minhasFinancas.exception.RegraNegocioException;
+import com.lonkoski.minhasFinancas.model.entity.Lancamento;
+import com.lonkoski.minhasFinancas.model.entity.Usuario;
+import com.lonkoski.minhasFinancas.model.enums.TipoLancamento;
+import com.lonkoski.minhasFinancas.model.geracao.ParametrosGeracao;
+import com.lonkoski.minhasFinancas.model.geracao.ResultadoGeracao;
+import com.lonkoski.minhasFinancas.service.GeracaoDadosService;
+import com.lonkoski.minhasFinancas.service.geracao.GeradorLancamentos;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Service
+public class GeracaoDadosServiceImpl implements GeracaoDadosService {
+	
+	/** Usuários gravados por transação. */
+	private static final int USUARIOS_POR_TRANSACAO = 500;
+	
+	/** Mesmo incremento da financas.seq_lancamento: cada nextval reserva esse bloco de ids. */
+	private static final int INCREMENTO_SEQUENCIA = 50;
+	
+	private static final String INSERIR_LANCAMENTO = "insert into financas.lancamento"
+			+ " (id, descriao, mes, ano, id_usuario, valor, data_cadastro, tipo, status, versao)"
+			+ " values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+	
+	private JdbcTemplate jdbc;
+	private NamedParameterJdbcTemplate jdbcNomeado;
+	private TransactionTemplate transacao;
+	
+	public GeracaoDadosServiceImpl(JdbcTemplate jdbc, PlatformTransactionManager transactionManager) {
+		this.jdbc = jdbc;
+		this.jdbcNomeado = new NamedParameterJdbcTemplate(jdbc);
+		this.transacao = new TransactionTemplate(transactionManager);
+	}
+
+	@Override
+	public ResultadoGeracao gerar(ParametrosGeracao parametros) {
+		GeradorLancamentos gerador = new GeradorLancamentos(parametros);
+		if ( parametros.getUsuarios() > 0 && jdbc.queryForObject( "select count(*) from financas.usuario where email = ?",
+				Long.class, gerador.email(0) ) > 0 ) {
+			throw new RegraNegocioException("A massa de dados da semente " + parametros.getSemente() + " já foi gerada.");
+		}
+		
+		long inicio = System.currentTimeMillis();
+		ResultadoGeracao resultado = new ResultadoGeracao();
+		for ( int primeiro = 0; primeiro < parametros.getUsuarios(); primeiro += USUARIOS_POR_TRANSACAO ) {
+			int ate = Math.min(primeiro + USUARIOS_POR_TRANSACAO, parametros.getUsuarios());
+			int de = primeiro;
+			transacao.executeWithoutResult( status -> gravarUsuarios(gerador, parametros, de, ate, resultado) );
+			log.info("Massa sintética: {} de {} usuários, {} lançamentos", ate, parametros.getUsuarios(), resultado.getLancamentos());
+		}
+		resultado.setMilissegundos( System.currentTimeMillis() - inicio );
+		return resultado;
+	}
+	
+	private void gravarUsuarios(GeradorLancamentos gerador, ParametrosGeracao parametros, int de, int ate, ResultadoGeracao resultado) {
+		List<Object[]> usuarios = new ArrayList<>();
+		List<String> emails = new ArrayList<>();
+		for ( int indice = de; indice < ate; indice++ ) {
+			Usuario usuario = gerador.usuario(indice);
+			usuarios.add( new Object[] { usuario.getNome(), usuario.getEmail(), usuario.getSenha() } );
+			emails.add(usuario.getEmail());
+		}
+		jdbc.batchUpdate("insert into financas.usuario (nome, email, senha) values (?, ?, ?)", usuarios);
+		
+		// Os ids vêm da identity; são lidos de volta pelo email, que é único.
+		Map<String, Long> idsPorEmail = new HashMap<>();
+		jdbcNomeado.query( "select id, email from financas.usuario where email in (:emails)",
+				new MapSqlParameterSource("emails", emails),
+				linha -> { idsPorEmail.put( linha.getString("email"), linha.getLong("id") ); } );
+		
+		Lotes lotes = new Lotes(parametros.getTamanhoLote());
+		List<Object[]> saldos = new ArrayList<>();
+		for ( int indice = de; indice < ate; indice++ ) {
+			Long idUsuario = idsPorEmail.get( gerador.email(indice) );
+			BigDecimal receitas = BigDecimal.ZERO;
+			BigDecimal despesas = BigDecimal.ZERO;
+			
+			for ( Lancamento lancamento : gerador.lancamentos(indice) ) {
+				long id = lotes.proximoId();
+				lotes.lancamentos.add( new Object[] { id, lancamento.getDescricao(), lancamento.getMes(), lancamento.getAno(),
+						idUsuario, lancamento.getValor(), Date.valueOf(lancamento.getDataCadastro()),
+						lancamento.getTipo().name(), lancamento.getStatus().name(), lancamento.getVersao() } );
+				
+				if ( parametros.isIndexarPesquisa() ) {
+					for ( String ngrama : lotes.ngramas(lancamento.getDescricao()) ) {
+						lotes.ngramas.add( new Object[] { idUsuario, ngrama, id } );
+					}
+				}
+				
+				if ( lancamento.getTipo() == TipoLancamento.RECEITA ) {
+					receitas = receitas.add(lancamento.getValor());
+				} else {
+					despesas = despesas.add(lancamento.getValor());
+				}
+				resultado.setLancamentos( resultado.getLancamentos() + 1 );
+				lotes.gravarSeCheio();
+			}
+			
+			saldos.add( new Object[] { idUsuario, receitas, despesas } );
+			resultado.getIdsUsuarios().add(idUsuario);
+		}
+		lotes.gravar();
+		
+		jdbc.batchUpdate("insert into financas.saldo_usuario (id_usuario, receitas, despesas, versao_dados) values (?, ?, ?, 1)", saldos);
+	}
+	
+	/**
+	 * Acumula as linhas até o tamanho do lote e reserva ids da sequência em blocos,
+	 * como o otimizador pooled do Hibernate: cada valor lido é o fim do bloco.
+	 */
+	private class Lotes {
+		
+		final int tamanho;
+		final List<Object[]> lancamentos = new ArrayList<>();
+		final List<Object[]> ngramas = new ArrayList<>();
+		final Map<String, Set<String>> ngramasPorDescricao = new HashMap<>();
+		long proximo;
+		long limite = -1;
+		
+		Lotes(int tamanho) {
+			this.tamanho = tamanho;
+		}
+		
+		long proximoId() {
+			if ( proximo > limite ) {
+				limite = jdbc.queryForObject("select nextval('financas.seq_lancamento')", Long.class);
+				proximo = limite - INCREMENTO_SEQUENCIA + 1;
+			}
+			return proximo++;
+		}
+		
+		Set<String> ngramas(String descricao) {
+			return ngramasPorDescricao.computeIfAbsent(descricao, PesquisaLancamentoServiceImpl::extrairNgramas);
+		}
+		
+		void gravarSeCheio() {
+			if ( lancamentos.size() >= tamanho ) {
+				gravar();
+			}
+		}
+		
+		void gravar() {
+			if ( !lancamentos.isEmpty() ) {
+				jdbc.batchUpdate(INSERIR_LANCAMENTO, lancamentos);
+				lancamentos.clear();
+			}
+			if ( !ngramas.isEmpty() ) {
+				jdbc.batchUpdate("insert into financas.lancamento_ngrama (id_usuario, ngrama, id_lancamento) values (?, ?, ?)", ngramas);
+				ngramas.clear();
+			}
+		}
+		
+	}
+
+}
@@ -0,0 +1,150 @@
+package com.lonkoski.minhasFinancas.service.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.lonkoski.minhasFinancas.exception.RegraNegocioException;
+import com.lonkoski.minhasFinancas.model.entity.Lancamento;
+import com.lonkoski.minhasFinancas.model.entity.Usuario;
+import com.lonkoski.minhasFinancas.model.enums.FormatoExtrato;
+import com.lonkoski.minhasFinancas.model.enums.StatusLancamento;
+import com.lonkoski.minhasFinancas.model.enums.TipoLancamento;
+import com.lonkoski.minhasFinancas.model.importacao.LinhaExtrato;
+import com.lonkoski.minhasFinancas.model.importacao.ResultadoImportacao;
+import com.lonkoski.minhasFinancas.model.repository.LancamentoRepository;
+import com.lonkoski.minhasFinancas.service.ImportacaoExtratoService;
+import com.lonkoski.minhasFinancas.service.LancamentoService;
+import com.lonkoski.minhasFinancas.service.PesquisaLancamentoService;
+import com.lonkoski.minhasFinancas.service.SaldoService;
+import com.lonkoski.minhasFinancas.service.importacao.LeitorExtrato;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Grava o extrato em blocos de {@code tamanhoLote} lançamentos, cada um na sua
+ * transação: os inserts saem em batches JDBC e o contexto de persistência é
+ * limpo ao fim do bloco, então a memória não cresce com o tamanho do arquivo.
+ * Um bloco recusado pelo banco é relatado como erro das suas linhas e a
+ * importação segue com os próximos.
+ */
+@Slf4j
+@Service
+public class ImportacaoExtratoServiceImpl implements ImportacaoExtratoService {
+	
+	private LancamentoRepository repository;
+	private LancamentoService lancamentoService;
+	private SaldoService saldoService;
+	private PesquisaLancamentoService pesquisaService;
+	private TransactionTemplate transactionTemplate;
+	private EntityManager entityManager;
+	private int tamanhoLote;
+	
+	public ImportacaoExtratoServiceImpl(LancamentoRepository repository, LancamentoService lancamentoService,
+			SaldoService saldoService, PesquisaLancamentoService pesquisaService,
+			PlatformTransactionManager transactionManager, EntityManager entityManager,
+			@Value("${financas.importacao.tamanho-lote:1000}") int tamanhoLote) {
+		this.repository = repository;
+		this.lancamentoService = lancamentoService;
+		this.saldoService = saldoService;
+		this.pesquisaService = pesquisaService;
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.entityManager = entityManager;
+		this.tamanhoLote = tamanhoLote;
+	}
+
+	@Override
+	public ResultadoImportacao importar(InputStream arquivo, FormatoExtrato formato, Usuario usuario) {
+		ResultadoImportacao resultado = new ResultadoImportacao();
+		List<Lancamento> lote = new ArrayList<>(tamanhoLote);
+		List<Long> linhasDoLote = new ArrayList<>(tamanhoLote);
+		LocalDate hoje = LocalDate.now();
+		
+		try ( LeitorExtrato leitor = LeitorExtrato.para(formato, new InputStreamReader(arquivo, StandardCharsets.UTF_8)) ) {
+			LinhaExtrato linha;
+			while ( (linha = leitor.proxima()) != null ) {
+				resultado.setLidos( resultado.getLidos() + 1 );
+				if ( linha.getErro() != null ) {
+					resultado.registrarErro(linha.getNumero(), linha.getErro());
+					continue;
+				}
+				
+				Lancamento lancamento = converter(linha, usuario, hoje);
+				try {
+					lancamentoService.validar(lancamento);
+				} catch ( RegraNegocioException e ) {
+					resultado.registrarErro(linha.getNumero(), e.getMessage());
+					continue;
+				}
+				
+				lote.add(lancamento);
+				linhasDoLote.add(linha.getNumero());
+				if ( lote.size() >= tamanhoLote ) {
+					gravar(lote, linhasDoLote, usuario, resultado);
+				}
+			}
+			gravar(lote, linhasDoLote, usuario, resultado);
+		} catch ( IOException e ) {
+			log.warn("Falha ao ler o extrato do usuário {} após {} linhas", usuario.getId(), resultado.getLidos(), e);
+			throw new RegraNegocioException("Não foi possível ler o arquivo do extrato.");
+		}
+		
+		log.info("Importação de extrato do usuário {} concluída: {} lidos, {} importados, {} com erro",
+				usuario.getId(), resultado.getLidos(), resultado.getImportados(), resultado.getTotalErros());
+		return resultado;
+	}
+	
+	private void gravar(List<Lancamento> lote, List<Long> linhas, Usuario usuario, ResultadoImportacao resultado) {
+		if ( lote.isEmpty() ) {
+			return;
+		}
+		
+		try {
+			transactionTemplate.executeWithoutResult( status -> {
+				repository.saveAll(lote);
+				entityManager.flush();
+				saldoService.registrarInclusoes(lote);
+				pesquisaService.indexarNovos(lote);
+				entityManager.flush();
+				entityManager.clear();
+			});
+			resultado.setImportados( resultado.getImportados() + lote.size() );
+		} catch ( DataAccessException | TransactionException e ) {
+			log.warn("Bloco do extrato do usuário {} recusado pelo banco (linhas {} a {})",
+					usuario.getId(), linhas.get(0), linhas.get(linhas.size() - 1), e);
+			linhas.forEach( linha -> resultado.registrarErro(linha, "Não foi possível gravar a movimentação.") );
+		}
+		
+		lote.clear();
+		linhas.clear();
+		log.info("Importação de extrato do usuário {}: {} lidos, {} importados, {} com erro",
+				usuario.getId(), resultado.getLidos(), resultado.getImportados(), resultado.getTotalErros());
+	}
+	
+	private Lancamento converter(LinhaExtrato linha, Usuario usuario, LocalDate dataCadastro) {
+		return Lancamento.builder()
+				.descricao(linha.getDescricao())
+				.mes(linha.getData().getMonthValue())
+				.ano(linha.getData().getYear())
+				.valor(linha.getValor().abs())
+				.tipo( linha.getValor().signum() < 0 ? TipoLancamento.DESPESA : TipoLancamento.RECEITA )
+				.status(StatusLancamento.EFETIVADO)
+				.usuario(usuario)
+				.dataCadastro(dataCadastro)
+				.build();
+	}
+
+}
@@ -1,66 +1,238 @@
 package com.lonkoski.minhasFinancas.service.impl;
 
 import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
-import org.springframework.data.domain.Example;
-import org.springframework.data.domain.ExampleMatcher;
-import org.springframework.data.domain.ExampleMatcher.StringMatcher;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.lonkoski.minhasFinancas.exception.ConflitoVersaoException;
+import com.lonkoski.minhasFinancas.exception.ErroAutenticacao;
 import com.lonkoski.minhasFinancas.exception.RegraNegocioException;
+import com.lonkoski.minhasFinancas.model.alteracao.AlteracaoLancamento;
+import com.lonkoski.minhasFinancas.model.entity.ArquivoUsuario;
 import com.lonkoski.minhasFinancas.model.entity.Lancamento;
 import com.lonkoski.minhasFinancas.model.enums.StatusLancamento;
-import com.lonkoski.minhasFinancas.model.enums.TipoLancamento;
+import com.lonkoski.minhasFinancas.model.enums.TipoOperacaoLote;
+import com.lonkoski.minhasFinancas.model.filtro.FiltroLancamento;
+import com.lonkoski.minhasFinancas.model.lote.OperacaoLote;
+import com.lonkoski.minhasFinancas.model.lote.ResultadoOperacaoLote;
+import com.lonkoski.minhasFinancas.model.pagina.CursorLancamento;
+import com.lonkoski.minhasFinancas.model.pagina.Pagina;
+import com.lonkoski.minhasFinancas.model.projecao.LancamentoResumo;
 import com.lonkoski.minhasFinancas.model.repository.LancamentoRepository;
+import com.lonkoski.minhasFinancas.model.repository.LancamentoSpecifications;
 import com.lonkoski.minhasFinancas.service.LancamentoService;
+import com.lonkoski.minhasFinancas.service.PesquisaLancamentoService;
+import com.lonkoski.minhasFinancas.service.SaldoService;
+import com.lonkoski.minhasFinancas.service.arquivo.ArquivoLancamentos;
+import com.lonkoski.minhasFinancas.service.coalescimento.ConsultaCompartilhada;
+import com.lonkoski.minhasFinancas.service.jfr.OperacaoEvento;
 
 import ch.qos.logback.core.status.Status;
 
 @Service
 public class LancamentoServiceImpl implements LancamentoService {
 	
+	private static final int LIMITE_CONTAGEM = 10_000;
+	
 	private LancamentoRepository repository;
+	private SaldoService saldoService;
+	private PesquisaLancamentoService pesquisaService;
+	private ArquivoLancamentos arquivos;
 	
-	public LancamentoServiceImpl(LancamentoRepository repository) {
+	public LancamentoServiceImpl(LancamentoRepository repository, SaldoService saldoService,
+			PesquisaLancamentoService pesquisaService, ArquivoLancamentos arquivos) {
 		this.repository = repository;
+		this.saldoService = saldoService;
+		this.pesquisaService = pesquisaService;
+		this.arquivos = arquivos;
 	}
 
 	@Override
 	@Transactional
 	public Lancamento salvar(Lancamento lancamento) {
-		validar(lancamento);	
-		lancamento.setStatus(StatusLancamento.PENDENTE);
-		return repository.save(lancamento);
+		OperacaoEvento evento = OperacaoEvento.iniciar(OperacaoEvento.SALVAR);
+		try {
+			validar(lancamento);
+			evento.fimValidacao();
+			lancamento.setStatus(StatusLancamento.PENDENTE);
+			Lancamento salvo = repository.save(lancamento);
+			saldoService.registrarAlteracao(null, salvo);
+			pesquisaService.indexarNovos( Collections.singletonList(salvo) );
+			evento.fimRepositorio();
+			evento.concluir(salvo);
+			return salvo;
+		} finally {
+			evento.finalizar();
+		}
 	}
 
 	@Override
 	@Transactional
 	public Lancamento atualizar(Lancamento lancamento) {
 		Objects.requireNonNull(lancamento.getId());
-		validar(lancamento);
-		return repository.save(lancamento);
+		OperacaoEvento evento = OperacaoEvento.iniciar(OperacaoEvento.ATUALIZAR);
+		try {
+			validar(lancamento);
+			evento.fimValidacao();
+			Lancamento anterior = repository.findById(lancamento.getId()).map(this::copiarValores).orElse(null);
+			// Sem versão informada a atualização vale sobre a versão atual; com versão, o merge
+			// recusa a gravação se o lançamento já tiver mudado.
+			if ( lancamento.getVersao() == null && anterior != null ) {
+				lancamento.setVersao(anterior.getVersao());
+			}
+			Lancamento atualizado = repository.save(lancamento);
+			saldoService.registrarAlteracao(anterior, atualizado);
+			if ( anterior == null || !Objects.equals(anterior.getDescricao(), atualizado.getDescricao())
+					|| !Objects.equals(anterior.getUsuario().getId(), atualizado.getUsuario().getId()) ) {
+				pesquisaService.indexar(atualizado);
+			}
+			evento.fimRepositorio();
+			evento.concluir(atualizado);
+			return atualizado;
+		} finally {
+			evento.finalizar();
+		}
+	}
+
+	@Override
+	@Transactional
+	public Long atualizarParcialmente(Long id, AlteracaoLancamento alteracao) {
+		Objects.requireNonNull(id);
+		validarAlteracao(alteracao);
+		
+		// Status e mês não entram no saldo nem no índice de pesquisa, então só valor,
+		// tipo e descrição pedem a leitura do estado anterior, e o ano, para conferir
+		// se o usuário já fechou o ano de destino; nos demais casos a versão dos dados
+		// do usuário é incrementada sem ler o lançamento.
+		Lancamento anterior = null;
+		if ( alteracao.alteraSaldo() || alteracao.getDescricao() != null || alteracao.getAno() != null ) {
+			anterior = repository.findById(id).map(this::copiarValores)
+					.orElseThrow( () -> new RegraNegocioException("Lancaento não encontrado na base de dados.") );
+			if ( alteracao.getIdUsuario() != null ) {
+				verificarUsuario( anterior.getUsuario().getId(), alteracao.getIdUsuario() );
+			}
+			if ( alteracao.getAno() != null ) {
+				arquivos.verificarAberto( anterior.getUsuario().getId(), alteracao.getAno() );
+			}
+		}
+		
+		if ( repository.aplicarAlteracao(id, alteracao) == 0 ) {
+			if ( anterior == null && alteracao.getIdUsuario() == null && !repository.existsById(id) ) {
+				throw new RegraNegocioException("Lancaento não encontrado na base de dados.");
+			}
+			if ( anterior == null && alteracao.getIdUsuario() != null ) {
+				// Só no caminho de falha: distingue lançamento inexistente, de outro usuário ou em outra versão.
+				Lancamento atual = repository.findById(id)
+						.orElseThrow( () -> new RegraNegocioException("Lancaento não encontrado na base de dados.") );
+				verificarUsuario( atual.getUsuario().getId(), alteracao.getIdUsuario() );
+			}
+			throw new ConflitoVersaoException("O lançamento foi alterado por outra operação, recarregue-o e tente novamente.");
+		}
+		
+		if ( anterior != null ) {
+			Lancamento atualizado = alteracao.aplicarEm(anterior);
+			saldoService.registrarAlteracao(anterior, atualizado);
+			if ( !Objects.equals(anterior.getDescricao(), atualizado.getDescricao()) ) {
+				pesquisaService.indexar(atualizado);
+			}
+		} else {
+			saldoService.registrarModificacaoDoLancamento(id);
+		}
+		return alteracao.getVersao() + 1;
 	}
 
 	@Override
 	@Transactional
 	public void deletar(Lancamento lancamento) {
 		Objects.requireNonNull(lancamento.getId());
-		repository.delete(lancamento);
+		Lancamento persistido = repository.findById(lancamento.getId()).orElse(lancamento);
+		repository.delete(persistido);
+		saldoService.registrarAlteracao(persistido, null);
+		pesquisaService.remover(persistido.getId());
 	}
 
 	@Override
+	@ConsultaCompartilhada
 	@Transactional( readOnly = true )
-	public List<Lancamento> buscar(Lancamento lancamentoFiltro) {
-		Example example = Example.of( lancamentoFiltro,
-				ExampleMatcher.matching()
-					.withIgnoreCase()
-					.withStringMatcher(StringMatcher.CONTAINING) );
+	public List<LancamentoResumo> buscar(FiltroLancamento filtro) {
+		OperacaoEvento evento = OperacaoEvento.iniciar(OperacaoEvento.BUSCAR);
+		try {
+			Optional<ArquivoUsuario> arquivo = arquivos.obterRegistro(filtro.getIdUsuario());
+			Specification<Lancamento> especificacao = ArquivoLancamentos.anosAbertos( LancamentoSpecifications.doFiltro(filtro), arquivo );
+			evento.fimValidacao();
+			List<LancamentoResumo> lancamentos = repository.buscarResumos( especificacao, filtro.getOrdenacao().getSort() );
+			if ( arquivo.isPresent() ) {
+				lancamentos = ArquivoLancamentos.intercalar( lancamentos, arquivos.buscar(arquivo.get(), filtro),
+						filtro.getOrdenacao().getComparador(), Integer.MAX_VALUE );
+			}
+			evento.fimRepositorio();
+			evento.concluir(filtro.getIdUsuario(), lancamentos.size());
+			return lancamentos;
+		} finally {
+			evento.finalizar();
+		}
+	}
+
+	@Override
+	@ConsultaCompartilhada
+	@Transactional( readOnly = true )
+	public Pagina<LancamentoResumo> buscarPagina(FiltroLancamento filtro, String cursor, int tamanho, boolean contarTotal) {
+		Optional<ArquivoUsuario> arquivo = arquivos.obterRegistro(filtro.getIdUsuario());
+		Specification<Lancamento> especificacao = ArquivoLancamentos.anosAbertos( LancamentoSpecifications.doFiltro(filtro), arquivo );
+		CursorLancamento posicao = cursor == null ? null : CursorLancamento.decodificar(cursor, filtro.getOrdenacao());
+		Specification<Lancamento> consulta = Specification.where(especificacao)
+				.and( LancamentoSpecifications.aposCursor(posicao, filtro.getOrdenacao()) );
+		
+		// Um item a mais indica se existe próxima página sem precisar de contagem.
+		List<LancamentoResumo> lancamentos = repository.buscarResumos(consulta, filtro.getOrdenacao().getSort(), tamanho + 1);
+		
+		// Os anos fechados entram na mesma ordem, a partir da mesma posição do cursor.
+		List<LancamentoResumo> arquivados = arquivo.map( registro -> arquivos.buscar(registro, filtro) )
+				.orElse( Collections.emptyList() );
+		if ( !arquivados.isEmpty() ) {
+			Comparator<LancamentoResumo> comparador = filtro.getOrdenacao().getComparador();
+			List<LancamentoResumo> seguintes = posicao == null ? arquivados : arquivados.stream()
+					.filter( lancamento -> comparador.compare(lancamento, posicao.comoResumo()) > 0 )
+					.collect(Collectors.toList());
+			lancamentos = ArquivoLancamentos.intercalar(lancamentos, seguintes, comparador, tamanho + 1);
+		}
+		
+		String proximoCursor = null;
+		if ( lancamentos.size() > tamanho ) {
+			lancamentos = lancamentos.subList(0, tamanho);
+			proximoCursor = CursorLancamento.depoisDe( lancamentos.get(tamanho - 1), filtro.getOrdenacao() ).codificar();
+		}
+		
+		Pagina<LancamentoResumo> pagina = new Pagina<>();
+		pagina.setItens(lancamentos);
+		pagina.setProximoCursor(proximoCursor);
+		
+		if ( contarTotal ) {
+			long total = repository.contarLimitado(especificacao, LIMITE_CONTAGEM + 1) + arquivados.size();
+			pagina.setTotalAproximado( Math.min(total, LIMITE_CONTAGEM) );
+			pagina.setTotalLimitado( total > LIMITE_CONTAGEM );
+		}
 		
-		return repository.findAll(example);
+		return pagina;
+	}
+
+	@Override
+	public List<LancamentoResumo> pesquisar(Long idUsuario, String texto, int limite) {
+		return pesquisaService.pesquisar(idUsuario, texto, limite);
 	}
 
 	@Override
@@ -71,31 +243,211 @@ public class LancamentoServiceImpl implements LancamentoService {
 	}
 
 	@Override
-	public void validar(Lancamento lancamento) {
-		if ( lancamento.getDescricao() == null || lancamento.getDescricao().equals("") ) {
-			throw new RegraNegocioException("Informe uma descrição válida.");
+	@Transactional
+	public int atualizarStatusEmLote(FiltroLancamento filtro, Collection<Long> ids, StatusLancamento status) {
+		if ( filtro.getIdUsuario() == null ) {
+			throw new RegraNegocioException("Informe um usuário.");
+		}
+		if ( status == null ) {
+			throw new RegraNegocioException("Não foi possivel atualizar o status do lancamento, envie um status valido.");
 		}
 		
-		if ( lancamento.getMes() == null || lancamento.getMes() < 1 || lancamento.getMes() > 12 ) {
-			throw new RegraNegocioException("Informe um mês válido.");
+		// O saldo consolidado soma lançamentos de qualquer status e o índice de pesquisa
+		// só guarda a descrição, então nenhum dos dois muda com o status; só a versão
+		// dos dados do usuário.
+		Specification<Lancamento> especificacao = LancamentoSpecifications.doFiltro(filtro);
+		if ( ids != null ) {
+			if ( ids.isEmpty() ) {
+				return 0;
+			}
+			especificacao = especificacao.and( LancamentoSpecifications.comIds(ids) );
+		}
+		int atualizados = repository.atualizarStatus(especificacao, status);
+		if ( atualizados > 0 ) {
+			saldoService.registrarModificacao(filtro.getIdUsuario());
+		}
+		return atualizados;
+	}
+
+	@Override
+	@Transactional
+	public List<ResultadoOperacaoLote> processarLote(List<OperacaoLote> operacoes, Long idUsuarioAutenticado) {
+		// Os lançamentos referenciados são lidos em uma consulta só; as operações
+		// seguintes os encontram no contexto de persistência sem novos selects.
+		Set<Long> ids = operacoes.stream()
+				.filter( operacao -> operacao.getTipo() != TipoOperacaoLote.CRIAR
+						&& operacao.getLancamento() != null && operacao.getLancamento().getId() != null )
+				.map( operacao -> operacao.getLancamento().getId() )
+				.collect(Collectors.toSet());
+		Map<Long, Lancamento> existentes = repository.findAllById(ids).stream()
+				.collect(Collectors.toMap(Lancamento::getId, Function.identity()));
+		if ( idUsuarioAutenticado != null ) {
+			existentes.values().forEach( lancamento -> verificarUsuario(lancamento.getUsuario().getId(), idUsuarioAutenticado) );
 		}
 		
-		if ( lancamento.getAno() == null || lancamento.getAno().toString().length() != 4 ) {
-			throw new RegraNegocioException("Informe um ano válido.");
+		List<ResultadoOperacaoLote> resultados = new ArrayList<>();
+		Set<Long> removidos = new HashSet<>();
+		boolean loteValido = true;
+		for ( int i = 0; i < operacoes.size(); i++ ) {
+			OperacaoLote operacao = operacoes.get(i);
+			String erro = validarOperacao(operacao, existentes, removidos);
+			Long id = operacao.getLancamento() == null ? null : operacao.getLancamento().getId();
+			resultados.add( new ResultadoOperacaoLote(i, operacao.getTipo(), id, erro == null, erro) );
+			loteValido &= erro == null;
+		}
+		
+		if ( !loteValido ) {
+			resultados.stream()
+				.filter(ResultadoOperacaoLote::isSucesso)
+				.forEach( resultado -> {
+					resultado.setSucesso(false);
+					resultado.setMensagem("Operação não aplicada: o lote possui operações inválidas.");
+				});
+			return resultados;
+		}
+		
+		for ( int i = 0; i < operacoes.size(); i++ ) {
+			OperacaoLote operacao = operacoes.get(i);
+			Lancamento lancamento = operacao.getLancamento();
+			
+			switch ( operacao.getTipo() ) {
+				case CRIAR:
+					resultados.get(i).setId( salvar(lancamento).getId() );
+					break;
+				case ATUALIZAR:
+					atualizar(lancamento);
+					break;
+				case DELETAR:
+					deletar( existentes.get(lancamento.getId()) );
+					break;
+				case STATUS:
+					atualizarStatus( existentes.get(lancamento.getId()), operacao.getStatus() );
+					break;
+			}
+		}
+		
+		return resultados;
+	}
+	
+	/**
+	 * Valida a operação na ordem do lote; os ids removidos por operações anteriores
+	 * ficam em {@code removidos} e não podem ser usados pelas seguintes.
+	 */
+	private String validarOperacao(OperacaoLote operacao, Map<Long, Lancamento> existentes, Set<Long> removidos) {
+		if ( operacao.getErro() != null ) {
+			return operacao.getErro();
+		}
+		
+		if ( operacao.getTipo() == null || operacao.getLancamento() == null ) {
+			return "Informe uma operação válida.";
+		}
+		
+		if ( operacao.getTipo() != TipoOperacaoLote.CRIAR && !existentes.containsKey(operacao.getLancamento().getId()) ) {
+			return "Lancaento não encontrado na base de dados.";
+		}
+		
+		if ( operacao.getTipo() != TipoOperacaoLote.CRIAR && removidos.contains(operacao.getLancamento().getId()) ) {
+			return "Lançamento removido por uma operação anterior do lote.";
+		}
+		
+		if ( operacao.getTipo() == TipoOperacaoLote.STATUS && operacao.getStatus() == null ) {
+			return "Não foi possivel atualizar o status do lancamento, envie um status valido.";
+		}
+		
+		if ( operacao.getTipo() == TipoOperacaoLote.ATUALIZAR && operacao.getLancamento().getStatus() == null ) {
+			return "Informe o status do lançamento.";
+		}
+		
+		if ( operacao.getTipo() == TipoOperacaoLote.CRIAR || operacao.getTipo() == TipoOperacaoLote.ATUALIZAR ) {
+			try {
+				validar(operacao.getLancamento());
+			} catch (RegraNegocioException e) {
+				return e.getMessage();
+			}
+		}
+		
+		if ( operacao.getTipo() == TipoOperacaoLote.DELETAR ) {
+			removidos.add( operacao.getLancamento().getId() );
 		}
 		
+		return null;
+	}
+
+	@Override
+	public void validar(Lancamento lancamento) {
+		validarDescricao(lancamento.getDescricao());
+		validarMes(lancamento.getMes());
+		validarAno(lancamento.getAno());
+		
 		if ( lancamento.getUsuario() == null || lancamento.getUsuario().getId() == null ) {
 			throw new RegraNegocioException("Informe um usuário.");
 		}
 		
-		if ( lancamento.getValor() == null || lancamento.getValor().compareTo(BigDecimal.ZERO) < 1 ) {
-			throw new RegraNegocioException("Informe um valor válido.");
-		}
+		validarValor(lancamento.getValor());
 		
 		if ( lancamento.getTipo() == null ) {
 			throw new RegraNegocioException("Informe um tipo de lançamento.");
 		}
 		
+		arquivos.verificarAberto( lancamento.getUsuario().getId(), lancamento.getAno() );
+	}
+
+	@Override
+	public void verificarUsuario(Long idUsuario, Long idUsuarioAutenticado) {
+		if ( idUsuarioAutenticado != null && !idUsuarioAutenticado.equals(idUsuario) ) {
+			throw new ErroAutenticacao(ErroAutenticacao.Motivo.USUARIO_DIVERGENTE, "O token de acesso não pertence ao usuário informado.");
+		}
+	}
+	
+	/**
+	 * Na alteração parcial só os campos informados são validados, com as mesmas regras
+	 * do lançamento completo.
+	 */
+	private void validarAlteracao(AlteracaoLancamento alteracao) {
+		if ( alteracao.getVersao() == null ) {
+			throw new RegraNegocioException("Informe a versão do lançamento.");
+		}
+		
+		if ( alteracao.vazia() ) {
+			throw new RegraNegocioException("Informe ao menos um campo para alterar.");
+		}
+		
+		if ( alteracao.getDescricao() != null ) {
+			validarDescricao(alteracao.getDescricao());
+		}
+		if ( alteracao.getMes() != null ) {
+			validarMes(alteracao.getMes());
+		}
+		if ( alteracao.getAno() != null ) {
+			validarAno(alteracao.getAno());
+		}
+		if ( alteracao.getValor() != null ) {
+			validarValor(alteracao.getValor());
+		}
+	}
+	
+	private void validarDescricao(String descricao) {
+		if ( descricao == null || descricao.equals("") ) {
+			throw new RegraNegocioException("Informe uma descrição válida.");
+		}
+	}
+	
+	private void validarMes(Integer mes) {
+		if ( mes == null || mes < 1 || mes > 12 ) {
+			throw new RegraNegocioException("Informe um mês válido.");
+		}
+	}
+	
+	private void validarAno(Integer ano) {
+		if ( ano == null || ano.toString().length() != 4 ) {
+			throw new RegraNegocioException("Informe um ano válido.");
+		}
+	}
+	
+	private void validarValor(BigDecimal valor) {
+		if ( valor == null || valor.compareTo(BigDecimal.ZERO) < 1 ) {
+			throw new RegraNegocioException("Informe um valor válido.");
+		}
 	}
 
 	@Override
@@ -104,20 +456,45 @@ public class LancamentoServiceImpl implements LancamentoService {
 	}
 
 	@Override
+	@Transactional( readOnly = true )
+	public Optional<LancamentoResumo> obterResumoPorId(Long id) {
+		return repository.obterResumoPorId(id);
+	}
+
+	@Override
+	@ConsultaCompartilhada
 	@Transactional(readOnly = true )
 	public BigDecimal obterSaldoPorUsuario(Long id) {
-		BigDecimal receitas = repository.obterSaldoPorTipoLancamentoEUsuario(id, TipoLancamento.RECEITA);
-		BigDecimal despesas = repository.obterSaldoPorTipoLancamentoEUsuario(id, TipoLancamento.DESPESA);
-		
-		if ( receitas == null ) {
-			receitas = BigDecimal.ZERO;
-		}
-		
-		if ( despesas == null ) {
-			despesas = BigDecimal.ZERO;
+		OperacaoEvento evento = OperacaoEvento.iniciar(OperacaoEvento.OBTER_SALDO);
+		try {
+			BigDecimal saldo = saldoService.obterSaldo(id);
+			evento.fimRepositorio();
+			evento.concluir(id, 1);
+			return saldo;
+		} finally {
+			evento.finalizar();
 		}
-		
-		return receitas.subtract(despesas);
+	}
+
+	@Override
+	public long obterVersaoDados(Long idUsuario) {
+		return saldoService.obterVersao(idUsuario);
+	}
+	
+	/**
+	 * O merge do {@code save} sobrescreve a instância gerenciada, então os valores
+	 * anteriores precisam ser copiados antes para o cálculo do delta do saldo e
+	 * para decidir se o índice de pesquisa precisa ser refeito.
+	 */
+	private Lancamento copiarValores(Lancamento lancamento) {
+		return Lancamento.builder()
+				.id(lancamento.getId())
+				.descricao(lancamento.getDescricao())
+				.usuario(lancamento.getUsuario())
+				.tipo(lancamento.getTipo())
+				.valor(lancamento.getValor())
+				.versao(lancamento.getVersao())
+				.build();
 	}
 
 }
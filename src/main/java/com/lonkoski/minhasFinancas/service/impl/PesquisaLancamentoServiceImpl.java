@@ -0,0 +1,185 @@
+package com.lonkoski.minhasFinancas.service.impl;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.lonkoski.minhasFinancas.model.entity.ArquivoUsuario;
+import com.lonkoski.minhasFinancas.model.entity.Lancamento;
+import com.lonkoski.minhasFinancas.model.entity.NgramaLancamento;
+import com.lonkoski.minhasFinancas.model.filtro.FiltroLancamento;
+import com.lonkoski.minhasFinancas.model.projecao.LancamentoResumo;
+import com.lonkoski.minhasFinancas.model.repository.LancamentoRepository;
+import com.lonkoski.minhasFinancas.model.repository.LancamentoSpecifications;
+import com.lonkoski.minhasFinancas.model.repository.NgramaLancamentoRepository;
+import com.lonkoski.minhasFinancas.service.PesquisaLancamentoService;
+import com.lonkoski.minhasFinancas.service.arquivo.ArquivoColunar;
+import com.lonkoski.minhasFinancas.service.arquivo.ArquivoLancamentos;
+
+@Service
+public class PesquisaLancamentoServiceImpl implements PesquisaLancamentoService {
+	
+	/** Fração mínima dos trigramas da busca que um lançamento precisa conter. */
+	private static final double SEMELHANCA_MINIMA = 0.5;
+	
+	private NgramaLancamentoRepository repository;
+	private LancamentoRepository lancamentoRepository;
+	private ArquivoLancamentos arquivos;
+	
+	public PesquisaLancamentoServiceImpl(NgramaLancamentoRepository repository, LancamentoRepository lancamentoRepository,
+			ArquivoLancamentos arquivos) {
+		this.repository = repository;
+		this.lancamentoRepository = lancamentoRepository;
+		this.arquivos = arquivos;
+	}
+
+	@Override
+	@Transactional
+	public void indexar(Lancamento lancamento) {
+		repository.removerPorLancamento(lancamento.getId());
+		repository.saveAll( entradas(lancamento) );
+	}
+
+	@Override
+	@Transactional
+	public void indexarNovos(Collection<Lancamento> lancamentos) {
+		List<NgramaLancamento> entradas = new ArrayList<>();
+		lancamentos.forEach( lancamento -> entradas.addAll( entradas(lancamento) ) );
+		repository.saveAll(entradas);
+	}
+
+	@Override
+	@Transactional
+	public void remover(Long idLancamento) {
+		repository.removerPorLancamento(idLancamento);
+	}
+
+	@Override
+	@Transactional
+	public void reindexar(Long idUsuario) {
+		repository.removerPorUsuario(idUsuario);
+		lancamentoRepository.findAll( LancamentoSpecifications.doFiltro( FiltroLancamento.builder().idUsuario(idUsuario).build() ) )
+			.forEach(this::indexar);
+	}
+
+	@Override
+	@Transactional( readOnly = true )
+	public List<LancamentoResumo> pesquisar(Long idUsuario, String texto, int limite) {
+		Set<String> ngramas = extrairNgramas(texto);
+		if ( ngramas.isEmpty() ) {
+			return Collections.emptyList();
+		}
+		
+		long minimo = Math.max( 1, (long) Math.ceil(ngramas.size() * SEMELHANCA_MINIMA) );
+		List<Long> ids = repository.pesquisar(idUsuario, ngramas, minimo, PageRequest.of(0, limite));
+		
+		Map<Long, Integer> posicoes = new HashMap<>();
+		for ( int i = 0; i < ids.size(); i++ ) {
+			posicoes.put(ids.get(i), i);
+		}
+		
+		Optional<ArquivoUsuario> arquivo = arquivos.obterRegistro(idUsuario);
+		if ( ids.isEmpty() && !arquivo.isPresent() ) {
+			return Collections.emptyList();
+		}
+		
+		List<LancamentoResumo> lancamentos = ids.isEmpty() ? new ArrayList<>()
+				: lancamentoRepository.buscarResumos( LancamentoSpecifications.comIds(ids), Sort.unsorted() );
+		lancamentos.sort( Comparator.comparing( l -> posicoes.get(l.getId()) ) );
+		if ( arquivo.isPresent() ) {
+			lancamentos = comArquivados(lancamentos, arquivo.get(), ngramas, minimo, limite);
+		}
+		
+		// Dentro da ordem por trigramas em comum, quem contém o texto exato vem antes.
+		String busca = normalizar(texto);
+		lancamentos.sort( Comparator.comparing( (LancamentoResumo l) -> !normalizar(l.getDescricao()).contains(busca) ) );
+		return lancamentos;
+	}
+	
+	/**
+	 * Os anos fechados não estão no índice: cada descrição distinta do dicionário do arquivo
+	 * é comparada uma vez com os trigramas da busca, e os lançamentos das descrições aceitas
+	 * disputam as posições com os da tabela pela mesma ordem da consulta do índice.
+	 */
+	private List<LancamentoResumo> comArquivados(List<LancamentoResumo> daTabela, ArquivoUsuario registro,
+			Set<String> ngramas, long minimo, int limite) {
+		ArquivoColunar colunar = arquivos.abrir(registro);
+		boolean[] aceitas = new boolean[colunar.getDescricoes()];
+		for ( int entrada = 0; entrada < aceitas.length; entrada++ ) {
+			aceitas[entrada] = emComum(colunar.descricao(entrada), ngramas) >= minimo;
+		}
+		
+		// Durante um fechamento os anos fechados ainda podem estar no índice.
+		List<LancamentoResumo> lancamentos = daTabela.stream()
+				.filter( l -> l.getAno() == null || l.getAno() >= registro.getAnoLimite() )
+				.collect(Collectors.toList());
+		lancamentos.addAll( colunar.comDescricoes(aceitas) );
+		lancamentos.sort( Comparator
+				.comparing( (LancamentoResumo l) -> emComum(l.getDescricao(), ngramas) ).reversed()
+				.thenComparing( LancamentoResumo::getId, Comparator.reverseOrder() ) );
+		return new ArrayList<>( lancamentos.subList(0, Math.min(limite, lancamentos.size())) );
+	}
+	
+	private static long emComum(String descricao, Set<String> ngramas) {
+		return extrairNgramas(descricao).stream().filter(ngramas::contains).count();
+	}
+	
+	private List<NgramaLancamento> entradas(Lancamento lancamento) {
+		if ( lancamento.getUsuario() == null || lancamento.getUsuario().getId() == null ) {
+			return Collections.emptyList();
+		}
+		
+		Long idUsuario = lancamento.getUsuario().getId();
+		return extrairNgramas(lancamento.getDescricao()).stream()
+				.map( ngrama -> new NgramaLancamento(idUsuario, ngrama, lancamento.getId()) )
+				.collect(Collectors.toList());
+	}
+	
+	/**
+	 * Trigramas de cada palavra do texto normalizado, com um espaço de borda em cada
+	 * lado para que palavras curtas e inícios de palavra também gerem entradas.
+	 */
+	public static Set<String> extrairNgramas(String texto) {
+		Set<String> ngramas = new LinkedHashSet<>();
+		String normalizado = normalizar(texto);
+		if ( normalizado.isEmpty() ) {
+			return ngramas;
+		}
+		
+		for ( String palavra : normalizado.split(" ") ) {
+			String comBordas = " " + palavra + " ";
+			for ( int i = 0; i + 3 <= comBordas.length(); i++ ) {
+				ngramas.add( comBordas.substring(i, i + 3) );
+			}
+		}
+		return ngramas;
+	}
+	
+	public static String normalizar(String texto) {
+		if ( texto == null ) {
+			return "";
+		}
+		
+		return Normalizer.normalize(texto, Normalizer.Form.NFD)
+				.replaceAll("\\p{M}", "")
+				.toLowerCase(Locale.ROOT)
+				.replaceAll("[^\\p{Alnum}]+", " ")
+				.trim();
+	}
+
+}
@@ -0,0 +1,206 @@
+package com.lonkoski.minhasFinancas.service.impl;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringJoiner;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.lonkoski.minhasFinancas.config.fragmento.DiretorioFragmentos;
+import com.lonkoski.minhasFinancas.exception.RegraNegocioException;
+import com.lonkoski.minhasFinancas.model.fragmento.ResultadoRebalanceamento;
+import com.lonkoski.minhasFinancas.service.RebalanceamentoService;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Move um usuário entre fragmentos em quatro passos:
+ * <ol>
+ * <li>marca o usuário no diretório e espera a validade do diretório, para que todas as
+ * instâncias passem a recusar as escritas dele;</li>
+ * <li>copia as linhas do usuário para o destino numa única transação, que é desfeita
+ * se a versão dos dados dele mudar no meio, por uma escrita que já estava em andamento;</li>
+ * <li>aponta o diretório para o destino;</li>
+ * <li>espera de novo a validade do diretório, para que as leituras ainda guiadas pela
+ * localização antiga terminem, e só então apaga as linhas da origem.</li>
+ * </ol>
+ * As colunas copiadas vêm dos metadados da consulta, então colunas novas das migrações
+ * são levadas sem mudar esta classe; tabelas novas com dados do usuário entram em {@link #TABELAS}.
+ */
+@Slf4j
+@Service
+public class RebalanceamentoServiceImpl implements RebalanceamentoService {
+	
+	/** Tabelas com dados do usuário e a coluna do usuário em cada uma, na ordem das chaves estrangeiras. */
+	private static final String[][] TABELAS = {
+			{ "financas.usuario", "id" },
+			{ "financas.lancamento", "id_usuario" },
+			{ "financas.saldo_usuario", "id_usuario" },
+			{ "financas.arquivo_usuario", "id_usuario" },
+			{ "financas.resumo_ano", "id_usuario" },
+			{ "financas.lancamento_ngrama", "id_usuario" } };
+	
+	private static final int TAMANHO_LOTE = 1000;
+	
+	private ObjectProvider<DiretorioFragmentos> diretorio;
+	
+	public RebalanceamentoServiceImpl(ObjectProvider<DiretorioFragmentos> diretorio) {
+		this.diretorio = diretorio;
+	}
+	
+	@Override
+	public ResultadoRebalanceamento mover(Long idUsuario, int destino) {
+		DiretorioFragmentos diretorio = this.diretorio.getIfAvailable();
+		if ( diretorio == null ) {
+			throw new RegraNegocioException("Fragmentos não habilitados.");
+		}
+		if ( destino < 0 || destino >= diretorio.getQuantidade() ) {
+			throw new RegraNegocioException("Fragmento de destino " + destino + " não configurado.");
+		}
+		
+		long inicio = System.currentTimeMillis();
+		diretorio.iniciarMovimentacao(idUsuario);
+		ResultadoRebalanceamento resultado = new ResultadoRebalanceamento();
+		resultado.setIdUsuario(idUsuario);
+		resultado.setDestino(destino);
+		try {
+			int origem = diretorio.localizarUsuario(idUsuario)
+					.orElseThrow( () -> new RegraNegocioException("Usuário " + idUsuario + " não encontrado no diretório.") )
+					.getFragmento();
+			resultado.setOrigem(origem);
+			if ( origem == destino ) {
+				throw new RegraNegocioException("O usuário " + idUsuario + " já está no fragmento " + destino + ".");
+			}
+			
+			aguardar( diretorio.getValidade() );
+			copiar( idUsuario, diretorio.getFonte(origem), diretorio.getFonte(destino), resultado );
+		} catch ( RuntimeException e ) {
+			diretorio.cancelarMovimentacao(idUsuario);
+			throw e;
+		}
+		
+		diretorio.concluirMovimentacao(idUsuario, destino);
+		aguardar( diretorio.getValidade() );
+		DataSource origem = diretorio.getFonte( resultado.getOrigem() );
+		new TransactionTemplate( new DataSourceTransactionManager(origem) )
+				.executeWithoutResult( status -> remover(new JdbcTemplate(origem), idUsuario) );
+		
+		resultado.setMilissegundos( System.currentTimeMillis() - inicio );
+		log.info("Usuário {} movido do fragmento {} para o {} em {} ms: {}", idUsuario, resultado.getOrigem(), destino,
+				resultado.getMilissegundos(), resultado.getLinhas());
+		return resultado;
+	}
+	
+	private void copiar(Long idUsuario, DataSource origem, DataSource destino, ResultadoRebalanceamento resultado) {
+		JdbcTemplate leitura = new JdbcTemplate(origem);
+		leitura.setFetchSize(TAMANHO_LOTE);
+		JdbcTemplate gravacao = new JdbcTemplate(destino);
+		TransactionTemplate transacaoLeitura = new TransactionTemplate( new DataSourceTransactionManager(origem) );
+		transacaoLeitura.setReadOnly(true);
+		
+		long versao = versaoDados(leitura, idUsuario);
+		new TransactionTemplate( new DataSourceTransactionManager(destino) ).executeWithoutResult( gravando ->
+			transacaoLeitura.executeWithoutResult( lendo -> {
+				// Sobras de uma tentativa interrompida; o destino ainda não atende o usuário.
+				remover(gravacao, idUsuario);
+				for ( String[] tabela : TABELAS ) {
+					CopiaTabela copia = new CopiaTabela(gravacao, tabela[0]);
+					leitura.query("select * from " + tabela[0] + " where " + tabela[1] + " = ?", copia, idUsuario);
+					copia.gravarLote();
+					resultado.getLinhas().put(tabela[0], copia.linhas);
+				}
+				
+				if ( versaoDados(leitura, idUsuario) != versao ) {
+					throw new RegraNegocioException("Os dados do usuário " + idUsuario + " mudaram durante a cópia; tente novamente.");
+				}
+			})
+		);
+	}
+	
+	/**
+	 * Versão dos dados do usuário, ou -1 se ele ainda não tiver saldo consolidado.
+	 */
+	private static long versaoDados(JdbcTemplate jdbc, Long idUsuario) {
+		List<Long> versao = jdbc.queryForList("select versao_dados from financas.saldo_usuario where id_usuario = ?",
+				Long.class, idUsuario);
+		return versao.isEmpty() ? -1 : versao.get(0);
+	}
+	
+	private static void remover(JdbcTemplate jdbc, Long idUsuario) {
+		for ( int i = TABELAS.length - 1; i >= 0; i-- ) {
+			jdbc.update("delete from " + TABELAS[i][0] + " where " + TABELAS[i][1] + " = ?", idUsuario);
+		}
+	}
+	
+	private static void aguardar(Duration tempo) {
+		try {
+			Thread.sleep( tempo.toMillis() );
+		} catch ( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Rebalanceamento interrompido.", e);
+		}
+	}
+	
+	/**
+	 * Insere no destino, em lotes, as linhas lidas da origem, com as mesmas colunas.
+	 */
+	private static final class CopiaTabela implements RowCallbackHandler {
+		
+		private final JdbcTemplate destino;
+		private final String tabela;
+		private final List<Object[]> lote = new ArrayList<>(TAMANHO_LOTE);
+		private String insercao;
+		private int colunas;
+		private long linhas;
+		
+		CopiaTabela(JdbcTemplate destino, String tabela) {
+			this.destino = destino;
+			this.tabela = tabela;
+		}
+		
+		@Override
+		public void processRow(ResultSet resultado) throws SQLException {
+			if ( insercao == null ) {
+				ResultSetMetaData metadados = resultado.getMetaData();
+				colunas = metadados.getColumnCount();
+				StringJoiner nomes = new StringJoiner(", ");
+				StringJoiner parametros = new StringJoiner(", ");
+				for ( int coluna = 1; coluna <= colunas; coluna++ ) {
+					nomes.add( metadados.getColumnName(coluna) );
+					parametros.add("?");
+				}
+				insercao = "insert into " + tabela + " (" + nomes + ") values (" + parametros + ")";
+			}
+			
+			Object[] valores = new Object[colunas];
+			for ( int coluna = 1; coluna <= colunas; coluna++ ) {
+				valores[coluna - 1] = resultado.getObject(coluna);
+			}
+			lote.add(valores);
+			linhas++;
+			if ( lote.size() == TAMANHO_LOTE ) {
+				gravarLote();
+			}
+		}
+		
+		void gravarLote() {
+			if ( !lote.isEmpty() ) {
+				destino.batchUpdate(insercao, lote);
+				lote.clear();
+			}
+		}
+	
+	}
+	
+}
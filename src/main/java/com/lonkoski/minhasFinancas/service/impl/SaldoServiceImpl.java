@@ -0,0 +1,192 @@
+package com.lonkoski.minhasFinancas.service.impl;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.lonkoski.minhasFinancas.config.fragmento.Fragmentos;
+import com.lonkoski.minhasFinancas.config.replica.AfinidadePrimaria;
+import com.lonkoski.minhasFinancas.model.entity.Lancamento;
+import com.lonkoski.minhasFinancas.model.entity.ResumoAno;
+import com.lonkoski.minhasFinancas.model.entity.SaldoUsuario;
+import com.lonkoski.minhasFinancas.model.enums.TipoLancamento;
+import com.lonkoski.minhasFinancas.model.repository.LancamentoRepository;
+import com.lonkoski.minhasFinancas.model.repository.ResumoAnoRepository;
+import com.lonkoski.minhasFinancas.model.repository.SaldoUsuarioRepository;
+import com.lonkoski.minhasFinancas.service.DivergenciaSaldo;
+import com.lonkoski.minhasFinancas.service.SaldoService;
+
+import lombok.extern.slf4j.Slf4j;
+
+@Slf4j
+@Service
+public class SaldoServiceImpl implements SaldoService {
+	
+	private SaldoUsuarioRepository repository;
+	private LancamentoRepository lancamentoRepository;
+	private ResumoAnoRepository resumoRepository;
+	private AfinidadePrimaria afinidade;
+	private Fragmentos fragmentos;
+	private TransactionTemplate transacaoLeitura;
+	
+	public SaldoServiceImpl(SaldoUsuarioRepository repository, LancamentoRepository lancamentoRepository,
+			ResumoAnoRepository resumoRepository, AfinidadePrimaria afinidade, Fragmentos fragmentos,
+			PlatformTransactionManager transactionManager) {
+		this.repository = repository;
+		this.lancamentoRepository = lancamentoRepository;
+		this.resumoRepository = resumoRepository;
+		this.afinidade = afinidade;
+		this.fragmentos = fragmentos;
+		this.transacaoLeitura = new TransactionTemplate(transactionManager);
+		this.transacaoLeitura.setReadOnly(true);
+	}
+
+	@Override
+	@Transactional
+	public void registrarAlteracao(Lancamento anterior, Lancamento atual) {
+		Map<Long, BigDecimal[]> deltas = new HashMap<>();
+		acumular(deltas, anterior, true);
+		acumular(deltas, atual, false);
+		aplicar(deltas);
+	}
+
+	@Override
+	@Transactional
+	public void registrarInclusoes(Collection<Lancamento> lancamentos) {
+		Map<Long, BigDecimal[]> deltas = new HashMap<>();
+		lancamentos.forEach( lancamento -> acumular(deltas, lancamento, false) );
+		aplicar(deltas);
+	}
+	
+	@Override
+	@Transactional
+	public void registrarModificacao(Long idUsuario) {
+		Map<Long, BigDecimal[]> deltas = new HashMap<>();
+		deltas.put(idUsuario, zeros());
+		aplicar(deltas);
+	}
+
+	@Override
+	@Transactional
+	public void registrarModificacaoDoLancamento(Long idLancamento) {
+		if ( repository.incrementarVersaoPeloLancamento(idLancamento) == 0 ) {
+			lancamentoRepository.findById(idLancamento)
+				.ifPresent( lancamento -> registrarModificacao(lancamento.getUsuario().getId()) );
+		}
+	}
+	
+	/**
+	 * Mesmo com delta zero o update é feito, porque incrementa a versão dos dados do usuário.
+	 * Toda escrita de lançamentos passa por aqui, então é também onde o usuário ganha
+	 * afinidade com a primária para ler o que acabou de gravar.
+	 */
+	private void aplicar(Map<Long, BigDecimal[]> deltas) {
+		deltas.forEach( (idUsuario, delta) -> {
+			afinidade.registrarEscrita(idUsuario);
+			int atualizados = repository.somar(idUsuario, delta[0], delta[1]);
+			if ( atualizados == 0 ) {
+				// Com o usuário travado, outra primeira alteração concorrente já terminou
+				// e criou a linha, e o delta entra nela, ou espera esta terminar.
+				repository.travarUsuario(idUsuario);
+				atualizados = repository.somar(idUsuario, delta[0], delta[1]);
+			}
+			if ( atualizados == 0 ) {
+				// Primeira alteração do usuário desde a consolidação: a consulta abaixo
+				// já enxerga a alteração corrente, então o delta não é somado de novo.
+				SaldoUsuario saldo = calcularPelosLancamentos(idUsuario);
+				saldo.setVersaoDados(1L);
+				repository.save(saldo);
+			}
+		});
+	}
+
+	@Override
+	@Transactional( readOnly = true )
+	public BigDecimal obterSaldo(Long idUsuario) {
+		return repository.findById(idUsuario)
+				.orElseGet( () -> calcularPelosLancamentos(idUsuario) )
+				.getSaldo();
+	}
+
+	@Override
+	@Transactional( readOnly = true )
+	public long obterVersao(Long idUsuario) {
+		return repository.obterVersaoDados(idUsuario).orElse(0L);
+	}
+
+	/**
+	 * Com fragmentos, cada um é verificado na sua própria transação.
+	 */
+	@Override
+	public List<DivergenciaSaldo> verificarConsistencia() {
+		List<DivergenciaSaldo> divergencias = new ArrayList<>();
+		fragmentos.emCadaFragmento( () -> transacaoLeitura.executeWithoutResult( status -> verificarFragmento(divergencias) ) );
+		
+		divergencias.forEach( d -> log.warn("Saldo consolidado divergente: {}", d) );
+		return divergencias;
+	}
+	
+	private void verificarFragmento(List<DivergenciaSaldo> divergencias) {
+		Map<Long, BigDecimal[]> calculados = new HashMap<>();
+		for ( Object[] linha : lancamentoRepository.obterTotaisPorUsuarioETipo() ) {
+			BigDecimal[] totais = calculados.computeIfAbsent( (Long) linha[0], id -> zeros() );
+			totais[ linha[1] == TipoLancamento.RECEITA ? 0 : 1 ] = (BigDecimal) linha[2];
+		}
+		// Os anos fechados saíram da tabela e entram pelos totais guardados no fechamento.
+		for ( ResumoAno resumo : resumoRepository.findAll() ) {
+			BigDecimal[] totais = calculados.computeIfAbsent( resumo.getIdUsuario(), id -> zeros() );
+			totais[0] = totais[0].add( resumo.getReceitas() );
+			totais[1] = totais[1].add( resumo.getDespesas() );
+		}
+		
+		for ( SaldoUsuario saldo : repository.findAll() ) {
+			BigDecimal[] totais = calculados.getOrDefault(saldo.getIdUsuario(), zeros());
+			if ( saldo.getReceitas().compareTo(totais[0]) != 0 || saldo.getDespesas().compareTo(totais[1]) != 0 ) {
+				divergencias.add( new DivergenciaSaldo(saldo.getIdUsuario(),
+						saldo.getReceitas(), saldo.getDespesas(), totais[0], totais[1]) );
+			}
+		}
+	}
+	
+	private SaldoUsuario calcularPelosLancamentos(Long idUsuario) {
+		BigDecimal receitas = lancamentoRepository.obterSaldoPorTipoLancamentoEUsuario(idUsuario, TipoLancamento.RECEITA);
+		BigDecimal despesas = lancamentoRepository.obterSaldoPorTipoLancamentoEUsuario(idUsuario, TipoLancamento.DESPESA);
+		receitas = receitas == null ? BigDecimal.ZERO : receitas;
+		despesas = despesas == null ? BigDecimal.ZERO : despesas;
+		for ( ResumoAno resumo : resumoRepository.findByIdUsuarioOrderByAno(idUsuario) ) {
+			receitas = receitas.add( resumo.getReceitas() );
+			despesas = despesas.add( resumo.getDespesas() );
+		}
+		
+		return SaldoUsuario.builder()
+				.idUsuario(idUsuario)
+				.receitas(receitas)
+				.despesas(despesas)
+				.build();
+	}
+	
+	private void acumular(Map<Long, BigDecimal[]> deltas, Lancamento lancamento, boolean estorno) {
+		if ( lancamento == null || lancamento.getUsuario() == null || lancamento.getUsuario().getId() == null
+				|| lancamento.getValor() == null || lancamento.getTipo() == null ) {
+			return;
+		}
+		
+		BigDecimal valor = estorno ? lancamento.getValor().negate() : lancamento.getValor();
+		BigDecimal[] delta = deltas.computeIfAbsent( lancamento.getUsuario().getId(), id -> zeros() );
+		int posicao = lancamento.getTipo() == TipoLancamento.RECEITA ? 0 : 1;
+		delta[posicao] = delta[posicao].add(valor);
+	}
+	
+	private static BigDecimal[] zeros() {
+		return new BigDecimal[] { BigDecimal.ZERO, BigDecimal.ZERO };
+	}
+
+}
@@ -0,0 +1,100 @@
+package com.lonkoski.minhasFinancas.service.impl;
+
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Optional;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.stereotype.Service;
+
+import com.lonkoski.minhasFinancas.config.CacheConfig;
+import com.lonkoski.minhasFinancas.model.entity.Usuario;
+import com.lonkoski.minhasFinancas.service.TokenAcesso;
+import com.lonkoski.minhasFinancas.service.TokenService;
+
+/**
+ * Tokens no formato {@code idUsuario.expiraEm.assinatura}, com a expiração em
+ * segundos desde a época e a assinatura HMAC-SHA256 das duas primeiras partes em
+ * base64 url. Basta que todas as instâncias usem o mesmo segredo para que
+ * qualquer uma valide o token emitido por outra.
+ */
+@Service
+public class TokenServiceImpl implements TokenService {
+	
+	private static final String ALGORITMO = "HmacSHA256";
+	
+	/** Tamanho mínimo do segredo em bytes, o da saída do HMAC-SHA256. */
+	static final int TAMANHO_MINIMO_SEGREDO = 32;
+	
+	private final SecretKeySpec chave;
+	private final Duration validade;
+	
+	public TokenServiceImpl(@Value("${financas.token.segredo:}") String segredo,
+			@Value("${financas.token.validade:8h}") Duration validade) {
+		// Sem segredo próprio qualquer um poderia emitir tokens válidos; a aplicação não sobe.
+		if ( segredo == null || segredo.getBytes(StandardCharsets.UTF_8).length < TAMANHO_MINIMO_SEGREDO ) {
+			throw new IllegalStateException("Defina financas.token.segredo (FINANCAS_TOKEN_SEGREDO) com ao menos "
+					+ TAMANHO_MINIMO_SEGREDO + " bytes.");
+		}
+		this.chave = new SecretKeySpec(segredo.getBytes(StandardCharsets.UTF_8), ALGORITMO);
+		this.validade = validade;
+	}
+
+	@Override
+	public TokenAcesso emitir(Usuario usuario) {
+		Instant expiraEm = Instant.now().plus(validade);
+		String conteudo = usuario.getId() + "." + expiraEm.getEpochSecond();
+		return new TokenAcesso( conteudo + "." + assinar(conteudo), usuario.getId(), expiraEm );
+	}
+
+	@Override
+	@Cacheable( cacheNames = CacheConfig.TOKENS, unless = "#result == null" )
+	public Optional<TokenAcesso> decodificar(String token) {
+		if ( token == null ) {
+			return Optional.empty();
+		}
+		
+		int fimConteudo = token.lastIndexOf('.');
+		if ( fimConteudo < 0 ) {
+			return Optional.empty();
+		}
+		
+		String conteudo = token.substring(0, fimConteudo);
+		byte[] esperada = assinar(conteudo).getBytes(StandardCharsets.US_ASCII);
+		byte[] recebida = token.substring(fimConteudo + 1).getBytes(StandardCharsets.US_ASCII);
+		if ( !MessageDigest.isEqual(esperada, recebida) ) {
+			return Optional.empty();
+		}
+		
+		String[] partes = conteudo.split("\\.");
+		if ( partes.length != 2 ) {
+			return Optional.empty();
+		}
+		
+		try {
+			return Optional.of( new TokenAcesso( token, Long.valueOf(partes[0]), Instant.ofEpochSecond(Long.parseLong(partes[1])) ) );
+		} catch ( NumberFormatException e ) {
+			return Optional.empty();
+		}
+	}
+	
+	private String assinar(String conteudo) {
+		try {
+			Mac mac = Mac.getInstance(ALGORITMO);
+			mac.init(chave);
+			byte[] assinatura = mac.doFinal( conteudo.getBytes(StandardCharsets.UTF_8) );
+			return Base64.getUrlEncoder().withoutPadding().encodeToString(assinatura);
+		} catch ( GeneralSecurityException e ) {
+			throw new IllegalStateException("HMAC-SHA256 indisponível", e);
+		}
+	}
+
+}
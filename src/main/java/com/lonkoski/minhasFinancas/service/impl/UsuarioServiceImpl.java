@@ -2,60 +2,133 @@ package com.lonkoski.minhasFinancas.service.impl;
 
 
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
 
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.lonkoski.minhasFinancas.config.CacheConfig;
+import com.lonkoski.minhasFinancas.config.fragmento.Fragmentos;
 import com.lonkoski.minhasFinancas.exception.ErroAutenticacao;
 import com.lonkoski.minhasFinancas.exception.RegraNegocioException;
 import com.lonkoski.minhasFinancas.model.entity.Usuario;
 import com.lonkoski.minhasFinancas.model.repository.UsuarioRepository;
 import com.lonkoski.minhasFinancas.service.UsuarioService;
+import com.lonkoski.minhasFinancas.service.cadastro.FiltroEmails;
+import com.lonkoski.minhasFinancas.service.jfr.OperacaoEvento;
 
 @Service
 public class UsuarioServiceImpl implements UsuarioService {
 	
+	/** Índice único de {@code financas.usuario.email}, criado na migração V3. */
+	private static final String INDICE_EMAIL = "uk_usuario_email";
+	
 	private UsuarioRepository repository;
+	private FiltroEmails filtroEmails;
+	private Fragmentos fragmentos;
 	
-	public UsuarioServiceImpl(UsuarioRepository repository) {
+	public UsuarioServiceImpl(UsuarioRepository repository, FiltroEmails filtroEmails, Fragmentos fragmentos) {
 		super();
 		this.repository = repository;
+		this.filtroEmails = filtroEmails;
+		this.fragmentos = fragmentos;
 	}
 
 	@Override
 	public Usuario autenticar(String email, String senha) {
-		Optional<Usuario> usuario = repository.findByEmail(email);
-		
-		if (!usuario.isPresent()) {
-			throw new ErroAutenticacao("Usuário não encontrado para o e-mail informado.");
+		OperacaoEvento evento = OperacaoEvento.iniciar(OperacaoEvento.AUTENTICAR);
+		try {
+			Optional<Usuario> usuario = fragmentos.noFragmentoDoEmail( email, () -> repository.findByEmail(email) );
+			evento.fimRepositorio();
+			
+			if (!usuario.isPresent()) {
+				throw new ErroAutenticacao(ErroAutenticacao.Motivo.USUARIO_NAO_ENCONTRADO, "Usuário não encontrado para o e-mail informado.");
+			}
+			
+			if (!usuario.get().getSenha().equals(senha)) {
+				throw new ErroAutenticacao(ErroAutenticacao.Motivo.SENHA_INVALIDA, "Senha inválida.");
+			}
+			evento.fimValidacao();
+			
+			evento.concluir(usuario.get().getId(), 1);
+			return usuario.get();
+		} finally {
+			evento.finalizar();
 		}
-		
-		if (!usuario.get().getSenha().equals(senha)) {
-			throw new ErroAutenticacao("Senha inválida.");
-		}
-		
-		return usuario.get();
 	}
 
 	@Override
 	@Transactional
+	@Caching( evict = {
+			@CacheEvict( cacheNames = CacheConfig.USUARIOS, key = "#result.id" ),
+			@CacheEvict( cacheNames = CacheConfig.USUARIOS_POR_EMAIL, key = "#usuario.email", condition = "#usuario.email != null" ) } )
 	public Usuario salvarUsuario(Usuario usuario) {
-		validarEmail(usuario.getEmail());
-		return repository.save(usuario);
+		// Com fragmentos, o email é reservado no diretório antes do primeiro comando,
+		// para que a transação já abra no fragmento escolhido para o usuário.
+		return fragmentos.cadastrar( usuario.getEmail(), () -> gravar(usuario) );
+	}
+	
+	private Usuario gravar(Usuario usuario) {
+		// Quem garante a unicidade é o índice único; a consulta prévia só acontece
+		// quando o filtro não descarta o email.
+		if ( filtroEmails.podeEstarCadastrado(usuario.getEmail()) ) {
+			validarEmail(usuario.getEmail());
+		}
+		
+		Usuario salvo;
+		try {
+			salvo = repository.save(usuario);
+			repository.flush();
+		} catch ( DataIntegrityViolationException e ) {
+			if ( violouIndiceDeEmail(e) ) {
+				throw new RegraNegocioException("Já existe um usuário cadastrado com este email.");
+			}
+			throw e;
+		}
+		
+		filtroEmails.registrar(salvo.getEmail());
+		return salvo;
+	}
+
+	private static boolean violouIndiceDeEmail(DataIntegrityViolationException e) {
+		for ( Throwable causa = e; causa != null; causa = causa.getCause() ) {
+			if ( causa instanceof ConstraintViolationException ) {
+				String nome = ((ConstraintViolationException) causa).getConstraintName();
+				return nome != null && nome.toLowerCase(Locale.ROOT).contains(INDICE_EMAIL);
+			}
+		}
+		return false;
 	}
 
 	@Override
 	public void validarEmail(String email) {
-		boolean existe = repository.existsByEmail(email);
+		boolean existe = fragmentos.noFragmentoDoEmail( email, () -> repository.existsByEmail(email) );
 		if (existe) {
 			throw new RegraNegocioException("Já existe um usuário cadastrado com este email.");
 		}
 	}
 
+	/**
+	 * A instância em cache é compartilhada entre requisições e não deve ser alterada.
+	 * Ids inexistentes não ficam em cache.
+	 */
 	@Override
+	@Cacheable( cacheNames = CacheConfig.USUARIOS, unless = "#result == null" )
 	public Optional<Usuario> obtePorId(Long id) {
-		return repository.findById(id);
+		return fragmentos.noFragmentoDoUsuario( id, () -> repository.findById(id) );
+	}
+
+	@Override
+	public List<Usuario> obterPorIds(Collection<Long> ids) {
+		return repository.findAllById(ids);
 	}
 
 }
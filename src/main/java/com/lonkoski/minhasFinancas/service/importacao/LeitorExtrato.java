@@ -0,0 +1,34 @@
+package com.lonkoski.minhasFinancas.service.importacao;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+
+import com.lonkoski.minhasFinancas.model.enums.FormatoExtrato;
+import com.lonkoski.minhasFinancas.model.importacao.LinhaExtrato;
+
+/**
+ * Lê as movimentações de um extrato uma a uma, sem carregar o arquivo inteiro em memória.
+ * Problemas em uma movimentação vêm no campo {@code erro} da linha, sem interromper a leitura.
+ */
+public interface LeitorExtrato extends Closeable {
+	
+	/**
+	 * Próxima movimentação do arquivo, ou nulo ao chegar no fim.
+	 */
+	LinhaExtrato proxima() throws IOException;
+	
+	static LeitorExtrato para(FormatoExtrato formato, Reader reader) {
+		BufferedReader buffer = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+		switch ( formato ) {
+			case CSV:
+				return new LeitorExtratoCsv(buffer);
+			case OFX:
+				return new LeitorExtratoOfx(buffer);
+			default:
+				throw new IllegalArgumentException("Formato de extrato não suportado: " + formato);
+		}
+	}
+
+}
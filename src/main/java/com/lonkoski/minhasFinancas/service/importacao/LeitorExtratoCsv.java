@@ -0,0 +1,152 @@
+package com.lonkoski.minhasFinancas.service.importacao;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.format.ResolverStyle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.lonkoski.minhasFinancas.model.importacao.LinhaExtrato;
+import com.lonkoski.minhasFinancas.service.impl.PesquisaLancamentoServiceImpl;
+
+/**
+ * Extrato em CSV com data, descrição e valor por linha. O separador ({@code ;},
+ * tab ou {@code ,}) é deduzido da primeira linha; se ela for um cabeçalho, as
+ * colunas são localizadas pelo nome, senão são lidas nessa ordem.
+ */
+public class LeitorExtratoCsv implements LeitorExtrato {
+	
+	private static final List<DateTimeFormatter> FORMATOS_DATA = Arrays.asList(
+			DateTimeFormatter.ofPattern("dd/MM/uuuu").withResolverStyle(ResolverStyle.STRICT),
+			DateTimeFormatter.ofPattern("uuuu-MM-dd").withResolverStyle(ResolverStyle.STRICT),
+			DateTimeFormatter.ofPattern("dd/MM/uu").withResolverStyle(ResolverStyle.STRICT) );
+	
+	private final BufferedReader reader;
+	private long numeroLinha;
+	private Character separador;
+	private int colunaData = 0;
+	private int colunaDescricao = 1;
+	private int colunaValor = 2;
+	
+	public LeitorExtratoCsv(BufferedReader reader) {
+		this.reader = reader;
+	}
+
+	@Override
+	public LinhaExtrato proxima() throws IOException {
+		String linha;
+		while ( (linha = reader.readLine()) != null ) {
+			numeroLinha++;
+			if ( numeroLinha == 1 && linha.startsWith("\uFEFF") ) {
+				linha = linha.substring(1);
+			}
+			if ( linha.trim().isEmpty() ) {
+				continue;
+			}
+			
+			if ( separador == null ) {
+				separador = linha.indexOf(';') >= 0 ? ';' : linha.indexOf('\t') >= 0 ? '\t' : ',';
+				if ( lerCabecalho( separar(linha, separador) ) ) {
+					continue;
+				}
+			}
+			
+			return converter( separar(linha, separador) );
+		}
+		return null;
+	}
+	
+	private LinhaExtrato converter(List<String> campos) {
+		LinhaExtrato linha = new LinhaExtrato();
+		linha.setNumero(numeroLinha);
+		
+		if ( campos.size() <= Math.max(colunaData, Math.max(colunaDescricao, colunaValor)) ) {
+			linha.setErro("Linha com colunas insuficientes.");
+			return linha;
+		}
+		
+		linha.setDescricao( campos.get(colunaDescricao) );
+		linha.setData( converterData(campos.get(colunaData)) );
+		linha.setValor( ValoresExtrato.converterValor(campos.get(colunaValor)) );
+		
+		if ( linha.getData() == null ) {
+			linha.setErro(ValoresExtrato.DATA_INVALIDA);
+		} else if ( linha.getValor() == null ) {
+			linha.setErro(ValoresExtrato.VALOR_INVALIDO);
+		}
+		return linha;
+	}
+	
+	/**
+	 * @return verdadeiro se a linha é um cabeçalho com as colunas de data e valor.
+	 */
+	private boolean lerCabecalho(List<String> campos) {
+		int data = -1, descricao = -1, valor = -1;
+		for ( int i = 0; i < campos.size(); i++ ) {
+			String nome = PesquisaLancamentoServiceImpl.normalizar(campos.get(i));
+			if ( data < 0 && nome.startsWith("data") ) {
+				data = i;
+			} else if ( descricao < 0 && ( nome.startsWith("descri") || nome.startsWith("historico") || nome.startsWith("memo") ) ) {
+				descricao = i;
+			} else if ( valor < 0 && nome.startsWith("valor") ) {
+				valor = i;
+			}
+		}
+		
+		if ( data < 0 || valor < 0 ) {
+			return false;
+		}
+		
+		colunaData = data;
+		colunaValor = valor;
+		colunaDescricao = descricao >= 0 ? descricao : Math.max(data, valor) + 1;
+		return true;
+	}
+	
+	private static LocalDate converterData(String texto) {
+		for ( DateTimeFormatter formato : FORMATOS_DATA ) {
+			try {
+				return LocalDate.parse(texto, formato);
+			} catch ( DateTimeParseException e ) {
+				// tenta o próximo formato
+			}
+		}
+		return null;
+	}
+	
+	static List<String> separar(String linha, char separador) {
+		List<String> campos = new ArrayList<>();
+		StringBuilder campo = new StringBuilder();
+		boolean entreAspas = false;
+		
+		for ( int i = 0; i < linha.length(); i++ ) {
+			char c = linha.charAt(i);
+			if ( c == '"' ) {
+				if ( entreAspas && i + 1 < linha.length() && linha.charAt(i + 1) == '"' ) {
+					campo.append('"');
+					i++;
+				} else {
+					entreAspas = !entreAspas;
+				}
+			} else if ( c == separador && !entreAspas ) {
+				campos.add( campo.toString().trim() );
+				campo.setLength(0);
+			} else {
+				campo.append(c);
+			}
+		}
+		campos.add( campo.toString().trim() );
+		return campos;
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+}
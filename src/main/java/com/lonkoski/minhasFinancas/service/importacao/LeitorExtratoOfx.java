@@ -0,0 +1,161 @@
+package com.lonkoski.minhasFinancas.service.importacao;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import com.lonkoski.minhasFinancas.model.importacao.LinhaExtrato;
+
+/**
+ * Extrato OFX, tanto no SGML da versão 1 (tags sem fechamento, às vezes sem
+ * quebras de linha) quanto no XML da versão 2. Só os blocos {@code STMTTRN}
+ * interessam; o arquivo é lido caractere a caractere, então o tamanho do
+ * arquivo não influencia a memória usada.
+ */
+public class LeitorExtratoOfx implements LeitorExtrato {
+	
+	private final BufferedReader reader;
+	private long numeroLinha = 1;
+	private long linhaDaTag;
+	
+	public LeitorExtratoOfx(BufferedReader reader) {
+		this.reader = reader;
+	}
+
+	@Override
+	public LinhaExtrato proxima() throws IOException {
+		Map<String, String> campos = null;
+		long inicio = 0;
+		
+		String tag;
+		while ( (tag = proximaTag()) != null ) {
+			if ( tag.equals("STMTTRN") ) {
+				campos = new HashMap<>();
+				inicio = linhaDaTag;
+			} else if ( tag.equals("/STMTTRN") && campos != null ) {
+				return converter(inicio, campos);
+			} else if ( campos != null && !tag.startsWith("/") ) {
+				campos.put(tag, lerTexto());
+			}
+		}
+		
+		if ( campos != null ) {
+			return LinhaExtrato.builder().numero(inicio).erro("Movimentação incompleta no fim do arquivo.").build();
+		}
+		return null;
+	}
+	
+	private LinhaExtrato converter(long numero, Map<String, String> campos) {
+		LinhaExtrato linha = new LinhaExtrato();
+		linha.setNumero(numero);
+		
+		String memo = campos.get("MEMO");
+		linha.setDescricao( memo == null || memo.isEmpty() ? campos.get("NAME") : memo );
+		linha.setData( converterData(campos.get("DTPOSTED")) );
+		linha.setValor( ValoresExtrato.converterValor(campos.get("TRNAMT")) );
+		
+		if ( linha.getData() == null ) {
+			linha.setErro(ValoresExtrato.DATA_INVALIDA);
+		} else if ( linha.getValor() == null ) {
+			linha.setErro(ValoresExtrato.VALOR_INVALIDO);
+		}
+		return linha;
+	}
+	
+	/**
+	 * Datas OFX começam por {@code AAAAMMDD}; hora e fuso que vierem depois são ignorados.
+	 */
+	private static LocalDate converterData(String texto) {
+		if ( texto == null || texto.length() < 8 ) {
+			return null;
+		}
+		
+		try {
+			return LocalDate.parse( texto.substring(0, 8), DateTimeFormatter.BASIC_ISO_DATE );
+		} catch ( DateTimeParseException e ) {
+			return null;
+		}
+	}
+	
+	/**
+	 * Nome da próxima tag em maiúsculas, com {@code /} na frente quando for de fechamento.
+	 * Declarações e comentários ({@code <?...>}, {@code <!...>}) são pulados.
+	 */
+	private String proximaTag() throws IOException {
+		int c;
+		while ( (c = ler()) != -1 ) {
+			if ( c != '<' ) {
+				continue;
+			}
+			
+			linhaDaTag = numeroLinha;
+			StringBuilder nome = new StringBuilder();
+			while ( (c = ler()) != -1 && c != '>' ) {
+				nome.append((char) c);
+			}
+			
+			String tag = nome.toString().trim();
+			if ( tag.isEmpty() || tag.startsWith("?") || tag.startsWith("!") ) {
+				continue;
+			}
+			
+			int espaco = tag.indexOf(' ');
+			if ( espaco > 0 ) {
+				tag = tag.substring(0, espaco);
+			}
+			if ( tag.endsWith("/") ) {
+				tag = tag.substring(0, tag.length() - 1);
+			}
+			return tag.toUpperCase(Locale.ROOT);
+		}
+		return null;
+	}
+	
+	/**
+	 * Texto até a próxima tag, que fica para a leitura seguinte.
+	 */
+	private String lerTexto() throws IOException {
+		StringBuilder texto = new StringBuilder();
+		while ( true ) {
+			reader.mark(1);
+			int c = reader.read();
+			if ( c == -1 ) {
+				break;
+			}
+			if ( c == '<' ) {
+				reader.reset();
+				break;
+			}
+			if ( c == '\n' ) {
+				numeroLinha++;
+			}
+			texto.append((char) c);
+		}
+		
+		return texto.toString().trim()
+				.replace("&lt;", "<")
+				.replace("&gt;", ">")
+				.replace("&quot;", "\"")
+				.replace("&apos;", "'")
+				.replace("&amp;", "&");
+	}
+	
+	private int ler() throws IOException {
+		int c = reader.read();
+		if ( c == '\n' ) {
+			numeroLinha++;
+		}
+		return c;
+	}
+
+	@Override
+	public void close() throws IOException {
+		reader.close();
+	}
+
+}
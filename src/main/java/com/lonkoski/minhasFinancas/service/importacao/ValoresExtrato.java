@@ -0,0 +1,37 @@
+package com.lonkoski.minhasFinancas.service.importacao;
+
+import java.math.BigDecimal;
+
+final class ValoresExtrato {
+	
+	static final String DATA_INVALIDA = "Data da movimentação inválida.";
+	static final String VALOR_INVALIDO = "Valor da movimentação inválido.";
+	
+	private ValoresExtrato() {
+	}
+	
+	/**
+	 * Aceita tanto {@code -1.234,56} quanto {@code -1234.56}: o último separador é o decimal.
+	 * 
+	 * @return nulo quando o texto não é um valor.
+	 */
+	static BigDecimal converterValor(String texto) {
+		if ( texto == null ) {
+			return null;
+		}
+		
+		String limpo = texto.replace("R$", "").replace("\u00A0", "").replace(" ", "");
+		if ( limpo.lastIndexOf(',') > limpo.lastIndexOf('.') ) {
+			limpo = limpo.replace(".", "").replace(',', '.');
+		} else {
+			limpo = limpo.replace(",", "");
+		}
+		
+		try {
+			return new BigDecimal(limpo);
+		} catch ( NumberFormatException e ) {
+			return null;
+		}
+	}
+
+}
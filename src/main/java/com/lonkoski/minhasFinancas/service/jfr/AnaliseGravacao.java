@@ -0,0 +1,80 @@
+package com.lonkoski.minhasFinancas.service.jfr;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+/**
+ * Resume uma gravação {@code .jfr} por operação: quantidade, falhas, percentis da duração
+ * e o tempo médio de validação e de repositório dos eventos {@link OperacaoEvento}.
+ * 
+ * Roda fora da aplicação, sem contexto do Spring:
+ * <pre>
+ * java -cp minhasFinancas.jar -Dloader.main=com.lonkoski.minhasFinancas.service.jfr.AnaliseGravacao \
+ *     org.springframework.boot.loader.PropertiesLauncher financas.jfr
+ * </pre>
+ */
+public final class AnaliseGravacao {
+	
+	private AnaliseGravacao() {
+	}
+	
+	/**
+	 * Resumos ordenados do maior para o menor tempo total.
+	 */
+	public static Map<String, ResumoOperacao> resumir(Path arquivo) throws IOException {
+		Map<String, ResumoOperacao> resumos = new TreeMap<>();
+		try ( RecordingFile gravacao = new RecordingFile(arquivo) ) {
+			while ( gravacao.hasMoreEvents() ) {
+				RecordedEvent evento = gravacao.readEvent();
+				if ( OperacaoEvento.NOME.equals( evento.getEventType().getName() ) ) {
+					resumos.computeIfAbsent( evento.getString("operacao"), ResumoOperacao::new ).registrar(evento);
+				}
+			}
+		}
+		
+		resumos.values().forEach( ResumoOperacao::ordenar );
+		Map<String, ResumoOperacao> ordenados = new LinkedHashMap<>();
+		resumos.values().stream()
+			.sorted( Comparator.comparing(ResumoOperacao::getTotal).reversed() )
+			.forEach( resumo -> ordenados.put(resumo.getOperacao(), resumo) );
+		return ordenados;
+	}
+	
+	public static void imprimir(Map<String, ResumoOperacao> resumos, PrintStream saida) {
+		saida.printf("%-34s %9s %7s %9s %9s %9s %9s %10s %10s %8s %6s%n",
+				"operação", "qtde", "falhas", "p50 ms", "p95 ms", "p99 ms", "máx ms",
+				"valid. ms", "repos. ms", "linhas", "repos.");
+		for ( ResumoOperacao resumo : resumos.values() ) {
+			long quantidade = resumo.getQuantidade();
+			saida.printf("%-34s %9d %7d %9.2f %9.2f %9.2f %9.2f %10.3f %10.3f %8.1f %5.0f%%%n",
+					resumo.getOperacao(), quantidade, resumo.getFalhas(),
+					milissegundos( resumo.percentil(50) ), milissegundos( resumo.percentil(95) ),
+					milissegundos( resumo.percentil(99) ), milissegundos( resumo.percentil(100) ),
+					resumo.getValidacaoNanos() / 1e6 / quantidade, resumo.getRepositorioNanos() / 1e6 / quantidade,
+					(double) resumo.getLinhas() / quantidade, resumo.getFracaoRepositorio() * 100);
+		}
+	}
+	
+	private static double milissegundos(Duration duracao) {
+		return duracao.toNanos() / 1e6;
+	}
+	
+	public static void main(String[] args) throws IOException {
+		if ( args.length != 1 ) {
+			System.err.println("Uso: AnaliseGravacao <arquivo.jfr>");
+			System.exit(2);
+		}
+		imprimir( resumir( Paths.get(args[0]) ), System.out );
+	}
+
+}
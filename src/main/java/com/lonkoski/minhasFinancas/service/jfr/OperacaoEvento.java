@@ -0,0 +1,118 @@
+package com.lonkoski.minhasFinancas.service.jfr;
+
+import com.lonkoski.minhasFinancas.model.entity.Lancamento;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Evento do Flight Recorder para as operações mais chamadas dos serviços, com o tempo
+ * separado entre validação e repositório (consultas, gravação e saldo).
+ * 
+ * Uso nos serviços:
+ * <pre>
+ * OperacaoEvento evento = OperacaoEvento.iniciar(OperacaoEvento.SALVAR);
+ * try {
+ *     validar(lancamento);
+ *     evento.fimValidacao();
+ *     ...
+ *     evento.fimRepositorio();
+ *     evento.concluir(idUsuario, 1);
+ * } finally {
+ *     evento.finalizar();
+ * }
+ * </pre>
+ * Com o evento desabilitado na gravação, nenhum dos métodos lê o relógio. Quando a
+ * operação termina por exceção o evento é gravado com {@code sucesso} falso.
+ */
+@Name( OperacaoEvento.NOME )
+@Label( "Operação" )
+@Category( "Minhas Finanças" )
+@Description( "Operação de serviço com o tempo de validação e de repositório" )
+@StackTrace( false )
+public class OperacaoEvento extends jdk.jfr.Event {
+	
+	public static final String NOME = "financas.Operacao";
+	
+	public static final String SALVAR = "lancamento.salvar";
+	public static final String ATUALIZAR = "lancamento.atualizar";
+	public static final String BUSCAR = "lancamento.buscar";
+	public static final String OBTER_SALDO = "lancamento.obterSaldoPorUsuario";
+	public static final String AUTENTICAR = "usuario.autenticar";
+	
+	@Label( "Operação" )
+	String operacao;
+	
+	@Label( "Usuário" )
+	long idUsuario;
+	
+	@Label( "Linhas" )
+	int linhas;
+	
+	@Label( "Validação" )
+	@Timespan
+	long validacao;
+	
+	@Label( "Repositório" )
+	@Timespan
+	long repositorio;
+	
+	@Label( "Sucesso" )
+	boolean sucesso;
+	
+	private transient long marca;
+	
+	public static OperacaoEvento iniciar(String operacao) {
+		OperacaoEvento evento = new OperacaoEvento();
+		if ( evento.isEnabled() ) {
+			evento.operacao = operacao;
+			evento.begin();
+			evento.marca = System.nanoTime();
+		}
+		return evento;
+	}
+	
+	/** Atribui à validação o tempo desde o início ou a última marca. */
+	public void fimValidacao() {
+		if ( isEnabled() ) {
+			long agora = System.nanoTime();
+			validacao += agora - marca;
+			marca = agora;
+		}
+	}
+	
+	/** Atribui ao repositório o tempo desde o início ou a última marca. */
+	public void fimRepositorio() {
+		if ( isEnabled() ) {
+			long agora = System.nanoTime();
+			repositorio += agora - marca;
+			marca = agora;
+		}
+	}
+	
+	public void concluir(Long idUsuario, int linhas) {
+		if ( isEnabled() ) {
+			this.idUsuario = idUsuario == null ? 0 : idUsuario;
+			this.linhas = linhas;
+			this.sucesso = true;
+		}
+	}
+	
+	public void concluir(Lancamento lancamento) {
+		if ( isEnabled() ) {
+			concluir(lancamento.getUsuario() == null ? null : lancamento.getUsuario().getId(), 1);
+		}
+	}
+	
+	public void finalizar() {
+		end();
+		if ( shouldCommit() ) {
+			commit();
+		}
+	}
+
+}
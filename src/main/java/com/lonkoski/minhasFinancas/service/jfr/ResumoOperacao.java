@@ -0,0 +1,66 @@
+package com.lonkoski.minhasFinancas.service.jfr;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+import jdk.jfr.consumer.RecordedEvent;
+import lombok.Getter;
+
+/**
+ * Totais de um tipo de operação numa gravação, acumulados por {@link AnaliseGravacao}.
+ */
+@Getter
+public class ResumoOperacao {
+	
+	private final String operacao;
+	private long quantidade;
+	private long falhas;
+	private long linhas;
+	private long validacaoNanos;
+	private long repositorioNanos;
+	private long[] duracoes = new long[64];
+	
+	public ResumoOperacao(String operacao) {
+		this.operacao = operacao;
+	}
+	
+	void registrar(RecordedEvent evento) {
+		if ( quantidade == duracoes.length ) {
+			duracoes = Arrays.copyOf(duracoes, duracoes.length * 2);
+		}
+		duracoes[(int) quantidade++] = evento.getDuration().toNanos();
+		if ( !evento.getBoolean("sucesso") ) {
+			falhas++;
+		}
+		linhas += evento.getInt("linhas");
+		validacaoNanos += evento.getLong("validacao");
+		repositorioNanos += evento.getLong("repositorio");
+	}
+	
+	void ordenar() {
+		duracoes = Arrays.copyOf(duracoes, (int) quantidade);
+		Arrays.sort(duracoes);
+	}
+	
+	/**
+	 * Duração no percentil informado, entre 0 e 100, pelo método do posto mais próximo.
+	 */
+	public Duration percentil(double percentil) {
+		if ( quantidade == 0 ) {
+			return Duration.ZERO;
+		}
+		int posicao = (int) Math.ceil( percentil / 100 * quantidade ) - 1;
+		return Duration.ofNanos( duracoes[ Math.max(0, posicao) ] );
+	}
+	
+	public Duration getTotal() {
+		return Duration.ofNanos( Arrays.stream(duracoes, 0, (int) quantidade).sum() );
+	}
+	
+	/** Parte do tempo total gasta no repositório, entre 0 e 1. */
+	public double getFracaoRepositorio() {
+		long total = getTotal().toNanos();
+		return total == 0 ? 0 : (double) repositorioNanos / total;
+	}
+
+}
@@ -0,0 +1,150 @@
+package com.lonkoski.minhasFinancas.service.metricas;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.repository.Repository;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
+
+import com.lonkoski.minhasFinancas.exception.ErroAutenticacao;
+import com.lonkoski.minhasFinancas.model.pagina.Pagina;
+import com.lonkoski.minhasFinancas.service.coalescimento.ConsultaCompartilhadaAspect;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Mede o tempo de cada chamada aos serviços ({@code financas.servicos}) e aos
+ * repositórios ({@code financas.repositorios}), com as tags da classe, do método e da
+ * exceção lançada. Nos métodos que devolvem lista ou {@link Pagina}, a quantidade de
+ * itens vai para o resumo de mesmo nome com o sufixo {@code .linhas}. Falhas de
+ * autenticação também são contadas por motivo em {@code financas.autenticacao.falhas}.
+ *
+ * Fica por fora de {@link ConsultaCompartilhadaAspect}, então o tempo medido é o que o
+ * chamador esperou, inclusive quando pegou carona numa consulta já em andamento.
+ * Os medidores de cada método são resolvidos uma única vez; no caminho comum a medição
+ * custa duas leituras do relógio e um registro no timer.
+ */
+@Aspect
+@Component
+@Order( MetricasAspect.ORDEM )
+public class MetricasAspect {
+	
+	public static final int ORDEM = ConsultaCompartilhadaAspect.ORDEM - 100;
+	
+	public static final String SERVICOS = "financas.servicos";
+	public static final String REPOSITORIOS = "financas.repositorios";
+	public static final String FALHAS_AUTENTICACAO = "financas.autenticacao.falhas";
+	
+	private static final String SEM_EXCECAO = "nenhuma";
+	
+	private final MeterRegistry registro;
+	private final ClassValue<ConcurrentMap<Method, Medidores>> medidores = new ClassValue<ConcurrentMap<Method, Medidores>>() {
+		@Override
+		protected ConcurrentMap<Method, Medidores> computeValue(Class<?> tipo) {
+			return new ConcurrentHashMap<>();
+		}
+	};
+	
+	public MetricasAspect(MeterRegistry registro) {
+		this.registro = registro;
+	}
+	
+	@Around( "execution(public * com.lonkoski.minhasFinancas.service.*Service+.*(..))" )
+	public Object medirServico(ProceedingJoinPoint chamada) throws Throwable {
+		return medir(chamada, SERVICOS);
+	}
+	
+	@Around( "execution(* org.springframework.data.repository.Repository+.*(..))" )
+	public Object medirRepositorio(ProceedingJoinPoint chamada) throws Throwable {
+		return medir(chamada, REPOSITORIOS);
+	}
+	
+	private Object medir(ProceedingJoinPoint chamada, String nome) throws Throwable {
+		Medidores medidor = medidores(chamada, nome);
+		long inicio = System.nanoTime();
+		try {
+			Object resultado = chamada.proceed();
+			medidor.sucesso.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+			medidor.registrarLinhas(resultado);
+			return resultado;
+		} catch (Throwable e) {
+			medidor.falha(e).record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+			if ( e instanceof ErroAutenticacao ) {
+				registro.counter(FALHAS_AUTENTICACAO, "motivo", ((ErroAutenticacao) e).getMotivo().tag()).increment();
+			}
+			throw e;
+		}
+	}
+	
+	private Medidores medidores(ProceedingJoinPoint chamada, String nome) {
+		Class<?> tipo = ClassUtils.getUserClass( chamada.getTarget() );
+		Method metodo = ((MethodSignature) chamada.getSignature()).getMethod();
+		return medidores.get(tipo).computeIfAbsent( metodo,
+				m -> new Medidores( nome, Tags.of("classe", nomeDoTipo(tipo), "metodo", m.getName()) ) );
+	}
+	
+	/**
+	 * Prefere a interface da aplicação ao nome da implementação ou do proxy do Spring Data.
+	 */
+	private static String nomeDoTipo(Class<?> tipo) {
+		for ( Class<?> interfaceDoTipo : ClassUtils.getAllInterfacesForClassAsSet(tipo) ) {
+			if ( interfaceDoTipo.getName().startsWith("com.lonkoski.minhasFinancas.")
+					&& ( Repository.class.isAssignableFrom(interfaceDoTipo) || !Repository.class.isAssignableFrom(tipo) ) ) {
+				return interfaceDoTipo.getSimpleName();
+			}
+		}
+		return tipo.getSimpleName();
+	}
+	
+	private final class Medidores {
+		
+		private final String nome;
+		private final Tags tags;
+		private final Timer sucesso;
+		private volatile DistributionSummary linhas;
+		
+		Medidores(String nome, Tags tags) {
+			this.nome = nome;
+			this.tags = tags;
+			this.sucesso = timer(SEM_EXCECAO);
+		}
+		
+		Timer falha(Throwable e) {
+			return timer( e.getClass().getSimpleName() );
+		}
+		
+		void registrarLinhas(Object resultado) {
+			int quantidade;
+			if ( resultado instanceof Collection ) {
+				quantidade = ((Collection<?>) resultado).size();
+			} else if ( resultado instanceof Pagina && ((Pagina<?>) resultado).getItens() != null ) {
+				quantidade = ((Pagina<?>) resultado).getItens().size();
+			} else {
+				return;
+			}
+			
+			if ( linhas == null ) {
+				linhas = DistributionSummary.builder(nome + ".linhas").tags(tags).baseUnit("linhas").register(registro);
+			}
+			linhas.record(quantidade);
+		}
+		
+		private Timer timer(String excecao) {
+			return Timer.builder(nome).tags(tags).tag("excecao", excecao).register(registro);
+		}
+	
+	}
+
+}
@@ -0,0 +1,38 @@
+package db.migration;
+
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+/**
+ * Cria a sequência usada pelo id de {@code financas.lancamento}. Com identity o
+ * Hibernate precisa do id gerado a cada insert e desliga o batch de inserts; com
+ * a sequência ele reserva {@value #INCREMENTO} ids por chamada.
+ * 
+ * É uma migração Java porque a sequência precisa começar depois do maior id já
+ * gravado, e o otimizador pooled do Hibernate trata cada valor lido como o fim
+ * do bloco reservado.
+ */
+public class V4__sequencia_de_lancamento extends BaseJavaMigration {
+	
+	/** Deve ser igual ao {@code allocationSize} do {@code @SequenceGenerator} de Lancamento. */
+	static final int INCREMENTO = 50;
+
+	@Override
+	public void migrate(Context context) throws Exception {
+		try ( Statement statement = context.getConnection().createStatement() ) {
+			long maiorId;
+			try ( ResultSet resultado = statement.executeQuery("select coalesce(max(id), 0) from financas.lancamento") ) {
+				resultado.next();
+				maiorId = resultado.getLong(1);
+			}
+			
+			statement.execute( "create sequence financas.seq_lancamento"
+					+ " start with " + (maiorId + INCREMENTO)
+					+ " increment by " + INCREMENTO );
+		}
+	}
+
+}
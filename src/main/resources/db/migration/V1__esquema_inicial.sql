@@ -0,0 +1,21 @@
+-- Esquema original, até então gerado pelo Hibernate. Bases já existentes
+-- entram no Flyway com baseline nesta versão.
+
+create table financas.usuario (
+	id bigint generated by default as identity primary key,
+	nome varchar(255),
+	email varchar(255),
+	senha varchar(255)
+);
+
+create table financas.lancamento (
+	id bigint generated by default as identity primary key,
+	descriao varchar(255),
+	mes integer,
+	ano integer,
+	id_usuario bigint references financas.usuario (id),
+	valor numeric(16, 2),
+	data_cadastro date,
+	tipo varchar(20),
+	status varchar(20)
+);
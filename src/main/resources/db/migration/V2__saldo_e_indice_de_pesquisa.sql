@@ -0,0 +1,12 @@
+create table financas.saldo_usuario (
+	id_usuario bigint primary key references financas.usuario (id),
+	receitas numeric(16, 2) not null,
+	despesas numeric(16, 2) not null
+);
+
+create table financas.lancamento_ngrama (
+	id_usuario bigint not null,
+	ngrama varchar(3) not null,
+	id_lancamento bigint not null,
+	primary key (id_usuario, ngrama, id_lancamento)
+);
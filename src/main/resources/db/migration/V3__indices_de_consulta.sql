@@ -0,0 +1,12 @@
+-- Login e cadastro consultam por email; o índice único também impede cadastros duplicados.
+create unique index uk_usuario_email on financas.usuario (email);
+
+-- Saldo por usuário e tipo; o valor no fim permite somar sem ler a tabela.
+create index idx_lancamento_usuario_tipo on financas.lancamento (id_usuario, tipo, valor);
+
+-- Busca por usuário e período na ordem da paginação (ano, mes, id). Também
+-- atende as consultas só por id_usuario, inclusive a chave estrangeira.
+create index idx_lancamento_usuario_ano_mes on financas.lancamento (id_usuario, ano, mes, id);
+
+-- Remoção das entradas do índice de pesquisa ao alterar ou excluir um lançamento.
+create index idx_lancamento_ngrama_lancamento on financas.lancamento_ngrama (id_lancamento);
@@ -0,0 +1,2 @@
+-- Controle de concorrência otimista: toda alteração de um lançamento incrementa a versão.
+alter table financas.lancamento add column versao bigint default 0 not null;
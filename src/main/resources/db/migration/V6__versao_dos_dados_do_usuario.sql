@@ -0,0 +1,3 @@
+-- Versão dos dados de cada usuário, incrementada a cada escrita nos seus lançamentos.
+-- As consultas a comparam com o If-None-Match antes de ler qualquer lançamento.
+alter table financas.saldo_usuario add column versao_dados bigint default 0 not null;
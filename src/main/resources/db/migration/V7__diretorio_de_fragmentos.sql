@@ -0,0 +1,16 @@
+-- Diretório dos usuários distribuídos em fragmentos: só é consultado no fragmento 0,
+-- mas a tabela existe em todos para que o esquema seja um só. A chave no email
+-- garante o cadastro único entre todos os fragmentos.
+create table financas.diretorio_usuario (
+	email varchar(255) primary key,
+	id_usuario bigint,
+	fragmento integer not null,
+	em_movimentacao boolean default false not null
+);
+create unique index uk_diretorio_usuario_id on financas.diretorio_usuario (id_usuario);
+
+-- Número do fragmento deste banco, gravado na primeira subida com fragmentos.
+-- Impede que uma troca na ordem dos bancos configurados misture os dados.
+create table financas.fragmento (
+	numero integer primary key
+);
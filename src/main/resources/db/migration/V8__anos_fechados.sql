@@ -0,0 +1,17 @@
+-- Anos fechados: os lançamentos anteriores a ano_limite saem da tabela de lançamentos
+-- para o arquivo colunar indicado, e os totais de cada ano ficam em resumo_ano.
+create table financas.arquivo_usuario (
+	id_usuario bigint primary key references financas.usuario (id),
+	ano_limite integer not null,
+	arquivo varchar(255) not null,
+	quantidade bigint not null
+);
+
+create table financas.resumo_ano (
+	id_usuario bigint not null references financas.usuario (id),
+	ano integer not null,
+	quantidade bigint not null,
+	receitas numeric(16, 2) not null,
+	despesas numeric(16, 2) not null,
+	primary key (id_usuario, ano)
+);
@@ -0,0 +1,491 @@
+package com.lonkoski.minhasFinancas.api.resource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.lonkoski.minhasFinancas.model.entity.Lancamento;
+import com.lonkoski.minhasFinancas.model.entity.SaldoUsuario;
+import com.lonkoski.minhasFinancas.model.entity.Usuario;
+import com.lonkoski.minhasFinancas.model.enums.StatusLancamento;
+import com.lonkoski.minhasFinancas.model.repository.LancamentoRepositoryTest;
+import com.lonkoski.minhasFinancas.model.repository.UsuarioRepositoryTest;
+import com.lonkoski.minhasFinancas.service.TokenService;
+
+/**
+ * Confere que as listagens selecionam só as colunas da projeção: a quantidade de
+ * comandos SQL por requisição não cresce com o número de lançamentos.
+ */
+@SpringBootTest( properties = "spring.jpa.properties.hibernate.generate_statistics=true" )
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Transactional
+public class LacamentoResourceTest {
+	
+	@Autowired
+	MockMvc mvc;
+	
+	@Autowired
+	EntityManager entityManager;
+	
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+	
+	@Autowired
+	TokenService tokenService;
+	
+	Statistics estatisticas;
+	Usuario usuario;
+	Lancamento lancamento;
+	
+	@BeforeEach
+	public void setUp() {
+		usuario = UsuarioRepositoryTest.criarUsuario();
+		entityManager.persist(usuario);
+		entityManager.persist( new SaldoUsuario(usuario.getId(), BigDecimal.ZERO, BigDecimal.ZERO) );
+		
+		for ( int i = 0; i < 5; i++ ) {
+			lancamento = LancamentoRepositoryTest.criarLancamento();
+			lancamento.setUsuario(usuario);
+			entityManager.persist(lancamento);
+		}
+		
+		entityManager.flush();
+		entityManager.clear();
+		
+		estatisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		estatisticas.clear();
+	}
+	
+	@Test
+	public void deveBuscarLancamentosComUmaConsultaAlemDaValidacaoDoUsuarioEDaVersao() throws Exception {
+		MvcResult resultado = mvc.perform( get("/api/lancamentos").param("usuario", usuario.getId().toString()) )
+			.andExpect( status().isOk() )
+			.andExpect( jsonPath("$.itens.length()").value(5) )
+			.andExpect( jsonPath("$.itens[0].usuario").value(usuario.getId()) )
+			.andReturn();
+		
+		assertThat(estatisticas.getPrepareStatementCount()).isEqualTo(3);
+		assertThat(estatisticas.getEntityLoadCount()).isEqualTo(1);
+		assertThat(resultado.getResponse().getContentAsString()).doesNotContain("senha");
+	}
+	
+	@Test
+	public void deveObterUmLancamentoComUmaUnicaConsulta() throws Exception {
+		mvc.perform( get("/api/lancamentos/{id}", lancamento.getId()) )
+			.andExpect( status().isOk() )
+			.andExpect( jsonPath("$.id").value(lancamento.getId()) )
+			.andExpect( jsonPath("$.usuario").value(usuario.getId()) );
+		
+		assertThat(estatisticas.getPrepareStatementCount()).isEqualTo(1);
+		assertThat(estatisticas.getEntityLoadCount()).isZero();
+	}
+	
+	@Test
+	public void deveAplicarUmLoteDeOperacoesResolvendoOUsuarioUmaVez() throws Exception {
+		String lote = "["
+				+ "{\"operacao\":\"CRIAR\",\"descricao\":\"Aluguel\",\"mes\":3,\"ano\":2021,\"valor\":900,"
+				+ "\"usuario\":" + usuario.getId() + ",\"tipo\":\"DESPESA\"},"
+				+ "{\"operacao\":\"STATUS\",\"id\":" + lancamento.getId() + ",\"status\":\"EFETIVADO\"},"
+				+ "{\"operacao\":\"DELETAR\",\"id\":" + lancamento.getId() + "}"
+				+ "]";
+		
+		mvc.perform( post("/api/lancamentos/batch").contentType(MediaType.APPLICATION_JSON).content(lote) )
+			.andExpect( status().isOk() )
+			.andExpect( jsonPath("$.length()").value(3) )
+			.andExpect( jsonPath("$[0].sucesso").value(true) )
+			.andExpect( jsonPath("$[0].id").isNumber() )
+			.andExpect( jsonPath("$[2].sucesso").value(true) );
+		
+		assertThat(entityManager.find(Lancamento.class, lancamento.getId())).isNull();
+	}
+	
+	@Test
+	public void deveReindexarNaPesquisaDuasAtualizacoesDoMesmoLancamentoNoLote() throws Exception {
+		String atualizacao = "{\"operacao\":\"ATUALIZAR\",\"id\":" + lancamento.getId() + ",\"descricao\":\"%s\",\"mes\":3,"
+				+ "\"ano\":2021,\"valor\":900,\"usuario\":" + usuario.getId() + ",\"tipo\":\"DESPESA\",\"status\":\"PENDENTE\"}";
+		String lote = "[" + String.format(atualizacao, "Aluguel casa") + "," + String.format(atualizacao, "Aluguel") + "]";
+		
+		mvc.perform( post("/api/lancamentos/batch").contentType(MediaType.APPLICATION_JSON).content(lote) )
+			.andExpect( status().isOk() )
+			.andExpect( jsonPath("$[0].sucesso").value(true) )
+			.andExpect( jsonPath("$[1].sucesso").value(true) );
+		
+		entityManager.flush();
+		entityManager.clear();
+		assertThat(entityManager.find(Lancamento.class, lancamento.getId()).getDescricao()).isEqualTo("Aluguel");
+		List<String> ngramas = entityManager.createQuery(
+				"select n.ngrama from NgramaLancamento n where n.idLancamento = :id", String.class)
+				.setParameter("id", lancamento.getId())
+				.getResultList();
+		assertThat(ngramas).contains(" al", "alu", "uel").doesNotContain("cas");
+	}
+	
+	@Test
+	public void deveRejeitarOLoteInteiroQuandoUmaOperacaoForInvalida() throws Exception {
+		String lote = "["
+				+ "{\"operacao\":\"STATUS\",\"id\":" + lancamento.getId() + ",\"status\":\"EFETIVADO\"},"
+				+ "{\"operacao\":\"CRIAR\",\"descricao\":\"Aluguel\",\"mes\":13,\"ano\":2021,\"valor\":900,"
+				+ "\"usuario\":" + usuario.getId() + ",\"tipo\":\"DESPESA\"}"
+				+ "]";
+		
+		mvc.perform( post("/api/lancamentos/batch").contentType(MediaType.APPLICATION_JSON).content(lote) )
+			.andExpect( status().isBadRequest() )
+			.andExpect( jsonPath("$[0].sucesso").value(false) )
+			.andExpect( jsonPath("$[1].mensagem").value("Informe um mês válido.") );
+	}
+	
+	@Test
+	public void deveRelatarPorOperacaoOsErrosDeUmLoteSemAplicarNenhuma() throws Exception {
+		String lote = "["
+				+ "{\"operacao\":\"DELETAR\",\"id\":" + lancamento.getId() + "},"
+				+ "{\"operacao\":\"STATUS\",\"id\":" + lancamento.getId() + ",\"status\":\"EFETIVADO\"},"
+				+ "{\"operacao\":\"ATUALIZAR\",\"id\":" + lancamento.getId() + ",\"descricao\":\"Aluguel\",\"mes\":3,"
+				+ "\"ano\":2021,\"valor\":900,\"usuario\":" + usuario.getId() + ",\"tipo\":\"DESPESA\"},"
+				+ "{\"id\":" + lancamento.getId() + "}"
+				+ "]";
+		
+		mvc.perform( post("/api/lancamentos/batch").contentType(MediaType.APPLICATION_JSON).content(lote) )
+			.andExpect( status().isBadRequest() )
+			.andExpect( jsonPath("$[0].sucesso").value(false) )
+			.andExpect( jsonPath("$[1].mensagem").value("Lançamento removido por uma operação anterior do lote.") )
+			.andExpect( jsonPath("$[2].mensagem").value("Lançamento removido por uma operação anterior do lote.") )
+			.andExpect( jsonPath("$[3].mensagem").value("Informe uma operação válida.") );
+		
+		assertThat(entityManager.find(Lancamento.class, lancamento.getId())).isNotNull();
+	}
+	
+	@Test
+	public void deveImportarUmExtratoEmBatchesRelatandoAsLinhasInvalidas() throws Exception {
+		StringBuilder csv = new StringBuilder("Data;Descrição;Valor\n");
+		for ( int i = 1; i <= 120; i++ ) {
+			csv.append("05/03/2021;Compra ").append(i).append(";-10,00\n");
+		}
+		csv.append("31/02/2021;Data inexistente;-10,00\n");
+		csv.append("06/03/2021;Salário;1.500,00\n");
+		MockMultipartFile arquivo = new MockMultipartFile("arquivo", "extrato.csv", "text/csv",
+				csv.toString().getBytes(StandardCharsets.UTF_8));
+		
+		mvc.perform( multipart("/api/lancamentos/importacao").file(arquivo).param("usuario", usuario.getId().toString()) )
+			.andExpect( status().isOk() )
+			.andExpect( jsonPath("$.lidos").value(122) )
+			.andExpect( jsonPath("$.importados").value(121) )
+			.andExpect( jsonPath("$.erros.length()").value(1) )
+			.andExpect( jsonPath("$.erros[0].linha").value(122) );
+		
+		// Inserts de lançamentos e do índice de pesquisa saem em batches, não um comando por linha.
+		assertThat(estatisticas.getEntityInsertCount()).isGreaterThan(121);
+		assertThat(estatisticas.getPrepareStatementCount()).isLessThan(60);
+		
+		Long importados = entityManager.createQuery(
+				"select count(l) from Lancamento l where l.usuario.id = :usuario and l.status = 'EFETIVADO'", Long.class)
+				.setParameter("usuario", usuario.getId())
+				.getSingleResult();
+		assertThat(importados).isEqualTo(121);
+		
+		BigDecimal despesas = entityManager.createQuery(
+				"select sum(l.valor) from Lancamento l where l.usuario.id = :usuario and l.descricao like 'Compra %'", BigDecimal.class)
+				.setParameter("usuario", usuario.getId())
+				.getSingleResult();
+		assertThat(despesas).isEqualByComparingTo("1200");
+	}
+	
+	@Test
+	public void deveExportarOsLancamentosEmCsvComUmaConsultaAlemDaValidacaoDoUsuario() throws Exception {
+		MvcResult resultado = mvc.perform( get("/api/lancamentos/export").param("usuario", usuario.getId().toString()) )
+			.andExpect( status().isOk() )
+			.andExpect( content().contentTypeCompatibleWith("text/csv") )
+			.andExpect( header().string("Content-Disposition", "attachment; filename=\"lancamentos.csv\"") )
+			.andReturn();
+		
+		String[] linhas = resultado.getResponse().getContentAsString().split("\n");
+		assertThat(linhas).hasSize(6);
+		assertThat(linhas[0]).isEqualTo("id;descricao;mes;ano;valor;tipo;status;data_cadastro");
+		assertThat(linhas[5]).startsWith(lancamento.getId() + ";Lancamento qualquer;");
+		assertThat(estatisticas.getPrepareStatementCount()).isEqualTo(2);
+	}
+	
+	@Test
+	public void deveExportarOsLancamentosEmNdjsonAplicandoOsFiltros() throws Exception {
+		MvcResult resultado = mvc.perform( get("/api/lancamentos/export")
+					.param("usuario", usuario.getId().toString())
+					.param("format", "ndjson")
+					.param("ordenacao", "DATA_DECRESCENTE")
+					.param("descricao", "qualquer") )
+			.andExpect( status().isOk() )
+			.andExpect( content().contentTypeCompatibleWith("application/x-ndjson") )
+			.andReturn();
+		
+		String[] linhas = resultado.getResponse().getContentAsString().split("\n");
+		assertThat(linhas).hasSize(5);
+		assertThat(linhas[0]).startsWith("{\"id\":" + lancamento.getId() + ",").contains("\"usuario\":" + usuario.getId());
+	}
+	
+	@Test
+	public void naoDeveExportarEmFormatoDesconhecido() throws Exception {
+		mvc.perform( get("/api/lancamentos/export").param("usuario", usuario.getId().toString()).param("format", "xls") )
+			.andExpect( status().isBadRequest() );
+	}
+	
+	@Test
+	public void deveAceitarOTokenDoUsuarioSemConsultarOBancoParaValidaLo() throws Exception {
+		String token = tokenService.emitir(usuario).getToken();
+		
+		mvc.perform( get("/api/lancamentos/{id}", lancamento.getId()).header("Authorization", "Bearer " + token) )
+			.andExpect( status().isOk() );
+		
+		assertThat(estatisticas.getPrepareStatementCount()).isEqualTo(1);
+	}
+	
+	@Test
+	public void deveRecusarTokenInvalido() throws Exception {
+		String token = tokenService.emitir(usuario).getToken();
+		
+		mvc.perform( get("/api/lancamentos").param("usuario", usuario.getId().toString())
+					.header("Authorization", "Bearer " + token + "x") )
+			.andExpect( status().isUnauthorized() );
+	}
+	
+	@Test
+	public void deveRecusarTokenDeOutroUsuario() throws Exception {
+		String token = tokenService.emitir( Usuario.builder().id(usuario.getId() + 1).build() ).getToken();
+		
+		mvc.perform( get("/api/lancamentos").param("usuario", usuario.getId().toString())
+					.header("Authorization", "Bearer " + token) )
+			.andExpect( status().isForbidden() );
+		mvc.perform( get("/api/usuarios/{id}/saldo", usuario.getId()).header("Authorization", "Bearer " + token) )
+			.andExpect( status().isForbidden() );
+		mvc.perform( post("/api/usuarios/{id}/fechamento", usuario.getId()).param("ano", "2020")
+					.header("Authorization", "Bearer " + token) )
+			.andExpect( status().isForbidden() );
+		mvc.perform( get("/api/usuarios/{id}/fechamento", usuario.getId()).header("Authorization", "Bearer " + token) )
+			.andExpect( status().isForbidden() );
+	}
+	
+	@Test
+	public void deveRecusarOperacoesSobreLancamentosDeOutroUsuario() throws Exception {
+		String token = "Bearer " + tokenService.emitir( Usuario.builder().id(usuario.getId() + 1).build() ).getToken();
+		String corpo = "{\"descricao\":\"Aluguel\",\"mes\":3,\"ano\":2021,\"valor\":900,\"usuario\":" + usuario.getId()
+				+ ",\"tipo\":\"DESPESA\",\"status\":\"EFETIVADO\",\"versao\":0}";
+		
+		mvc.perform( get("/api/lancamentos/{id}", lancamento.getId()).header("Authorization", token) )
+			.andExpect( status().isForbidden() );
+		mvc.perform( put("/api/lancamentos/{id}", lancamento.getId()).header("Authorization", token)
+					.contentType(MediaType.APPLICATION_JSON).content(corpo) )
+			.andExpect( status().isForbidden() );
+		mvc.perform( patch("/api/lancamentos/{id}", lancamento.getId()).header("Authorization", token)
+					.contentType(MediaType.APPLICATION_JSON).content("{\"status\":\"CANCELADO\",\"versao\":0}") )
+			.andExpect( status().isForbidden() );
+		mvc.perform( put("/api/lancamentos/{id}/atualiza-status", lancamento.getId()).header("Authorization", token)
+					.contentType(MediaType.APPLICATION_JSON).content("{\"status\":\"CANCELADO\"}") )
+			.andExpect( status().isForbidden() );
+		mvc.perform( delete("/api/lancamentos/{id}", lancamento.getId()).header("Authorization", token) )
+			.andExpect( status().isForbidden() );
+		mvc.perform( post("/api/lancamentos").header("Authorization", token)
+					.contentType(MediaType.APPLICATION_JSON).content(corpo) )
+			.andExpect( status().isForbidden() );
+		mvc.perform( post("/api/lancamentos/batch").header("Authorization", token).contentType(MediaType.APPLICATION_JSON)
+					.content("[{\"operacao\":\"DELETAR\",\"id\":" + lancamento.getId() + "}]") )
+			.andExpect( status().isForbidden() );
+		mvc.perform( post("/api/lancamentos/batch").header("Authorization", token).contentType(MediaType.APPLICATION_JSON)
+					.content("[" + corpo.replace("{", "{\"operacao\":\"CRIAR\",") + "]") )
+			.andExpect( status().isForbidden() );
+		
+		entityManager.clear();
+		Lancamento persistido = entityManager.find(Lancamento.class, lancamento.getId());
+		assertThat(persistido.getStatus()).isEqualTo(lancamento.getStatus());
+		assertThat(persistido.getDescricao()).isEqualTo(lancamento.getDescricao());
+		assertThat( entityManager.createQuery("select count(l) from Lancamento l", Long.class).getSingleResult() ).isEqualTo(5);
+	}
+	
+	@Test
+	public void deveRecusarQueODonoPasseOLancamentoParaOutroUsuario() throws Exception {
+		String token = "Bearer " + tokenService.emitir(usuario).getToken();
+		
+		mvc.perform( put("/api/lancamentos/{id}", lancamento.getId()).header("Authorization", token)
+					.contentType(MediaType.APPLICATION_JSON)
+					.content("{\"descricao\":\"Aluguel\",\"mes\":3,\"ano\":2021,\"valor\":900,\"usuario\":" + (usuario.getId() + 1)
+							+ ",\"tipo\":\"DESPESA\",\"status\":\"EFETIVADO\"}") )
+			.andExpect( status().isForbidden() );
+		mvc.perform( patch("/api/lancamentos/{id}", lancamento.getId()).header("Authorization", token)
+					.contentType(MediaType.APPLICATION_JSON).content("{\"status\":\"CANCELADO\",\"versao\":0}") )
+			.andExpect( status().isOk() );
+	}
+	
+	@Test
+	public void deveEfetivarOsPendentesDoMesComUmUnicoUpdate() throws Exception {
+		mvc.perform( put("/api/lancamentos/atualiza-status")
+					.param("usuario", usuario.getId().toString())
+					.param("ano", "2019")
+					.param("mes", "1")
+					.param("statusAtual", "PENDENTE")
+					.contentType(MediaType.APPLICATION_JSON)
+					.content("{\"status\":\"EFETIVADO\"}") )
+			.andExpect( status().isOk() )
+			.andExpect( jsonPath("$.atualizados").value(5) );
+		
+		// O update dos lançamentos e o da versão dos dados do usuário.
+		assertThat(estatisticas.getPrepareStatementCount()).isEqualTo(2);
+		assertThat(entityManager.find(Lancamento.class, lancamento.getId()).getStatus()).isEqualTo(StatusLancamento.EFETIVADO);
+	}
+	
+	@Test
+	public void deveAtualizarOStatusSomenteDosIdsInformadosDoUsuario() throws Exception {
+		mvc.perform( put("/api/lancamentos/atualiza-status")
+					.param("usuario", String.valueOf(usuario.getId() + 1))
+					.contentType(MediaType.APPLICATION_JSON)
+					.content("{\"status\":\"CANCELADO\",\"ids\":[" + lancamento.getId() + "]}") )
+			.andExpect( status().isOk() )
+			.andExpect( jsonPath("$.atualizados").value(0) );
+		
+		mvc.perform( put("/api/lancamentos/atualiza-status")
+					.param("usuario", usuario.getId().toString())
+					.contentType(MediaType.APPLICATION_JSON)
+					.content("{\"status\":\"CANCELADO\",\"ids\":[" + lancamento.getId() + "]}") )
+			.andExpect( status().isOk() )
+			.andExpect( jsonPath("$.atualizados").value(1) );
+	}
+	
+	@Test
+	public void naoDeveAtualizarStatusEmLoteComStatusInvalido() throws Exception {
+		mvc.perform( put("/api/lancamentos/atualiza-status")
+					.param("usuario", usuario.getId().toString())
+					.contentType(MediaType.APPLICATION_JSON)
+					.content("{\"status\":\"PAGO\"}") )
+			.andExpect( status().isBadRequest() );
+	}
+	
+	@Test
+	public void deveAlterarOStatusComUmUnicoUpdateCondicionadoAVersao() throws Exception {
+		mvc.perform( patch("/api/lancamentos/{id}", lancamento.getId())
+					.contentType(MediaType.APPLICATION_JSON)
+					.content("{\"status\":\"EFETIVADO\",\"versao\":0}") )
+			.andExpect( status().isOk() )
+			.andExpect( jsonPath("$.id").value(lancamento.getId()) )
+			.andExpect( jsonPath("$.versao").value(1) );
+		
+		// O update do lançamento e o da versão dos dados do usuário.
+		assertThat(estatisticas.getPrepareStatementCount()).isEqualTo(2);
+		Lancamento alterado = entityManager.find(Lancamento.class, lancamento.getId());
+		assertThat(alterado.getStatus()).isEqualTo(StatusLancamento.EFETIVADO);
+		assertThat(alterado.getVersao()).isEqualTo(1);
+	}
+	
+	@Test
+	public void deveRecusarAlteracaoParcialSobreVersaoDesatualizada() throws Exception {
+		mvc.perform( patch("/api/lancamentos/{id}", lancamento.getId())
+					.contentType(MediaType.APPLICATION_JSON)
+					.content("{\"valor\":25,\"versao\":0}") )
+			.andExpect( status().isOk() );
+		
+		mvc.perform( patch("/api/lancamentos/{id}", lancamento.getId())
+					.contentType(MediaType.APPLICATION_JSON)
+					.content("{\"status\":\"CANCELADO\",\"versao\":0}") )
+			.andExpect( status().isConflict() );
+		
+		Lancamento alterado = entityManager.find(Lancamento.class, lancamento.getId());
+		assertThat(alterado.getValor()).isEqualByComparingTo("25");
+		assertThat(alterado.getStatus()).isEqualTo(StatusLancamento.PENDENTE);
+	}
+	
+	@Test
+	public void deveRecusarAtualizacaoCompletaSobreVersaoDesatualizada() throws Exception {
+		String corpo = "{\"descricao\":\"Aluguel\",\"mes\":1,\"ano\":2019,\"valor\":10,"
+				+ "\"usuario\":" + usuario.getId() + ",\"tipo\":\"DESPESA\",\"status\":\"PENDENTE\",\"versao\":%d}";
+		
+		mvc.perform( put("/api/lancamentos/{id}", lancamento.getId())
+					.contentType(MediaType.APPLICATION_JSON)
+					.content(String.format(corpo, 0)) )
+			.andExpect( status().isOk() );
+		// Faz o papel do commit da primeira requisição, que está na transação do teste.
+		entityManager.flush();
+		entityManager.clear();
+		
+		mvc.perform( put("/api/lancamentos/{id}", lancamento.getId())
+					.contentType(MediaType.APPLICATION_JSON)
+					.content(String.format(corpo, 0)) )
+			.andExpect( status().isConflict() );
+	}
+	
+	@Test
+	public void naoDeveAlterarParcialmenteSemVersao() throws Exception {
+		mvc.perform( patch("/api/lancamentos/{id}", lancamento.getId())
+					.contentType(MediaType.APPLICATION_JSON)
+					.content("{\"status\":\"EFETIVADO\"}") )
+			.andExpect( status().isBadRequest() );
+	}
+	
+	@Test
+	public void deveResponderNaoModificadoSemConsultarOsLancamentos() throws Exception {
+		String etag = mvc.perform( get("/api/lancamentos").param("usuario", usuario.getId().toString()) )
+			.andExpect( status().isOk() )
+			.andExpect( header().exists(HttpHeaders.ETAG) )
+			.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		estatisticas.clear();
+		
+		mvc.perform( get("/api/lancamentos").param("usuario", usuario.getId().toString()).header(HttpHeaders.IF_NONE_MATCH, etag) )
+			.andExpect( status().isNotModified() )
+			.andExpect( content().string("") );
+		
+		// Só a leitura da versão: o usuário já está em cache.
+		assertThat(estatisticas.getPrepareStatementCount()).isEqualTo(1);
+		assertThat(estatisticas.getEntityLoadCount()).isZero();
+	}
+	
+	@Test
+	public void deveMudarAEtagAposUmaEscritaNosLancamentosDoUsuario() throws Exception {
+		String etag = mvc.perform( get("/api/usuarios/{id}/saldo", usuario.getId()) )
+			.andExpect( status().isOk() )
+			.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		
+		mvc.perform( get("/api/usuarios/{id}/saldo", usuario.getId()).header(HttpHeaders.IF_NONE_MATCH, etag) )
+			.andExpect( status().isNotModified() );
+		
+		mvc.perform( patch("/api/lancamentos/{id}", lancamento.getId())
+					.contentType(MediaType.APPLICATION_JSON)
+					.content("{\"status\":\"EFETIVADO\",\"versao\":0}") )
+			.andExpect( status().isOk() );
+		
+		mvc.perform( get("/api/usuarios/{id}/saldo", usuario.getId()).header(HttpHeaders.IF_NONE_MATCH, etag) )
+			.andExpect( status().isOk() );
+		mvc.perform( get("/api/lancamentos").param("usuario", usuario.getId().toString()).header(HttpHeaders.IF_NONE_MATCH, etag) )
+			.andExpect( status().isOk() );
+	}
+	
+	@Test
+	public void deveRetornarNaoEncontradoParaLancamentoInexistente() throws Exception {
+		mvc.perform( get("/api/lancamentos/{id}", -1) )
+			.andExpect( status().isNotFound() );
+	}
+
+}
@@ -0,0 +1,317 @@
+package com.lonkoski.minhasFinancas.carga;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.lonkoski.minhasFinancas.api.dto.LancamentoDTO;
+import com.lonkoski.minhasFinancas.model.entity.Lancamento;
+import com.lonkoski.minhasFinancas.model.entity.Usuario;
+import com.lonkoski.minhasFinancas.model.repository.LancamentoRepositoryTest;
+import com.lonkoski.minhasFinancas.service.LancamentoService;
+import com.lonkoski.minhasFinancas.service.UsuarioService;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Teste de carga da API: clientes simultâneos executam um mix de buscas, consultas de
+ * saldo, inclusões e atualizações contra a aplicação no perfil "test", cada um esperando
+ * a resposta anterior antes da próxima requisição. As latências de cada operação vão para
+ * um histograma HdrHistogram, gravado em target/carga, e o teste falha se houver respostas
+ * de erro ou se o p99 de alguma operação passar de {@code carga.tolerancia} vezes a linha de
+ * base de {@code carga/p99.properties}. Um limite fixo em {@code carga.slo.p99-ms.<operacao>}
+ * substitui a linha de base, que só vale para os valores padrão de clientes e mix.
+ * 
+ * Fica fora do build padrão; roda com {@code mvn -Pcarga test}. Todas as propriedades
+ * {@code carga.*} abaixo podem ser passadas com -D. Para regravar a linha de base depois
+ * de uma mudança intencional ou em outra máquina de referência:
+ * <pre>
+ * mvn -Pcarga test -Dcarga.registrar=true
+ * </pre>
+ * e copie {@code target/carga/p99.properties} sobre o arquivo do teste.
+ */
+@Slf4j
+@Tag("carga")
+@SpringBootTest( webEnvironment = WebEnvironment.RANDOM_PORT )
+@ActiveProfiles("test")
+public class CargaApiTest {
+	
+	private static final String LINHA_DE_BASE = "/carga/p99.properties";
+	
+	enum Operacao {
+		BUSCA, SALDO, CRIACAO, ATUALIZACAO;
+		
+		String nome() {
+			return name().toLowerCase();
+		}
+	}
+	
+	@Autowired
+	TestRestTemplate rest;
+	
+	@Autowired
+	UsuarioService usuarioService;
+	
+	@Autowired
+	LancamentoService lancamentoService;
+	
+	@Autowired
+	Environment ambiente;
+	
+	@Value("${carga.clientes:16}")
+	int clientes;
+	
+	@Value("${carga.aquecimento:5}")
+	int segundosAquecimento;
+	
+	@Value("${carga.duracao:30}")
+	int segundosMedicao;
+	
+	@Value("${carga.usuarios:20}")
+	int quantidadeUsuarios;
+	
+	@Value("${carga.lancamentos-por-usuario:200}")
+	int lancamentosPorUsuario;
+	
+	@Value("${carga.mix:busca=60,saldo=25,criacao=10,atualizacao=5}")
+	String mix;
+	
+	@Value("${carga.tolerancia:2.0}")
+	double tolerancia;
+	
+	@Value("${carga.registrar:false}")
+	boolean registrar;
+	
+	List<Long> usuarios;
+	List<List<Long>> lancamentosDoUsuario;
+	Operacao[] sorteio;
+	
+	@BeforeEach
+	public void setUp() {
+		sorteio = montarSorteio(mix);
+		usuarios = new ArrayList<>();
+		lancamentosDoUsuario = new ArrayList<>();
+		
+		long sufixo = System.nanoTime();
+		for ( int i = 0; i < quantidadeUsuarios; i++ ) {
+			Usuario usuario = usuarioService.salvarUsuario( Usuario.builder()
+					.nome("carga " + i)
+					.email("carga" + i + "." + sufixo + "@email.com")
+					.senha("senha")
+					.build() );
+			
+			List<Long> lancamentos = new ArrayList<>();
+			for ( int j = 0; j < lancamentosPorUsuario; j++ ) {
+				Lancamento lancamento = LancamentoRepositoryTest.criarLancamento();
+				lancamento.setMes(j % 12 + 1);
+				lancamento.setUsuario(usuario);
+				lancamentos.add( lancamentoService.salvar(lancamento).getId() );
+			}
+			usuarios.add(usuario.getId());
+			lancamentosDoUsuario.add(lancamentos);
+		}
+	}
+	
+	@Test
+	public void deveAtenderAoMixDeOperacoesDentroDosLimitesDeLatencia() throws Exception {
+		executar(segundosAquecimento);
+		Map<Operacao, Resultado> resultados = executar(segundosMedicao);
+		
+		relatar(resultados);
+		if ( registrar ) {
+			registrarLinhaDeBase(resultados);
+			return;
+		}
+		
+		Properties linhaDeBase = new Properties();
+		try ( InputStream entrada = CargaApiTest.class.getResourceAsStream(LINHA_DE_BASE) ) {
+			linhaDeBase.load(entrada);
+		}
+		SoftAssertions verificacao = new SoftAssertions();
+		resultados.forEach( (operacao, resultado) -> {
+			if ( resultado.latencias.getTotalCount() == 0 ) {
+				return;
+			}
+			double limite = ambiente.getProperty("carga.slo.p99-ms." + operacao.nome(), Double.class,
+					Long.parseLong( linhaDeBase.getProperty(operacao.nome()) ) * tolerancia);
+			double p99 = resultado.latencias.getValueAtPercentile(99) / 1000.0;
+			
+			verificacao.assertThat(resultado.erros.sum()).as("respostas de erro em %s", operacao.nome()).isZero();
+			verificacao.assertThat(p99).as("p99 de %s em ms", operacao.nome()).isLessThanOrEqualTo(limite);
+		});
+		verificacao.assertAll();
+	}
+	
+	/**
+	 * Cada cliente é uma thread em laço fechado até o fim do período. Latências em microssegundos.
+	 */
+	private Map<Operacao, Resultado> executar(int segundos) throws Exception {
+		Map<Operacao, Resultado> resultados = new EnumMap<>(Operacao.class);
+		for ( Operacao operacao : Operacao.values() ) {
+			resultados.put(operacao, new Resultado());
+		}
+		
+		long fim = System.nanoTime() + TimeUnit.SECONDS.toNanos(segundos);
+		ExecutorService executor = Executors.newFixedThreadPool(clientes);
+		try {
+			List<Future<?>> clientesEmExecucao = new ArrayList<>();
+			for ( int i = 0; i < clientes; i++ ) {
+				clientesEmExecucao.add( executor.submit( () -> {
+					ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+					while ( System.nanoTime() < fim ) {
+						Operacao operacao = sorteio[ aleatorio.nextInt(sorteio.length) ];
+						long inicio = System.nanoTime();
+						boolean sucesso = requisitar(operacao, aleatorio);
+						Resultado resultado = resultados.get(operacao);
+						resultado.latencias.recordValue( (System.nanoTime() - inicio) / 1000 );
+						if ( !sucesso ) {
+							resultado.erros.increment();
+						}
+					}
+				}));
+			}
+			for ( Future<?> cliente : clientesEmExecucao ) {
+				cliente.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		
+		resultados.values().forEach( resultado -> resultado.segundos = segundos );
+		return resultados;
+	}
+	
+	private boolean requisitar(Operacao operacao, ThreadLocalRandom aleatorio) {
+		int indice = aleatorio.nextInt(usuarios.size());
+		Long usuario = usuarios.get(indice);
+		ResponseEntity<String> resposta;
+		
+		switch ( operacao ) {
+			case BUSCA:
+				resposta = rest.getForEntity("/api/lancamentos?usuario={usuario}&ano=2019&mes={mes}",
+						String.class, usuario, aleatorio.nextInt(1, 13));
+				break;
+			case SALDO:
+				resposta = rest.getForEntity("/api/usuarios/{id}/saldo", String.class, usuario);
+				break;
+			case CRIACAO:
+				resposta = rest.postForEntity("/api/lancamentos", criarDTO(usuario, aleatorio), String.class);
+				break;
+			default:
+				List<Long> lancamentos = lancamentosDoUsuario.get(indice);
+				Long id = lancamentos.get( aleatorio.nextInt(lancamentos.size()) );
+				resposta = rest.exchange("/api/lancamentos/{id}", HttpMethod.PUT,
+						new HttpEntity<>( criarDTO(usuario, aleatorio) ), String.class, id);
+		}
+		
+		return resposta.getStatusCode().is2xxSuccessful();
+	}
+	
+	private LancamentoDTO criarDTO(Long usuario, ThreadLocalRandom aleatorio) {
+		return LancamentoDTO.builder()
+				.descricao("Lancamento de carga")
+				.mes( aleatorio.nextInt(1, 13) )
+				.ano(2019)
+				.valor( BigDecimal.valueOf( aleatorio.nextInt(1, 1000) ) )
+				.usuario(usuario)
+				.tipo( aleatorio.nextBoolean() ? "RECEITA" : "DESPESA" )
+				.status("PENDENTE")
+				.build();
+	}
+	
+	private void relatar(Map<Operacao, Resultado> resultados) throws IOException {
+		File diretorio = new File("target/carga");
+		diretorio.mkdirs();
+		
+		StringBuilder relatorio = new StringBuilder( String.format("%n%-12s %10s %10s %10s %10s %10s %10s %8s",
+				"operacao", "total", "req/s", "p50 ms", "p90 ms", "p99 ms", "max ms", "erros") );
+		for ( Map.Entry<Operacao, Resultado> entrada : resultados.entrySet() ) {
+			Histogram latencias = entrada.getValue().latencias;
+			relatorio.append( String.format("%n%-12s %10d %10.1f %10.2f %10.2f %10.2f %10.2f %8d",
+					entrada.getKey().nome(),
+					latencias.getTotalCount(),
+					latencias.getTotalCount() / (double) entrada.getValue().segundos,
+					latencias.getValueAtPercentile(50) / 1000.0,
+					latencias.getValueAtPercentile(90) / 1000.0,
+					latencias.getValueAtPercentile(99) / 1000.0,
+					latencias.getMaxValue() / 1000.0,
+					entrada.getValue().erros.sum()) );
+			
+			try ( PrintStream arquivo = new PrintStream( new File(diretorio, entrada.getKey().nome() + ".hgrm") ) ) {
+				latencias.outputPercentileDistribution(arquivo, 1000.0);
+			}
+		}
+		log.info("Carga com {} clientes por {} s:{}", clientes, segundosMedicao, relatorio);
+	}
+	
+	/**
+	 * Grava o p99 medido, arredondado para cima em ms, no formato da linha de base.
+	 */
+	private void registrarLinhaDeBase(Map<Operacao, Resultado> resultados) throws IOException {
+		File destino = new File("target/carga/p99.properties");
+		try ( PrintWriter saida = new PrintWriter( Files.newBufferedWriter(destino.toPath(), StandardCharsets.ISO_8859_1) ) ) {
+			saida.println("# p99 em ms de cada operacao com os valores padrao de carga.*, medido no build de referencia.");
+			resultados.forEach( (operacao, resultado) -> saida.println( operacao.nome() + "="
+					+ (long) Math.ceil( resultado.latencias.getValueAtPercentile(99) / 1000.0 ) ) );
+		}
+		log.info("Linha de base gravada em {}", destino);
+	}
+	
+	/**
+	 * Converte "busca=60,saldo=25,..." em um vetor com cada operação repetida pelo seu peso.
+	 */
+	private static Operacao[] montarSorteio(String mix) {
+		List<Operacao> operacoes = new ArrayList<>();
+		for ( String item : mix.split(",") ) {
+			String[] partes = item.trim().split("=");
+			Operacao operacao = Operacao.valueOf( partes[0].trim().toUpperCase() );
+			for ( int i = Integer.parseInt(partes[1].trim()); i > 0; i-- ) {
+				operacoes.add(operacao);
+			}
+		}
+		if ( operacoes.isEmpty() ) {
+			throw new IllegalArgumentException("Mix de carga sem operações: " + mix);
+		}
+		return operacoes.toArray(new Operacao[0]);
+	}
+	
+	static class Resultado {
+		final Histogram latencias = new ConcurrentHistogram(3);
+		final LongAdder erros = new LongAdder();
+		int segundos;
+	}
+
+}
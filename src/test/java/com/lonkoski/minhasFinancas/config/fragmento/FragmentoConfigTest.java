@@ -0,0 +1,160 @@
+package com.lonkoski.minhasFinancas.config.fragmento;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.lonkoski.minhasFinancas.exception.RegraNegocioException;
+import com.lonkoski.minhasFinancas.model.arquivo.SituacaoFechamento;
+import com.lonkoski.minhasFinancas.model.entity.Lancamento;
+import com.lonkoski.minhasFinancas.model.entity.Usuario;
+import com.lonkoski.minhasFinancas.model.enums.EstadoFechamento;
+import com.lonkoski.minhasFinancas.model.filtro.FiltroLancamento;
+import com.lonkoski.minhasFinancas.model.repository.LancamentoRepositoryTest;
+import com.lonkoski.minhasFinancas.service.FechamentoAnoService;
+import com.lonkoski.minhasFinancas.service.LancamentoService;
+import com.lonkoski.minhasFinancas.service.UsuarioService;
+
+/**
+ * Três bancos H2 em memória fazem o papel dos fragmentos; cada asserção consulta o
+ * banco do fragmento diretamente para saber onde os dados foram parar.
+ */
+@SpringBootTest( properties = {
+		"spring.datasource.url=jdbc:h2:mem:fragmento0;DB_CLOSE_DELAY=-1;INIT=CREATE SCHEMA IF NOT EXISTS financas",
+		"financas.fragmentos.habilitado=true",
+		"financas.fragmentos.fontes[0].url=jdbc:h2:mem:fragmento1;DB_CLOSE_DELAY=-1;INIT=CREATE SCHEMA IF NOT EXISTS financas",
+		"financas.fragmentos.fontes[1].url=jdbc:h2:mem:fragmento2;DB_CLOSE_DELAY=-1;INIT=CREATE SCHEMA IF NOT EXISTS financas",
+		"financas.fragmentos.validade-diretorio=0s",
+		"financas.arquivo.habilitado=true",
+		"financas.arquivo.diretorio=target/arquivo-fragmentos",
+		"financas.arquivo.validade-registro=0s",
+		"financas.token.obrigatorio=true" } )
+@ActiveProfiles("test")
+public class FragmentoConfigTest {
+	
+	@Autowired
+	UsuarioService usuarioService;
+	
+	@Autowired
+	LancamentoService lancamentoService;
+	
+	@Autowired
+	FechamentoAnoService fechamentoService;
+	
+	@Autowired
+	Fragmentos fragmentos;
+	
+	@Autowired
+	DiretorioFragmentos diretorio;
+	
+	@AfterEach
+	public void tearDown() {
+		fragmentos.limparUsuario();
+		for ( int fragmento = 0; fragmento < diretorio.getQuantidade(); fragmento++ ) {
+			JdbcTemplate jdbc = jdbc(fragmento);
+			jdbc.update("delete from financas.lancamento_ngrama");
+			jdbc.update("delete from financas.resumo_ano");
+			jdbc.update("delete from financas.arquivo_usuario");
+			jdbc.update("delete from financas.saldo_usuario");
+			jdbc.update("delete from financas.lancamento");
+			jdbc.update("delete from financas.usuario");
+		}
+		jdbc(0).update("delete from financas.diretorio_usuario");
+	}
+	
+	@Test
+	public void deveCadastrarCadaUsuarioNoFragmentoDoDiretorioComIdsDaFaixaDele() {
+		for ( int fragmento = 0; fragmento < diretorio.getQuantidade(); fragmento++ ) {
+			String email = emailDoFragmento(fragmento);
+			Usuario usuario = usuarioService.salvarUsuario( Usuario.builder().nome("fragmento").email(email).senha("senha").build() );
+			
+			assertThat( usuario.getId() / FragmentoConfig.FAIXA_DE_IDS ).isEqualTo(fragmento);
+			assertThat( diretorio.localizarUsuario(usuario.getId()).get().getFragmento() ).isEqualTo(fragmento);
+			for ( int outro = 0; outro < diretorio.getQuantidade(); outro++ ) {
+				assertThat( jdbc(outro).queryForObject("select count(*) from financas.usuario where email = ?", Long.class, email) )
+						.isEqualTo( outro == fragmento ? 1L : 0L );
+			}
+			assertThat( usuarioService.autenticar(email, "senha").getId() ).isEqualTo( usuario.getId() );
+		}
+	}
+	
+	@Test
+	public void deveRecusarEmailJaCadastradoEmOutroFragmentoELiberarAReserva() {
+		String email = emailDoFragmento(2);
+		usuarioService.salvarUsuario( Usuario.builder().nome("fragmento").email(email).senha("senha").build() );
+		
+		assertThatThrownBy( () -> usuarioService.salvarUsuario( Usuario.builder().nome("outro").email(email).senha("outra").build() ) )
+				.isInstanceOf(RegraNegocioException.class);
+		assertThatThrownBy( () -> usuarioService.validarEmail(email) ).isInstanceOf(RegraNegocioException.class);
+		
+		List<String> reservas = jdbc(0).queryForList("select email from financas.diretorio_usuario", String.class);
+		assertThat(reservas).containsExactly(email);
+	}
+	
+	@Test
+	public void deveGravarELerOsLancamentosNoFragmentoDoUsuario() {
+		Usuario usuario = usuarioService.salvarUsuario(
+				Usuario.builder().nome("fragmento").email(emailDoFragmento(1)).senha("senha").build() );
+		
+		fragmentos.definirUsuario(usuario.getId());
+		Lancamento lancamento = LancamentoRepositoryTest.criarLancamento();
+		lancamento.setUsuario(usuario);
+		lancamentoService.salvar(lancamento);
+		
+		assertThat( jdbc(1).queryForObject("select count(*) from financas.lancamento", Long.class) ).isEqualTo(1);
+		assertThat( jdbc(0).queryForObject("select count(*) from financas.lancamento", Long.class) ).isZero();
+		assertThat( lancamentoService.obterSaldoPorUsuario(usuario.getId()) ).isEqualByComparingTo("10");
+		assertThat( lancamentoService.buscar( FiltroLancamento.builder().idUsuario(usuario.getId()).build() ) ).hasSize(1);
+	}
+	
+	/**
+	 * O fechamento agendado roda fora da requisição, numa thread que não herda o fragmento.
+	 */
+	@Test
+	public void deveFecharOsAnosNoFragmentoDoUsuario() throws InterruptedException {
+		Usuario usuario = usuarioService.salvarUsuario(
+				Usuario.builder().nome("fragmento").email(emailDoFragmento(1)).senha("senha").build() );
+		fragmentos.definirUsuario(usuario.getId());
+		for ( int ano = 2019; ano <= 2020; ano++ ) {
+			Lancamento lancamento = LancamentoRepositoryTest.criarLancamento();
+			lancamento.setUsuario(usuario);
+			lancamento.setAno(ano);
+			lancamentoService.salvar(lancamento);
+		}
+		fragmentos.limparUsuario();
+		
+		fechamentoService.agendar(usuario.getId(), 2020);
+		SituacaoFechamento situacao = fechamentoService.obterSituacao(usuario.getId()).get();
+		for ( int tentativa = 0; tentativa < 100 && situacao.getEstado() == EstadoFechamento.EM_ANDAMENTO; tentativa++ ) {
+			Thread.sleep(100);
+			situacao = fechamentoService.obterSituacao(usuario.getId()).get();
+		}
+		
+		assertThat( situacao.getEstado() ).as(situacao.getMensagem()).isEqualTo(EstadoFechamento.CONCLUIDO);
+		assertThat( jdbc(1).queryForObject("select count(*) from financas.lancamento", Long.class) ).isEqualTo(1);
+		assertThat( jdbc(1).queryForObject("select count(*) from financas.arquivo_usuario", Long.class) ).isEqualTo(1);
+		assertThat( jdbc(0).queryForObject("select count(*) from financas.arquivo_usuario", Long.class) ).isZero();
+	}
+	
+	private JdbcTemplate jdbc(int fragmento) {
+		return new JdbcTemplate( diretorio.getFonte(fragmento) );
+	}
+	
+	private String emailDoFragmento(int fragmento) {
+		for ( int i = 0; ; i++ ) {
+			String email = "usuario" + i + "@fragmento.com";
+			if ( Math.floorMod(email.hashCode(), diretorio.getQuantidade()) == fragmento ) {
+				return email;
+			}
+		}
+	}
+	
+}
@@ -0,0 +1,126 @@
+package com.lonkoski.minhasFinancas.config.replica;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.math.BigDecimal;
+
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.lonkoski.minhasFinancas.model.entity.Usuario;
+import com.lonkoski.minhasFinancas.model.repository.UsuarioRepository;
+import com.lonkoski.minhasFinancas.service.LancamentoService;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * A réplica é um segundo H2 com o mesmo esquema e sem os dados gravados na primária,
+ * então o saldo lido mostra de qual banco veio.
+ */
+@AutoConfigureMockMvc
+@SpringBootTest( properties = {
+		"financas.replicas.habilitado=true",
+		"financas.replicas.fontes[0].url=" + ReplicaConfigTest.REPLICA,
+		"financas.replicas.intervalo-verificacao=1h" } )
+@ActiveProfiles("test")
+public class ReplicaConfigTest {
+	
+	static final String REPLICA = "jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1;INIT=CREATE SCHEMA IF NOT EXISTS financas";
+	
+	@Autowired
+	DataSource dataSource;
+	
+	@Autowired
+	LancamentoService lancamentoService;
+	
+	@Autowired
+	UsuarioRepository usuarioRepository;
+	
+	@Autowired
+	AfinidadePrimaria afinidade;
+	
+	@Autowired
+	JdbcTemplate jdbc;
+	
+	@Autowired
+	MockMvc mvc;
+	
+	JdbcTemplate replica = new JdbcTemplate( new DriverManagerDataSource(REPLICA, "sa", "sa") );
+	
+	Usuario usuario;
+	
+	@BeforeAll
+	public static void criarEsquemaDaReplica() {
+		Flyway.configure().dataSource(REPLICA, "sa", "sa").schemas("financas").load().migrate();
+	}
+	
+	@AfterEach
+	public void tearDown() {
+		afinidade.limparUsuario();
+		replica.update("delete from financas.lancamento");
+		replica.update("delete from financas.usuario");
+		if ( usuario != null ) {
+			jdbc.update("delete from financas.lancamento where id_usuario = ?", usuario.getId());
+			jdbc.update("delete from financas.saldo_usuario where id_usuario = ?", usuario.getId());
+			usuarioRepository.deleteById(usuario.getId());
+		}
+	}
+	
+	@Test
+	public void deveRotearAsLeiturasEManterOPoolDaPrimariaVisivel() throws Exception {
+		assertThat(dataSource).isInstanceOf(LazyConnectionDataSourceProxy.class);
+		assertThat( dataSource.unwrap(HikariDataSource.class).getPoolName() ).isEqualTo("primaria");
+		assertThat( dataSource.unwrap(RoteamentoDataSource.class).getReplicasDisponiveis() ).isEqualTo(1);
+		
+		usuario = usuarioRepository.save( Usuario.builder().nome("replica").email("replica@email.com").senha("senha").build() );
+		jdbc.update("insert into financas.saldo_usuario (id_usuario, receitas, despesas, versao_dados) values (?, 100, 0, 1)",
+				usuario.getId());
+		
+		afinidade.definirUsuario(usuario.getId());
+		assertThat( lancamentoService.obterSaldoPorUsuario(usuario.getId()) ).isEqualByComparingTo(BigDecimal.ZERO);
+		
+		afinidade.registrarEscrita(usuario.getId());
+		assertThat( lancamentoService.obterSaldoPorUsuario(usuario.getId()) ).isEqualByComparingTo("100");
+	}
+	
+	/**
+	 * O lançamento existe nos dois bancos: a leitura do PUT vem da réplica e a gravação
+	 * que segue na mesma requisição precisa ir para a primária.
+	 */
+	@Test
+	public void deveGravarNaPrimariaDepoisDeLerDaReplicaNaMesmaRequisicao() throws Exception {
+		usuario = usuarioRepository.save( Usuario.builder().nome("replica").email("replica@email.com").senha("senha").build() );
+		jdbc.update("insert into financas.lancamento (descriao, mes, ano, id_usuario, valor, tipo, status) "
+				+ "values ('Aluguel', 3, 2021, ?, 900, 'DESPESA', 'PENDENTE')", usuario.getId());
+		Long id = jdbc.queryForObject("select id from financas.lancamento where id_usuario = ?", Long.class, usuario.getId());
+		replica.update("insert into financas.usuario (id, nome, email, senha) values (?, 'replica', 'replica@email.com', 'senha')",
+				usuario.getId());
+		replica.update("insert into financas.lancamento (id, descriao, mes, ano, id_usuario, valor, tipo, status) "
+				+ "values (?, 'Aluguel', 3, 2021, ?, 900, 'DESPESA', 'PENDENTE')", id, usuario.getId());
+		
+		mvc.perform( put("/api/lancamentos/{id}", id).contentType(MediaType.APPLICATION_JSON)
+					.content("{\"descricao\":\"Aluguel novo\",\"mes\":3,\"ano\":2021,\"valor\":950,\"usuario\":" + usuario.getId()
+							+ ",\"tipo\":\"DESPESA\",\"status\":\"PENDENTE\"}") )
+			.andExpect( status().isOk() );
+		
+		assertThat( jdbc.queryForObject("select descriao from financas.lancamento where id = ?", String.class, id) )
+			.isEqualTo("Aluguel novo");
+		assertThat( replica.queryForObject("select descriao from financas.lancamento where id = ?", String.class, id) )
+			.isEqualTo("Aluguel");
+	}
+
+}
@@ -0,0 +1,147 @@
+package com.lonkoski.minhasFinancas.config.replica;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Arrays;
+
+import javax.sql.DataSource;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Três bancos H2 em memória fazem o papel da primária e de duas réplicas; cada um
+ * responde com o próprio nome para mostrar de onde veio a leitura.
+ */
+public class RoteamentoDataSourceTest {
+	
+	AfinidadePrimaria afinidade;
+	ReplicaDesligavel replica1;
+	ReplicaDesligavel replica2;
+	RoteamentoDataSource roteamento;
+	JdbcTemplate jdbc;
+	TransactionTemplate leitura;
+	TransactionTemplate escrita;
+	
+	@BeforeEach
+	public void setUp() {
+		afinidade = new AfinidadePrimaria(true, Duration.ofMinutes(1));
+		replica1 = new ReplicaDesligavel( banco("replica1") );
+		replica2 = new ReplicaDesligavel( banco("replica2") );
+		roteamento = new RoteamentoDataSource( banco("primaria"), Arrays.asList(replica1, replica2), afinidade, Duration.ofSeconds(1) );
+		
+		DataSource dataSource = new LazyConnectionDataSourceProxy(roteamento);
+		jdbc = new JdbcTemplate(dataSource);
+		DataSourceTransactionManager transacoes = new DataSourceTransactionManager(dataSource);
+		escrita = new TransactionTemplate(transacoes);
+		leitura = new TransactionTemplate(transacoes);
+		leitura.setReadOnly(true);
+	}
+	
+	@AfterEach
+	public void tearDown() {
+		afinidade.limparUsuario();
+	}
+	
+	@Test
+	public void deveLerDasReplicasEmRodizioSomenteNasTransacoesReadOnly() {
+		assertThat( origem(leitura) ).isEqualTo("replica1");
+		assertThat( origem(leitura) ).isEqualTo("replica2");
+		assertThat( origem(leitura) ).isEqualTo("replica1");
+		
+		assertThat( origem(escrita) ).isEqualTo("primaria");
+		assertThat( jdbc.queryForObject("select nome from origem", String.class) ).isEqualTo("primaria");
+	}
+	
+	@Test
+	public void devePularAReplicaQueFalhaEVoltarAUsaLaDepoisDaVerificacao() {
+		replica1.desligada = true;
+		
+		assertThat( origem(leitura) ).isEqualTo("replica2");
+		assertThat( origem(leitura) ).isEqualTo("replica2");
+		assertThat( roteamento.getReplicasDisponiveis() ).isEqualTo(1);
+		
+		replica1.desligada = false;
+		roteamento.verificarReplicas();
+		
+		assertThat( roteamento.getReplicasDisponiveis() ).isEqualTo(2);
+		assertThat( Arrays.asList( origem(leitura), origem(leitura) ) ).containsExactlyInAnyOrder("replica1", "replica2");
+	}
+	
+	@Test
+	public void deveLerDaPrimariaSemReplicasDisponiveis() {
+		replica1.desligada = true;
+		replica2.desligada = true;
+		
+		assertThat( origem(leitura) ).isEqualTo("primaria");
+		
+		roteamento.verificarReplicas();
+		assertThat( roteamento.getReplicasDisponiveis() ).isZero();
+		assertThat( origem(leitura) ).isEqualTo("primaria");
+	}
+	
+	@Test
+	public void deveLerDaPrimariaLogoDepoisDeUmaEscritaDoProprioUsuario() {
+		afinidade.registrarEscrita(1l);
+		
+		afinidade.definirUsuario(1l);
+		assertThat( origem(leitura) ).isEqualTo("primaria");
+		
+		afinidade.definirUsuario(2l);
+		assertThat( origem(leitura) ).isEqualTo("replica1");
+	}
+	
+	@Test
+	public void deveVoltarParaAReplicaQuandoAAfinidadeExpira() {
+		afinidade = new AfinidadePrimaria(true, Duration.ZERO);
+		roteamento = new RoteamentoDataSource( banco("primaria"), Arrays.asList(replica1, replica2), afinidade, Duration.ofSeconds(1) );
+		jdbc = new JdbcTemplate( new LazyConnectionDataSourceProxy(roteamento) );
+		leitura = new TransactionTemplate( new DataSourceTransactionManager(jdbc.getDataSource()) );
+		leitura.setReadOnly(true);
+		
+		afinidade.registrarEscrita(1l);
+		afinidade.definirUsuario(1l);
+		
+		assertThat( origem(leitura) ).isEqualTo("replica1");
+	}
+	
+	private String origem(TransactionTemplate transacao) {
+		return transacao.execute( status -> jdbc.queryForObject("select nome from origem", String.class) );
+	}
+	
+	private static DataSource banco(String nome) {
+		JdbcDataSource dataSource = new JdbcDataSource();
+		dataSource.setURL("jdbc:h2:mem:roteamento-" + nome + ";DB_CLOSE_DELAY=-1");
+		new JdbcTemplate(dataSource).execute("create table if not exists origem as select '" + nome + "' as nome");
+		return dataSource;
+	}
+	
+	private static final class ReplicaDesligavel extends DelegatingDataSource {
+		
+		volatile boolean desligada;
+		
+		ReplicaDesligavel(DataSource dataSource) {
+			super(dataSource);
+		}
+		
+		@Override
+		public Connection getConnection() throws SQLException {
+			if ( desligada ) {
+				throw new SQLException("Réplica fora do ar");
+			}
+			return super.getConnection();
+		}
+		
+	}
+
+}
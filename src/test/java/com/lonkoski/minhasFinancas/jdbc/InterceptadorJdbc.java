@@ -0,0 +1,98 @@
+package com.lonkoski.minhasFinancas.jdbc;
+
+import java.io.Closeable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+
+/**
+ * Envolve o {@link DataSource} da aplicação e avisa o {@link Ouvinte} de cada chamada feita
+ * às conexões, comandos e resultados que saem dele, por qualquer caminho até o banco:
+ * Hibernate, consultas nativas e {@code JdbcTemplate}.
+ */
+public final class InterceptadorJdbc implements InvocationHandler {
+	
+	/**
+	 * Recebe cada chamada que terminou sem erro, com o objeto JDBC original como alvo e o
+	 * resultado ainda não envolvido.
+	 */
+	@FunctionalInterface
+	public interface Ouvinte {
+		
+		void chamado(Object alvo, Method metodo, Object[] args, Object resultado);
+	
+	}
+	
+	private final Object alvo;
+	private final Ouvinte ouvinte;
+	
+	private InterceptadorJdbc(Object alvo, Ouvinte ouvinte) {
+		this.alvo = alvo;
+		this.ouvinte = ouvinte;
+	}
+	
+	/**
+	 * Envolve todo {@link DataSource} do contexto. Registre como bean estático numa
+	 * {@code @TestConfiguration}.
+	 */
+	public static BeanPostProcessor postProcessor(Ouvinte ouvinte) {
+		return new BeanPostProcessor() {
+			@Override
+			public Object postProcessAfterInitialization(Object bean, String nome) {
+				return bean instanceof DataSource ? envolver( (DataSource) bean, ouvinte ) : bean;
+			}
+		};
+	}
+	
+	public static DataSource envolver(DataSource dataSource, Ouvinte ouvinte) {
+		// Closeable mantém o fechamento do pool ao final do contexto.
+		return (DataSource) envolver( dataSource, ouvinte, dataSource instanceof Closeable
+				? new Class<?>[] { DataSource.class, Closeable.class } : new Class<?>[] { DataSource.class } );
+	}
+	
+	private static Object envolver(Object alvo, Ouvinte ouvinte, Class<?>... tipos) {
+		return Proxy.newProxyInstance( InterceptadorJdbc.class.getClassLoader(), tipos, new InterceptadorJdbc(alvo, ouvinte) );
+	}
+	
+	@Override
+	public Object invoke(Object proxy, Method metodo, Object[] args) throws Throwable {
+		// Identidade do próprio proxy, para que o Boot reconheça o DataSource migrado pelo Flyway.
+		if ( metodo.getName().equals("equals") && args != null && args.length == 1 ) {
+			return proxy == args[0];
+		}
+		if ( metodo.getName().equals("hashCode") && args == null ) {
+			return System.identityHashCode(proxy);
+		}
+		if ( metodo.getName().equals("unwrap") || metodo.getName().equals("isWrapperFor") ) {
+			return invocar(metodo, args);
+		}
+		
+		Object resultado = invocar(metodo, args);
+		ouvinte.chamado(alvo, metodo, args, resultado);
+		
+		Class<?> tipo = metodo.getReturnType();
+		if ( resultado != null && tipo.isInterface()
+				&& ( Connection.class.isAssignableFrom(tipo) || Statement.class.isAssignableFrom(tipo)
+						|| ResultSet.class.isAssignableFrom(tipo) ) ) {
+			return envolver(resultado, ouvinte, tipo);
+		}
+		return resultado;
+	}
+	
+	private Object invocar(Method metodo, Object[] args) throws Throwable {
+		try {
+			return metodo.invoke(alvo, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+	
+}
@@ -2,6 +2,8 @@ package com.lonkoski.minhasFinancas.model.repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 import static org.assertj.core.api.Assertions.*;
@@ -12,12 +14,18 @@ import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabas
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import com.lonkoski.minhasFinancas.model.entity.Lancamento;
+import com.lonkoski.minhasFinancas.model.entity.Usuario;
 import com.lonkoski.minhasFinancas.model.enums.StatusLancamento;
 import com.lonkoski.minhasFinancas.model.enums.TipoLancamento;
+import com.lonkoski.minhasFinancas.model.filtro.FiltroLancamento;
+import com.lonkoski.minhasFinancas.model.filtro.OrdenacaoLancamento;
+import com.lonkoski.minhasFinancas.model.pagina.CursorLancamento;
+import com.lonkoski.minhasFinancas.model.projecao.LancamentoResumo;
 
 @ExtendWith(SpringExtension.class)
 @DataJpaTest
@@ -77,6 +85,158 @@ public class LancamentoRepositoryTest {
 		assertThat(lancamentoEncontrado.isPresent()).isTrue();
 	}
 	
+	@Test
+	public void deveBuscarAProximaPaginaAPartirDoCursor() {
+		Lancamento janeiro = criarEPersistirUmLancamento();
+		Lancamento fevereiro = criarLancamento();
+		fevereiro.setMes(2);
+		EntityManager.persist(fevereiro);
+		Lancamento anoSeguinte = criarLancamento();
+		anoSeguinte.setAno(2020);
+		EntityManager.persist(anoSeguinte);
+		
+		OrdenacaoLancamento ordenacao = OrdenacaoLancamento.DATA_CRESCENTE;
+		List<LancamentoResumo> primeiraPagina = repository.buscarResumos(
+				LancamentoSpecifications.doFiltro(new FiltroLancamento()), ordenacao.getSort(), 2);
+		List<LancamentoResumo> segundaPagina = repository.buscarResumos(
+				LancamentoSpecifications.aposCursor( CursorLancamento.depoisDe(primeiraPagina.get(1), ordenacao), ordenacao ),
+				ordenacao.getSort(), 2);
+		
+		assertThat(primeiraPagina).extracting(LancamentoResumo::getId).containsExactly(janeiro.getId(), fevereiro.getId());
+		assertThat(segundaPagina).extracting(LancamentoResumo::getId).containsExactly(anoSeguinte.getId());
+	}
+	
+	@Test
+	public void deveFiltrarPorPeriodoTipoEFaixaDeValor() {
+		Lancamento dentro = criarLancamento();
+		dentro.setAno(2020);
+		dentro.setMes(3);
+		EntityManager.persist(dentro);
+		Lancamento antesDoPeriodo = criarLancamento();
+		antesDoPeriodo.setAno(2020);
+		antesDoPeriodo.setMes(1);
+		EntityManager.persist(antesDoPeriodo);
+		Lancamento outroTipo = criarLancamento();
+		outroTipo.setAno(2020);
+		outroTipo.setMes(3);
+		outroTipo.setTipo(TipoLancamento.DESPESA);
+		EntityManager.persist(outroTipo);
+		Lancamento valorAlto = criarLancamento();
+		valorAlto.setAno(2020);
+		valorAlto.setMes(4);
+		valorAlto.setValor(BigDecimal.valueOf(1000));
+		EntityManager.persist(valorAlto);
+		
+		FiltroLancamento filtro = FiltroLancamento.builder()
+				.tipo(TipoLancamento.RECEITA)
+				.anoFinal(2020).mesFinal(6)
+				.valorMaximo(BigDecimal.valueOf(100))
+				.anoInicial(2020).mesInicial(2)
+				.build();
+		
+		List<Lancamento> resultado = repository.findAll( LancamentoSpecifications.doFiltro(filtro) );
+		assertThat(resultado).containsExactly(dentro);
+	}
+	
+	@Test
+	public void deveOrdenarPorValorDecrescenteComCursor() {
+		Lancamento menor = criarEPersistirUmLancamento();
+		Lancamento maior = criarLancamento();
+		maior.setValor(BigDecimal.valueOf(50));
+		EntityManager.persist(maior);
+		
+		OrdenacaoLancamento ordenacao = OrdenacaoLancamento.VALOR_DECRESCENTE;
+		List<LancamentoResumo> primeiraPagina = repository.buscarResumos(
+				LancamentoSpecifications.doFiltro(new FiltroLancamento()), ordenacao.getSort(), 1);
+		List<LancamentoResumo> segundaPagina = repository.buscarResumos(
+				LancamentoSpecifications.aposCursor( CursorLancamento.depoisDe(primeiraPagina.get(0), ordenacao), ordenacao ),
+				ordenacao.getSort(), 1);
+		
+		assertThat(primeiraPagina).extracting(LancamentoResumo::getId).containsExactly(maior.getId());
+		assertThat(segundaPagina).extracting(LancamentoResumo::getId).containsExactly(menor.getId());
+	}
+	
+	@Test
+	public void devePaginarPorValorPassandoPelosLancamentosSemValor() {
+		criarEPersistirUmLancamento();
+		Lancamento semValor = criarLancamento();
+		semValor.setValor(null);
+		EntityManager.persist(semValor);
+		Lancamento maior = criarLancamento();
+		maior.setValor(BigDecimal.valueOf(50));
+		EntityManager.persist(maior);
+		
+		for ( OrdenacaoLancamento ordenacao : new OrdenacaoLancamento[] { OrdenacaoLancamento.VALOR_CRESCENTE, OrdenacaoLancamento.VALOR_DECRESCENTE } ) {
+			List<LancamentoResumo> todos = repository.buscarResumos(
+					LancamentoSpecifications.doFiltro(new FiltroLancamento()), ordenacao.getSort());
+			List<LancamentoResumo> paginas = new ArrayList<>();
+			String cursor = null;
+			do {
+				List<LancamentoResumo> pagina = repository.buscarResumos(
+						Specification.where( LancamentoSpecifications.doFiltro(new FiltroLancamento()) ).and( LancamentoSpecifications.aposCursor(
+								cursor == null ? null : CursorLancamento.decodificar(cursor, ordenacao), ordenacao ) ),
+						ordenacao.getSort(), 1);
+				paginas.addAll(pagina);
+				cursor = pagina.isEmpty() ? null : CursorLancamento.depoisDe(pagina.get(0), ordenacao).codificar();
+			} while ( cursor != null );
+			
+			assertThat(todos).hasSize(3).isSortedAccordingTo( ordenacao.getComparador() );
+			assertThat(paginas).isEqualTo(todos);
+		}
+	}
+	
+	@Test
+	public void deveBuscarOsCuringasDaDescricaoComoTexto() {
+		Lancamento desconto = criarLancamento();
+		desconto.setDescricao("Desconto 50%_ok");
+		EntityManager.persist(desconto);
+		Lancamento outro = criarLancamento();
+		outro.setDescricao("Desconto 500 ok");
+		EntityManager.persist(outro);
+		
+		List<Lancamento> resultado = repository.findAll( LancamentoSpecifications.doFiltro(
+				FiltroLancamento.builder().descricao("50%_").build() ) );
+		assertThat(resultado).containsExactly(desconto);
+	}
+	
+	@Test
+	public void deveObterOResumoDeUmLancamentoSemCarregarOUsuario() {
+		Usuario usuario = EntityManager.persist( UsuarioRepositoryTest.criarUsuario() );
+		Lancamento lancamento = criarLancamento();
+		lancamento.setUsuario(usuario);
+		EntityManager.persist(lancamento);
+		EntityManager.flush();
+		EntityManager.clear();
+		
+		Optional<LancamentoResumo> resumo = repository.obterResumoPorId(lancamento.getId());
+		
+		assertThat(resumo).isPresent();
+		assertThat(resumo.get().getUsuario()).isEqualTo(usuario.getId());
+		assertThat(resumo.get().getDescricao()).isEqualTo("Lancamento qualquer");
+	}
+	
+	@Test
+	public void deveLimitarAContagemDeLancamentos() {
+		criarEPersistirUmLancamento();
+		criarEPersistirUmLancamento();
+		criarEPersistirUmLancamento();
+		
+		long total = repository.contarLimitado(LancamentoSpecifications.doFiltro(new FiltroLancamento()), 2);
+		assertThat(total).isEqualTo(2);
+	}
+	
+	@Test
+	public void deveContarComOsParametrosDoFiltro() {
+		criarEPersistirUmLancamento();
+		criarEPersistirUmLancamento();
+		Lancamento despesa = criarLancamento();
+		despesa.setTipo(TipoLancamento.DESPESA);
+		EntityManager.persist(despesa);
+		
+		FiltroLancamento filtro = FiltroLancamento.builder().tipo(TipoLancamento.RECEITA).descricao("qualquer").ano(2019).build();
+		assertThat( repository.contarLimitado(LancamentoSpecifications.doFiltro(filtro), 100) ).isEqualTo(2);
+	}
+	
 	private Lancamento criarEPersistirUmLancamento() {
 		Lancamento lancamento = criarLancamento();
 		EntityManager.persist(lancamento);
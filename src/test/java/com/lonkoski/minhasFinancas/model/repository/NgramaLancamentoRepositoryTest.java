@@ -0,0 +1,55 @@
+package com.lonkoski.minhasFinancas.model.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import com.lonkoski.minhasFinancas.model.entity.NgramaLancamento;
+
+@ExtendWith(SpringExtension.class)
+@DataJpaTest
+@AutoConfigureTestDatabase( replace = Replace.NONE )
+@ActiveProfiles("test")
+public class NgramaLancamentoRepositoryTest {
+	
+	@Autowired
+	NgramaLancamentoRepository repository;
+	
+	@Test
+	public void deveOrdenarOsLancamentosPelaQuantidadeDeTrigramasEmComum() {
+		repository.saveAll(Arrays.asList(
+				new NgramaLancamento(1l, " lu", 10l),
+				new NgramaLancamento(1l, "luz", 10l),
+				new NgramaLancamento(1l, "luz", 20l),
+				new NgramaLancamento(1l, "uz ", 20l),
+				new NgramaLancamento(1l, " lu", 20l),
+				new NgramaLancamento(2l, "luz", 30l) ));
+		
+		List<Long> ids = repository.pesquisar(1l, Arrays.asList(" lu", "luz", "uz "), 2, PageRequest.of(0, 10));
+		
+		assertThat(ids).containsExactly(20l, 10l);
+	}
+	
+	@Test
+	public void deveRemoverAsEntradasDeUmLancamento() {
+		repository.saveAll(Arrays.asList(
+				new NgramaLancamento(1l, "luz", 10l),
+				new NgramaLancamento(1l, "luz", 20l) ));
+		
+		repository.removerPorLancamento(10l);
+		
+		assertThat(repository.pesquisar(1l, Arrays.asList("luz"), 1, PageRequest.of(0, 10))).containsExactly(20l);
+	}
+
+}
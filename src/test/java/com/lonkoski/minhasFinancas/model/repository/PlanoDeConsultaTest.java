@@ -0,0 +1,218 @@
+package com.lonkoski.minhasFinancas.model.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.context.transaction.AfterTransaction;
+
+import com.lonkoski.minhasFinancas.jdbc.InterceptadorJdbc;
+import com.lonkoski.minhasFinancas.model.enums.TipoLancamento;
+import com.lonkoski.minhasFinancas.model.filtro.FiltroLancamento;
+import com.lonkoski.minhasFinancas.model.filtro.OrdenacaoLancamento;
+
+/**
+ * Confere no plano do H2 que as consultas dos repositórios usam os índices criados
+ * pelas migrações. Cada teste executa a consulta pelo repositório, captura o SQL que o
+ * Hibernate preparou, com os parâmetros ligados, e pede o plano desse mesmo comando.
+ */
+@ExtendWith(SpringExtension.class)
+@DataJpaTest
+@AutoConfigureTestDatabase( replace = Replace.NONE )
+@ActiveProfiles("test")
+public class PlanoDeConsultaTest {
+	
+	private static final int USUARIOS = 20;
+	private static final int ANOS = 20;
+	
+	@Autowired
+	JdbcTemplate jdbcTemplate;
+	
+	Long idUsuario;
+	
+	@Autowired
+	UsuarioRepository usuarioRepository;
+	
+	@Autowired
+	LancamentoRepository lancamentoRepository;
+	
+	@Autowired
+	NgramaLancamentoRepository ngramaRepository;
+	
+	/**
+	 * Um histórico de vários usuários e anos, com as estatísticas atualizadas, para que o
+	 * H2 escolha o índice pelo custo como o Postgres e não pelo primeiro que serve.
+	 * O {@code analyze} confirma a transação do teste; os dados saem no {@link #limpar()}.
+	 */
+	@BeforeEach
+	public void setUp() {
+		List<Object[]> usuarios = new ArrayList<>();
+		for ( int usuario = 1; usuario <= USUARIOS; usuario++ ) {
+			usuarios.add( new Object[] { "plano" + usuario + "@email.com" } );
+		}
+		jdbcTemplate.batchUpdate("insert into financas.usuario (nome, email, senha) values ('plano', ?, 'senha')", usuarios);
+		List<Long> ids = jdbcTemplate.queryForList("select id from financas.usuario where nome = 'plano' order by id", Long.class);
+		idUsuario = ids.get(0);
+		
+		List<Object[]> lancamentos = new ArrayList<>();
+		for ( Long id : ids ) {
+			for ( int ano = 2010; ano < 2010 + ANOS; ano++ ) {
+				for ( int mes = 1; mes <= 12; mes++ ) {
+					lancamentos.add( new Object[] { id, ano, mes, id % 2 == 0 ? "RECEITA" : "DESPESA" } );
+				}
+			}
+		}
+		jdbcTemplate.batchUpdate(
+				"insert into financas.lancamento (descriao, id_usuario, ano, mes, tipo, status, valor) values ('plano', ?, ?, ?, ?, 'PENDENTE', 10)",
+				lancamentos);
+		jdbcTemplate.execute("analyze");
+	}
+	
+	@AfterTransaction
+	public void limpar() {
+		jdbcTemplate.update("delete from financas.lancamento where descriao = 'plano'");
+		jdbcTemplate.update("delete from financas.usuario where nome = 'plano'");
+	}
+	
+	@Test
+	public void findByEmailDeveUsarOIndiceUnicoDeEmail() {
+		String plano = explicar( "financas.usuario", () -> usuarioRepository.findByEmail("plano1@email.com") );
+		
+		assertThat(plano).contains("UK_USUARIO_EMAIL");
+	}
+	
+	@Test
+	public void existsByEmailDeveUsarOIndiceUnicoDeEmail() {
+		String plano = explicar( "financas.usuario", () -> usuarioRepository.existsByEmail("plano1@email.com") );
+		
+		assertThat(plano).contains("UK_USUARIO_EMAIL");
+	}
+	
+	@Test
+	public void saldoPorTipoDeveUsarOIndiceDeUsuarioETipo() {
+		String plano = explicar( "financas.lancamento",
+				() -> lancamentoRepository.obterSaldoPorTipoLancamentoEUsuario(idUsuario, TipoLancamento.RECEITA) );
+		
+		assertThat(plano).contains("IDX_LANCAMENTO_USUARIO_TIPO");
+	}
+	
+	@Test
+	public void buscaPorUsuarioEPeriodoDeveUsarOIndiceDeUsuarioAnoEMes() {
+		FiltroLancamento filtro = FiltroLancamento.builder().idUsuario(idUsuario).anoInicial(2020).anoFinal(2021).build();
+		
+		String plano = explicar( "financas.lancamento", () -> lancamentoRepository.buscarResumos(
+				LancamentoSpecifications.doFiltro(filtro), OrdenacaoLancamento.DATA_CRESCENTE.getSort(), 51) );
+		
+		assertThat(plano).contains("IDX_LANCAMENTO_USUARIO_ANO_MES");
+	}
+	
+	@Test
+	public void remocaoDoIndiceDePesquisaDeveUsarOIndicePorLancamento() {
+		String plano = explicar( "financas.lancamento_ngrama", () -> ngramaRepository.removerPorLancamento(1l) );
+		
+		assertThat(plano).contains("IDX_LANCAMENTO_NGRAMA_LANCAMENTO");
+	}
+	
+	/**
+	 * Plano do último comando sobre a tabela preparado pela consulta.
+	 */
+	private String explicar(String tabela, Runnable consulta) {
+		List<Comando> comandos = Captura.durante(consulta);
+		Comando comando = null;
+		for ( Comando preparado : comandos ) {
+			if ( preparado.sql.toLowerCase().contains(tabela) ) {
+				comando = preparado;
+			}
+		}
+		assertThat(comando).as("comando sobre %s em %s", tabela, comandos).isNotNull();
+		
+		return jdbcTemplate.queryForObject("explain " + comando.sql, String.class, comando.parametros.values().toArray()).toUpperCase();
+	}
+	
+	private static final class Comando {
+		
+		private final String sql;
+		private final Map<Integer, Object> parametros = new TreeMap<>();
+		
+		Comando(String sql) {
+			this.sql = sql;
+		}
+		
+		@Override
+		public String toString() {
+			return sql;
+		}
+	
+	}
+	
+	/**
+	 * Guarda os comandos preparados e os parâmetros ligados enquanto a consulta roda.
+	 */
+	private static final class Captura {
+		
+		private static volatile Captura atual;
+		
+		private final List<Comando> comandos = new ArrayList<>();
+		private final Map<Object, Comando> porStatement = new IdentityHashMap<>();
+		
+		static List<Comando> durante(Runnable consulta) {
+			Captura captura = new Captura();
+			atual = captura;
+			try {
+				consulta.run();
+				return captura.comandos;
+			} finally {
+				atual = null;
+			}
+		}
+		
+		static void registrar(Object alvo, Method metodo, Object[] args, Object resultado) {
+			Captura captura = atual;
+			if ( captura == null ) {
+				return;
+			}
+			if ( alvo instanceof Connection && metodo.getName().equals("prepareStatement") ) {
+				Comando preparado = new Comando( (String) args[0] );
+				captura.comandos.add(preparado);
+				captura.porStatement.put(resultado, preparado);
+				return;
+			}
+			Comando comando = captura.porStatement.get(alvo);
+			if ( comando != null && metodo.getName().startsWith("set") && args != null && args.length >= 2
+					&& args[0] instanceof Integer ) {
+				comando.parametros.put( (Integer) args[0], metodo.getName().equals("setNull") ? null : args[1] );
+			}
+		}
+	
+	}
+	
+	@TestConfiguration
+	static class Configuracao {
+		
+		@Bean
+		public static BeanPostProcessor capturaPostProcessor() {
+			return InterceptadorJdbc.postProcessor(Captura::registrar);
+		}
+	
+	}
+	
+}
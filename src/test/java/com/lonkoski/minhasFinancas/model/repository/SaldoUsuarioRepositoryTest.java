@@ -0,0 +1,60 @@
+package com.lonkoski.minhasFinancas.model.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import com.lonkoski.minhasFinancas.model.entity.SaldoUsuario;
+
+@ExtendWith(SpringExtension.class)
+@DataJpaTest
+@AutoConfigureTestDatabase( replace = Replace.NONE )
+@ActiveProfiles("test")
+public class SaldoUsuarioRepositoryTest {
+	
+	@Autowired
+	SaldoUsuarioRepository repository;
+	
+	@Autowired
+	TestEntityManager EntityManager;
+	
+	@Test
+	public void deveSomarOsDeltasNoSaldoDoUsuario() {
+		Long idUsuario = EntityManager.persistAndGetId( UsuarioRepositoryTest.criarUsuario(), Long.class );
+		EntityManager.persist( new SaldoUsuario(idUsuario, BigDecimal.valueOf(100), BigDecimal.valueOf(30)) );
+		
+		int atualizados = repository.somar(idUsuario, BigDecimal.valueOf(20), BigDecimal.valueOf(-10));
+		EntityManager.clear();
+		
+		SaldoUsuario saldo = EntityManager.find(SaldoUsuario.class, idUsuario);
+		assertThat(atualizados).isEqualTo(1);
+		assertThat(saldo.getReceitas()).isEqualByComparingTo("120");
+		assertThat(saldo.getDespesas()).isEqualByComparingTo("20");
+	}
+	
+	@Test
+	public void naoDeveAtualizarNadaQuandoUsuarioNaoPossuiSaldo() {
+		int atualizados = repository.somar(99l, BigDecimal.ONE, BigDecimal.ZERO);
+		
+		assertThat(atualizados).isZero();
+	}
+	
+	@Test
+	public void deveTravarOUsuarioExistente() {
+		Long idUsuario = EntityManager.persistAndGetId( UsuarioRepositoryTest.criarUsuario(), Long.class );
+		
+		assertThat( repository.travarUsuario(idUsuario) ).isEqualTo(1);
+		assertThat( repository.travarUsuario(99l) ).isZero();
+	}
+
+}
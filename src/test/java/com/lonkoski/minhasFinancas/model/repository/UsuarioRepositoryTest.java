@@ -5,6 +5,7 @@ import java.util.Optional;
 import javax.persistence.EntityManager;
 
 import org.assertj.core.api.Assertions;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -12,6 +13,7 @@ import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabas
 import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
@@ -87,6 +89,20 @@ public class UsuarioRepositoryTest {
 		Assertions.assertThat(result.isPresent()).isFalse();
 	}	
 	
+	@Test
+	public void deveRecusarEmailRepetidoPeloIndiceUnico() {
+		//cenário
+		repository.saveAndFlush(criarUsuario());
+		
+		//ação /execução
+		Throwable erro = Assertions.catchThrowable( () -> repository.saveAndFlush(criarUsuario()) );
+		
+		//verificação
+		Assertions.assertThat(erro).isInstanceOf(DataIntegrityViolationException.class);
+		Assertions.assertThat( ((ConstraintViolationException) erro.getCause()).getConstraintName() )
+			.containsIgnoringCase("uk_usuario_email");
+	}
+	
 	public static Usuario criarUsuario() {
 		return	Usuario
 				.builder()
@@ -0,0 +1,64 @@
+package com.lonkoski.minhasFinancas.orcamento;
+
+import java.lang.reflect.Method;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import com.lonkoski.minhasFinancas.jdbc.InterceptadorJdbc;
+
+/**
+ * Conta os comandos SQL executados e as linhas lidas por qualquer caminho até o banco:
+ * Hibernate, consultas nativas e {@code JdbcTemplate}. Um {@code executeBatch} conta
+ * como um comando, que é uma ida ao banco.
+ * 
+ * Os contadores são globais; os testes que os usam rodam uma requisição por vez.
+ */
+public final class ContadorJdbc {
+	
+	private static final AtomicLong COMANDOS = new AtomicLong();
+	private static final AtomicLong LINHAS = new AtomicLong();
+	
+	private ContadorJdbc() {
+	}
+	
+	public static void zerar() {
+		COMANDOS.set(0);
+		LINHAS.set(0);
+	}
+	
+	public static long comandos() {
+		return COMANDOS.get();
+	}
+	
+	public static long linhas() {
+		return LINHAS.get();
+	}
+	
+	private static void contar(Object alvo, Method metodo, Object[] args, Object resultado) {
+		if ( alvo instanceof Statement && metodo.getName().startsWith("execute") ) {
+			COMANDOS.incrementAndGet();
+		}
+		if ( alvo instanceof ResultSet && metodo.getName().equals("next") && Boolean.TRUE.equals(resultado) ) {
+			LINHAS.incrementAndGet();
+		}
+	}
+	
+	/**
+	 * Envolve o {@link javax.sql.DataSource} da aplicação. Importe nos testes que leem os contadores.
+	 */
+	@TestConfiguration
+	public static class Configuracao {
+		
+		@Bean
+		public static BeanPostProcessor contadorJdbcPostProcessor() {
+			return InterceptadorJdbc.postProcessor(ContadorJdbc::contar);
+		}
+		
+	}
+
+}
@@ -0,0 +1,336 @@
+package com.lonkoski.minhasFinancas.orcamento;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.persistence.EntityManager;
+
+import org.assertj.core.api.SoftAssertions;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.lonkoski.minhasFinancas.model.entity.Lancamento;
+import com.lonkoski.minhasFinancas.model.entity.SaldoUsuario;
+import com.lonkoski.minhasFinancas.model.entity.Usuario;
+import com.lonkoski.minhasFinancas.model.repository.LancamentoRepositoryTest;
+import com.lonkoski.minhasFinancas.model.repository.UsuarioRepositoryTest;
+
+/**
+ * Confere, para cada endpoint, os comandos SQL, as linhas lidas e os bytes alocados na
+ * thread da requisição contra os orçamentos de {@code orcamentos/endpoints.properties}.
+ * Comandos e linhas não podem passar do orçamento, o que pega um N+1 já com os
+ * {@value #LANCAMENTOS} lançamentos do cenário; a alocação pode crescer até o dobro.
+ *
+ * Cada endpoint é aquecido antes da medição e medido algumas vezes, ficando a menor
+ * alocação. O flush ao final da requisição faz o papel do commit, já que tudo roda na
+ * transação do teste. Para regravar os orçamentos depois de uma mudança intencional:
+ * <pre>
+ * mvn test -Dtest=OrcamentoEndpointsTest -Dorcamentos.registrar=true
+ * </pre>
+ * e copie {@code target/orcamentos/endpoints.properties} sobre o arquivo do teste.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Transactional
+@Import( ContadorJdbc.Configuracao.class )
+public class OrcamentoEndpointsTest {
+	
+	static final int LANCAMENTOS = 20;
+	
+	private static final String ARQUIVO = "/orcamentos/endpoints.properties";
+	private static final int AQUECIMENTO = 3;
+	private static final int REPETICOES = 5;
+	private static final double TOLERANCIA_ALOCACAO = 2.0;
+	
+	private static final boolean REGISTRAR = Boolean.getBoolean("orcamentos.registrar");
+	private static final Map<String, Medicao> MEDIDAS = new TreeMap<>();
+	private static final AtomicInteger SEQUENCIA = new AtomicInteger();
+	private static Properties orcamentos;
+	
+	@Autowired
+	MockMvc mvc;
+	
+	@Autowired
+	EntityManager entityManager;
+	
+	Usuario usuario;
+	
+	@BeforeAll
+	public static void carregarOrcamentos() throws IOException {
+		orcamentos = new Properties();
+		try ( InputStream entrada = OrcamentoEndpointsTest.class.getResourceAsStream(ARQUIVO) ) {
+			orcamentos.load(entrada);
+		}
+	}
+	
+	@AfterAll
+	public static void registrarMedidas() throws IOException {
+		if ( !REGISTRAR ) {
+			return;
+		}
+		Path destino = Paths.get("target", "orcamentos", "endpoints.properties");
+		Files.createDirectories(destino.getParent());
+		try ( PrintWriter saida = new PrintWriter( Files.newBufferedWriter(destino, StandardCharsets.ISO_8859_1) ) ) {
+			saida.println("# Por requisicao: comandos SQL, linhas lidas e bytes alocados arredondados para KiB.");
+			for ( Map.Entry<String, Medicao> medida : MEDIDAS.entrySet() ) {
+				saida.println(medida.getKey() + ".comandos=" + medida.getValue().comandos);
+				saida.println(medida.getKey() + ".linhas=" + medida.getValue().linhas);
+				saida.println(medida.getKey() + ".bytes=" + ( ( medida.getValue().bytes + 1023 ) / 1024 * 1024 ));
+			}
+		}
+	}
+	
+	@BeforeEach
+	public void setUp() {
+		usuario = UsuarioRepositoryTest.criarUsuario();
+		usuario.setEmail("orcamento@email.com");
+		entityManager.persist(usuario);
+		entityManager.persist( new SaldoUsuario(usuario.getId(), BigDecimal.ZERO, BigDecimal.ZERO) );
+		for ( int i = 0; i < LANCAMENTOS; i++ ) {
+			novoLancamento();
+		}
+		entityManager.flush();
+		entityManager.clear();
+	}
+	
+	@Test
+	public void buscarLancamentos() throws Exception {
+		verificar( "lancamentos.buscar", () -> get("/api/lancamentos").param("usuario", idUsuario()) );
+	}
+	
+	@Test
+	public void buscarLancamentosComTotal() throws Exception {
+		verificar( "lancamentos.buscar-total",
+				() -> get("/api/lancamentos").param("usuario", idUsuario()).param("total", "true") );
+	}
+	
+	@Test
+	public void pesquisarLancamentos() throws Exception {
+		verificar( "lancamentos.pesquisar",
+				() -> get("/api/lancamentos").param("usuario", idUsuario()).param("busca", "qualquer") );
+	}
+	
+	@Test
+	public void exportarLancamentos() throws Exception {
+		verificar( "lancamentos.exportar", () -> get("/api/lancamentos/export").param("usuario", idUsuario()) );
+	}
+	
+	@Test
+	public void obterLancamento() throws Exception {
+		verificar( "lancamentos.obter", () -> get("/api/lancamentos/{id}", novoLancamento().getId()) );
+	}
+	
+	@Test
+	public void salvarLancamento() throws Exception {
+		verificar( "lancamentos.salvar", () -> post("/api/lancamentos")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content( "{\"descricao\":\"Aluguel\",\"mes\":3,\"ano\":2021,\"valor\":900,"
+						+ "\"usuario\":" + usuario.getId() + ",\"tipo\":\"DESPESA\",\"status\":\"PENDENTE\"}" ) );
+	}
+	
+	@Test
+	public void processarLote() throws Exception {
+		verificar( "lancamentos.lote", () -> {
+			StringBuilder lote = new StringBuilder("[");
+			for ( int i = 0; i < 10; i++ ) {
+				lote.append("{\"operacao\":\"CRIAR\",\"descricao\":\"Compra ").append(i)
+					.append("\",\"mes\":3,\"ano\":2021,\"valor\":10,\"usuario\":").append(usuario.getId())
+					.append(",\"tipo\":\"DESPESA\"},");
+			}
+			lote.append("{\"operacao\":\"STATUS\",\"id\":").append(novoLancamento().getId()).append(",\"status\":\"EFETIVADO\"},");
+			lote.append("{\"operacao\":\"DELETAR\",\"id\":").append(novoLancamento().getId()).append("}]");
+			return post("/api/lancamentos/batch").contentType(MediaType.APPLICATION_JSON).content(lote.toString());
+		});
+	}
+	
+	@Test
+	public void importarExtrato() throws Exception {
+		StringBuilder csv = new StringBuilder("Data;Descrição;Valor\n");
+		for ( int i = 1; i <= 100; i++ ) {
+			csv.append("05/03/2021;Compra ").append(i).append(";-10,00\n");
+		}
+		byte[] conteudo = csv.toString().getBytes(StandardCharsets.UTF_8);
+		
+		verificar( "lancamentos.importar", () -> multipart("/api/lancamentos/importacao")
+				.file( new MockMultipartFile("arquivo", "extrato.csv", "text/csv", conteudo) )
+				.param("usuario", idUsuario()) );
+	}
+	
+	@Test
+	public void atualizarLancamento() throws Exception {
+		verificar( "lancamentos.atualizar", () -> put("/api/lancamentos/{id}", novoLancamento().getId())
+				.contentType(MediaType.APPLICATION_JSON)
+				.content( "{\"descricao\":\"Aluguel\",\"mes\":1,\"ano\":2019,\"valor\":10,\"usuario\":" + usuario.getId()
+						+ ",\"tipo\":\"DESPESA\",\"status\":\"PENDENTE\",\"versao\":0}" ) );
+	}
+	
+	@Test
+	public void alterarLancamentoParcialmente() throws Exception {
+		verificar( "lancamentos.alterar", () -> patch("/api/lancamentos/{id}", novoLancamento().getId())
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"valor\":25,\"versao\":0}") );
+	}
+	
+	@Test
+	public void atualizarStatus() throws Exception {
+		verificar( "lancamentos.atualizar-status", () -> put("/api/lancamentos/{id}/atualiza-status", novoLancamento().getId())
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"status\":\"EFETIVADO\"}") );
+	}
+	
+	@Test
+	public void atualizarStatusEmLote() throws Exception {
+		verificar( "lancamentos.atualizar-status-lote", () -> put("/api/lancamentos/atualiza-status")
+				.param("usuario", idUsuario())
+				.param("ano", "2019")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("{\"status\":\"EFETIVADO\"}") );
+	}
+	
+	@Test
+	public void deletarLancamento() throws Exception {
+		verificar( "lancamentos.deletar", () -> delete("/api/lancamentos/{id}", novoLancamento().getId()) );
+	}
+	
+	@Test
+	public void autenticarUsuario() throws Exception {
+		verificar( "usuarios.autenticar", () -> post("/api/usuarios/autenticar")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content( "{\"email\":\"" + usuario.getEmail() + "\",\"senha\":\"" + usuario.getSenha() + "\"}" ) );
+	}
+	
+	@Test
+	public void salvarUsuario() throws Exception {
+		verificar( "usuarios.salvar", () -> post("/api/usuarios")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content( "{\"nome\":\"novo\",\"email\":\"orcamento." + SEQUENCIA.incrementAndGet()
+						+ "@email.com\",\"senha\":\"senha\"}" ) );
+	}
+	
+	@Test
+	public void obterSaldo() throws Exception {
+		verificar( "usuarios.saldo", () -> get("/api/usuarios/{id}/saldo", usuario.getId()) );
+	}
+	
+	private void verificar(String endpoint, Requisicao requisicao) throws Exception {
+		for ( int i = 0; i < AQUECIMENTO; i++ ) {
+			executar(requisicao);
+		}
+		Medicao medida = executar(requisicao);
+		for ( int i = 1; i < REPETICOES; i++ ) {
+			medida = medida.combinar( executar(requisicao) );
+		}
+		MEDIDAS.put(endpoint, medida);
+		if ( REGISTRAR ) {
+			return;
+		}
+		
+		SoftAssertions verificacoes = new SoftAssertions();
+		verificacoes.assertThat(medida.comandos).as("%s: comandos SQL", endpoint)
+			.isLessThanOrEqualTo( orcamento(endpoint, "comandos") );
+		verificacoes.assertThat(medida.linhas).as("%s: linhas lidas", endpoint)
+			.isLessThanOrEqualTo( orcamento(endpoint, "linhas") );
+		verificacoes.assertThat(medida.bytes).as("%s: bytes alocados", endpoint)
+			.isLessThanOrEqualTo( (long) ( orcamento(endpoint, "bytes") * TOLERANCIA_ALOCACAO ) );
+		verificacoes.assertAll();
+	}
+	
+	private Medicao executar(Requisicao requisicao) throws Exception {
+		RequestBuilder chamada = requisicao.preparar();
+		entityManager.flush();
+		entityManager.clear();
+		
+		ContadorJdbc.zerar();
+		long antes = bytesAlocados();
+		mvc.perform(chamada).andExpect( status().is2xxSuccessful() );
+		entityManager.flush();
+		long bytes = bytesAlocados() - antes;
+		Medicao medida = new Medicao( ContadorJdbc.comandos(), ContadorJdbc.linhas(), bytes );
+		
+		entityManager.clear();
+		return medida;
+	}
+	
+	private long orcamento(String endpoint, String medida) {
+		String valor = orcamentos.getProperty(endpoint + "." + medida);
+		if ( valor == null ) {
+			throw new IllegalStateException("Sem orçamento de " + medida + " para " + endpoint + " em " + ARQUIVO
+					+ "; registre com -Dorcamentos.registrar=true.");
+		}
+		return Long.parseLong(valor);
+	}
+	
+	private static long bytesAlocados() {
+		return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+				.getThreadAllocatedBytes( Thread.currentThread().getId() );
+	}
+	
+	private Lancamento novoLancamento() {
+		Lancamento lancamento = LancamentoRepositoryTest.criarLancamento();
+		lancamento.setUsuario( entityManager.getReference(Usuario.class, usuario.getId()) );
+		entityManager.persist(lancamento);
+		return lancamento;
+	}
+	
+	private String idUsuario() {
+		return usuario.getId().toString();
+	}
+	
+	/** Monta a requisição, gravando antes os dados de que ela precisa. */
+	@FunctionalInterface
+	private interface Requisicao {
+		RequestBuilder preparar() throws Exception;
+	}
+	
+	private static final class Medicao {
+		
+		final long comandos;
+		final long linhas;
+		final long bytes;
+		
+		Medicao(long comandos, long linhas, long bytes) {
+			this.comandos = comandos;
+			this.linhas = linhas;
+			this.bytes = bytes;
+		}
+		
+		/** O pior caso de comandos e linhas e a menor alocação, que é a menos afetada por ruído. */
+		Medicao combinar(Medicao outra) {
+			return new Medicao( Math.max(comandos, outra.comandos), Math.max(linhas, outra.linhas), Math.min(bytes, outra.bytes) );
+		}
+	
+	}
+
+}
@@ -0,0 +1,238 @@
+package com.lonkoski.minhasFinancas.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.lonkoski.minhasFinancas.exception.RegraNegocioException;
+import com.lonkoski.minhasFinancas.model.arquivo.ResultadoFechamento;
+import com.lonkoski.minhasFinancas.model.arquivo.SituacaoFechamento;
+import com.lonkoski.minhasFinancas.model.entity.Lancamento;
+import com.lonkoski.minhasFinancas.model.entity.Usuario;
+import com.lonkoski.minhasFinancas.model.enums.EstadoFechamento;
+import com.lonkoski.minhasFinancas.model.enums.TipoLancamento;
+import com.lonkoski.minhasFinancas.model.filtro.FiltroLancamento;
+import com.lonkoski.minhasFinancas.model.filtro.OrdenacaoLancamento;
+import com.lonkoski.minhasFinancas.model.pagina.Pagina;
+import com.lonkoski.minhasFinancas.model.projecao.LancamentoResumo;
+import com.lonkoski.minhasFinancas.model.repository.LancamentoRepositoryTest;
+
+@SpringBootTest( properties = {
+		"spring.datasource.url=jdbc:h2:mem:fechamento;DB_CLOSE_DELAY=-1;INIT=CREATE SCHEMA IF NOT EXISTS financas",
+		"financas.arquivo.habilitado=true",
+		"financas.arquivo.diretorio=target/arquivo-teste",
+		"financas.arquivo.validade-registro=0s" } )
+@ActiveProfiles("test")
+public class FechamentoAnoServiceTest {
+	
+	@Autowired
+	FechamentoAnoService service;
+	
+	@Autowired
+	LancamentoService lancamentoService;
+	
+	@Autowired
+	UsuarioService usuarioService;
+	
+	@Autowired
+	SaldoService saldoService;
+	
+	@Autowired
+	JdbcTemplate jdbc;
+	
+	@AfterEach
+	public void tearDown() {
+		jdbc.update("delete from financas.lancamento_ngrama");
+		jdbc.update("delete from financas.resumo_ano");
+		jdbc.update("delete from financas.arquivo_usuario");
+		jdbc.update("delete from financas.saldo_usuario");
+		jdbc.update("delete from financas.lancamento");
+		jdbc.update("delete from financas.usuario");
+	}
+	
+	@Test
+	public void deveArquivarOsAnosFechadosSemMudarOQueOUsuarioLe() {
+		//cenário
+		Usuario usuario = cadastrarComLancamentos();
+		List<List<LancamentoResumo>> antes = leituras(usuario.getId());
+		BigDecimal saldo = lancamentoService.obterSaldoPorUsuario(usuario.getId());
+		
+		//execução
+		ResultadoFechamento resultado = service.fechar(usuario.getId(), 2020);
+		
+		//verificação
+		assertThat( resultado.getArquivados() ).isEqualTo(8);
+		assertThat( resultado.getTotal() ).isEqualTo(8);
+		assertThat( Files.exists( Paths.get("target/arquivo-teste", resultado.getArquivo()) ) ).isTrue();
+		assertThat( jdbc.queryForObject("select count(*) from financas.lancamento", Long.class) ).isEqualTo(4);
+		assertThat( jdbc.queryForObject("select count(*) from financas.resumo_ano", Long.class) ).isEqualTo(2);
+		
+		assertThat( leituras(usuario.getId()) ).isEqualTo(antes);
+		assertThat( lancamentoService.obterSaldoPorUsuario(usuario.getId()) ).isEqualByComparingTo(saldo);
+		assertThat( saldoService.verificarConsistencia() ).isEmpty();
+		
+		jdbc.update("delete from financas.saldo_usuario");
+		assertThat( lancamentoService.obterSaldoPorUsuario(usuario.getId()) ).isEqualByComparingTo(saldo);
+	}
+	
+	@Test
+	public void deveRecusarEscritasNosAnosFechados() {
+		Usuario usuario = cadastrarComLancamentos();
+		service.fechar(usuario.getId(), 2020);
+		
+		Lancamento fechado = criarLancamento(usuario, 2019, 5, "Mercado", 10);
+		assertThatThrownBy( () -> lancamentoService.salvar(fechado) ).isInstanceOf(RegraNegocioException.class);
+		assertThatThrownBy( () -> service.fechar(usuario.getId(), 2019) ).isInstanceOf(RegraNegocioException.class);
+		
+		lancamentoService.salvar( criarLancamento(usuario, 2020, 5, "Mercado", 10) );
+		assertThat( jdbc.queryForObject("select count(*) from financas.lancamento", Long.class) ).isEqualTo(5);
+	}
+	
+	@Test
+	public void deveJuntarOArquivoAnteriorNoNovoFechamento() {
+		Usuario usuario = cadastrarComLancamentos();
+		List<List<LancamentoResumo>> antes = leituras(usuario.getId());
+		ResultadoFechamento primeiro = service.fechar(usuario.getId(), 2019);
+		
+		ResultadoFechamento segundo = service.fechar(usuario.getId(), 2021);
+		
+		assertThat( segundo.getArquivados() ).isEqualTo(8);
+		assertThat( segundo.getTotal() ).isEqualTo(12);
+		assertThat( Files.exists( Paths.get("target/arquivo-teste", primeiro.getArquivo()) ) ).isFalse();
+		assertThat( jdbc.queryForObject("select count(*) from financas.lancamento", Long.class) ).isZero();
+		assertThat( jdbc.queryForObject("select count(*) from financas.resumo_ano", Long.class) ).isEqualTo(3);
+		assertThat( leituras(usuario.getId()) ).isEqualTo(antes);
+		assertThat( saldoService.verificarConsistencia() ).isEmpty();
+	}
+	
+	@Test
+	public void deveFecharEmSegundoPlanoEInformarASituacao() throws InterruptedException {
+		Usuario usuario = cadastrarComLancamentos();
+		
+		SituacaoFechamento agendado = service.agendar(usuario.getId(), 2020);
+		assertThat( agendado.getEstado() ).isEqualTo(EstadoFechamento.EM_ANDAMENTO);
+		
+		SituacaoFechamento situacao = aguardar(usuario.getId());
+		assertThat( situacao.getEstado() ).isEqualTo(EstadoFechamento.CONCLUIDO);
+		assertThat( situacao.getResultado().getArquivados() ).isEqualTo(8);
+		assertThat( jdbc.queryForObject("select count(*) from financas.lancamento", Long.class) ).isEqualTo(4);
+		
+		assertThatThrownBy( () -> service.agendar(usuario.getId(), 2019) ).isInstanceOf(RegraNegocioException.class);
+	}
+	
+	@Test
+	public void deveRegistrarApenasUmDeDoisFechamentosSimultaneos() throws Exception {
+		Usuario usuario = cadastrarComLancamentos();
+		List<List<LancamentoResumo>> antes = leituras(usuario.getId());
+		CountDownLatch largada = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		List<Future<ResultadoFechamento>> fechamentos = new ArrayList<>();
+		try {
+			for ( int i = 0; i < 2; i++ ) {
+				fechamentos.add( executor.submit( () -> {
+					largada.await();
+					return service.fechar(usuario.getId(), 2020);
+				}));
+			}
+			largada.countDown();
+			
+			List<ResultadoFechamento> concluidos = new ArrayList<>();
+			for ( Future<ResultadoFechamento> fechamento : fechamentos ) {
+				try {
+					concluidos.add( fechamento.get(10, TimeUnit.SECONDS) );
+				} catch ( ExecutionException e ) {
+					assertThat( e.getCause() ).isInstanceOf(RegraNegocioException.class);
+				}
+			}
+			
+			assertThat(concluidos).hasSize(1);
+			String arquivo = jdbc.queryForObject("select arquivo from financas.arquivo_usuario where id_usuario = ?",
+					String.class, usuario.getId());
+			assertThat(arquivo).isEqualTo( concluidos.get(0).getArquivo() );
+			assertThat( Files.exists( Paths.get("target/arquivo-teste", arquivo) ) ).isTrue();
+			assertThat( leituras(usuario.getId()) ).isEqualTo(antes);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+	
+	private SituacaoFechamento aguardar(Long idUsuario) throws InterruptedException {
+		for ( int tentativa = 0; tentativa < 100; tentativa++ ) {
+			SituacaoFechamento situacao = service.obterSituacao(idUsuario).get();
+			if ( situacao.getEstado() != EstadoFechamento.EM_ANDAMENTO ) {
+				return situacao;
+			}
+			Thread.sleep(100);
+		}
+		throw new AssertionError("O fechamento não terminou.");
+	}
+	
+	/**
+	 * Busca em cada ordenação, as páginas da ordenação por valor e a pesquisa.
+	 */
+	private List<List<LancamentoResumo>> leituras(Long idUsuario) {
+		List<List<LancamentoResumo>> leituras = new ArrayList<>();
+		for ( OrdenacaoLancamento ordenacao : OrdenacaoLancamento.values() ) {
+			FiltroLancamento filtro = FiltroLancamento.builder().idUsuario(idUsuario).ordenacao(ordenacao).build();
+			leituras.add( lancamentoService.buscar(filtro) );
+		}
+		leituras.add( lancamentoService.buscar( FiltroLancamento.builder().idUsuario(idUsuario).descricao("merc").anoInicial(2019).build() ) );
+		
+		FiltroLancamento filtro = FiltroLancamento.builder().idUsuario(idUsuario).ordenacao(OrdenacaoLancamento.VALOR_DECRESCENTE).build();
+		Pagina<LancamentoResumo> pagina = lancamentoService.buscarPagina(filtro, null, 5, true);
+		assertThat( pagina.getTotalAproximado() ).isEqualTo(12);
+		List<LancamentoResumo> paginas = new ArrayList<>( pagina.getItens() );
+		while ( pagina.getProximoCursor() != null ) {
+			pagina = lancamentoService.buscarPagina(filtro, pagina.getProximoCursor(), 5, false);
+			paginas.addAll( pagina.getItens() );
+		}
+		leituras.add(paginas);
+		
+		leituras.add( lancamentoService.pesquisar(idUsuario, "mercado", 5) );
+		return leituras;
+	}
+	
+	/**
+	 * Quatro lançamentos em cada ano de 2018 a 2020, com valores repetidos entre os anos.
+	 */
+	private Usuario cadastrarComLancamentos() {
+		Usuario usuario = usuarioService.salvarUsuario( Usuario.builder().nome("fechamento").email("usuario@fechamento.com").senha("senha").build() );
+		String[] descricoes = { "Mercado", "Farmácia", "Salário", "Mercado do bairro" };
+		for ( int ano = 2018; ano <= 2020; ano++ ) {
+			for ( int i = 0; i < descricoes.length; i++ ) {
+				lancamentoService.salvar( criarLancamento(usuario, ano, i + 1, descricoes[i], 10 * (i % 2 + 1)) );
+			}
+		}
+		return usuario;
+	}
+	
+	private static Lancamento criarLancamento(Usuario usuario, int ano, int mes, String descricao, long valor) {
+		Lancamento lancamento = LancamentoRepositoryTest.criarLancamento();
+		lancamento.setUsuario(usuario);
+		lancamento.setAno(ano);
+		lancamento.setMes(mes);
+		lancamento.setDescricao(descricao);
+		lancamento.setValor( BigDecimal.valueOf(valor) );
+		lancamento.setTipo( descricao.equals("Salário") ? TipoLancamento.RECEITA : TipoLancamento.DESPESA );
+		return lancamento;
+	}
+	
+}
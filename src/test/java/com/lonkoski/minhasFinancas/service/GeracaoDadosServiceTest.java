@@ -0,0 +1,80 @@
+package com.lonkoski.minhasFinancas.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.lonkoski.minhasFinancas.exception.RegraNegocioException;
+import com.lonkoski.minhasFinancas.model.enums.TipoLancamento;
+import com.lonkoski.minhasFinancas.model.geracao.ParametrosGeracao;
+import com.lonkoski.minhasFinancas.model.geracao.ResultadoGeracao;
+import com.lonkoski.minhasFinancas.model.repository.LancamentoRepository;
+
+/**
+ * A gravação por JDBC participa da transação do teste, que é desfeita ao final.
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@Transactional
+public class GeracaoDadosServiceTest {
+	
+	@Autowired
+	GeracaoDadosService service;
+	
+	@Autowired
+	LancamentoService lancamentoService;
+	
+	@Autowired
+	LancamentoRepository lancamentoRepository;
+	
+	@Autowired
+	JdbcTemplate jdbc;
+	
+	@Test
+	public void deveGravarAMassaComOSaldoConsolidado() {
+		ParametrosGeracao parametros = ParametrosGeracao.builder().semente(11).usuarios(600).mediaLancamentosPorUsuario(20).tamanhoLote(500).build();
+		
+		ResultadoGeracao resultado = service.gerar(parametros);
+		
+		assertThat(resultado.getIdsUsuarios()).hasSize(600).doesNotContainNull();
+		Long gravados = jdbc.queryForObject("select count(*) from financas.lancamento l join financas.usuario u on u.id = l.id_usuario"
+				+ " where u.email like 'sintetico.11.%'", Long.class);
+		assertThat(gravados).isEqualTo(resultado.getLancamentos());
+		
+		Long usuario = resultado.getIdsUsuarios().get(599);
+		BigDecimal receitas = lancamentoRepository.obterSaldoPorTipoLancamentoEUsuario(usuario, TipoLancamento.RECEITA);
+		BigDecimal despesas = lancamentoRepository.obterSaldoPorTipoLancamentoEUsuario(usuario, TipoLancamento.DESPESA);
+		BigDecimal esperado = (receitas == null ? BigDecimal.ZERO : receitas).subtract(despesas == null ? BigDecimal.ZERO : despesas);
+		assertThat(lancamentoService.obterSaldoPorUsuario(usuario)).isEqualByComparingTo(esperado);
+		assertThat(lancamentoService.obterVersaoDados(usuario)).isEqualTo(1);
+	}
+	
+	@Test
+	public void deveIndexarAPesquisaQuandoSolicitado() {
+		ResultadoGeracao resultado = service.gerar( ParametrosGeracao.builder()
+				.semente(12).usuarios(1).mediaLancamentosPorUsuario(300).indexarPesquisa(true).build() );
+		
+		assertThat( lancamentoService.pesquisar(resultado.getIdsUsuarios().get(0), "mercado", 5) )
+			.isNotEmpty()
+			.allMatch( lancamento -> lancamento.getDescricao().equals("Mercado") );
+	}
+	
+	@Test
+	public void naoDeveGerarAMesmaSementeDuasVezes() {
+		ParametrosGeracao parametros = ParametrosGeracao.builder().semente(13).usuarios(2).mediaLancamentosPorUsuario(5).build();
+		service.gerar(parametros);
+		
+		Throwable erro = Assertions.catchThrowable( () -> service.gerar(parametros) );
+		
+		assertThat(erro).isInstanceOf(RegraNegocioException.class);
+	}
+
+}
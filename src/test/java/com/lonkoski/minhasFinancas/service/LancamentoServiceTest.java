@@ -1,6 +1,7 @@
 package com.lonkoski.minhasFinancas.service;
 
 import java.math.BigDecimal;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 
@@ -10,16 +11,28 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mockito;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.mock.mockito.SpyBean;
-import org.springframework.data.domain.Example;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import com.lonkoski.minhasFinancas.exception.ConflitoVersaoException;
 import com.lonkoski.minhasFinancas.exception.RegraNegocioException;
+import com.lonkoski.minhasFinancas.model.alteracao.AlteracaoLancamento;
 import com.lonkoski.minhasFinancas.model.entity.Lancamento;
 import com.lonkoski.minhasFinancas.model.entity.Usuario;
 import com.lonkoski.minhasFinancas.model.enums.StatusLancamento;
+import com.lonkoski.minhasFinancas.model.enums.TipoOperacaoLote;
+import com.lonkoski.minhasFinancas.model.filtro.FiltroLancamento;
+import com.lonkoski.minhasFinancas.model.filtro.OrdenacaoLancamento;
+import com.lonkoski.minhasFinancas.model.lote.OperacaoLote;
+import com.lonkoski.minhasFinancas.model.lote.ResultadoOperacaoLote;
+import com.lonkoski.minhasFinancas.model.pagina.CursorLancamento;
+import com.lonkoski.minhasFinancas.model.pagina.Pagina;
+import com.lonkoski.minhasFinancas.model.projecao.LancamentoResumo;
 import com.lonkoski.minhasFinancas.model.repository.LancamentoRepository;
 import com.lonkoski.minhasFinancas.model.repository.LancamentoRepositoryTest;
+import com.lonkoski.minhasFinancas.service.arquivo.ArquivoLancamentos;
 import com.lonkoski.minhasFinancas.service.impl.LancamentoServiceImpl;
 
 @ExtendWith(SpringExtension.class)
@@ -30,6 +43,12 @@ public class LancamentoServiceTest {
 	LancamentoServiceImpl service;
 	@MockBean
 	LancamentoRepository repository;
+	@MockBean
+	SaldoService saldoService;
+	@MockBean
+	PesquisaLancamentoService pesquisaService;
+	@MockBean
+	ArquivoLancamentos arquivos;
 	
 	@Test
 	public void deveSalvarUmLancamento(){
@@ -48,6 +67,7 @@ public class LancamentoServiceTest {
 		//verificação
 		Assertions.assertThat(lancamento.getId()).isEqualTo(lancamentoSalvo.getId());		
 		Assertions.assertThat(lancamento.getStatus()).isEqualTo(StatusLancamento.PENDENTE);
+		Mockito.verify(pesquisaService).indexarNovos( Collections.singletonList(lancamentoSalvo) );
 	}
 	
 	@Test
@@ -101,6 +121,7 @@ public class LancamentoServiceTest {
 		
 		//verificacao
 		Mockito.verify(repository).delete(lancamento);
+		Mockito.verify(pesquisaService).remover(1l);
 	}
 	
 	@Test
@@ -122,18 +143,58 @@ public class LancamentoServiceTest {
 		Lancamento lancamento = LancamentoRepositoryTest.criarLancamento();
 		lancamento.setId(1l);
 		
-		List<Lancamento> lista = java.util.Arrays.asList(lancamento);
-		Mockito.when(repository.findAll(Mockito.any(Example.class))).thenReturn(lista);
+		LancamentoResumo resumo = LancamentoResumo.de(lancamento);
+		List<LancamentoResumo> lista = java.util.Arrays.asList(resumo);
+		Mockito.when(repository.buscarResumos(Mockito.any(Specification.class), Mockito.any(Sort.class))).thenReturn(lista);
 		
 		//execucao
-		List<Lancamento> resultado = service.buscar(lancamento);
+		List<LancamentoResumo> resultado = service.buscar( FiltroLancamento.builder().idUsuario(1l).build() );
 		
 		//verificação
 		Assertions
 			.assertThat(resultado)
 			.isNotEmpty()
 			.hasSize(1)
-			.contains(lancamento);
+			.contains(resumo);
+	}
+	
+	@Test
+	public void deveRetornarCursorQuandoHouverMaisLancamentosQueOTamanhoDaPagina() {
+		//cenário
+		Lancamento primeiro = LancamentoRepositoryTest.criarLancamento();
+		primeiro.setId(1l);
+		Lancamento segundo = LancamentoRepositoryTest.criarLancamento();
+		segundo.setId(2l);
+		
+		Mockito.when(repository.buscarResumos(Mockito.any(), Mockito.any(), Mockito.eq(2)))
+			.thenReturn( new java.util.ArrayList<>(java.util.Arrays.asList( LancamentoResumo.de(primeiro), LancamentoResumo.de(segundo) )) );
+		
+		//execucao
+		Pagina<LancamentoResumo> pagina = service.buscarPagina(new FiltroLancamento(), null, 1, false);
+		
+		//verificação
+		Assertions.assertThat(pagina.getItens()).containsExactly( LancamentoResumo.de(primeiro) );
+		Assertions.assertThat( CursorLancamento.decodificar(pagina.getProximoCursor(), OrdenacaoLancamento.DATA_CRESCENTE).getId() ).isEqualTo(1l);
+		Assertions.assertThat(pagina.getTotalAproximado()).isNull();
+		Mockito.verify(repository, Mockito.never()).contarLimitado(Mockito.any(), Mockito.anyInt());
+	}
+	
+	@Test
+	public void deveRejeitarCursorInvalido() {
+		//execucao e verificação
+		Assertions.catchThrowableOfType( () -> service.buscarPagina(new FiltroLancamento(), "???", 10, false), RegraNegocioException.class );
+	}
+	
+	@Test
+	public void deveRejeitarCursorDeOutraOrdenacao() {
+		//cenário
+		Lancamento lancamento = LancamentoRepositoryTest.criarLancamento();
+		lancamento.setId(1l);
+		String cursor = CursorLancamento.depoisDe( LancamentoResumo.de(lancamento), OrdenacaoLancamento.VALOR_CRESCENTE ).codificar();
+		
+		//execucao e verificação
+		Throwable erro = Assertions.catchThrowable( () -> service.buscarPagina(new FiltroLancamento(), cursor, 10, false) );
+		Assertions.assertThat(erro).isInstanceOf(RegraNegocioException.class);
 	}
 	
 	@Test
@@ -155,6 +216,100 @@ public class LancamentoServiceTest {
 		Mockito.verify(service).atualizar(lancamento);
 	}
 
+	@Test
+	public void deveAplicarTodasAsOperacoesDoLote() {
+		//cenario
+		Lancamento novo = LancamentoRepositoryTest.criarLancamento();
+		Lancamento existente = LancamentoRepositoryTest.criarLancamento();
+		existente.setId(2l);
+		
+		Mockito.doNothing().when(service).validar(Mockito.any());
+		Mockito.when(repository.findAllById(Mockito.anySet())).thenReturn(java.util.Arrays.asList(existente));
+		Mockito.doAnswer( invocacao -> {
+			Lancamento salvo = invocacao.getArgument(0);
+			salvo.setId(1l);
+			return salvo;
+		}).when(service).salvar(novo);
+		Mockito.doNothing().when(service).deletar(existente);
+		
+		List<OperacaoLote> lote = java.util.Arrays.asList(
+				OperacaoLote.builder().tipo(TipoOperacaoLote.CRIAR).lancamento(novo).build(),
+				OperacaoLote.builder().tipo(TipoOperacaoLote.DELETAR).lancamento( Lancamento.builder().id(2l).build() ).build() );
+		
+		//execucao
+		List<ResultadoOperacaoLote> resultados = service.processarLote(lote, null);
+		
+		//verificações
+		Assertions.assertThat(resultados).allMatch(ResultadoOperacaoLote::isSucesso);
+		Assertions.assertThat(resultados.get(0).getId()).isEqualTo(1l);
+		Mockito.verify(repository, Mockito.times(1)).findAllById(Mockito.anySet());
+		Mockito.verify(service).deletar(existente);
+	}
+	
+	@Test
+	public void naoDeveAplicarNenhumaOperacaoQuandoUmaForInvalida() {
+		//cenario
+		Lancamento novo = LancamentoRepositoryTest.criarLancamento();
+		Mockito.doNothing().when(service).validar(novo);
+		
+		List<OperacaoLote> lote = java.util.Arrays.asList(
+				OperacaoLote.builder().tipo(TipoOperacaoLote.CRIAR).lancamento(novo).build(),
+				OperacaoLote.builder().tipo(TipoOperacaoLote.DELETAR).lancamento( Lancamento.builder().id(99l).build() ).build() );
+		
+		//execucao
+		List<ResultadoOperacaoLote> resultados = service.processarLote(lote, null);
+		
+		//verificações
+		Assertions.assertThat(resultados).noneMatch(ResultadoOperacaoLote::isSucesso);
+		Assertions.assertThat(resultados.get(1).getMensagem()).isEqualTo("Lancaento não encontrado na base de dados.");
+		Mockito.verify(service, Mockito.never()).salvar(Mockito.any());
+		Mockito.verify(repository, Mockito.never()).save(Mockito.any());
+	}
+
+	@Test
+	public void deveRecusarNoLoteOperacoesSobreUmLancamentoJaRemovido() {
+		//cenario
+		Lancamento existente = LancamentoRepositoryTest.criarLancamento();
+		existente.setId(2l);
+		Mockito.doNothing().when(service).validar(Mockito.any());
+		Mockito.when(repository.findAllById(Mockito.anySet())).thenReturn(java.util.Arrays.asList(existente));
+		
+		List<OperacaoLote> lote = java.util.Arrays.asList(
+				OperacaoLote.builder().tipo(TipoOperacaoLote.DELETAR).lancamento( Lancamento.builder().id(2l).build() ).build(),
+				OperacaoLote.builder().tipo(TipoOperacaoLote.STATUS).status(StatusLancamento.EFETIVADO)
+					.lancamento( Lancamento.builder().id(2l).build() ).build() );
+		
+		//execucao
+		List<ResultadoOperacaoLote> resultados = service.processarLote(lote, null);
+		
+		//verificações
+		Assertions.assertThat(resultados).noneMatch(ResultadoOperacaoLote::isSucesso);
+		Assertions.assertThat(resultados.get(1).getMensagem()).isEqualTo("Lançamento removido por uma operação anterior do lote.");
+		Mockito.verify(service, Mockito.never()).deletar(Mockito.any());
+		Mockito.verify(service, Mockito.never()).atualizarStatus(Mockito.any(), Mockito.any());
+	}
+	
+	@Test
+	public void deveRecusarNoLoteUmaAtualizacaoSemStatus() {
+		//cenario
+		Lancamento existente = LancamentoRepositoryTest.criarLancamento();
+		existente.setId(2l);
+		Lancamento semStatus = LancamentoRepositoryTest.criarLancamento();
+		semStatus.setId(2l);
+		semStatus.setStatus(null);
+		Mockito.doNothing().when(service).validar(Mockito.any());
+		Mockito.when(repository.findAllById(Mockito.anySet())).thenReturn(java.util.Arrays.asList(existente));
+		
+		//execucao
+		List<ResultadoOperacaoLote> resultados = service.processarLote( java.util.Arrays.asList(
+				OperacaoLote.builder().tipo(TipoOperacaoLote.ATUALIZAR).lancamento(semStatus).build() ), null );
+		
+		//verificações
+		Assertions.assertThat(resultados.get(0).isSucesso()).isFalse();
+		Assertions.assertThat(resultados.get(0).getMensagem()).isEqualTo("Informe o status do lançamento.");
+		Mockito.verify(service, Mockito.never()).atualizar(Mockito.any());
+	}
+	
 	@Test
 	private void deveObterUmLancamentoPorID() {
 		//cenario
@@ -254,5 +409,121 @@ public class LancamentoServiceTest {
 	
 	}
 	
+	@Test
+	public void deveAtualizarOStatusEmLoteComUmUnicoUpdate() {
+		//cenário
+		FiltroLancamento filtro = FiltroLancamento.builder().idUsuario(1l).ano(2021).mes(3).status(StatusLancamento.PENDENTE).build();
+		Mockito.when(repository.atualizarStatus(Mockito.any(), Mockito.eq(StatusLancamento.EFETIVADO))).thenReturn(300);
+		
+		//execução
+		int atualizados = service.atualizarStatusEmLote(filtro, null, StatusLancamento.EFETIVADO);
+		
+		//verificação
+		Assertions.assertThat(atualizados).isEqualTo(300);
+		Mockito.verify(repository, Mockito.never()).save(Mockito.any());
+		Mockito.verify(saldoService).registrarModificacao(1l);
+		Mockito.verifyNoMoreInteractions(saldoService);
+		Mockito.verifyNoInteractions(pesquisaService);
+	}
+	
+	@Test
+	public void naoDeveAtualizarStatusEmLoteSemUsuario() {
+		//execução
+		Throwable erro = Assertions.catchThrowable( () ->
+			service.atualizarStatusEmLote(new FiltroLancamento(), null, StatusLancamento.EFETIVADO) );
+		
+		//verificação
+		Assertions.assertThat(erro).isInstanceOf(RegraNegocioException.class).hasMessage("Informe um usuário.");
+		Mockito.verify(repository, Mockito.never()).atualizarStatus(Mockito.any(), Mockito.any());
+	}
+	
+	@Test
+	public void naoDeveConsultarOBancoParaListaDeIdsVazia() {
+		//execução
+		int atualizados = service.atualizarStatusEmLote(
+				FiltroLancamento.builder().idUsuario(1l).build(), Collections.emptyList(), StatusLancamento.EFETIVADO);
+		
+		//verificação
+		Assertions.assertThat(atualizados).isZero();
+		Mockito.verify(repository, Mockito.never()).atualizarStatus(Mockito.any(), Mockito.any());
+	}
 	
+	@Test
+	public void deveAlterarOStatusSemLerOLancamento() {
+		//cenário
+		AlteracaoLancamento alteracao = AlteracaoLancamento.builder().status(StatusLancamento.EFETIVADO).versao(3l).build();
+		Mockito.when(repository.aplicarAlteracao(1l, alteracao)).thenReturn(1);
+		
+		//execução
+		Long versao = service.atualizarParcialmente(1l, alteracao);
+		
+		//verificação
+		Assertions.assertThat(versao).isEqualTo(4l);
+		Mockito.verify(repository, Mockito.never()).findById(Mockito.any());
+		Mockito.verify(saldoService).registrarModificacaoDoLancamento(1l);
+		Mockito.verifyNoMoreInteractions(saldoService);
+		Mockito.verifyNoInteractions(pesquisaService);
+	}
+	
+	@Test
+	public void deveAjustarOSaldoAoAlterarOValor() {
+		//cenário
+		Lancamento lancamento = LancamentoRepositoryTest.criarLancamento();
+		lancamento.setId(1l);
+		lancamento.setVersao(0l);
+		AlteracaoLancamento alteracao = AlteracaoLancamento.builder().valor(BigDecimal.valueOf(25)).versao(0l).build();
+		Mockito.when(repository.findById(1l)).thenReturn(Optional.of(lancamento));
+		Mockito.when(repository.aplicarAlteracao(1l, alteracao)).thenReturn(1);
+		
+		//execução
+		service.atualizarParcialmente(1l, alteracao);
+		
+		//verificação
+		Mockito.verify(saldoService).registrarAlteracao(
+				Mockito.argThat( anterior -> anterior.getValor().equals(lancamento.getValor()) ),
+				Mockito.argThat( atual -> atual.getValor().equals(BigDecimal.valueOf(25)) ) );
+		Mockito.verifyNoInteractions(pesquisaService);
+	}
+	
+	@Test
+	public void deveLancarConflitoQuandoAVersaoMudou() {
+		//cenário
+		AlteracaoLancamento alteracao = AlteracaoLancamento.builder().status(StatusLancamento.CANCELADO).versao(0l).build();
+		Mockito.when(repository.aplicarAlteracao(1l, alteracao)).thenReturn(0);
+		Mockito.when(repository.existsById(1l)).thenReturn(true);
+		
+		//execução
+		Throwable erro = Assertions.catchThrowable( () -> service.atualizarParcialmente(1l, alteracao) );
+		
+		//verificação
+		Assertions.assertThat(erro).isInstanceOf(ConflitoVersaoException.class);
+	}
+	
+	@Test
+	public void deveLancarErroAoAlterarLancamentoInexistente() {
+		//cenário
+		AlteracaoLancamento alteracao = AlteracaoLancamento.builder().status(StatusLancamento.CANCELADO).versao(0l).build();
+		Mockito.when(repository.aplicarAlteracao(1l, alteracao)).thenReturn(0);
+		Mockito.when(repository.existsById(1l)).thenReturn(false);
+		
+		//execução
+		Throwable erro = Assertions.catchThrowable( () -> service.atualizarParcialmente(1l, alteracao) );
+		
+		//verificação
+		Assertions.assertThat(erro).isInstanceOf(RegraNegocioException.class).hasMessage("Lancaento não encontrado na base de dados.");
+	}
+	
+	@Test
+	public void naoDeveAlterarParcialmenteComMesInvalido() {
+		//cenário
+		AlteracaoLancamento alteracao = AlteracaoLancamento.builder().mes(13).versao(0l).build();
+		
+		//execução
+		Throwable erro = Assertions.catchThrowable( () -> service.atualizarParcialmente(1l, alteracao) );
+		
+		//verificação
+		Assertions.assertThat(erro).isInstanceOf(RegraNegocioException.class).hasMessage("Informe um mês válido.");
+		Mockito.verify(repository, Mockito.never()).aplicarAlteracao(Mockito.any(), Mockito.any());
+	}
+
 }
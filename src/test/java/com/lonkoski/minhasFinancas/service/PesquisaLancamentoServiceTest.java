@@ -0,0 +1,99 @@
+package com.lonkoski.minhasFinancas.service;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import com.lonkoski.minhasFinancas.model.entity.Lancamento;
+import com.lonkoski.minhasFinancas.model.entity.NgramaLancamento;
+import com.lonkoski.minhasFinancas.model.entity.Usuario;
+import com.lonkoski.minhasFinancas.model.projecao.LancamentoResumo;
+import com.lonkoski.minhasFinancas.model.repository.LancamentoRepository;
+import com.lonkoski.minhasFinancas.model.repository.LancamentoRepositoryTest;
+import com.lonkoski.minhasFinancas.model.repository.NgramaLancamentoRepository;
+import com.lonkoski.minhasFinancas.service.arquivo.ArquivoLancamentos;
+import com.lonkoski.minhasFinancas.service.impl.PesquisaLancamentoServiceImpl;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+public class PesquisaLancamentoServiceTest {
+	
+	@SpyBean
+	PesquisaLancamentoServiceImpl service;
+	@MockBean
+	NgramaLancamentoRepository repository;
+	@MockBean
+	LancamentoRepository lancamentoRepository;
+	@MockBean
+	ArquivoLancamentos arquivos;
+	
+	@Test
+	public void deveExtrairTrigramasNormalizados() {
+		Set<String> ngramas = PesquisaLancamentoServiceImpl.extrairNgramas("Pão, Água");
+		
+		Assertions.assertThat(ngramas).containsExactly(" pa", "pao", "ao ", " ag", "agu", "gua", "ua ");
+	}
+	
+	@Test
+	@SuppressWarnings("unchecked")
+	public void deveIndexarOsTrigramasDaDescricaoDoLancamento() {
+		//cenário
+		Lancamento lancamento = criarLancamento(10l, "Luz");
+		
+		//execução
+		service.indexar(lancamento);
+		
+		//verificação
+		ArgumentCaptor<List<NgramaLancamento>> entradas = ArgumentCaptor.forClass(List.class);
+		Mockito.verify(repository).removerPorLancamento(10l);
+		Mockito.verify(repository).saveAll(entradas.capture());
+		Assertions.assertThat(entradas.getValue()).containsExactly(
+				new NgramaLancamento(1l, " lu", 10l),
+				new NgramaLancamento(1l, "luz", 10l),
+				new NgramaLancamento(1l, "uz ", 10l));
+	}
+	
+	@Test
+	public void devePriorizarDescricoesQueContemOTextoExato() {
+		//cenário
+		Lancamento parecido = criarLancamento(1l, "Mercados");
+		Lancamento exato = criarLancamento(2l, "Supermercado Central");
+		Mockito.when(repository.pesquisar(Mockito.eq(1l), Mockito.anyCollection(), Mockito.anyLong(), Mockito.any()))
+			.thenReturn(Arrays.asList(1l, 2l));
+		Mockito.when(lancamentoRepository.buscarResumos(Mockito.any(), Mockito.any()))
+			.thenReturn(new java.util.ArrayList<>(Arrays.asList( LancamentoResumo.de(parecido), LancamentoResumo.de(exato) )));
+		
+		//execução
+		List<LancamentoResumo> resultado = service.pesquisar(1l, "mercado c", 10);
+		
+		//verificação
+		Assertions.assertThat(resultado).extracting(LancamentoResumo::getId).containsExactly(2l, 1l);
+	}
+	
+	@Test
+	public void naoDeveConsultarOIndiceQuandoTextoNaoPossuiTermos() {
+		List<LancamentoResumo> resultado = service.pesquisar(1l, " ,. ", 10);
+		
+		Assertions.assertThat(resultado).isEmpty();
+		Mockito.verifyNoInteractions(repository);
+	}
+	
+	private Lancamento criarLancamento(Long id, String descricao) {
+		Lancamento lancamento = LancamentoRepositoryTest.criarLancamento();
+		lancamento.setId(id);
+		lancamento.setDescricao(descricao);
+		lancamento.setUsuario( Usuario.builder().id(1l).build() );
+		return lancamento;
+	}
+
+}
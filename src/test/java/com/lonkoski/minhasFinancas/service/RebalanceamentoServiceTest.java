@@ -0,0 +1,137 @@
+package com.lonkoski.minhasFinancas.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import com.lonkoski.minhasFinancas.config.fragmento.DiretorioFragmentos;
+import com.lonkoski.minhasFinancas.config.fragmento.Fragmentos;
+import com.lonkoski.minhasFinancas.exception.RegraNegocioException;
+import com.lonkoski.minhasFinancas.model.entity.Lancamento;
+import com.lonkoski.minhasFinancas.model.entity.Usuario;
+import com.lonkoski.minhasFinancas.model.enums.TipoLancamento;
+import com.lonkoski.minhasFinancas.model.filtro.FiltroLancamento;
+import com.lonkoski.minhasFinancas.model.fragmento.ResultadoRebalanceamento;
+import com.lonkoski.minhasFinancas.model.repository.LancamentoRepositoryTest;
+
+@SpringBootTest( properties = {
+		"spring.datasource.url=jdbc:h2:mem:rebalanceamento0;DB_CLOSE_DELAY=-1;INIT=CREATE SCHEMA IF NOT EXISTS financas",
+		"financas.fragmentos.habilitado=true",
+		"financas.fragmentos.fontes[0].url=jdbc:h2:mem:rebalanceamento1;DB_CLOSE_DELAY=-1;INIT=CREATE SCHEMA IF NOT EXISTS financas",
+		"financas.fragmentos.fontes[1].url=jdbc:h2:mem:rebalanceamento2;DB_CLOSE_DELAY=-1;INIT=CREATE SCHEMA IF NOT EXISTS financas",
+		"financas.fragmentos.validade-diretorio=0s",
+		"financas.token.obrigatorio=true" } )
+@ActiveProfiles("test")
+public class RebalanceamentoServiceTest {
+	
+	@Autowired
+	RebalanceamentoService service;
+	
+	@Autowired
+	UsuarioService usuarioService;
+	
+	@Autowired
+	LancamentoService lancamentoService;
+	
+	@Autowired
+	Fragmentos fragmentos;
+	
+	@Autowired
+	DiretorioFragmentos diretorio;
+	
+	@AfterEach
+	public void tearDown() {
+		fragmentos.limparUsuario();
+		for ( int fragmento = 0; fragmento < diretorio.getQuantidade(); fragmento++ ) {
+			JdbcTemplate jdbc = jdbc(fragmento);
+			jdbc.update("delete from financas.lancamento_ngrama");
+			jdbc.update("delete from financas.saldo_usuario");
+			jdbc.update("delete from financas.lancamento");
+			jdbc.update("delete from financas.usuario");
+		}
+		jdbc(0).update("delete from financas.diretorio_usuario");
+	}
+	
+	@Test
+	public void deveMoverOUsuarioComTodosOsDadosSemMudarOQueEleLe() {
+		//cenário
+		Usuario usuario = cadastrarComLancamentos();
+		BigDecimal saldo = lancamentoService.obterSaldoPorUsuario(usuario.getId());
+		long versao = lancamentoService.obterVersaoDados(usuario.getId());
+		fragmentos.limparUsuario();
+		
+		//execução
+		ResultadoRebalanceamento resultado = service.mover(usuario.getId(), 2);
+		
+		//verificação
+		assertThat( resultado.getOrigem() ).isZero();
+		assertThat( resultado.getLinhas() ).containsEntry("financas.usuario", 1L)
+				.containsEntry("financas.lancamento", 3L)
+				.containsEntry("financas.saldo_usuario", 1L);
+		assertThat( resultado.getLinhas().get("financas.lancamento_ngrama") ).isPositive();
+		assertThat( diretorio.localizarUsuario(usuario.getId()).get().getFragmento() ).isEqualTo(2);
+		for ( String tabela : resultado.getLinhas().keySet() ) {
+			assertThat( jdbc(0).queryForObject("select count(*) from " + tabela, Long.class) ).isZero();
+			assertThat( jdbc(2).queryForObject("select count(*) from " + tabela, Long.class) ).isEqualTo( resultado.getLinhas().get(tabela) );
+		}
+		
+		fragmentos.definirUsuario(usuario.getId());
+		assertThat( lancamentoService.obterSaldoPorUsuario(usuario.getId()) ).isEqualByComparingTo(saldo);
+		assertThat( lancamentoService.obterVersaoDados(usuario.getId()) ).isEqualTo(versao);
+		assertThat( lancamentoService.buscar( FiltroLancamento.builder().idUsuario(usuario.getId()).build() ) ).hasSize(3);
+		assertThat( lancamentoService.pesquisar(usuario.getId(), "qualquer", 10) ).hasSize(3);
+		assertThat( usuarioService.autenticar(usuario.getEmail(), "senha").getId() ).isEqualTo( usuario.getId() );
+		
+		Lancamento novo = LancamentoRepositoryTest.criarLancamento();
+		novo.setUsuario(usuario);
+		lancamentoService.salvar(novo);
+		assertThat( jdbc(2).queryForObject("select count(*) from financas.lancamento", Long.class) ).isEqualTo(4);
+	}
+	
+	@Test
+	public void deveLiberarOUsuarioQuandoOMovimentoForRecusado() {
+		Usuario usuario = cadastrarComLancamentos();
+		fragmentos.limparUsuario();
+		
+		assertThatThrownBy( () -> service.mover(usuario.getId(), 0) ).isInstanceOf(RegraNegocioException.class);
+		assertThatThrownBy( () -> service.mover(usuario.getId(), 3) ).isInstanceOf(RegraNegocioException.class);
+		assertThatThrownBy( () -> service.mover(-1L, 1) ).isInstanceOf(RegraNegocioException.class);
+		
+		assertThat( fragmentos.emMovimentacao(usuario.getId()) ).isFalse();
+		assertThat( diretorio.localizarUsuario(usuario.getId()).get().getFragmento() ).isZero();
+	}
+	
+	/**
+	 * Usuário no fragmento 0 com três lançamentos; a thread fica no fragmento dele.
+	 */
+	private Usuario cadastrarComLancamentos() {
+		String email = null;
+		for ( int i = 0; email == null; i++ ) {
+			String candidato = "usuario" + i + "@rebalanceamento.com";
+			email = Math.floorMod(candidato.hashCode(), diretorio.getQuantidade()) == 0 ? candidato : null;
+		}
+		Usuario usuario = usuarioService.salvarUsuario( Usuario.builder().nome("rebalanceamento").email(email).senha("senha").build() );
+		
+		fragmentos.definirUsuario(usuario.getId());
+		for ( int i = 0; i < 3; i++ ) {
+			Lancamento lancamento = LancamentoRepositoryTest.criarLancamento();
+			lancamento.setUsuario(usuario);
+			lancamento.setTipo( i == 0 ? TipoLancamento.DESPESA : TipoLancamento.RECEITA );
+			lancamentoService.salvar(lancamento);
+		}
+		return usuario;
+	}
+	
+	private JdbcTemplate jdbc(int fragmento) {
+		return new JdbcTemplate( diretorio.getFonte(fragmento) );
+	}
+	
+}
@@ -0,0 +1,185 @@
+package com.lonkoski.minhasFinancas.service;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mockito;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.lonkoski.minhasFinancas.config.fragmento.Fragmentos;
+import com.lonkoski.minhasFinancas.config.replica.AfinidadePrimaria;
+import com.lonkoski.minhasFinancas.model.entity.Lancamento;
+import com.lonkoski.minhasFinancas.model.entity.SaldoUsuario;
+import com.lonkoski.minhasFinancas.model.entity.Usuario;
+import com.lonkoski.minhasFinancas.model.enums.TipoLancamento;
+import com.lonkoski.minhasFinancas.model.repository.LancamentoRepository;
+import com.lonkoski.minhasFinancas.model.repository.LancamentoRepositoryTest;
+import com.lonkoski.minhasFinancas.model.repository.ResumoAnoRepository;
+import com.lonkoski.minhasFinancas.model.repository.SaldoUsuarioRepository;
+import com.lonkoski.minhasFinancas.service.impl.SaldoServiceImpl;
+
+@ExtendWith(SpringExtension.class)
+@ActiveProfiles("test")
+@Import( Fragmentos.class )
+public class SaldoServiceTest {
+	
+	@SpyBean
+	SaldoServiceImpl service;
+	@MockBean
+	SaldoUsuarioRepository repository;
+	@MockBean
+	LancamentoRepository lancamentoRepository;
+	@MockBean
+	ResumoAnoRepository resumoRepository;
+	@MockBean
+	AfinidadePrimaria afinidade;
+	@MockBean
+	PlatformTransactionManager transactionManager;
+	
+	@Test
+	public void deveSomarOValorDeUmNovoLancamento() {
+		//cenário
+		Lancamento lancamento = criarLancamento(TipoLancamento.RECEITA, 100);
+		Mockito.when(repository.somar(Mockito.anyLong(), Mockito.any(), Mockito.any())).thenReturn(1);
+		
+		//execução
+		service.registrarAlteracao(null, lancamento);
+		
+		//verificação
+		Mockito.verify(repository).somar(1l, BigDecimal.valueOf(100), BigDecimal.ZERO);
+		Mockito.verify(repository, Mockito.never()).save(Mockito.any());
+	}
+	
+	@Test
+	public void deveAplicarSomenteADiferencaAoAtualizarUmLancamento() {
+		//cenário
+		Lancamento anterior = criarLancamento(TipoLancamento.RECEITA, 100);
+		Lancamento atual = criarLancamento(TipoLancamento.DESPESA, 40);
+		Mockito.when(repository.somar(Mockito.anyLong(), Mockito.any(), Mockito.any())).thenReturn(1);
+		
+		//execução
+		service.registrarAlteracao(anterior, atual);
+		
+		//verificação
+		Mockito.verify(repository).somar(1l, BigDecimal.valueOf(-100), BigDecimal.valueOf(40));
+	}
+	
+	@Test
+	public void deveSomenteIncrementarAVersaoQuandoValorETipoNaoMudam() {
+		//cenário
+		Lancamento lancamento = criarLancamento(TipoLancamento.DESPESA, 40);
+		Mockito.when(repository.somar(Mockito.anyLong(), Mockito.any(), Mockito.any())).thenReturn(1);
+		
+		//execução
+		service.registrarAlteracao(lancamento, lancamento);
+		
+		//verificação
+		Mockito.verify(repository).somar(1l, BigDecimal.ZERO, BigDecimal.ZERO);
+		Mockito.verifyNoMoreInteractions(repository);
+	}
+	
+	@Test
+	public void deveConsolidarPelosLancamentosQuandoUsuarioNaoPossuiSaldo() {
+		//cenário
+		Lancamento lancamento = criarLancamento(TipoLancamento.RECEITA, 100);
+		Mockito.when(repository.somar(Mockito.anyLong(), Mockito.any(), Mockito.any())).thenReturn(0);
+		Mockito.when(lancamentoRepository.obterSaldoPorTipoLancamentoEUsuario(1l, TipoLancamento.RECEITA)).thenReturn(BigDecimal.valueOf(250));
+		
+		//execução
+		service.registrarAlteracao(null, lancamento);
+		
+		//verificação
+		Mockito.verify(repository).save( new SaldoUsuario(1l, BigDecimal.valueOf(250), BigDecimal.ZERO, 1l) );
+	}
+	
+	@Test
+	public void deveSomarNoSaldoCriadoPorUmaAlteracaoConcorrente() {
+		//cenário
+		Lancamento lancamento = criarLancamento(TipoLancamento.RECEITA, 100);
+		Mockito.when(repository.somar(Mockito.anyLong(), Mockito.any(), Mockito.any())).thenReturn(0, 1);
+		
+		//execução
+		service.registrarAlteracao(null, lancamento);
+		
+		//verificação
+		Mockito.verify(repository).travarUsuario(1l);
+		Mockito.verify(repository, Mockito.times(2)).somar(1l, BigDecimal.valueOf(100), BigDecimal.ZERO);
+		Mockito.verify(repository, Mockito.never()).save(Mockito.any());
+		Mockito.verifyNoInteractions(lancamentoRepository);
+	}
+	
+	@Test
+	public void deveObterOSaldoConsolidado() {
+		//cenário
+		Mockito.when(repository.findById(1l)).thenReturn(Optional.of(new SaldoUsuario(1l, BigDecimal.valueOf(300), BigDecimal.valueOf(120))));
+		
+		//execução
+		BigDecimal saldo = service.obterSaldo(1l);
+		
+		//verificação
+		Assertions.assertThat(saldo).isEqualByComparingTo("180");
+		Mockito.verifyNoInteractions(lancamentoRepository);
+	}
+	
+	@Test
+	public void deveReportarSaldoDivergenteDosLancamentos() {
+		//cenário
+		Mockito.when(repository.findAll()).thenReturn(Arrays.asList(
+				new SaldoUsuario(1l, BigDecimal.valueOf(100), BigDecimal.ZERO),
+				new SaldoUsuario(2l, BigDecimal.valueOf(50), BigDecimal.ZERO)));
+		Mockito.when(lancamentoRepository.obterTotaisPorUsuarioETipo()).thenReturn(Arrays.asList(
+				new Object[] { 1l, TipoLancamento.RECEITA, BigDecimal.valueOf(100) },
+				new Object[] { 2l, TipoLancamento.RECEITA, BigDecimal.valueOf(70) }));
+		
+		//execução
+		List<DivergenciaSaldo> divergencias = service.verificarConsistencia();
+		
+		//verificação
+		Assertions.assertThat(divergencias).hasSize(1);
+		Assertions.assertThat(divergencias.get(0).getIdUsuario()).isEqualTo(2l);
+		Assertions.assertThat(divergencias.get(0).getReceitasCalculadas()).isEqualByComparingTo("70");
+	}
+	
+	private Lancamento criarLancamento(TipoLancamento tipo, long valor) {
+		Lancamento lancamento = LancamentoRepositoryTest.criarLancamento();
+		lancamento.setUsuario( Usuario.builder().id(1l).build() );
+		lancamento.setTipo(tipo);
+		lancamento.setValor(BigDecimal.valueOf(valor));
+		return lancamento;
+	}
+	
+	@Test
+	public void deveIncrementarAVersaoPeloLancamentoSemCarregaLo() {
+		//cenário
+		Mockito.when(repository.incrementarVersaoPeloLancamento(5l)).thenReturn(1);
+		
+		//execução
+		service.registrarModificacaoDoLancamento(5l);
+		
+		//verificação
+		Mockito.verifyNoInteractions(lancamentoRepository);
+	}
+	
+	@Test
+	public void deveObterVersaoZeroParaUsuarioSemSaldoConsolidado() {
+		//cenário
+		Mockito.when(repository.obterVersaoDados(1l)).thenReturn(Optional.empty());
+		
+		//execução
+		long versao = service.obterVersao(1l);
+		
+		//verificação
+		Assertions.assertThat(versao).isZero();
+	}
+
+}
@@ -0,0 +1,77 @@
+package com.lonkoski.minhasFinancas.service;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.lonkoski.minhasFinancas.model.entity.Usuario;
+import com.lonkoski.minhasFinancas.service.impl.TokenServiceImpl;
+
+public class TokenServiceTest {
+	
+	static final String SEGREDO = "segredo-dos-testes-com-ao-menos-32-bytes";
+	
+	TokenService service = new TokenServiceImpl(SEGREDO, Duration.ofHours(1));
+	Usuario usuario = Usuario.builder().id(42L).nome("usuario").email("usuario@email.com").build();
+	
+	@Test
+	public void deveDecodificarUmTokenEmitido() {
+		//cenário
+		TokenAcesso emitido = service.emitir(usuario);
+		
+		//execução
+		Optional<TokenAcesso> token = service.decodificar(emitido.getToken());
+		
+		//verificação
+		Assertions.assertThat(token).isPresent();
+		Assertions.assertThat(token.get().getIdUsuario()).isEqualTo(42L);
+		Assertions.assertThat(token.get().getExpiraEm().getEpochSecond()).isEqualTo(emitido.getExpiraEm().getEpochSecond());
+		Assertions.assertThat(token.get().expirado()).isFalse();
+	}
+	
+	@Test
+	public void naoDeveAceitarTokenAlterado() {
+		//cenário
+		String token = service.emitir(usuario).getToken();
+		String outroUsuario = "43" + token.substring(token.indexOf('.'));
+		
+		//execução e verificação
+		Assertions.assertThat(service.decodificar(outroUsuario)).isNotPresent();
+		Assertions.assertThat(service.decodificar(token.substring(0, token.length() - 1))).isNotPresent();
+		Assertions.assertThat(service.decodificar("lixo")).isNotPresent();
+	}
+	
+	@Test
+	public void naoDeveAceitarTokenAssinadoComOutroSegredo() {
+		//cenário
+		String token = new TokenServiceImpl("outro-segredo-com-ao-menos-32-bytes", Duration.ofHours(1)).emitir(usuario).getToken();
+		
+		//execução e verificação
+		Assertions.assertThat(service.decodificar(token)).isNotPresent();
+	}
+	
+	@Test
+	public void deveIndicarTokenExpirado() {
+		//cenário
+		TokenService expirando = new TokenServiceImpl(SEGREDO, Duration.ofSeconds(-1));
+		String token = expirando.emitir(usuario).getToken();
+		
+		//execução
+		Optional<TokenAcesso> decodificado = service.decodificar(token);
+		
+		//verificação
+		Assertions.assertThat(decodificado).isPresent();
+		Assertions.assertThat(decodificado.get().expirado()).isTrue();
+	}
+	
+	@Test
+	public void naoDeveSubirSemUmSegredoSuficiente() {
+		Assertions.assertThatThrownBy( () -> new TokenServiceImpl("", Duration.ofHours(1)) )
+			.isInstanceOf(IllegalStateException.class);
+		Assertions.assertThatThrownBy( () -> new TokenServiceImpl("troque-este-segredo", Duration.ofHours(1)) )
+			.isInstanceOf(IllegalStateException.class);
+	}
+
+}
@@ -0,0 +1,112 @@
+package com.lonkoski.minhasFinancas.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.lonkoski.minhasFinancas.config.CacheConfig;
+import com.lonkoski.minhasFinancas.model.entity.Usuario;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * O contexto de persistência é limpo entre as chamadas para que só o cache da
+ * aplicação evite as idas ao banco.
+ */
+@SpringBootTest( properties = "spring.jpa.properties.hibernate.generate_statistics=true" )
+@ActiveProfiles("test")
+@Transactional
+public class UsuarioCacheTest {
+	
+	@Autowired
+	UsuarioService service;
+	
+	@Autowired
+	EntityManager entityManager;
+	
+	@Autowired
+	EntityManagerFactory entityManagerFactory;
+	
+	@Autowired
+	CacheManager cacheManager;
+	
+	@Autowired
+	MeterRegistry meterRegistry;
+	
+	Statistics estatisticas;
+	Usuario usuario;
+	
+	@BeforeEach
+	public void setUp() {
+		cacheManager.getCacheNames().forEach( nome -> cacheManager.getCache(nome).clear() );
+		
+		usuario = Usuario.builder().nome("cache").email("cache@email.com").senha("senha").build();
+		entityManager.persist(usuario);
+		entityManager.flush();
+		entityManager.clear();
+		
+		estatisticas = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+		estatisticas.clear();
+	}
+	
+	@Test
+	public void deveConsultarOBancoUmaVezParaOMesmoUsuario() {
+		double acertosAntes = acertos(CacheConfig.USUARIOS);
+		
+		assertThat(service.obtePorId(usuario.getId())).isPresent();
+		entityManager.clear();
+		assertThat(service.obtePorId(usuario.getId())).isPresent();
+		
+		assertThat(estatisticas.getPrepareStatementCount()).isEqualTo(1);
+		assertThat(acertos(CacheConfig.USUARIOS) - acertosAntes).isEqualTo(1);
+	}
+	
+	@Test
+	public void naoDeveGuardarUsuarioInexistente() {
+		assertThat(service.obtePorId(-1L)).isNotPresent();
+		assertThat(service.obtePorId(-1L)).isNotPresent();
+		
+		assertThat(estatisticas.getPrepareStatementCount()).isEqualTo(2);
+	}
+	
+	@Test
+	public void deveInvalidarOUsuarioAoSalvar() {
+		service.obtePorId(usuario.getId());
+		entityManager.clear();
+		
+		usuario.setNome("alterado");
+		usuario.setEmail("alterado@email.com");
+		service.salvarUsuario(usuario);
+		entityManager.flush();
+		entityManager.clear();
+		estatisticas.clear();
+		
+		assertThat(service.obtePorId(usuario.getId()).get().getNome()).isEqualTo("alterado");
+		assertThat(estatisticas.getPrepareStatementCount()).isEqualTo(1);
+	}
+	
+	@Test
+	public void deveAutenticarConsultandoOEmailUmaVez() {
+		service.autenticar("cache@email.com", "senha");
+		entityManager.clear();
+		service.autenticar("cache@email.com", "senha");
+		
+		assertThat(estatisticas.getPrepareStatementCount()).isEqualTo(1);
+	}
+	
+	private double acertos(String cache) {
+		return meterRegistry.get("cache.gets").tag("cache", cache).tag("result", "hit").functionCounter().count();
+	}
+
+}
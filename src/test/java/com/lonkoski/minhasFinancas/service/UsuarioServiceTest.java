@@ -2,9 +2,11 @@ package com.lonkoski.minhasFinancas.service;
 
 import static org.mockito.Mockito.mock;
 
+import java.sql.SQLException;
 import java.util.Optional;
 
 import org.assertj.core.api.Assertions;
+import org.hibernate.exception.ConstraintViolationException;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -14,17 +16,22 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
+import com.lonkoski.minhasFinancas.config.fragmento.Fragmentos;
 import com.lonkoski.minhasFinancas.exception.ErroAutenticacao;
 import com.lonkoski.minhasFinancas.exception.RegraNegocioException;
 import com.lonkoski.minhasFinancas.model.entity.Usuario;
 import com.lonkoski.minhasFinancas.model.repository.UsuarioRepository;
+import com.lonkoski.minhasFinancas.service.cadastro.FiltroEmails;
 import com.lonkoski.minhasFinancas.service.impl.UsuarioServiceImpl;
 
 @ExtendWith(SpringExtension.class)
 @ActiveProfiles("test")
+@Import( Fragmentos.class )
 public class UsuarioServiceTest {
 
 	@SpyBean
@@ -32,6 +39,9 @@ public class UsuarioServiceTest {
 	
 	@MockBean
 	UsuarioRepository repository;
+	
+	@MockBean
+	FiltroEmails filtroEmails;
 
 
 	@Test
@@ -62,6 +72,7 @@ public class UsuarioServiceTest {
 		//cenario
 		String email = "email@email.com";
 		Usuario usuario = Usuario.builder().email(email).build();
+		Mockito.when(filtroEmails.podeEstarCadastrado(email)).thenReturn(true);
 		Mockito.doThrow(RegraNegocioException.class).when(service).validarEmail(email);
 		
 		//Ação
@@ -72,6 +83,38 @@ public class UsuarioServiceTest {
 		Mockito.verify(repository, Mockito.never()).save(usuario);
 	}
 	
+	@Test
+	public void naoDeveConsultarOEmailQuandoOFiltroDescartarOCadastro() {
+		//cenario
+		Usuario usuario = Usuario.builder().email("novo@email.com").build();
+		Mockito.when(filtroEmails.podeEstarCadastrado("novo@email.com")).thenReturn(false);
+		Mockito.when(repository.save(usuario)).thenReturn(usuario);
+		
+		//Ação
+		service.salvarUsuario(usuario);
+		
+		//Verificação
+		Mockito.verify(repository, Mockito.never()).existsByEmail(Mockito.anyString());
+		Mockito.verify(filtroEmails).registrar("novo@email.com");
+	}
+	
+	@Test
+	public void deveTraduzirAViolacaoDoIndiceUnicoDeEmail() {
+		//cenario
+		Usuario usuario = Usuario.builder().email("email@email.com").build();
+		Mockito.when(repository.save(usuario)).thenThrow( new DataIntegrityViolationException("email duplicado",
+				new ConstraintViolationException("email duplicado", new SQLException(), "uk_usuario_email")) );
+		
+		//Ação
+		Throwable exception = Assertions.catchThrowable( () -> service.salvarUsuario(usuario) );
+		
+		//Verificação
+		Assertions.assertThat(exception)
+			.isInstanceOf(RegraNegocioException.class)
+			.hasMessage("Já existe um usuário cadastrado com este email.");
+		Mockito.verify(filtroEmails, Mockito.never()).registrar(Mockito.anyString());
+	}
+	
 	@Test
 	public void deveAutenticarUmUsuarioComSucesso() {
 		//cenario
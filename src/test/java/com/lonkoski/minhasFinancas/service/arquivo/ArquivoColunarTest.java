@@ -0,0 +1,79 @@
+package com.lonkoski.minhasFinancas.service.arquivo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.lonkoski.minhasFinancas.model.enums.StatusLancamento;
+import com.lonkoski.minhasFinancas.model.enums.TipoLancamento;
+import com.lonkoski.minhasFinancas.model.filtro.FiltroLancamento;
+import com.lonkoski.minhasFinancas.model.projecao.LancamentoResumo;
+
+public class ArquivoColunarTest {
+	
+	@TempDir
+	Path diretorio;
+	
+	@Test
+	public void deveLerOsLancamentosGravadosNaOrdemDeData() throws Exception {
+		LancamentoResumo completo = new LancamentoResumo(3l, "Salário", 5, 2019, new BigDecimal("1500.25"), 7l,
+				TipoLancamento.RECEITA, StatusLancamento.EFETIVADO, LocalDate.of(2019, 5, 2), 4l);
+		LancamentoResumo vazio = new LancamentoResumo(1l, null, null, 2020, null, 7l, null, null, null, null);
+		LancamentoResumo anterior = new LancamentoResumo(2l, "Mercado", 12, 2018, new BigDecimal("-0.05"), 7l,
+				TipoLancamento.DESPESA, StatusLancamento.PENDENTE, null, 0l);
+		
+		ArquivoColunar arquivo = gravar( completo, vazio, anterior );
+		
+		assertThat(arquivo.getIdUsuario()).isEqualTo(7l);
+		assertThat(arquivo.getLinhas()).isEqualTo(3);
+		assertThat(arquivo.todos()).containsExactly(anterior, completo, vazio);
+	}
+	
+	@Test
+	public void deveGuardarCadaDescricaoUmaVez() throws Exception {
+		ArquivoColunar arquivo = gravar(
+				lancamento(1l, "Mercado", 2019, 1, "10"),
+				lancamento(2l, "Farmácia", 2019, 2, "20"),
+				lancamento(3l, "Mercado", 2019, 3, "30") );
+		
+		assertThat(arquivo.getDescricoes()).isEqualTo(2);
+		assertThat( Arrays.asList(arquivo.descricao(0), arquivo.descricao(1)) ).containsExactly("Mercado", "Farmácia");
+		assertThat( arquivo.comDescricoes(new boolean[] { true, false }) ).extracting(LancamentoResumo::getId).containsExactly(1l, 3l);
+	}
+	
+	@Test
+	public void deveAplicarOsFiltrosComoAConsultaDaTabela() throws Exception {
+		ArquivoColunar arquivo = gravar(
+				lancamento(1l, "Mercado do bairro", 2018, 11, "10.00"),
+				lancamento(2l, "Farmácia", 2019, 2, "20.50"),
+				lancamento(3l, "MERCADO", 2019, 6, "30.00"),
+				new LancamentoResumo(4l, "Mercado", 7, 2019, null, 7l, null, null, null, null) );
+		
+		assertThat( arquivo.buscar( FiltroLancamento.builder().descricao("mercado").build() ) )
+			.extracting(LancamentoResumo::getId).containsExactly(1l, 3l, 4l);
+		assertThat( arquivo.buscar( FiltroLancamento.builder().anoInicial(2019).mesInicial(2).anoFinal(2019).mesFinal(6).build() ) )
+			.extracting(LancamentoResumo::getId).containsExactly(2l, 3l);
+		assertThat( arquivo.buscar( FiltroLancamento.builder().valorMinimo(new BigDecimal("10.001")).valorMaximo(new BigDecimal("30")).build() ) )
+			.extracting(LancamentoResumo::getId).containsExactly(2l, 3l);
+		assertThat( arquivo.buscar( FiltroLancamento.builder().tipo(TipoLancamento.DESPESA).ano(2019).build() ) )
+			.extracting(LancamentoResumo::getId).containsExactly(2l, 3l);
+	}
+	
+	private ArquivoColunar gravar(LancamentoResumo... lancamentos) throws Exception {
+		Path caminho = diretorio.resolve("lancamentos.col");
+		ArquivoColunar.gravar(caminho, 7l, Arrays.asList(lancamentos));
+		return ArquivoColunar.abrir(caminho);
+	}
+	
+	private static LancamentoResumo lancamento(Long id, String descricao, int ano, int mes, String valor) {
+		return new LancamentoResumo(id, descricao, mes, ano, new BigDecimal(valor), 7l,
+				TipoLancamento.DESPESA, StatusLancamento.PENDENTE, LocalDate.of(ano, mes, 1), 0l);
+	}
+	
+}
@@ -0,0 +1,37 @@
+package com.lonkoski.minhasFinancas.service.cadastro;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class FiltroBloomTest {
+	
+	@Test
+	public void deveConterTodosOsElementosAdicionados() {
+		FiltroBloom filtro = new FiltroBloom(10_000, 0.01);
+		for ( int i = 0; i < 10_000; i++ ) {
+			filtro.adicionar("usuario" + i + "@email.com");
+		}
+		
+		for ( int i = 0; i < 10_000; i++ ) {
+			Assertions.assertThat(filtro.podeConter("usuario" + i + "@email.com")).isTrue();
+		}
+	}
+	
+	@Test
+	public void deveManterOsFalsosPositivosPertoDaTaxaConfigurada() {
+		FiltroBloom filtro = new FiltroBloom(10_000, 0.01);
+		for ( int i = 0; i < 10_000; i++ ) {
+			filtro.adicionar("usuario" + i + "@email.com");
+		}
+		
+		int falsosPositivos = 0;
+		for ( int i = 0; i < 100_000; i++ ) {
+			if ( filtro.podeConter("outro" + i + "@email.com") ) {
+				falsosPositivos++;
+			}
+		}
+		
+		Assertions.assertThat(falsosPositivos / 100_000.0).isLessThan(0.02);
+	}
+
+}
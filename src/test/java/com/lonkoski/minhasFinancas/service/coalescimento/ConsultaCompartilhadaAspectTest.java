@@ -0,0 +1,164 @@
+package com.lonkoski.minhasFinancas.service.coalescimento;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class ConsultaCompartilhadaAspectTest {
+	
+	SimpleMeterRegistry registro;
+	ConsultaLenta alvo;
+	ConsultaLenta consulta;
+	ExecutorService executor;
+	InicioRequisicao inicioRequisicao;
+	long inicio;
+	
+	@BeforeEach
+	public void setUp() {
+		registro = new SimpleMeterRegistry();
+		alvo = new ConsultaLenta();
+		inicioRequisicao = new InicioRequisicao();
+		inicio = System.nanoTime();
+		AspectJProxyFactory fabrica = new AspectJProxyFactory(alvo);
+		fabrica.addAspect( new ConsultaCompartilhadaAspect(registro, inicioRequisicao) );
+		consulta = fabrica.getProxy();
+		executor = Executors.newFixedThreadPool(8);
+	}
+	
+	@AfterEach
+	public void tearDown() {
+		executor.shutdownNow();
+	}
+	
+	@Test
+	public void deveExecutarUmaVezAsChamadasSimultaneasIdenticas() throws Exception {
+		//cenário
+		List<Future<String>> chamadas = new ArrayList<>();
+		for ( int i = 0; i < 8; i++ ) {
+			chamadas.add( executor.submit( () -> obterNaRequisicao(inicio, 1l) ) );
+		}
+		Assertions.assertThat( alvo.iniciada.await(5, TimeUnit.SECONDS) ).isTrue();
+		aguardarCompartilhadas(7);
+		
+		//execução
+		alvo.liberar.countDown();
+		
+		//verificação
+		for ( Future<String> chamada : chamadas ) {
+			Assertions.assertThat( chamada.get(5, TimeUnit.SECONDS) ).isEqualTo("resultado 1");
+		}
+		Assertions.assertThat(alvo.execucoes.get()).isEqualTo(1);
+		Assertions.assertThat(contagem("executada")).isEqualTo(1);
+		Assertions.assertThat(contagem("compartilhada")).isEqualTo(7);
+	}
+	
+	@Test
+	public void naoDeveCompartilharChamadasComArgumentosDiferentes() throws Exception {
+		//cenário
+		alvo.liberar.countDown();
+		
+		//execução
+		consulta.obter(1l);
+		consulta.obter(2l);
+		consulta.obter(1l);
+		
+		//verificação
+		Assertions.assertThat(alvo.execucoes.get()).isEqualTo(3);
+		Assertions.assertThat(contagem("compartilhada")).isZero();
+	}
+	
+	@Test
+	public void deveRepassarOErroAQuemCompartilhouAChamada() throws Exception {
+		//cenário
+		Future<String> primeira = executor.submit( () -> obterNaRequisicao(inicio, -1l) );
+		Assertions.assertThat( alvo.iniciada.await(5, TimeUnit.SECONDS) ).isTrue();
+		Future<String> segunda = executor.submit( () -> obterNaRequisicao(inicio, -1l) );
+		aguardarCompartilhadas(1);
+		
+		//execução
+		alvo.liberar.countDown();
+		
+		//verificação
+		for ( Future<String> chamada : new Future[] { primeira, segunda } ) {
+			Throwable erro = Assertions.catchThrowable( () -> chamada.get(5, TimeUnit.SECONDS) );
+			Assertions.assertThat(erro).hasCauseInstanceOf(IllegalArgumentException.class);
+		}
+	}
+	
+	@Test
+	public void naoDevePegarCaronaNumaChamadaIniciadaAntesDaRequisicao() throws Exception {
+		//cenário
+		Future<String> anterior = executor.submit( () -> obterNaRequisicao(inicio, 1l) );
+		Assertions.assertThat( alvo.iniciada.await(5, TimeUnit.SECONDS) ).isTrue();
+		
+		//execução
+		long posterior = System.nanoTime();
+		Future<String> depois = executor.submit( () -> obterNaRequisicao(posterior, 1l) );
+		long limite = System.currentTimeMillis() + 5000;
+		while ( alvo.execucoes.get() < 2 && System.currentTimeMillis() < limite ) {
+			Thread.sleep(5);
+		}
+		alvo.liberar.countDown();
+		
+		//verificação
+		Assertions.assertThat( anterior.get(5, TimeUnit.SECONDS) ).isEqualTo("resultado 1");
+		Assertions.assertThat( depois.get(5, TimeUnit.SECONDS) ).isEqualTo("resultado 1");
+		Assertions.assertThat(alvo.execucoes.get()).isEqualTo(2);
+		Assertions.assertThat(contagem("compartilhada")).isZero();
+	}
+	
+	private String obterNaRequisicao(long inicioNanos, Long id) throws InterruptedException {
+		inicioRequisicao.definir(inicioNanos);
+		try {
+			return consulta.obter(id);
+		} finally {
+			inicioRequisicao.limpar();
+		}
+	}
+	
+	private void aguardarCompartilhadas(int quantidade) throws InterruptedException {
+		long limite = System.currentTimeMillis() + 5000;
+		while ( contagem("compartilhada") < quantidade && System.currentTimeMillis() < limite ) {
+			Thread.sleep(5);
+		}
+	}
+	
+	private double contagem(String resultado) {
+		return registro.find("financas.consultas.compartilhadas").tag("resultado", resultado).counters().stream()
+				.mapToDouble( contador -> contador.count() )
+				.sum();
+	}
+	
+	public static class ConsultaLenta {
+		
+		final CountDownLatch iniciada = new CountDownLatch(1);
+		final CountDownLatch liberar = new CountDownLatch(1);
+		final AtomicInteger execucoes = new AtomicInteger();
+		
+		@ConsultaCompartilhada
+		public String obter(Long id) throws InterruptedException {
+			execucoes.incrementAndGet();
+			iniciada.countDown();
+			liberar.await(5, TimeUnit.SECONDS);
+			if ( id < 0 ) {
+				throw new IllegalArgumentException("id inválido");
+			}
+			return "resultado " + id;
+		}
+		
+	}
+
+}
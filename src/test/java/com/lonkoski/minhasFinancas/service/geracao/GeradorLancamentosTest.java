@@ -0,0 +1,62 @@
+package com.lonkoski.minhasFinancas.service.geracao;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.lonkoski.minhasFinancas.model.entity.Lancamento;
+import com.lonkoski.minhasFinancas.model.enums.StatusLancamento;
+import com.lonkoski.minhasFinancas.model.enums.TipoLancamento;
+import com.lonkoski.minhasFinancas.model.geracao.ParametrosGeracao;
+
+public class GeradorLancamentosTest {
+	
+	@Test
+	public void deveGerarOsMesmosLancamentosParaAMesmaSemente() {
+		GeradorLancamentos gerador = new GeradorLancamentos( ParametrosGeracao.builder().semente(7).build() );
+		GeradorLancamentos outro = new GeradorLancamentos( ParametrosGeracao.builder().semente(7).usuarios(1).build() );
+		
+		Assertions.assertThat( outro.lancamentos(3) ).isEqualTo( gerador.lancamentos(3) );
+		Assertions.assertThat( outro.usuario(3) ).isEqualTo( gerador.usuario(3) );
+	}
+	
+	@Test
+	public void deveGerarLancamentosDiferentesParaSementesDiferentes() {
+		GeradorLancamentos gerador = new GeradorLancamentos( ParametrosGeracao.builder().semente(7).build() );
+		GeradorLancamentos outro = new GeradorLancamentos( ParametrosGeracao.builder().semente(8).build() );
+		
+		Assertions.assertThat( outro.lancamentos(0) ).isNotEqualTo( gerador.lancamentos(0) );
+		Assertions.assertThat( outro.email(0) ).isNotEqualTo( gerador.email(0) );
+	}
+	
+	@Test
+	public void deveDistribuirOsLancamentosComoNaBaseReal() {
+		ParametrosGeracao parametros = ParametrosGeracao.builder().mediaLancamentosPorUsuario(200).anoInicial(2019).anoFinal(2023).build();
+		GeradorLancamentos gerador = new GeradorLancamentos(parametros);
+		List<Lancamento> lancamentos = new ArrayList<>();
+		for ( int i = 0; i < 200; i++ ) {
+			lancamentos.addAll( gerador.lancamentos(i) );
+		}
+		
+		double media = lancamentos.size() / 200.0;
+		long receitas = lancamentos.stream().filter( l -> l.getTipo() == TipoLancamento.RECEITA ).count();
+		long de2019 = lancamentos.stream().filter( l -> l.getAno() == 2019 ).count();
+		long de2023 = lancamentos.stream().filter( l -> l.getAno() == 2023 ).count();
+		long pendentesAntigos = lancamentos.stream()
+				.filter( l -> l.getAno() < 2023 && l.getStatus() == StatusLancamento.PENDENTE ).count();
+		long pendentesDeDezembro = lancamentos.stream()
+				.filter( l -> l.getAno() == 2023 && l.getMes() == 12 && l.getStatus() == StatusLancamento.PENDENTE ).count();
+		long dezembro = lancamentos.stream().filter( l -> l.getAno() == 2023 && l.getMes() == 12 ).count();
+		
+		Assertions.assertThat(media).isBetween(170.0, 230.0);
+		Assertions.assertThat( receitas / (double) lancamentos.size() ).isBetween(0.22, 0.28);
+		Assertions.assertThat(lancamentos).allMatch( l -> l.getAno() >= 2019 && l.getAno() <= 2023 && l.getMes() >= 1 && l.getMes() <= 12 );
+		Assertions.assertThat(lancamentos).allMatch( l -> l.getValor().signum() > 0 && l.getValor().scale() == 2 );
+		Assertions.assertThat(de2023).isGreaterThan(de2019 * 3);
+		Assertions.assertThat( pendentesAntigos / (double) lancamentos.size() ).isLessThan(0.02);
+		Assertions.assertThat( pendentesDeDezembro / (double) dezembro ).isGreaterThan(0.5);
+	}
+
+}
@@ -0,0 +1,134 @@
+package com.lonkoski.minhasFinancas.service.importacao;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.lonkoski.minhasFinancas.model.enums.FormatoExtrato;
+import com.lonkoski.minhasFinancas.model.importacao.LinhaExtrato;
+
+public class LeitorExtratoTest {
+	
+	@Test
+	public void deveLerCsvComCabecalhoEValoresNoFormatoBrasileiro() throws IOException {
+		//cenário
+		String csv = "Valor;Data;Histórico\n"
+				+ "\"-1.234,56\";15/03/2021;\"Aluguel; março\"\n"
+				+ "\n"
+				+ "2500,00;2021-03-05;Salário\n";
+		
+		//execução
+		List<LinhaExtrato> linhas = ler(FormatoExtrato.CSV, csv);
+		
+		//verificação
+		Assertions.assertThat(linhas).hasSize(2);
+		Assertions.assertThat(linhas.get(0).getNumero()).isEqualTo(2);
+		Assertions.assertThat(linhas.get(0).getDescricao()).isEqualTo("Aluguel; março");
+		Assertions.assertThat(linhas.get(0).getData()).isEqualTo(LocalDate.of(2021, 3, 15));
+		Assertions.assertThat(linhas.get(0).getValor()).isEqualByComparingTo(new BigDecimal("-1234.56"));
+		Assertions.assertThat(linhas.get(1).getNumero()).isEqualTo(4);
+		Assertions.assertThat(linhas.get(1).getValor()).isEqualByComparingTo(new BigDecimal("2500"));
+	}
+	
+	@Test
+	public void deveLerCsvSemCabecalhoNaOrdemDataDescricaoValor() throws IOException {
+		//cenário
+		String csv = "2021-03-15,Mercado,-89.90\n";
+		
+		//execução
+		List<LinhaExtrato> linhas = ler(FormatoExtrato.CSV, csv);
+		
+		//verificação
+		Assertions.assertThat(linhas).hasSize(1);
+		Assertions.assertThat(linhas.get(0).getErro()).isNull();
+		Assertions.assertThat(linhas.get(0).getDescricao()).isEqualTo("Mercado");
+		Assertions.assertThat(linhas.get(0).getValor()).isEqualByComparingTo(new BigDecimal("-89.90"));
+	}
+	
+	@Test
+	public void deveRelatarLinhasInvalidasSemInterromperALeitura() throws IOException {
+		//cenário
+		String csv = "data;descricao;valor\n"
+				+ "32/03/2021;Data inválida;10\n"
+				+ "15/03/2021;Valor inválido;dez reais\n"
+				+ "15/03/2021;Faltando valor\n"
+				+ "15/03/2021;Válida;10\n";
+		
+		//execução
+		List<LinhaExtrato> linhas = ler(FormatoExtrato.CSV, csv);
+		
+		//verificação
+		Assertions.assertThat(linhas).extracting(LinhaExtrato::getErro).containsExactly(
+				ValoresExtrato.DATA_INVALIDA, ValoresExtrato.VALOR_INVALIDO, "Linha com colunas insuficientes.", null);
+	}
+	
+	@Test
+	public void deveLerOfxSgmlSemQuebrasDeLinhaNemTagsDeFechamento() throws IOException {
+		//cenário
+		String ofx = "OFXHEADER:100\nDATA:OFXSGML\n\n"
+				+ "<OFX><BANKMSGSRSV1><STMTTRNRS><STMTRS><BANKTRANLIST>"
+				+ "<STMTTRN><TRNTYPE>DEBIT<DTPOSTED>20210315120000[-3:BRT]<TRNAMT>-50.00<FITID>1<MEMO>Farmácia &amp; cia"
+				+ "</STMTTRN>\n"
+				+ "<STMTTRN><TRNTYPE>CREDIT<DTPOSTED>20210316<TRNAMT>1500,00<NAME>Salário</STMTTRN>"
+				+ "</BANKTRANLIST></STMTRS></STMTTRNRS></BANKMSGSRSV1></OFX>";
+		
+		//execução
+		List<LinhaExtrato> linhas = ler(FormatoExtrato.OFX, ofx);
+		
+		//verificação
+		Assertions.assertThat(linhas).hasSize(2);
+		Assertions.assertThat(linhas.get(0).getNumero()).isEqualTo(4);
+		Assertions.assertThat(linhas.get(0).getDescricao()).isEqualTo("Farmácia & cia");
+		Assertions.assertThat(linhas.get(0).getData()).isEqualTo(LocalDate.of(2021, 3, 15));
+		Assertions.assertThat(linhas.get(0).getValor()).isEqualByComparingTo(new BigDecimal("-50"));
+		Assertions.assertThat(linhas.get(1).getNumero()).isEqualTo(5);
+		Assertions.assertThat(linhas.get(1).getDescricao()).isEqualTo("Salário");
+		Assertions.assertThat(linhas.get(1).getValor()).isEqualByComparingTo(new BigDecimal("1500"));
+	}
+	
+	@Test
+	public void deveLerOfxXml() throws IOException {
+		//cenário
+		String ofx = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+				+ "<?OFX OFXHEADER=\"200\" VERSION=\"211\"?>\n"
+				+ "<OFX>\n"
+				+ "  <STMTTRN>\n"
+				+ "    <DTPOSTED>20210301</DTPOSTED>\n"
+				+ "    <TRNAMT>-12.30</TRNAMT>\n"
+				+ "    <MEMO>Padaria</MEMO>\n"
+				+ "  </STMTTRN>\n"
+				+ "  <STMTTRN>\n"
+				+ "    <DTPOSTED>2021</DTPOSTED>\n"
+				+ "    <TRNAMT>-1.00</TRNAMT>\n"
+				+ "  </STMTTRN>\n"
+				+ "</OFX>\n";
+		
+		//execução
+		List<LinhaExtrato> linhas = ler(FormatoExtrato.OFX, ofx);
+		
+		//verificação
+		Assertions.assertThat(linhas).hasSize(2);
+		Assertions.assertThat(linhas.get(0).getErro()).isNull();
+		Assertions.assertThat(linhas.get(0).getDescricao()).isEqualTo("Padaria");
+		Assertions.assertThat(linhas.get(1).getNumero()).isEqualTo(9);
+		Assertions.assertThat(linhas.get(1).getErro()).isEqualTo(ValoresExtrato.DATA_INVALIDA);
+	}
+	
+	private static List<LinhaExtrato> ler(FormatoExtrato formato, String conteudo) throws IOException {
+		List<LinhaExtrato> linhas = new ArrayList<>();
+		try ( LeitorExtrato leitor = LeitorExtrato.para(formato, new StringReader(conteudo)) ) {
+			LinhaExtrato linha;
+			while ( (linha = leitor.proxima()) != null ) {
+				linhas.add(linha);
+			}
+		}
+		return linhas;
+	}
+
+}
@@ -0,0 +1,74 @@
+package com.lonkoski.minhasFinancas.service.jfr;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import jdk.jfr.Recording;
+
+public class AnaliseGravacaoTest {
+	
+	@TempDir
+	Path pasta;
+	
+	@Test
+	public void deveResumirAsOperacoesDaGravacao() throws Exception {
+		Path arquivo = pasta.resolve("financas.jfr");
+		try ( Recording gravacao = new Recording() ) {
+			gravacao.enable(OperacaoEvento.NOME).withThreshold(Duration.ZERO);
+			gravacao.start();
+			
+			for ( int i = 0; i < 10; i++ ) {
+				OperacaoEvento evento = OperacaoEvento.iniciar(OperacaoEvento.BUSCAR);
+				evento.fimValidacao();
+				Thread.sleep(1);
+				evento.fimRepositorio();
+				evento.concluir(7l, 3);
+				evento.finalizar();
+			}
+			OperacaoEvento falha = OperacaoEvento.iniciar(OperacaoEvento.AUTENTICAR);
+			falha.fimRepositorio();
+			falha.finalizar();
+			
+			gravacao.stop();
+			gravacao.dump(arquivo);
+		}
+		
+		Map<String, ResumoOperacao> resumos = AnaliseGravacao.resumir(arquivo);
+		
+		assertThat(resumos.keySet()).containsExactly(OperacaoEvento.BUSCAR, OperacaoEvento.AUTENTICAR);
+		ResumoOperacao busca = resumos.get(OperacaoEvento.BUSCAR);
+		assertThat(busca.getQuantidade()).isEqualTo(10);
+		assertThat(busca.getFalhas()).isZero();
+		assertThat(busca.getLinhas()).isEqualTo(30);
+		assertThat(busca.getRepositorioNanos()).isGreaterThanOrEqualTo( Duration.ofMillis(10).toNanos() );
+		assertThat(busca.percentil(50)).isLessThanOrEqualTo(busca.percentil(99));
+		assertThat(busca.getFracaoRepositorio()).isBetween(0.5, 1.0);
+		assertThat(resumos.get(OperacaoEvento.AUTENTICAR).getFalhas()).isEqualTo(1);
+	}
+	
+	@Test
+	public void naoDeveGravarQuandoOEventoEstaDesabilitado() throws Exception {
+		Path arquivo = pasta.resolve("vazia.jfr");
+		try ( Recording gravacao = new Recording() ) {
+			gravacao.disable(OperacaoEvento.NOME);
+			gravacao.start();
+			
+			OperacaoEvento evento = OperacaoEvento.iniciar(OperacaoEvento.SALVAR);
+			evento.fimValidacao();
+			evento.concluir(1l, 1);
+			evento.finalizar();
+			
+			gravacao.stop();
+			gravacao.dump(arquivo);
+		}
+		
+		assertThat( AnaliseGravacao.resumir(arquivo) ).isEmpty();
+	}
+
+}
@@ -0,0 +1,138 @@
+package com.lonkoski.minhasFinancas.service.metricas;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import javax.persistence.EntityManager;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.metrics.AutoConfigureMetrics;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.lonkoski.minhasFinancas.exception.ErroAutenticacao;
+import com.lonkoski.minhasFinancas.model.entity.Lancamento;
+import com.lonkoski.minhasFinancas.model.entity.Usuario;
+import com.lonkoski.minhasFinancas.model.filtro.FiltroLancamento;
+import com.lonkoski.minhasFinancas.model.repository.LancamentoRepositoryTest;
+import com.lonkoski.minhasFinancas.model.repository.UsuarioRepositoryTest;
+import com.lonkoski.minhasFinancas.service.LancamentoService;
+import com.lonkoski.minhasFinancas.service.UsuarioService;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Os medidores são do contexto compartilhado entre as classes de teste, então as
+ * verificações comparam a contagem antes e depois de cada chamada. O
+ * {@link AutoConfigureMetrics} mantém o registro do Prometheus, que os testes desligam por padrão.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureMetrics
+@ActiveProfiles("test")
+@Transactional
+public class MetricasAspectTest {
+	
+	@Autowired
+	LancamentoService lancamentoService;
+	
+	@Autowired
+	UsuarioService usuarioService;
+	
+	@Autowired
+	EntityManager entityManager;
+	
+	@Autowired
+	MeterRegistry registro;
+	
+	@Autowired
+	MockMvc mvc;
+	
+	Usuario usuario;
+	
+	@BeforeEach
+	public void setUp() {
+		usuario = UsuarioRepositoryTest.criarUsuario();
+		entityManager.persist(usuario);
+		for ( int i = 0; i < 3; i++ ) {
+			Lancamento lancamento = LancamentoRepositoryTest.criarLancamento();
+			lancamento.setUsuario(usuario);
+			entityManager.persist(lancamento);
+		}
+		entityManager.flush();
+		entityManager.clear();
+	}
+	
+	@Test
+	public void deveMedirABuscaEAsLinhasDevolvidas() {
+		long buscas = contagem( timer(MetricasAspect.SERVICOS, "LancamentoService", "buscar", "nenhuma") );
+		
+		lancamentoService.buscar( FiltroLancamento.builder().idUsuario(usuario.getId()).build() );
+		
+		assertThat( contagem( timer(MetricasAspect.SERVICOS, "LancamentoService", "buscar", "nenhuma") ) ).isEqualTo(buscas + 1);
+		DistributionSummary linhas = registro.find(MetricasAspect.SERVICOS + ".linhas")
+				.tag("classe", "LancamentoService").tag("metodo", "buscar").summary();
+		assertThat(linhas).isNotNull();
+		assertThat(linhas.max()).isGreaterThanOrEqualTo(3);
+	}
+	
+	@Test
+	public void deveMedirAsConsultasDosRepositoriosPelaInterfaceDaAplicacao() {
+		long consultas = contagem( timer(MetricasAspect.REPOSITORIOS, "UsuarioRepository", "findByEmail", "nenhuma") );
+		
+		usuarioService.autenticar(usuario.getEmail(), usuario.getSenha());
+		
+		assertThat( contagem( timer(MetricasAspect.REPOSITORIOS, "UsuarioRepository", "findByEmail", "nenhuma") ) )
+			.isEqualTo(consultas + 1);
+	}
+	
+	@Test
+	public void deveContarAsFalhasDeAutenticacaoPorMotivo() {
+		double naoEncontrado = falhas(ErroAutenticacao.Motivo.USUARIO_NAO_ENCONTRADO);
+		double senhaInvalida = falhas(ErroAutenticacao.Motivo.SENHA_INVALIDA);
+		
+		Assertions.catchThrowable( () -> usuarioService.autenticar("ninguem@email.com", "senha") );
+		Assertions.catchThrowable( () -> usuarioService.autenticar(usuario.getEmail(), "outra") );
+		Assertions.catchThrowable( () -> usuarioService.autenticar(usuario.getEmail(), "outra") );
+		
+		assertThat( falhas(ErroAutenticacao.Motivo.USUARIO_NAO_ENCONTRADO) ).isEqualTo(naoEncontrado + 1);
+		assertThat( falhas(ErroAutenticacao.Motivo.SENHA_INVALIDA) ).isEqualTo(senhaInvalida + 2);
+		assertThat( contagem( timer(MetricasAspect.SERVICOS, "UsuarioService", "autenticar", "ErroAutenticacao") ) ).isGreaterThanOrEqualTo(3);
+	}
+	
+	@Test
+	public void deveExporOsTemposDosServicosNoFormatoDoPrometheus() throws Exception {
+		lancamentoService.buscar( FiltroLancamento.builder().idUsuario(usuario.getId()).build() );
+		
+		String exposicao = mvc.perform( get("/actuator/prometheus") )
+			.andExpect( status().isOk() )
+			.andReturn().getResponse().getContentAsString();
+		
+		assertThat(exposicao).contains("financas_servicos_seconds_count{classe=\"LancamentoService\",excecao=\"nenhuma\",metodo=\"buscar\"");
+		assertThat(exposicao).contains("financas_servicos_seconds_bucket{classe=\"LancamentoService\"");
+	}
+	
+	private Timer timer(String nome, String classe, String metodo, String excecao) {
+		return registro.find(nome).tag("classe", classe).tag("metodo", metodo).tag("excecao", excecao).timer();
+	}
+	
+	private long contagem(Timer timer) {
+		return timer == null ? 0 : timer.count();
+	}
+	
+	private double falhas(ErroAutenticacao.Motivo motivo) {
+		return registro.find(MetricasAspect.FALHAS_AUTENTICACAO).tag("motivo", motivo.tag()).counters().stream()
+				.mapToDouble( contador -> contador.count() )
+				.sum();
+	}
+
+}